@@ -6,7 +6,6 @@ import com.davixdevelop.schem2obj.cubemodels.CubeModelFactory;
 import com.davixdevelop.schem2obj.materials.MaterialCollection;
 import com.davixdevelop.schem2obj.models.IntegerString;
 import com.davixdevelop.schem2obj.namespace.NamespaceMapping;
-import com.davixdevelop.schem2obj.schematic.SchematicHolder;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -136,10 +135,6 @@ public class Constants {
         TEXT_COLORS.put("black", new IntegerString("0", 0));
     }
 
-    public static boolean EXPORT_ALL_BLOCKS = false;
-
-    public static final SchematicHolder LOADED_SCHEMATIC = new SchematicHolder();
-
     public static final BlockModelCollection BLOCK_MODELS = new BlockModelCollection();
     public static final BlockStateCollection BLOCKS_STATES = new BlockStateCollection();
     public static final NamespaceMapping NAMESPACE_MAPPING = new NamespaceMapping();
@@ -159,8 +154,6 @@ public class Constants {
 
     public static Map<String, IntegerString> TEXT_COLORS = new HashMap<>();
 
-    public static boolean IS_SNOWY = false;
-
     public static Set<String> EntityFolderFilter = new HashSet<>();
     public static Set<String> SupportedEntities = new HashSet<>();
 
@@ -175,6 +168,4 @@ public class Constants {
 
     public static Map<String, Double> FACING_ROTATION = new HashMap<>();
 
-    public static boolean CHRISTMAS_CHEST = false;
-
 }
@@ -0,0 +1,233 @@
+package com.davixdevelop.schem2obj;
+
+import com.davixdevelop.schem2obj.schematic.SchematicHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of a single schematic conversion: the loaded schematic, the export flags and the materials the output uses.
+ * The loaded resources (block states, block models, materials and cube models) are shared between contexts,
+ * so that multiple conversions can run at the same time
+ *
+ * @author DavixDevelop
+ */
+public class ConversionContext {
+    public static final String DEFAULT_LEVELS_OF_DETAIL = "2,4,shell";
+
+    private final SchematicHolder schematic;
+
+    private final boolean exportAllBlocks;
+    private final boolean snowy;
+    private final boolean christmasChest;
+
+    //Max size of the texture atlas pages, or 0 if each material should use It's own textures
+    private int atlasSize = 0;
+
+    //Write the mip chain of each output texture
+    private boolean exportMips = false;
+
+    //Cell sizes (in blocks) of the coarse levels of detail to write, ex. 2 and 4
+    private int[] lodCellSizes = new int[0];
+    //Write the heightmap shell level of detail
+    private boolean lodShell = false;
+
+    //Number of block columns on the X and Z axis of each output tile, or 0 to write a single OBJ
+    private int tileSize = 0;
+    //Cull the faces on the seams between the tiles, as if the adjacent tile was present
+    private boolean cullTileSeams = false;
+
+    //Keep the tiles of the previous export, whose blocks didn't change
+    private boolean incremental = false;
+
+    //Drop the blocks and faces in the space, that can't be reached from outside the schematic
+    private boolean exteriorOnly = false;
+
+    //Only keep the blocks, that can be seen from directly above the schematic
+    private boolean topSurface = false;
+
+    //Positions of the cameras in the coordinates of the output OBJ, the faces no camera can see get dropped
+    private List<double[]> cameras = new ArrayList<>();
+
+    //Names of the materials the output OBJ uses, ex. blocks/dirt
+    private final Set<String> usedMaterials;
+
+    public ConversionContext(boolean exportAllBlocks, boolean snowy, boolean christmasChest){
+        this.schematic = new SchematicHolder(this);
+        this.exportAllBlocks = exportAllBlocks;
+        this.snowy = snowy;
+        this.christmasChest = christmasChest;
+
+        usedMaterials = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Create a new context with the same flags, but without a loaded schematic or used materials
+     * @return A new conversion context
+     */
+    public ConversionContext duplicate(){
+        ConversionContext context = new ConversionContext(exportAllBlocks, snowy, christmasChest);
+        context.setAtlasSize(atlasSize);
+        context.setExportMips(exportMips);
+        context.setLodCellSizes(lodCellSizes);
+        context.setLodShell(lodShell);
+        context.setTileSize(tileSize);
+        context.setCullTileSeams(cullTileSeams);
+        context.setIncremental(incremental);
+        context.setExteriorOnly(exteriorOnly);
+        context.setTopSurface(topSurface);
+        context.setCameras(cameras);
+        return context;
+    }
+
+    public SchematicHolder getSchematic() {
+        return schematic;
+    }
+
+    public boolean isExportAllBlocks() {
+        return exportAllBlocks;
+    }
+
+    public boolean isSnowy() {
+        return snowy;
+    }
+
+    public boolean isChristmasChest() {
+        return christmasChest;
+    }
+
+    public int getAtlasSize() {
+        return atlasSize;
+    }
+
+    public void setAtlasSize(int atlasSize) {
+        this.atlasSize = atlasSize;
+    }
+
+    public boolean isExportMips() {
+        return exportMips;
+    }
+
+    public void setExportMips(boolean exportMips) {
+        this.exportMips = exportMips;
+    }
+
+    public int[] getLodCellSizes() {
+        return lodCellSizes;
+    }
+
+    public void setLodCellSizes(int[] lodCellSizes) {
+        this.lodCellSizes = lodCellSizes;
+    }
+
+    public boolean isLodShell() {
+        return lodShell;
+    }
+
+    public void setLodShell(boolean lodShell) {
+        this.lodShell = lodShell;
+    }
+
+    /**
+     * Set the levels of detail from a comma separated list of cell sizes and/or shell, ex. 2,4,shell
+     * @param levels The list of levels, or an empty String to not write any level of detail
+     * @return False if the list contains an invalid level
+     */
+    public boolean setLevelsOfDetail(String levels){
+        List<Integer> cellSizes = new ArrayList<>();
+        boolean shell = false;
+
+        for(String level : levels.split(",")){
+            level = level.trim();
+            if(level.isEmpty())
+                continue;
+
+            if(level.equals("shell"))
+                shell = true;
+            else if(level.matches("\\d{1,4}") && Integer.parseInt(level) > 1){
+                if(!cellSizes.contains(Integer.parseInt(level)))
+                    cellSizes.add(Integer.parseInt(level));
+            }
+            else
+                return false;
+        }
+
+        lodCellSizes = cellSizes.stream().mapToInt(Integer::intValue).toArray();
+        lodShell = shell;
+        return true;
+    }
+
+    /**
+     * @return True if any level of detail should be written, besides the full detail OBJ
+     */
+    public boolean isExportLod() {
+        return lodCellSizes.length > 0 || lodShell;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public boolean isCullTileSeams() {
+        return cullTileSeams;
+    }
+
+    public void setCullTileSeams(boolean cullTileSeams) {
+        this.cullTileSeams = cullTileSeams;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isExteriorOnly() {
+        return exteriorOnly;
+    }
+
+    public void setExteriorOnly(boolean exteriorOnly) {
+        this.exteriorOnly = exteriorOnly;
+    }
+
+    public boolean isTopSurface() {
+        return topSurface;
+    }
+
+    public void setTopSurface(boolean topSurface) {
+        this.topSurface = topSurface;
+    }
+
+    public List<double[]> getCameras() {
+        return cameras;
+    }
+
+    public void setCameras(List<double[]> cameras) {
+        this.cameras = cameras;
+    }
+
+    /**
+     * Mark a material as used by the output, if it's present in the material collection
+     * @param name The name of the material ex, blocks/dirt
+     */
+    public void setUsedMaterial(String name){
+        if(Constants.BLOCK_MATERIALS.containsMaterial(name))
+            usedMaterials.add(name);
+    }
+
+    /**
+     * Return the used materials names
+     * @return A set of used materials
+     */
+    public Set<String> getUsedMaterials() {
+        return usedMaterials;
+    }
+}
@@ -1,20 +1,32 @@
 package com.davixdevelop.schem2obj;
 
+import com.davixdevelop.schem2obj.cubemodels.CubeModelFactory;
 import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.cubemodels.ICubeModel;
 import com.davixdevelop.schem2obj.cubemodels.entity.EntityCubeModel;
 import com.davixdevelop.schem2obj.cubemodels.entitytile.LavaCubeModel;
+import com.davixdevelop.schem2obj.cubemodels.entitytile.SignCubeModel;
 import com.davixdevelop.schem2obj.cubemodels.entitytile.WaterCubeModel;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
 import com.davixdevelop.schem2obj.resourceloader.ResourcePack;
+import com.davixdevelop.schem2obj.resourceloader.SkinCache;
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
+import com.davixdevelop.schem2obj.schematic.CameraVisibility;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.schematic.ExteriorSpace;
 import com.davixdevelop.schem2obj.schematic.Schematic;
+import com.davixdevelop.schem2obj.schematic.SchematicHolder;
+import com.davixdevelop.schem2obj.schematic.TopSurface;
+import com.davixdevelop.schem2obj.server.ConversionServer;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 import com.davixdevelop.schem2obj.util.LogUtility;
+import com.davixdevelop.schem2obj.util.TextureWriter;
 import com.davixdevelop.schem2obj.wavefront.*;
 import com.davixdevelop.schem2obj.materials.IMaterial;
+import com.davixdevelop.schem2obj.materials.TextureAtlas;
 
+import java.awt.image.BufferedImage;
 import java.io.*;
 import java.lang.ref.SoftReference;
 import java.nio.file.Files;
@@ -24,20 +36,50 @@ import java.util.*;
 import java.util.concurrent.*;
 
 public class SchemeToObj {
+    static final String USAGE = "Add arguments (-minecraftFolder <path to minecraft folder> -i <input schematic file> -t <path to resource pack> -o <output OBJ file>)" +
+            " or (-minecraftFolder <path to minecraft folder> -batch <folder or manifest of schematics> -t <path to resource pack> -o <output folder> -jobs <number of schematics to convert at the same time>)" +
+            " or (-minecraftFolder <path to minecraft folder> -server <port> -t <path to resource pack> -jobs <number of workers> -queue <number of waiting requests> -maxUpload <max size of an uploaded schematic in MB>)" +
+            ". Add -atlas <max size> to pack the textures into atlases" +
+            ", -textureCache <MB> to set the memory used for decoded textures" +
+            ", -maxTextureSize <pixels> to downscale bigger textures, -mips to write the mip chain of the textures" +
+            ", -textureFormat <png|tga|qoi> to set the format of the output textures and -compression <0-9> to set the PNG compression level" +
+            ". Add -skinCache <folder> to keep the downloaded player skins and -offlineSkins to only use the cached skins" +
+            ". Add -lod <levels, ex. 2,4,shell> to also write coarser versions of the schematic, with the blocks merged into cells of the size, or only It's heightmap shell" +
+            ". Add -tiles <size> to split the output into tiles of size x size block columns, listed in a manifest, -cullTileSeams to cull the faces between the tiles and -incremental to keep the tiles of the previous export, whose blocks didn't change" +
+            ". Add -exteriorOnly to drop the blocks and faces, that can't be seen from outside the schematic" +
+            ", and -cameras <x,y,z;x,y,z or file> to drop the faces, that can't be seen from any of the camera positions (in the coordinates of the OBJ). With either, -incremental converts all tiles again" +
+            ". Add -topSurface to only keep the blocks, that can be seen from directly above (ex. for map thumbnails)";
+
     public static void main(String[] arg) {
 
         Date start = new Date();
 
         String scheme_path = null;
         String output_path = null;
+        String batch_path = null;
 
         boolean exportAllBlock = false;
+        boolean isSnowy = false;
+        boolean christmasChests = false;
+        int jobCount = 1;
+        int queueSize = 64;
+        int maxUploadMB = ConversionServer.DEFAULT_MAX_UPLOAD_MB;
+        int atlasSize = 0;
+        boolean exportMips = false;
+        String levelsOfDetail = "";
+        int tileSize = 0;
+        boolean cullTileSeams = false;
+        boolean incremental = false;
+        boolean exteriorOnly = false;
+        boolean topSurface = false;
+        List<double[]> cameras = new ArrayList<>();
+        Integer serverPort = null;
 
         String rootFolder = Paths.get(".").toAbsolutePath().normalize().toString();
 
         Constants.setConstants();
 
-        if(arg.length >= 6) {
+        if(arg.length >= 4) {
             //Get the path to the minecraft folder from the arguments
             if(arg[0].startsWith("-minecraftFolder")){
                 String minecraftFolder = arg[1];
@@ -58,91 +100,269 @@ public class SchemeToObj {
                 }
             }
 
-            //Get scheme file from arguments
-            if(arg[2].startsWith("-i")){
-                if(arg[3].endsWith(".schematic") || arg[1].endsWith(".nbt")) {
-                    if(arg[3].startsWith(".")) //If filename starts with . It's a relative path -> convert it to absolute
-                        scheme_path = Paths.get(rootFolder, arg[3].substring(1)).toString();
-                    else
-                        scheme_path = arg[3];
-                }else{
-                    LogUtility.Log("Input scheme doesn't use the .schematic extension");
+            int nextArgIndex = 6;
+
+            //Get port of the conversion server from the arguments
+            if(arg[2].startsWith("-server")){
+                try{
+                    serverPort = Integer.parseInt(arg[3]);
+                }catch (NumberFormatException ex){
+                    LogUtility.Log("Invalid server port: " + arg[3]);
+                    return;
+                }
+                nextArgIndex = 4;
+            }else{
+                if(arg.length < 6){
+                    System.console().writer().println(USAGE);
                     return;
                 }
-            }else
-                return;
 
-            //Get output Wavefront file from arguments
-            if(arg[4].startsWith("-o")){
-                if(arg[5].endsWith(".obj")){
-                    if(arg[5].startsWith(".")) //If filename starts with . It's a relative path -> convert it to absolute
-                        output_path = Paths.get(rootFolder, arg[5].substring(1)).toString();
+                //Get folder or manifest of schematics from arguments
+                if(arg[2].startsWith("-batch")){
+                    if(arg[3].startsWith(".")) //If path starts with . It's a relative path -> convert it to absolute
+                        batch_path = Paths.get(rootFolder, arg[3].substring(1)).toString();
                     else
-                        output_path = arg[5];
+                        batch_path = arg[3];
+                }
+                //Get scheme file from arguments
+                else if(arg[2].startsWith("-i")){
+                    if(isSchematicFile(arg[3])) {
+                        if(arg[3].startsWith(".")) //If filename starts with . It's a relative path -> convert it to absolute
+                            scheme_path = Paths.get(rootFolder, arg[3].substring(1)).toString();
+                        else
+                            scheme_path = arg[3];
+                    }else{
+                        LogUtility.Log("Input scheme doesn't use the .schematic, .schem, .litematic or .nbt extension");
+                        return;
+                    }
+                }else
+                    return;
 
-                }else {
-                    LogUtility.Log("Output Wavefront file doesn't end with .obj");
+                //Get output Wavefront file from arguments
+                if(arg[4].startsWith("-o")){
+                    if(batch_path != null){
+                        //In batch mode the output is the folder where the OBJ files get written to
+                        if(arg[5].startsWith("."))
+                            output_path = Paths.get(rootFolder, arg[5].substring(1)).toString();
+                        else
+                            output_path = arg[5];
+                    }
+                    else if(arg[5].endsWith(".obj")){
+                        if(arg[5].startsWith(".")) //If filename starts with . It's a relative path -> convert it to absolute
+                            output_path = Paths.get(rootFolder, arg[5].substring(1)).toString();
+                        else
+                            output_path = arg[5];
+
+                    }else {
+                        LogUtility.Log("Output Wavefront file doesn't end with .obj");
+                        return;
+                    }
+                }else
                     return;
-                }
-            }else
-                return;
+            }
 
             //Read additional parameters (ex -allBlocks)
-            if(6 < arg.length){
-                int nextArgIndex = 6;
-                while (nextArgIndex < arg.length){
-                    if(arg[nextArgIndex].startsWith("-t")){
-                        nextArgIndex += 1;
+            while (nextArgIndex < arg.length){
+                if(arg[nextArgIndex].startsWith("-t")){
+                    nextArgIndex += 1;
 
-                        //Check if the user defined what format the resource pack is
-                        while(arg[nextArgIndex].startsWith("SEUS:") || arg[nextArgIndex].startsWith("Vanilla:") || arg[nextArgIndex].startsWith("Specular:")){
-                            //Get resource pack path
-                            String resourcePath = arg[nextArgIndex].substring(arg[nextArgIndex].indexOf(":") + 1);
-                            if(resourcePath.startsWith(".")) //Relative path -> convert to absolute
-                                resourcePath = Paths.get(rootFolder, resourcePath.substring(1)).toString();
-                            //Read the resource pack format (SEUS, Vanilla, Specular)
-                            String format = arg[nextArgIndex].substring(0, arg[nextArgIndex].indexOf(":"));
-
-                            if(format.equals("SEUS") || format.equals("Vanilla") || format.equals("Specular")) {
-
-                                LogUtility.Log("Loading resources from: " + resourcePath + " .Please wait.");
-                                //Register the material, blocks models and block states the resource pack uses
-                                if (!ResourceLoader.registerResourcePack(resourcePath, ResourcePack.Format.fromName(format))) {
-                                    LogUtility.Log("Input resource pack isn't valid");
-                                    LogUtility.Log("Using default textures instead");
-                                }
-                            }else
-                            {
-                                LogUtility.Log("Failed to register resource pack. Incorrect format provided: " + format);
+                    //Check if the user defined what format the resource pack is
+                    while(arg[nextArgIndex].startsWith("SEUS:") || arg[nextArgIndex].startsWith("Vanilla:") || arg[nextArgIndex].startsWith("Specular:")){
+                        //Get resource pack path
+                        String resourcePath = arg[nextArgIndex].substring(arg[nextArgIndex].indexOf(":") + 1);
+                        if(resourcePath.startsWith(".")) //Relative path -> convert to absolute
+                            resourcePath = Paths.get(rootFolder, resourcePath.substring(1)).toString();
+                        //Read the resource pack format (SEUS, Vanilla, Specular)
+                        String format = arg[nextArgIndex].substring(0, arg[nextArgIndex].indexOf(":"));
+
+                        if(format.equals("SEUS") || format.equals("Vanilla") || format.equals("Specular")) {
+
+                            LogUtility.Log("Loading resources from: " + resourcePath + " .Please wait.");
+                            //Register the material, blocks models and block states the resource pack uses
+                            if (!ResourceLoader.registerResourcePack(resourcePath, ResourcePack.Format.fromName(format))) {
+                                LogUtility.Log("Input resource pack isn't valid");
+                                LogUtility.Log("Using default textures instead");
                             }
+                        }else
+                        {
+                            LogUtility.Log("Failed to register resource pack. Incorrect format provided: " + format);
+                        }
 
-                            nextArgIndex += 1;
+                        nextArgIndex += 1;
 
-                            if(nextArgIndex >= arg.length)
-                                break;
-                        }
-                        nextArgIndex -= 1;
+                        if(nextArgIndex >= arg.length)
+                            break;
+                    }
+                    nextArgIndex -= 1;
+                }
+                else if(arg[nextArgIndex].equals("-allBlocks"))
+                    exportAllBlock = true;
+                else if(arg[nextArgIndex].equals("-snowy"))
+                    isSnowy = true;
+                else if(arg[nextArgIndex].equals("-christmasChests"))
+                    christmasChests = true;
+                else if(arg[nextArgIndex].equals("-atlas")){
+                    //Pack the textures into atlases, optionally followed by the max size of an atlas
+                    atlasSize = TextureAtlas.DEFAULT_SIZE;
+                    if(nextArgIndex + 1 < arg.length && arg[nextArgIndex + 1].matches("\\d+")){
+                        nextArgIndex += 1;
+                        atlasSize = Math.max(16, Integer.parseInt(arg[nextArgIndex]));
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-textureCache") && nextArgIndex + 1 < arg.length){
+                    //Max memory in MB of the decoded textures, that are kept between the materials
+                    nextArgIndex += 1;
+                    try{
+                        TextureCache.setMaxBytes(Long.parseLong(arg[nextArgIndex]) * 1024 * 1024);
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid texture cache size: " + arg[nextArgIndex]);
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-maxTextureSize") && nextArgIndex + 1 < arg.length){
+                    //Downscale the textures bigger than the size when they are decoded
+                    nextArgIndex += 1;
+                    try{
+                        TextureCache.setMaxTextureSize(Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid max texture size: " + arg[nextArgIndex]);
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-mips"))
+                    exportMips = true;
+                else if(arg[nextArgIndex].equals("-tiles") && nextArgIndex + 1 < arg.length){
+                    //Number of block columns on the X and Z axis of each output tile
+                    nextArgIndex += 1;
+                    try{
+                        tileSize = Math.max(1, Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid tile size: " + arg[nextArgIndex]);
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-cullTileSeams"))
+                    cullTileSeams = true;
+                else if(arg[nextArgIndex].equals("-incremental"))
+                    incremental = true;
+                else if(arg[nextArgIndex].equals("-exteriorOnly"))
+                    exteriorOnly = true;
+                else if(arg[nextArgIndex].equals("-topSurface"))
+                    topSurface = true;
+                else if(arg[nextArgIndex].equals("-cameras") && nextArgIndex + 1 < arg.length){
+                    //Positions of the cameras (x,y,z;x,y,z), or a text file of the positions
+                    nextArgIndex += 1;
+                    String camerasPath = arg[nextArgIndex];
+                    if(camerasPath.startsWith(".")) //Relative path -> convert to absolute
+                        camerasPath = Paths.get(rootFolder, camerasPath.substring(1)).toString();
+
+                    cameras = CameraVisibility.readCameras(camerasPath);
+                    if(cameras == null){
+                        LogUtility.Log("Invalid camera positions: " + arg[nextArgIndex]);
+                        cameras = new ArrayList<>();
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-lod")){
+                    //Write the coarse levels of detail, optionally followed by the list of levels
+                    levelsOfDetail = ConversionContext.DEFAULT_LEVELS_OF_DETAIL;
+                    if(nextArgIndex + 1 < arg.length && !arg[nextArgIndex + 1].startsWith("-")){
+                        nextArgIndex += 1;
+                        levelsOfDetail = arg[nextArgIndex];
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-textureFormat") && nextArgIndex + 1 < arg.length){
+                    nextArgIndex += 1;
+                    TextureWriter.Format textureFormat = TextureWriter.Format.fromName(arg[nextArgIndex]);
+                    if(textureFormat != null)
+                        TextureWriter.setFormat(textureFormat);
+                    else
+                        LogUtility.Log("Invalid texture format: " + arg[nextArgIndex]);
+                }
+                else if(arg[nextArgIndex].equals("-compression") && nextArgIndex + 1 < arg.length){
+                    //PNG compression level, from 0 (fastest) to 9 (smallest)
+                    nextArgIndex += 1;
+                    try{
+                        TextureWriter.setCompressionLevel(Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid compression level: " + arg[nextArgIndex]);
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-skinCache") && nextArgIndex + 1 < arg.length){
+                    //Folder where the downloaded player skins are kept between the runs
+                    nextArgIndex += 1;
+                    String skinCachePath = arg[nextArgIndex];
+                    if(skinCachePath.startsWith(".")) //Relative path -> convert to absolute
+                        skinCachePath = Paths.get(rootFolder, skinCachePath.substring(1)).toString();
+                    SkinCache.setCacheFolder(Paths.get(skinCachePath));
+                }
+                else if(arg[nextArgIndex].equals("-offlineSkins"))
+                    SkinCache.setOffline(true);
+                else if(arg[nextArgIndex].equals("-jobs") && nextArgIndex + 1 < arg.length){
+                    //Number of schematics to convert at the same time in batch or server mode
+                    nextArgIndex += 1;
+                    try{
+                        jobCount = Math.max(1, Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid number of jobs: " + arg[nextArgIndex]);
                     }
-                    else if(arg[nextArgIndex].equals("-allBlocks"))
-                        exportAllBlock = true;
-                    else if(arg[nextArgIndex].equals("-snowy"))
-                        Constants.IS_SNOWY = true;
-                    else if(arg[nextArgIndex].equals("-christmasChests"))
-                        Constants.CHRISTMAS_CHEST = true;
+                }
+                else if(arg[nextArgIndex].equals("-queue") && nextArgIndex + 1 < arg.length){
+                    //Number of conversion requests the server keeps waiting, before rejecting new ones
+                    nextArgIndex += 1;
+                    try{
+                        queueSize = Math.max(1, Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid queue size: " + arg[nextArgIndex]);
+                    }
+                }
+                else if(arg[nextArgIndex].equals("-maxUpload") && nextArgIndex + 1 < arg.length){
+                    //Max size of a schematic uploaded to the server in MB, the bigger uploads are rejected
                     nextArgIndex += 1;
+                    try{
+                        maxUploadMB = Math.max(1, Integer.parseInt(arg[nextArgIndex]));
+                    }catch (NumberFormatException ex){
+                        LogUtility.Log("Invalid max upload size: " + arg[nextArgIndex]);
+                    }
                 }
+                nextArgIndex += 1;
             }
-        }else
-            System.console().writer().println("Add arguments (-i <input schematic file> -t <path to resource pack> -o <output OBJ file>)");
+        }else {
+            System.console().writer().println(USAGE);
+            return;
+        }
 
-        Constants.EXPORT_ALL_BLOCKS = exportAllBlock;
+        ConversionContext context = new ConversionContext(exportAllBlock, isSnowy, christmasChests);
+        context.setAtlasSize(atlasSize);
+        context.setExportMips(exportMips);
+        context.setTileSize(tileSize);
+        context.setCullTileSeams(cullTileSeams);
+        context.setIncremental(incremental);
+        context.setExteriorOnly(exteriorOnly);
+        context.setTopSurface(topSurface);
+        context.setCameras(cameras);
+        //The unchanged blocks are kept per tile
+        if(incremental && tileSize == 0)
+            context.setTileSize(TiledOBJWriter.DEFAULT_TILE_SIZE);
+        if(!context.setLevelsOfDetail(levelsOfDetail))
+            LogUtility.Log("Invalid levels of detail: " + levelsOfDetail);
 
         SchemeToObj s = new SchemeToObj();
 
         //ArrayList<ICubeModel> objects = s.schemeToCubeModels(scheme_path, exportAllBlock);
 
+        if(serverPort != null){
+            //Keep running and convert the uploaded schematics, until the process is stopped
+            ConversionServer server = new ConversionServer(s, context, jobCount, queueSize);
+            server.setMaxUploadSize(maxUploadMB * 1024L * 1024L);
+            if(!server.start(serverPort))
+                LogUtility.Log("Failed to start the conversion server");
+            return;
+        }
 
-        if(!s.exportScheme(scheme_path, output_path, exportAllBlock)){
+        if(batch_path != null){
+            if(!s.exportBatch(batch_path, output_path, context, jobCount)){
+                LogUtility.Log("Failed to convert some of the schematics to OBJ");
+                return;
+            }
+        }
+        else if(!s.exportScheme(scheme_path, output_path, context)){
             LogUtility.Log("Failed to convert schematic to OBJ");
             return;
         }
@@ -157,7 +377,187 @@ public class SchemeToObj {
 
     }
 
-    public boolean exportScheme(String schemePath, String outPath, boolean exportAllBlocks){
+    //Keep the generated cube models and alpha images in memory after a conversion (used in batch and server mode)
+    boolean keepCache = false;
+
+    public void setKeepCache(boolean keepCache) {
+        this.keepCache = keepCache;
+    }
+
+    /**
+     * Clear the cube models, materials and skins, that only belong to the converted schematics (ex. the sign text, banners and player heads),
+     * and evict the least recently used block cube models, once there are more than the max number of them.
+     * The resource packs, the block cube models and the block materials stay loaded
+     * @param maxCubeModels The max number of block cube models to keep
+     */
+    public void clearSchematicCache(int maxCubeModels){
+        Constants.CUBE_MODEL_FACTORY.clearEntityData();
+        Constants.CUBE_MODEL_FACTORY.evictLeastRecentlyUsed(maxCubeModels);
+        SkinCache.clearData();
+    }
+
+    /**
+     * Convert multiple schematics in a single run. The resource packs, block states, block models,
+     * materials and generated cube models are loaded once, and reused between the schematics
+     * @param batchPath Path to a folder of schematics, or to a manifest file, where each line contains the path to a schematic,
+     *                  optionally followed by a ; and the path to the output OBJ file
+     * @param outFolder The folder to write the OBJ files to, if the output path isn't specified in the manifest
+     * @param context The context with the export flags, which gets copied for each schematic
+     * @param jobCount Number of schematics to convert at the same time
+     * @return True if all schematics were converted, else false
+     */
+    public boolean exportBatch(String batchPath, String outFolder, ConversionContext context, int jobCount){
+        List<String[]> jobs = readBatchJobs(batchPath, outFolder);
+
+        if(jobs == null)
+            return false;
+
+        if(jobs.isEmpty()){
+            LogUtility.Log("No schematics found in: " + batchPath);
+            return false;
+        }
+
+        keepCache = true;
+
+        //Each schematic gets It's own context, so that the schematics can be converted at the same time
+        ExecutorService executorService = Executors.newFixedThreadPool(jobCount);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for(int c = 0; c < jobs.size(); c++){
+            String[] job = jobs.get(c);
+            String progress = String.format("Converting (%d/%d): %s", c + 1, jobs.size(), job[0]);
+
+            results.add(executorService.submit(() -> {
+                LogUtility.Log(progress);
+                return exportScheme(job[0], job[1], context.duplicate());
+            }));
+        }
+
+        int failed = 0;
+        for(int c = 0; c < jobs.size(); c++){
+            boolean converted = false;
+            try{
+                converted = results.get(c).get();
+            }catch (Exception ex){
+                LogUtility.Log(ex.getMessage());
+            }
+
+            if(!converted){
+                LogUtility.Log("Failed to convert schematic to OBJ: " + jobs.get(c)[0]);
+                failed += 1;
+            }
+        }
+
+        executorService.shutdown();
+
+        keepCache = false;
+        Constants.CUBE_MODEL_FACTORY.clearData();
+        ImageUtility.clearData();
+
+        TextureCache.logStatistic();
+        TextureCache.clearData();
+        SkinCache.clearData();
+
+        LogUtility.Log(String.format("Converted %d of %d schematics", jobs.size() - failed, jobs.size()));
+
+        return failed == 0;
+    }
+
+    /**
+     * Read the list of schematics to convert
+     * @param batchPath Path to a folder of schematics, or to a manifest file
+     * @param outFolder The default folder for the output OBJ files
+     * @return A list of arrays, where each array contains the path to the schematic and the path to the output OBJ file
+     */
+    public List<String[]> readBatchJobs(String batchPath, String outFolder){
+        List<String[]> jobs = new ArrayList<>();
+
+        File batchFile = new File(batchPath);
+        if(!batchFile.exists()){
+            LogUtility.Log("Could not find specified batch folder or manifest");
+            return null;
+        }
+
+        File outputFolder = new File(outFolder);
+        if(!outputFolder.exists())
+            outputFolder.mkdirs();
+
+        if(batchFile.isDirectory()){
+            File[] schematicFiles = batchFile.listFiles((dir, name) -> isSchematicFile(name));
+            if(schematicFiles != null){
+                Arrays.sort(schematicFiles);
+                for(File schematicFile : schematicFiles){
+                    String objName = getObjName(schematicFile.getName());
+                    jobs.add(new String[]{schematicFile.getAbsolutePath(), Paths.get(outFolder, objName).toString()});
+                }
+            }
+        }else{
+            try{
+                List<String> lines = Files.readAllLines(batchFile.toPath());
+                for(String line : lines){
+                    line = line.trim();
+                    //Skip empty lines and comments
+                    if(line.isEmpty() || line.startsWith("#"))
+                        continue;
+
+                    String schematicPath = line;
+                    String objPath = null;
+
+                    if(line.contains(";")){
+                        schematicPath = line.substring(0, line.indexOf(";")).trim();
+                        objPath = line.substring(line.indexOf(";") + 1).trim();
+                    }
+
+                    //Resolve relative paths against the folder of the manifest
+                    Path manifestFolder = batchFile.getAbsoluteFile().getParentFile().toPath();
+                    schematicPath = manifestFolder.resolve(schematicPath).normalize().toString();
+
+                    if(objPath == null || objPath.isEmpty())
+                        objPath = Paths.get(outFolder, getObjName(new File(schematicPath).getName())).toString();
+                    else
+                        objPath = manifestFolder.resolve(objPath).normalize().toString();
+
+                    if(!objPath.endsWith(".obj")){
+                        LogUtility.Log("Output Wavefront file doesn't end with .obj: " + objPath);
+                        continue;
+                    }
+
+                    jobs.add(new String[]{schematicPath, objPath});
+                }
+            }catch (Exception ex){
+                LogUtility.Log("Could not read batch manifest");
+                LogUtility.Log(ex.getMessage());
+                return null;
+            }
+        }
+
+        return jobs;
+    }
+
+    /**
+     * @param fileName The name of the file
+     * @return True if the file uses the extension of a supported schematic format (.schematic, .schem, .litematic or .nbt)
+     */
+    public static boolean isSchematicFile(String fileName){
+        return fileName.endsWith(".schematic") || fileName.endsWith(".schem") || fileName.endsWith(".litematic") || fileName.endsWith(".nbt");
+    }
+
+    /**
+     * @param schematicName The name of the schematic file
+     * @return The name of the OBJ file, with the extension of the schematic replaced
+     */
+    private static String getObjName(String schematicName){
+        int extensionIndex = schematicName.lastIndexOf('.');
+        return ((extensionIndex > 0) ? schematicName.substring(0, extensionIndex) : schematicName) + ".obj";
+    }
+
+    public boolean exportScheme(String schemePath, String outPath, ConversionContext context){
+        SchematicHolder loadedSchematic = context.getSchematic();
+        boolean exportAllBlocks = context.isExportAllBlocks();
+        Set<String> textImages;
+
+        Constants.CUBE_MODEL_FACTORY.startConversion();
+
         try {
             InputStream schemeInput = new FileInputStream(schemePath);
 
@@ -165,8 +565,12 @@ public class SchemeToObj {
                 //Read schematic
                 Schematic schematic;
                 schematic = Schematic.loadSchematic(schemeInput);
-                //Load schematic into LOADED_SCHEMATIC
-                Constants.LOADED_SCHEMATIC.setSchematic(schematic);
+                //Load schematic into the conversion context
+                loadedSchematic.setSchematic(schematic);
+                //Resolve the player skins up front, so the conversion doesn't wait on each download
+                SkinCache.prefetch(schematic);
+                //Render the sign text in parallel, before the blocks get converted
+                textImages = SignCubeModel.prepareTextImages(schematic);
             }
             catch(IOException exception){
                 LogUtility.Log("Error while reading schematic");
@@ -198,21 +602,36 @@ public class SchemeToObj {
             }
         }
 
-        try{
-            //Write wavefront objects to output file
-            f = new PrintWriter(new BufferedWriter(new FileWriter(obj_file.toFile().getAbsolutePath())), false){
-                @Override
-                public void println() {
-                    write('\n');
-                }
-            };
-            //Specify which material library to use
-            f.println(String.format("mtllib %s.mtl", fileName));
-            f.flush();
-        }catch (Exception ex){
-            LogUtility.Log("Could not create output file:");
-            LogUtility.Log(ex.getMessage());
-            return false;
+        //Split the output into tiles of block columns, each written to It's own OBJ file
+        TiledOBJWriter tiledWriter = (context.getTileSize() > 0) ? new TiledOBJWriter(context.getTileSize(), loadedSchematic.getWidth(), loadedSchematic.getLength(), output_path) : null;
+
+        if(tiledWriter != null){
+            tiledWriter.computeHashes(loadedSchematic);
+
+            //Keep the tiles of the previous export, whose blocks didn't change
+            if(context.isIncremental()){
+                tiledWriter.reusePreviousTiles(context);
+                LogUtility.Log(String.format("Keeping %d unchanged tiles", tiledWriter.getReusedCount()));
+            }
+        }
+
+        if(tiledWriter == null){
+            try{
+                //Write wavefront objects to output file
+                f = new PrintWriter(new BufferedWriter(new FileWriter(obj_file.toFile().getAbsolutePath())), false){
+                    @Override
+                    public void println() {
+                        write('\n');
+                    }
+                };
+                //Specify which material library to use
+                f.println(String.format("mtllib %s.mtl", fileName));
+                f.flush();
+            }catch (Exception ex){
+                LogUtility.Log("Could not create output file:");
+                LogUtility.Log(ex.getMessage());
+                return false;
+            }
         }
 
         //Queue of processed cube models to be exported to obj
@@ -227,12 +646,25 @@ public class SchemeToObj {
             int[] countTracker = new int[]{0,0,0};
 
             int counter = 0;
-            //int totalBlocks = (Constants.LOADED_SCHEMATIC.getLength() * Constants.LOADED_SCHEMATIC.getWidth() * Constants.LOADED_SCHEMATIC.getHeight()) + Constants.LOADED_SCHEMATIC.getEntitiesCount();
+            //int totalBlocks = (loadedSchematic.getLength() * loadedSchematic.getWidth() * loadedSchematic.getHeight()) + loadedSchematic.getEntitiesCount();
 
             while(processingBlocks[0] || !processedCubesModels.isEmpty()) { //|| !executorService.isTerminated()){
                 if(!processedCubesModels.isEmpty()){
                     ICubeModel cubeModel = processedCubesModels.poll();
-                    if(!exportToOBJ(countTracker, cubeModel, finalF)) {
+                    if(tiledWriter != null){
+                        //Write each part of the cube model to the tile it lies in
+                        for(Map.Entry<Integer, ICubeModel> part : tiledWriter.split(cubeModel).entrySet()){
+                            if(tiledWriter.isReused(part.getKey()))
+                                continue;
+
+                            PrintWriter tileF = tiledWriter.getWriter(part.getKey());
+                            if(tileF == null || !exportToOBJ(tiledWriter.getCountTracker(part.getKey()), part.getValue(), tileF, context)) {
+                                writerError[0] = true;
+                                return;
+                            }
+                        }
+                    }
+                    else if(!exportToOBJ(countTracker, cubeModel, finalF, context)) {
                         writerError[0] = true;
                         return;
                     }
@@ -242,19 +674,51 @@ public class SchemeToObj {
                 }
             }
             //Flush and close output stream
-            finalF.flush();
-            finalF.close();
+            if(tiledWriter != null)
+                tiledWriter.close();
+            else {
+                finalF.flush();
+                finalF.close();
+            }
         });
 
-        int width = Constants.LOADED_SCHEMATIC.getWidth();
-        int length = Constants.LOADED_SCHEMATIC.getLength();
-        int height = Constants.LOADED_SCHEMATIC.getHeight();
+        int width = loadedSchematic.getWidth();
+        int length = loadedSchematic.getLength();
+        int height = loadedSchematic.getHeight();
 
         WaterCubeModel waterObject = null;
         LavaCubeModel lavaObject = null;
 
         Map<Integer, SoftReference<Map<?, ?>>> singletonBlockIndex = new ConcurrentHashMap<>();
 
+        //The surface material of each block, for the coarse levels of detail
+        LevelOfDetail levelOfDetail = context.isExportLod() ? new LevelOfDetail(width, height, length) : null;
+
+        //Scan each column from the top down to It's first opaque block, to only keep the blocks that can be seen from above.
+        //Only the singletons of the scanned blocks get created, while scanning
+        TopSurface topSurface = null;
+        if(context.isTopSurface()){
+            LogUtility.Log("Scanning top surface");
+            topSurface = new TopSurface(width, height, length);
+            topSurface.scan(index -> {
+                if(loadedSchematic.isAirOrLiquid(index))
+                    return false;
+
+                int x = index % width;
+                int z = (index / width) % length;
+                int y = index / (width * length);
+
+                Map<?, ?> key = getSingletonKey(loadedSchematic, x, y, z);
+                if(key == null)
+                    return false;
+
+                singletonBlockIndex.put(index, new SoftReference<>(key));
+
+                ICubeModel singletonCubeModel = Constants.CUBE_MODEL_FACTORY.fromKey(key);
+                return singletonCubeModel != null && !CubeModelFactory.isTranslucentOrNotFull(singletonCubeModel);
+            });
+        }
+
         LogUtility.Log("Generating blocks");
         //Create singleton cube models
         for (int x = 0; x < width; x++) {
@@ -262,20 +726,58 @@ public class SchemeToObj {
                 for (int z = 0; z < length; z++) {
                     final int index = x + (y * length + z) * width;
 
-                    if(!Constants.LOADED_SCHEMATIC.isAirOrLiquid(index)){
-                        Namespace namespace = Constants.LOADED_SCHEMATIC.getNamespace(x, y, z);
-                        //ToDo: Remove the builtin domain
-                        if(namespace.getDomain().equals("builtin") && Constants.SupportedEntities.contains(namespace.getType())){
-                            namespace.setCustomData(Constants.LOADED_SCHEMATIC.getEntityValues(x, y, z));
-                        }else if(namespace.getDomain().equals("builtin"))
-                            continue;
+                    //The blocks under the top surface can't be seen from above, and the scanned blocks already have their singletons
+                    if(topSurface != null && (!topSurface.isKept(x, y, z) || singletonBlockIndex.containsKey(index)))
+                        continue;
 
-                        singletonBlockIndex.put(index, new SoftReference<>(Constants.CUBE_MODEL_FACTORY.getKey(namespace)));
+                    if(!loadedSchematic.isAirOrLiquid(index)){
+                        Map<?, ?> key = getSingletonKey(loadedSchematic, x, y, z);
+                        if(key != null)
+                            singletonBlockIndex.put(index, new SoftReference<>(key));
                     }
                 }
             }
         }
 
+        //The singletons of the blocks in the kept tiles are created, but not converted, so that their materials exist
+        if(tiledWriter != null && tiledWriter.getReusedCount() > 0){
+            int keptCount = tiledWriter.getReusedCount();
+            tiledWriter.keepTilesWithMaterials(context);
+            if(tiledWriter.getReusedCount() < keptCount)
+                LogUtility.Log(String.format("Converting %d unchanged tiles again, as their materials are missing", keptCount - tiledWriter.getReusedCount()));
+        }
+
+        //Fill the space that can be seen from outside, to drop the blocks and faces in the enclosed space,
+        //and march the rays from the cameras, to drop the faces no camera can see
+        ExteriorSpace exteriorSpace = null;
+        CameraVisibility cameraVisibility = null;
+        if(context.isExteriorOnly() || !context.getCameras().isEmpty()){
+            exteriorSpace = new ExteriorSpace(width, height, length);
+
+            for(int index = 0; index < width * height * length; index++){
+                if(!loadedSchematic.isAirOrLiquid(index) && singletonBlockIndex.containsKey(index)){
+                    Map<?, ?> key = singletonBlockIndex.get(index).get();
+                    ICubeModel singletonCubeModel = (key != null) ? Constants.CUBE_MODEL_FACTORY.fromKey(key) : null;
+
+                    if(singletonCubeModel != null && !CubeModelFactory.isTranslucentOrNotFull(singletonCubeModel))
+                        continue;
+                }
+
+                exteriorSpace.setPassable(index);
+            }
+
+            if(context.isExteriorOnly()){
+                LogUtility.Log("Filling exterior space");
+                exteriorSpace.fill();
+            }
+
+            if(!context.getCameras().isEmpty()){
+                LogUtility.Log(String.format("Marching rays from %d cameras", context.getCameras().size()));
+                cameraVisibility = new CameraVisibility(exteriorSpace, context.getCameras());
+                cameraVisibility.compute(loadedSchematic);
+            }
+        }
+
         LogUtility.Log("Converting blocks");
         LogUtility.Log("");
 
@@ -285,8 +787,20 @@ public class SchemeToObj {
                 for(int z = 0; z < length; z++) {
                     final int index = x + (y * length + z) * width;
 
-                    if(Constants.LOADED_SCHEMATIC.isLiquid(index)){
-                        Namespace namespace = Constants.LOADED_SCHEMATIC.getNamespace(x, y, z);
+                    //The liquids and the not full blocks in the enclosed space can't be seen
+                    if(exteriorSpace != null && exteriorSpace.isEnclosed(x, y, z))
+                        continue;
+
+                    //The blocks and liquids no camera can see
+                    if(cameraVisibility != null && loadedSchematic.getBlockID(index) != 0 && !cameraVisibility.isVisible(x, y, z))
+                        continue;
+
+                    //The blocks and liquids under the top surface
+                    if(topSurface != null && !topSurface.isKept(x, y, z))
+                        continue;
+
+                    if(loadedSchematic.isLiquid(index)){
+                        Namespace namespace = loadedSchematic.getNamespace(x, y, z);
 
                         if(namespace != null && namespace.getDomain().equals("builtin")) {
                             switch (namespace.getType()) {
@@ -312,7 +826,7 @@ public class SchemeToObj {
                         }
                     }
 
-                    if(Constants.LOADED_SCHEMATIC.isAirOrLiquid(index))
+                    if(loadedSchematic.isAirOrLiquid(index))
                         continue;
 
                     try{
@@ -326,6 +840,12 @@ public class SchemeToObj {
                             ICubeModel singletonCubeModel = Constants.CUBE_MODEL_FACTORY.fromKey(key);
 
                             if(singletonCubeModel != null){
+                                if(levelOfDetail != null)
+                                    levelOfDetail.setBlock(index, singletonCubeModel);
+
+                                if(tiledWriter != null && tiledWriter.isReused(tiledWriter.getTileIndex(x, z)))
+                                    continue;
+
                                 singletonCubeModel = singletonCubeModel.duplicate();
 
                                 if(!exportAllBlocks){
@@ -347,8 +867,12 @@ public class SchemeToObj {
                                                 adjacentY >= 0 && adjacentY < height) {
                                             int adjacentKey = adjacentX + (adjacentY * length + adjacentZ) * width;
 
+                                            //Keep the faces on the seams between the tiles, so that each tile is closed on It's own
+                                            if(tiledWriter != null && !context.isCullTileSeams() && tiledWriter.getTileIndex(x, z) != tiledWriter.getTileIndex(adjacentX, adjacentZ))
+                                                continue;
+
                                             //If adjacent block is air or liquid ignore it
-                                            if(Constants.LOADED_SCHEMATIC.isAirOrLiquid(adjacentKey))
+                                            if(loadedSchematic.isAirOrLiquid(adjacentKey))
                                                 continue;
 
                                             if(!singletonBlockIndex.containsKey(adjacentKey))
@@ -373,6 +897,20 @@ public class SchemeToObj {
                                     }
                                 }
 
+                                //Delete the faces of the full blocks, that only face the enclosed space, or no camera can see
+                                if(exteriorSpace != null && !exteriorSpace.isPassable(index)){
+                                    for(int o = 0; o < 6; o++){
+                                        Orientation faceOrientation = Orientation.getOrientation(o);
+                                        if(exteriorSpace.isEnclosed(x + faceOrientation.getXOffset(), y + faceOrientation.getZOffset(), z - faceOrientation.getYOffset()) ||
+                                                (cameraVisibility != null && !cameraVisibility.isFaceVisible(x, y, z, faceOrientation)))
+                                            singletonCubeModel.deleteFaces(faceOrientation);
+                                    }
+                                }
+
+                                //The bottom faces can't be seen from above
+                                if(topSurface != null)
+                                    singletonCubeModel.deleteFaces(Orientation.DOWN);
+
                                 //Translate the copy of the singleton block to the position of the block in the space
                                 CubeModelUtility.translateCubeModel(singletonCubeModel, new Double[]{(double)x, (double) z, (double) y}, new Integer[]{(int) width, (int) length, (int) height});
 
@@ -397,19 +935,35 @@ public class SchemeToObj {
             processedCubesModels.add(lavaObject);
         }
 
-        if(Constants.LOADED_SCHEMATIC.getEntitiesCount() > 0){
-            int entitiesCount = Constants.LOADED_SCHEMATIC.getEntitiesCount();
+        if(loadedSchematic.getEntitiesCount() > 0){
+            int entitiesCount = loadedSchematic.getEntitiesCount();
             for(int entityIndex = 0; entityIndex < entitiesCount; entityIndex++){
-                Namespace namespace = Constants.LOADED_SCHEMATIC.getEntityNamespace(entityIndex);
+                Namespace namespace = loadedSchematic.getEntityNamespace(entityIndex);
 
                 if(namespace == null)
                     continue;
 
-                EntityValues entityValues = Constants.LOADED_SCHEMATIC.getEntityValues(entityIndex);
+                EntityValues entityValues = loadedSchematic.getEntityValues(entityIndex);
 
                 if(!Constants.SupportedEntities.contains(namespace.getType()))
                     continue;
 
+                //The entities in the enclosed space, that no camera can see, or under the top surface
+                if((exteriorSpace != null || topSurface != null) && entityValues.containsKey("Pos")){
+                    List<Double> pos = entityValues.getDoubleList("Pos");
+                    if(pos.size() == 3){
+                        int entityX = (int) Math.floor(pos.get(0) - loadedSchematic.getOriginX());
+                        int entityY = (int) Math.floor(pos.get(1) - loadedSchematic.getOriginY());
+                        int entityZ = (int) Math.floor(pos.get(2) - loadedSchematic.getOriginZ());
+
+                        if(exteriorSpace != null && (exteriorSpace.isEnclosed(entityX, entityY, entityZ) || (cameraVisibility != null && !cameraVisibility.isSpaceVisible(entityX, entityY, entityZ))))
+                            continue;
+
+                        if(topSurface != null && !topSurface.isSpaceKept(entityX, entityY, entityZ))
+                            continue;
+                    }
+                }
+
                 //Inject entity values into custom data of namespace
                 namespace.setCustomData(entityValues);
 
@@ -423,9 +977,9 @@ public class SchemeToObj {
                     //Get origin of entity
                     Double[] entityOrigin = ((EntityCubeModel)entityCubeModel).getOrigin();
 
-                    double x = Math.abs(pos.get(0) - Constants.LOADED_SCHEMATIC.getOriginX() - entityOrigin[0]);
-                    double y = Math.abs(pos.get(2) - Constants.LOADED_SCHEMATIC.getOriginZ() - entityOrigin[1]);
-                    double z = Math.abs(pos.get(1) - Constants.LOADED_SCHEMATIC.getOriginY() - entityOrigin[2]);
+                    double x = Math.abs(pos.get(0) - loadedSchematic.getOriginX() - entityOrigin[0]);
+                    double y = Math.abs(pos.get(2) - loadedSchematic.getOriginZ() - entityOrigin[1]);
+                    double z = Math.abs(pos.get(1) - loadedSchematic.getOriginY() - entityOrigin[2]);
 
                     CubeModelUtility.translateCubeModel(entityCubeModel, new Double[]{x, y, z}, new Integer[]{width,length,height});
 
@@ -442,9 +996,21 @@ public class SchemeToObj {
 
 
         LogUtility.Log("");
-        if(!writerError[0]) {
+        //The levels of detail add their materials to the used materials, so they are written before the material file
+        List<Path> levelsOfDetail = new ArrayList<>();
+        if(!writerError[0] && levelOfDetail != null){
+            LogUtility.Log("Writing levels of detail");
+            levelsOfDetail = levelOfDetail.export(output_path, context);
+            if(levelsOfDetail == null){
+                LogUtility.Log("Error while writing levels of detail");
+                return false;
+            }
+        }
+
+        //The atlas remaps the texture coordinates of the final OBJ, so the materials are written after merging
+        if(!writerError[0] && context.getAtlasSize() == 0) {
             LogUtility.Log("Writing material file");
-            if(!exportMaterialsToMTL(outPath)) {
+            if(!exportMaterialsToMTL(outPath, context, null)) {
                 LogUtility.Log("Error while writing material file");
                 return false;
             }
@@ -457,18 +1023,116 @@ public class SchemeToObj {
             return  false;
         }
 
+        //The blocks are converted, so the text images that are left belong to the signs that were skipped
+        SignCubeModel.clearTextImages(textImages);
+
+        //The written OBJ files, that use the material file
+        List<Path> objFiles = new ArrayList<>();
+        objFiles.add(output_path);
+
         if(!exportAllBlocks){
             LogUtility.Log("Merging blocks");
-            Constants.CUBE_MODEL_FACTORY.clearData();
-            ImageUtility.clearData();
-            if(!WavefrontUtility.mergeOBJ(obj_file, output_path))
+            if(!keepCache) {
+                Constants.CUBE_MODEL_FACTORY.clearData();
+                ImageUtility.clearData();
+            }
+            if(tiledWriter == null && !WavefrontUtility.mergeOBJ(obj_file, output_path))
+                return false;
+        }
+
+        if(tiledWriter != null){
+            LogUtility.Log("Writing tiles");
+            objFiles = tiledWriter.finish(!exportAllBlocks, Runtime.getRuntime().availableProcessors());
+            if(objFiles == null){
+                LogUtility.Log("Error while writing tiles");
+                return false;
+            }
+        }
+
+        if(!writerError[0] && context.getAtlasSize() > 0){
+            LogUtility.Log("Packing textures into atlases");
+            objFiles.addAll(levelsOfDetail);
+            TextureAtlas atlas = exportToAtlas(objFiles, context);
+            if(atlas == null){
+                LogUtility.Log("Error while packing textures into atlases");
                 return false;
+            }
+
+            LogUtility.Log("Writing material file");
+            if(!exportMaterialsToMTL(outPath, context, atlas)) {
+                LogUtility.Log("Error while writing material file");
+                return false;
+            }
         }
 
+        //The manifest lists the size of the final tiles, so it's written last
+        if(!writerError[0] && tiledWriter != null && !tiledWriter.writeManifest(context)){
+            LogUtility.Log("Error while writing tile manifest");
+            return false;
+        }
+
+        if(!keepCache)
+            TextureCache.logStatistic();
+
         return !writerError[0];
     }
 
-    public boolean exportMaterialsToMTL(String outputPath){
+    /**
+     * Get the key of the singleton cube model of the block, and create the singleton if it doesn't exist yet
+     * @param loadedSchematic The loaded schematic
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return The key of the singleton, or null if the block isn't supported
+     */
+    private static Map<?, ?> getSingletonKey(SchematicHolder loadedSchematic, int x, int y, int z){
+        Namespace namespace = loadedSchematic.getNamespace(x, y, z);
+        //ToDo: Remove the builtin domain
+        if(namespace.getDomain().equals("builtin") && Constants.SupportedEntities.contains(namespace.getType())){
+            namespace.setCustomData(loadedSchematic.getEntityValues(x, y, z));
+        }else if(namespace.getDomain().equals("builtin"))
+            return null;
+
+        return Constants.CUBE_MODEL_FACTORY.getKey(namespace);
+    }
+
+    /**
+     * Pack the textures of the used materials into atlases, and remap the texture coordinates of the OBJ files to them.
+     * Materials with tiled texture coordinates keep their own textures, as they can't repeat inside an atlas
+     * @param objFiles The written OBJ files, that use the same material file
+     * @param context The context of the conversion
+     * @return The atlas with the packed materials, or null if an OBJ file couldn't be rewritten
+     */
+    public TextureAtlas exportToAtlas(List<Path> objFiles, ConversionContext context){
+        Set<String> tiledMaterials = new HashSet<>();
+        for(Path objFile : objFiles)
+            tiledMaterials.addAll(WavefrontUtility.findTiledMaterials(objFile));
+
+        List<IMaterial> materials = new ArrayList<>();
+        for(String materialName : context.getUsedMaterials()){
+            IMaterial material = Constants.BLOCK_MATERIALS.getMaterial(materialName);
+            if(!tiledMaterials.contains(material.getName()))
+                materials.add(material);
+        }
+
+        TextureAtlas atlas = TextureAtlas.pack(materials, context.getAtlasSize());
+
+        for(Path objFile : objFiles){
+            if(!WavefrontUtility.remapToAtlas(objFile, atlas))
+                return null;
+        }
+
+        return atlas;
+    }
+
+    /**
+     * Write the used materials and their textures
+     * @param outputPath Path to the output OBJ file
+     * @param context The context of the conversion
+     * @param atlas The atlas the textures were packed into, or null if the materials use their own textures
+     * @return True if the material file was written, else false
+     */
+    public boolean exportMaterialsToMTL(String outputPath, ConversionContext context, TextureAtlas atlas){
         try{
             Path output_path = Paths.get(outputPath);
 
@@ -480,11 +1144,16 @@ public class SchemeToObj {
                 //Crete folder with name of output file if it doesn't exist yet
                 textureFolderOutPath.toFile().mkdir();
             else{
-                //Else delete the files inside the output texture folder
+                //Else delete the files inside the output texture folder, that don't belong to a used material (ex. the materials of the kept tiles)
+                Set<String> textureNames = new HashSet<>();
+                for(String materialName : context.getUsedMaterials())
+                    textureNames.add(CubeModelUtility.textureName(materialName));
+
                 File[] textureFiles = textureFolderOutPath.toFile().listFiles();
                 if(textureFiles != null) {
                     for (File textureFile : textureFiles) {
-                        textureFile.delete();
+                        if(!isTextureOf(textureFile.getName(), textureNames))
+                            textureFile.delete();
                     }
                 }
             }
@@ -502,9 +1171,18 @@ public class SchemeToObj {
             //Texture path is the same folder as the output path in the folder of the same name as the object file
             String textureFileOutPath = Paths.get(output_path.toFile().getParent(), fileName).toFile().toString();
 
-            for(String materialName : Constants.BLOCK_MATERIALS.usedMaterials()){
+            //Write the pages of the atlas, instead of the packed materials
+            List<IMaterial> materials = new ArrayList<>();
+            if(atlas != null)
+                materials.addAll(atlas.getPages());
+
+            for(String materialName : context.getUsedMaterials()){
                 IMaterial material = Constants.BLOCK_MATERIALS.getMaterial(materialName);
+                if(atlas == null || atlas.getRegion(material.getName()) == null)
+                    materials.add(material);
+            }
 
+            for(IMaterial material : materials){
                 //Get the material lines
                 ArrayList<String> materialLines = material.toMTL(textureFileOutPath);
 
@@ -520,6 +1198,9 @@ public class SchemeToObj {
             f.flush();
             f.close();
 
+            if(context.isExportMips())
+                exportMipChains(textureFolderOutPath);
+
         }catch (Exception ex){
             LogUtility.Log("Could not create material file");
             LogUtility.Log(ex.getMessage());
@@ -529,12 +1210,62 @@ public class SchemeToObj {
         return true;
     }
 
-    public boolean exportToOBJ(int[] countTracker, ICubeModel cubeModel, PrintWriter f){
+    /**
+     * Check if the texture file was written by one of the materials (ex. dirt.png, dirt_n.png or dirt_mip1.png for dirt)
+     * @param textureFileName The name of the texture file
+     * @param textureNames The names of the materials
+     * @return True if the texture file belongs to one of the materials
+     */
+    private static boolean isTextureOf(String textureFileName, Set<String> textureNames){
+        String baseName = textureFileName.contains(".") ? textureFileName.substring(0, textureFileName.lastIndexOf('.')) : textureFileName;
+        if(textureNames.contains(baseName))
+            return true;
+
+        for(int index = baseName.indexOf('_'); index > 0; index = baseName.indexOf('_', index + 1)){
+            if(textureNames.contains(baseName.substring(0, index)))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Write the mip chain of each texture in the texture folder
+     * @param textureFolder The folder with the written textures
+     */
+    private static void exportMipChains(Path textureFolder){
+        //The written textures are read back, which is only possible for PNG
+        if(TextureWriter.getFormat() != TextureWriter.Format.PNG){
+            LogUtility.Log("Mip chains can only be written for PNG textures");
+            return;
+        }
+
+        //Skip the mips already in the folder (ex. from a previous export), so that no mips of mips get written
+        File[] textureFiles = textureFolder.toFile().listFiles((folder, name) -> name.endsWith(".png") && !name.matches(".*_mip\\d+\\.png"));
+        if(textureFiles == null)
+            return;
+
+        Arrays.stream(textureFiles).parallel().forEach(textureFile -> {
+            try{
+                BufferedImage texture = ImageUtility.toBuffedImage(new FileInputStream(textureFile));
+                if(texture != null)
+                    ImageUtility.writeMipChain(texture, textureFile.toString());
+            }catch (IOException ex){
+                LogUtility.Log(ex.getMessage());
+            }
+        });
+    }
+
+    public boolean exportToOBJ(int[] countTracker, ICubeModel cubeModel, PrintWriter f, ConversionContext context){
         try{
             IWavefrontObject object = WavefrontObjectFactory.fromCubeModel(cubeModel);
 
             if(object != null && !object.getMaterialFaces().isEmpty()){
                 WavefrontUtility.writeObjectData(object, f, countTracker);
+
+                //Mark the written materials as used by this conversion
+                for(String materialName : object.getMaterialFaces().keySet())
+                    context.setUsedMaterial(materialName);
             }
 
         }catch (Exception ex){
@@ -234,6 +234,59 @@ public class BlockModel {
     }
 
 
+    /**
+     * Merge a parent chain of models into a single model without a parent.
+     * The texture variables are resolved in the same way as in CubeModelUtility.modelsToMaterials,
+     * and the elements are taken in the same way as in CubeModel.fromVariantModel,
+     * so the flattened model produces the same cube model as the whole chain
+     * @param modelName The name of the flattened model
+     * @param models The model and It's parents, child first
+     * @return The flattened BlockModel
+     */
+    public static BlockModel flatten(String modelName, List<BlockModel> models){
+        String particle = null;
+        Boolean ambientOcclusion = null;
+        BlockDisplay.DisplayItem fixedDisplay = null;
+
+        HashMap<String, String> textureVariables = new HashMap<>();
+        ArrayList<CubeElement> cubeElements = new ArrayList<>();
+        boolean generatedElements = false;
+
+        for(BlockModel model : models){
+            if(model.textures != null){
+                if(particle == null)
+                    particle = model.textures.getParticle();
+
+                for(Map.Entry<String, String> texture : model.textures.getTextures().entrySet()){
+                    String value = texture.getValue();
+
+                    //Raw value (ex. block/dirt), the nearest model to the child wins
+                    if(!value.startsWith("#")) {
+                        if(!textureVariables.containsKey(texture.getKey()))
+                            textureVariables.put(texture.getKey(), value);
+                    }
+                    //Variable (ex. #all), resolve it with the value from the child models
+                    else if(textureVariables.containsKey(value.substring(1)))
+                        textureVariables.put(texture.getKey(), textureVariables.get(value.substring(1)));
+                }
+            }
+
+            if(ambientOcclusion == null)
+                ambientOcclusion = model.ambientOcclusion;
+
+            if(fixedDisplay == null)
+                fixedDisplay = model.fixedDisplay;
+
+            //Only the first model with elements and the root model (no parent) contribute elements
+            if(model.elements != null && !model.elements.isEmpty() && (!generatedElements || model.parent == null)){
+                cubeElements.addAll(model.elements);
+                generatedElements = true;
+            }
+        }
+
+        return new BlockModel(modelName, null, ambientOcclusion, new BlockTextures(particle, textureVariables), cubeElements, fixedDisplay);
+    }
+
     public BlockModel duplicate(){
         BlockTextures cloneTextures = null;
         ArrayList<CubeElement> cloneElements = new ArrayList<>();
@@ -4,20 +4,30 @@ import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
 
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- * Represent a collection of Block Models
+ * Represent a collection of Block Models.
+ * The models are read and resolved only once, and are shared between all callers,
+ * so the returned models must be duplicated before they are modified
  * @author DavixDevelop
  */
 public class BlockModelCollection {
 
     ConcurrentMap<String, BlockModel> blocksModels;
 
+    //Resolved parent chains, key: model name (ex. block/dirt), value: the model and It's parents, child first
+    ConcurrentMap<String, List<BlockModel>> modelChains;
+    //Flattened parent chains, key: model name (ex. block/dirt)
+    ConcurrentMap<String, BlockModel> flattenedModels;
+
     public BlockModelCollection(){
         blocksModels = new ConcurrentHashMap<>();
+        modelChains = new ConcurrentHashMap<>();
+        flattenedModels = new ConcurrentHashMap<>();
     }
 
     /**
@@ -29,21 +39,10 @@ public class BlockModelCollection {
      */
     private void getBlockModelInternal(ArrayList<BlockModel> models, String modelName){
 
-        //Check if block was already read from assets
-        if (blocksModels.containsKey(modelName)) {
-            BlockModel item = blocksModels.get(modelName).duplicate();
-            //Add model item as first element in array, so that the requested block is the first element
-            models.add(item);
-
-            //item.setRootVariant(variant);
+        BlockModel model = blocksModels.get(modelName);
 
-            //Check if model has parent and It's not builtin/entity as It doesn't exist
-            if (item.getParent() != null && !item.getParent().equals("builtin/entity") && !item.getParent().equals("builtin/generated")) {
-                //Recursive call to get model parent/parents
-                getBlockModelInternal(models, item.getParent());
-            }
-
-        } else {
+        //Check if block was already read from assets
+        if (model == null) {
             //Else get block model from the Resources
             String modelPath = ResourceLoader.getResourcePath("models", modelName,"json");
 
@@ -52,23 +51,43 @@ public class BlockModelCollection {
             if(modelStream == null)
                 return;
 
-            //Read from stream
-            BlockModel model = BlockModel.readFromJson(modelStream, modelName);
+            //Read from stream, and store model in memory for later
+            model = blocksModels.computeIfAbsent(modelName, key -> BlockModel.readFromJson(modelStream, key));
+        }
 
-            //Store model in memory for later
-            blocksModels.put(modelName, model.duplicate());
+        //Add model item as first element in array, so that the requested block is the first element
+        models.add(model);
 
-            //model.setRootVariant(variant);
+        //Skip builtin/entity and builtin/generated, as they don't exist
+        if (model.getParent() != null && !model.getParent().equals("builtin/entity") && !model.getParent().equals("builtin/generated")) {
+            //Recursive call to get model parent/parents
+            getBlockModelInternal(models, model.getParent());
+        }
+    }
 
-            models.add(model);
+    /**
+     * Get the resolved parent chain of the model, and resolve it if it wasn't resolved yet
+     * @param modelName The full name of the model, ex. block/dirt
+     * @return Read-only list of the model and It's parents, child first
+     */
+    private List<BlockModel> getModelChain(String modelName){
+        List<BlockModel> chain = modelChains.get(modelName);
+        if(chain == null){
+            ArrayList<BlockModel> models = new ArrayList<>();
+            getBlockModelInternal(models, modelName);
 
-            //Skip builtin/entity, as it doesn't exists
-            if (model.getParent() != null && !model.getParent().equals("builtin/entity") && !model.getParent().equals("builtin/generated")) {
-                //Recursive call to get model parent/parents
-                getBlockModelInternal(models, model.getParent());
-            }
+            chain = Collections.unmodifiableList(models);
 
+            //Don't cache missing models, as the resources might not be loaded yet
+            if(!models.isEmpty())
+                modelChains.putIfAbsent(modelName, chain);
         }
+
+        return chain;
+    }
+
+    private static String getFullName(String modelName, String ...modelType){
+        return modelType.length > 0 ? modelType[0] + "/" + modelName : "block/" + modelName;
     }
 
     /**
@@ -76,12 +95,30 @@ public class BlockModelCollection {
      * and the block parents model
      * @param modelName The name of the model, ex. dirt
      * @param modelType Specify the type of model, ex. item or blocks. If not specified, It's block by default
-     * @return List of BlockModels
+     * @return List of BlockModels. The models are shared, so duplicate them before modifying them
      */
     public ArrayList<BlockModel> getBlockModel(String modelName, String ...modelType){
-        ArrayList<BlockModel> models = new ArrayList<>();
-        getBlockModelInternal(models, modelType.length > 0 ? modelType[0] + "/" + modelName : "block/" + modelName);
+        return new ArrayList<>(getModelChain(getFullName(modelName, modelType)));
+    }
+
+    /**
+     * Method to get the block's model with the parents models merged into it
+     * @param modelName The name of the model, ex. dirt
+     * @param modelType Specify the type of model, ex. item or blocks. If not specified, It's block by default
+     * @return The flattened BlockModel, or null if the model doesn't exist. The model is shared, so duplicate it before modifying it
+     */
+    public BlockModel getFlattenedBlockModel(String modelName, String ...modelType){
+        String fullName = getFullName(modelName, modelType);
+
+        BlockModel flattened = flattenedModels.get(fullName);
+        if(flattened == null){
+            List<BlockModel> chain = getModelChain(fullName);
+            if(chain.isEmpty())
+                return null;
+
+            flattened = flattenedModels.computeIfAbsent(fullName, key -> BlockModel.flatten(key, chain));
+        }
 
-        return models;
+        return flattened;
     }
 }
@@ -1,5 +1,6 @@
 package com.davixdevelop.schem2obj.blockstates;
 
+import com.davixdevelop.schem2obj.namespace.BlockStateNamespace;
 import com.davixdevelop.schem2obj.util.LogUtility;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -12,6 +13,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A implementation based on BlockState, but for adjacent blocks
@@ -27,6 +30,11 @@ public class AdjacentBlockState {
     private final HashMap<String, List<AdjacentVariant>> adjacentOrientations = new HashMap<>();
     List<String> checkOrder = new ArrayList<>();
 
+    //Memoized results of getStates
+    //key: orientation, value: (key: packed original states, value: (key: packed adjacent states, value: states to apply (NO_STATES if none apply)))
+    private final ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, Map<String, String>>>> memoizedStates = new ConcurrentHashMap<>();
+    private static final Map<String, String> NO_STATES = new HashMap<>();
+
     public AdjacentBlockState(String assetPath){
         readJSON(assetPath);
     }
@@ -105,10 +113,26 @@ public class AdjacentBlockState {
      * Get the states to apply depending on the state/states of the original block,
      * the state/state of the adjacent block and the orientation of the adjacent block
      * @param adjacentOrientation The orientation of the adjacent block, compared to the original block (ex, east...)
-     * @param originalSates A map of states of the original block
+     * @param originalState The block state of the original block
+     * @param adjacentState The block state of the adjacent block
      * @return A map of state to apply depending on the adjacent block
      */
-    public Map<String, String> getStates(String adjacentOrientation, Map<String, String> originalSates, Map<String, String> adjacentStates){
+    public Map<String, String> getStates(String adjacentOrientation, BlockStateNamespace originalState, BlockStateNamespace adjacentState){
+        ConcurrentMap<String, Map<String, String>> memoized = memoizedStates
+                .computeIfAbsent(adjacentOrientation, o -> new ConcurrentHashMap<>())
+                .computeIfAbsent(originalState.getPackedData(), o -> new ConcurrentHashMap<>());
+
+        String adjacentKey = adjacentState.getPackedData();
+        Map<String, String> states = memoized.get(adjacentKey);
+        if(states == null){
+            states = matchStates(adjacentOrientation, originalState.getData(), adjacentState.getData());
+            memoized.put(adjacentKey, (states != null) ? states : NO_STATES);
+        }
+
+        return (states != NO_STATES) ? states : null;
+    }
+
+    private Map<String, String> matchStates(String adjacentOrientation, Map<String, String> originalSates, Map<String, String> adjacentStates){
         //Get a list of adjacent variants for the adjacent orientation
         List<AdjacentVariant> orientationVariants = adjacentOrientations.get(adjacentOrientation);
 
@@ -10,6 +10,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represent a Minecraft BlockState, with methods for
@@ -31,6 +33,11 @@ public class BlockState {
     //List of variants
     private List<Variant> variants;
 
+    //Compiled lookup of the variants a combination of block properties matches
+    //index: 0 for blocks without the "seamless" property, 1 for seamless=false and 2 for seamless=true
+    //key: the packed block properties (see BlockStateNamespace.getPackedData), value: indexes to the matching variants
+    private final List<ConcurrentMap<String, Integer[]>> compiledVariants = Arrays.asList(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
     public BlockState(List<Variant> variants, HashMap<Object, Integer[]> variantMultiKeys, Boolean multiPart, Boolean randomVariants){
         this.variants = variants;
         this.variantMultiKeys = variantMultiKeys;
@@ -194,19 +201,17 @@ public class BlockState {
 
     public ArrayList<Variant> getVariants(Namespace namespace){
         ArrayList<Variant> blockVariants = new ArrayList<>();
-        Set<Integer> variantIndexes = new HashSet<>();
 
         //Get the actual properties of the block
         Map<String, String> blockProps = namespace.getDefaultBlockState().getData();
 
+        String isSeamless = null;
+
         //Check if block uses variants
         //Else get the models the block uses from variantMultiKeys
         if(!multiPart){
             //Check if block contains data key "seamless"
             //If it does, change it it to type=normal for seamless=false and type=all for seamless=true
-
-            String isSeamless = null;
-
             if(namespace.getDefaultBlockState().getData().containsKey("seamless")){
                 Map<String, String> data = namespace.getDefaultBlockState().getData();
 
@@ -222,7 +227,61 @@ public class BlockState {
                 namespace.getDefaultBlockState().setData(data);
 
             }
+        }
+
+        //Get the matching variants from the compiled lookup, or match them once for this combination of properties
+        ConcurrentMap<String, Integer[]> compiled = compiledVariants.get((isSeamless == null) ? 0 : (isSeamless.equals("false") ? 1 : 2));
+        String key = namespace.getDefaultBlockState().getPackedData();
+        Integer[] matchedIndexes = compiled.get(key);
+        if(matchedIndexes == null){
+            matchedIndexes = matchVariantIndexes(blockProps, isSeamless);
+            compiled.put(key, matchedIndexes);
+        }
+
+        List<Integer> variantIndexes = new ArrayList<>(Arrays.asList(matchedIndexes));
+
+        //If there are more than one variants(models), choose only one depending on the weight of the variant
+        //If the weight of of the variant isn't set, It's by default 1
+        //To chose which variant to choose, we need to first sum all the variant weight
+        //The percentage is then calculated by variant weight / sum of weights, ex 1/4 -> 0.25 or 25%
+        //Then if a variant is chosen is based on if a random float value (from 0.0 to 1.0) is less then the
+        //calculated percentage
+        //This is repeated until the above condition is true (until variantIndexes size is exactly one)
+        if(!multiPart && variantIndexes.size() > 1){
+            Integer combinedWeight = 0;
+            for(int index: variantIndexes) {
+                combinedWeight += variants.get(index).getWeight();
+            }
+
+            while (variantIndexes.size() > 1) {
+                for (int index : variantIndexes) {
+                    Integer weight = variants.get(index).getWeight();
+
+                    if (RANDOM.nextFloat() < weight.floatValue() / combinedWeight.floatValue()) {
+                        variantIndexes.clear();
+                        variantIndexes.add(index);
+                        break;
+                    }
+                }
+            }
+        }
+
+        for(int index : variantIndexes)
+            blockVariants.add(variants.get(index));
+
+        return blockVariants;
+    }
 
+    /**
+     * Match the block properties against the variant and multipart keys
+     * @param blockProps The properties of the actual block
+     * @param isSeamless The original "seamless" property of the block, or null if the block doesn't have it
+     * @return The indexes of the matching variants
+     */
+    private Integer[] matchVariantIndexes(Map<String, String> blockProps, String isSeamless){
+        Set<Integer> variantIndexes = new HashSet<>();
+
+        if(!multiPart){
             //Check if block data has any data
             if(!blockProps.isEmpty()) {
                 for (Object when : variantMultiKeys.keySet()) {
@@ -252,32 +311,6 @@ public class BlockState {
                 }
             }
 
-            //If there are more than one variants(models), choose only one depending on the weight of the variant
-            //If the weight of of the variant isn't set, It's by default 1
-            //To chose which variant to choose, we need to first sum all the variant weight
-            //The percentage is then calculated by variant weight / sum of weights, ex 1/4 -> 0.25 or 25%
-            //Then if a variant is chosen is based on if a random float value (from 0.0 to 1.0) is less then the
-            //calculated percentage
-            //This is repeated until the above condition is true (until variantIndexes size is exactly one)
-            if(variantIndexes.size() > 1){
-                Integer combinedWeight = 0;
-                for(int index: variantIndexes) {
-                    combinedWeight += variants.get(index).getWeight();
-                }
-
-                while (variantIndexes.size() > 1) {
-                    for (int index : variantIndexes) {
-                        Integer weight = variants.get(index).getWeight();
-
-                        if (RANDOM.nextFloat() < weight.floatValue() / combinedWeight.floatValue()) {
-                            variantIndexes.clear();
-                            variantIndexes.add(index);
-                            break;
-                        }
-                    }
-                }
-            }
-
         }else {
 
             for(Object when : variantMultiKeys.keySet()){
@@ -305,10 +338,7 @@ public class BlockState {
 
         }
 
-        for(int index : variantIndexes)
-            blockVariants.add(variants.get(index));
-
-        return blockVariants;
+        return variantIndexes.toArray(new Integer[0]);
     }
 
     /**
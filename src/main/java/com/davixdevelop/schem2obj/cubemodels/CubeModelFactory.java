@@ -8,13 +8,16 @@ import com.davixdevelop.schem2obj.cubemodels.blocks.*;
 import com.davixdevelop.schem2obj.cubemodels.entity.*;
 import com.davixdevelop.schem2obj.cubemodels.entitytile.*;
 import com.davixdevelop.schem2obj.cubemodels.item.ItemCubeModel;
+import com.davixdevelop.schem2obj.materials.IMaterial;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.util.ImageUtility;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Factory responsible for generating and storing CubeModel's from block namespaces, and or their entity values.
@@ -26,6 +29,10 @@ public class CubeModelFactory {
     public ConcurrentMap<Map<?, ?>, ICubeModel> cubeModels;
     public ConcurrentMap<Object, ICubeModel> itemModels;
 
+    //Key: Key of the cube model, Value: The number of the conversion, that last used the cube model
+    private final ConcurrentMap<Map<?, ?>, Integer> lastUsed = new ConcurrentHashMap<>();
+    private final AtomicInteger conversionCount = new AtomicInteger();
+
     public CubeModelFactory(){
         cubeModels = new ConcurrentHashMap<>();
         itemModels = new ConcurrentHashMap<>();
@@ -55,9 +62,29 @@ public class CubeModelFactory {
         }
         //blockGenerationQueue.remove(key);
 
+        markUsed(key);
+
         return key;
     }
 
+    /**
+     * Record that the current conversion uses the cube model, by only writing the number of the conversion once per conversion
+     * @param key The key of the cube model
+     */
+    private void markUsed(Map<?, ?> key){
+        int conversion = conversionCount.get();
+        Integer used = lastUsed.get(key);
+        if(used == null || used != conversion)
+            lastUsed.put(key, conversion);
+    }
+
+    /**
+     * Start a new conversion, so that the cube models used by it count as the most recently used ones
+     */
+    public void startConversion(){
+        conversionCount.incrementAndGet();
+    }
+
     public ICubeModel fromKey(Map<?, ?> key){
         if(cubeModels.containsKey(key))
             return cubeModels.get(key).duplicate();
@@ -104,6 +131,7 @@ public class CubeModelFactory {
             itemUsesBlockAsIcon = true;
         else{
             namespace.setPosition(new Integer[]{0,0,0});
+            namespace.setContext(itemHolderNamespace.getContext());
 
             Set<String> tagKeys = new LinkedHashSet<>();
             boolean injectTagIntoNamespaceCustomData = false;
@@ -413,6 +441,83 @@ public class CubeModelFactory {
     public void clearData(){
         cubeModels.clear();
         itemModels.clear();
+        lastUsed.clear();
+        TileEntityKey.clearData();
+        GlyphAtlas.clearData();
+        SignCubeModel.clearData();
+    }
+
+    /**
+     * Evict the least recently used cube models, once there are more than the max number of them.
+     * Their materials stay, as the block materials are bounded by the resource packs.
+     * No conversion can be running, as it would lose the cube models of It's singletons
+     * @param maxCubeModels The max number of cube models to keep
+     */
+    public void evictLeastRecentlyUsed(int maxCubeModels){
+        if(cubeModels.size() <= maxCubeModels)
+            return;
+
+        //The cube models that were never marked as used count as the least recently used ones
+        List<Map<?, ?>> keys = new ArrayList<>(cubeModels.keySet());
+        keys.sort(Comparator.comparingInt(key -> lastUsed.getOrDefault(key, 0)));
+
+        for(int index = 0; index < keys.size() - maxCubeModels; index++){
+            cubeModels.remove(keys.get(index));
+            lastUsed.remove(keys.get(index));
+        }
+    }
+
+    /**
+     * Clear the cube models and materials, that depend on the tile entities and entities of the converted schematics
+     * (ex. the sign text, the banner patterns and the player heads), while keeping the block cube models and materials.
+     * No conversion can be running, as it would lose the cube models of It's singletons
+     */
+    public void clearEntityData(){
+        cubeModels.keySet().removeIf(key -> {
+            ICubeModel cubeModel = cubeModels.get(key);
+            if(cubeModel instanceof TileEntityCubeModel || cubeModel instanceof EntityCubeModel){
+                lastUsed.remove(key);
+                return true;
+            }
+
+            return false;
+        });
+        itemModels.clear();
+        TileEntityKey.clearData();
+
+        //The sign text
+        SignCubeModel.clearData();
+        for(String materialPath : SignCubeModel.TEXT_MATERIALS.values())
+            removeMaterial(materialPath);
+        SignCubeModel.TEXT_MATERIALS.clear();
+        WallSignCubeModel.WALL_SIGN_VARIANTS.clear();
+        StandingSignCubeModel.STANDING_SIGN_VARIANTS.clear();
+
+        //The banners, while the colored patterns are kept, as there is only a fixed number of them
+        for(String materialPath : BannerCubeModel.BANNER_MATERIALS.values())
+            removeMaterial(materialPath);
+        BannerCubeModel.BANNER_MATERIALS.clear();
+        WallBannerCubeModel.WALL_BANNER_VARIANTS.clear();
+
+        //The player heads
+        for(String ownerID : SkullCubeModel.PLAYER_HEAD_TYPES.keySet()){
+            removeMaterial(String.format("entity/%s", ownerID));
+            SkullCubeModel.GENERATED_SKULLS.remove(ownerID);
+        }
+        SkullCubeModel.PLAYER_HEAD_TYPES.clear();
+        SkullCubeModel.SKULL_VARIANTS.clear();
+    }
+
+    /**
+     * Remove the material from the block materials, together with the alpha index of It's diffuse image
+     * @param materialPath The path of the material
+     */
+    private static void removeMaterial(String materialPath){
+        IMaterial material = Constants.BLOCK_MATERIALS.getMaterial(materialPath);
+        if(material != null)
+            ImageUtility.removeAlphaIndex(material.getName());
+
+        Constants.BLOCK_MATERIALS.removeMaterial(materialPath);
     }
 
 }
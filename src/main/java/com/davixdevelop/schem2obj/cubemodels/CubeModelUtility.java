@@ -15,6 +15,7 @@ import com.davixdevelop.schem2obj.namespace.BlockStateNamespace;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
 import com.davixdevelop.schem2obj.resourceloader.ResourcePack;
+import com.davixdevelop.schem2obj.schematic.SchematicHolder;
 import com.davixdevelop.schem2obj.util.ArrayUtility;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 import com.davixdevelop.schem2obj.util.ImageUtility;
@@ -626,50 +627,53 @@ public class CubeModelUtility {
     }
 
     public static void getAdjacentNamespace_NSWE(Namespace modified, IAdjacentCheck check){
+        SchematicHolder schematic = modified.getContext().getSchematic();
+
         //Check north
-        Namespace adjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(
+        Namespace adjacentBlock = schematic.getNamespace(
                 modified.getPosition("X"),
                 modified.getPosition("Y"),
                 modified.getPosition("Z") - 1
                 );
         if(adjacentBlock != null){
             if(check.checkCollision(adjacentBlock, 0, "north"))
-                modified.getDefaultBlockState().getData().put("north", "true");
+                modified.getDefaultBlockState().setData("north", "true");
         }
 
         //Check south
-        adjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(
+        adjacentBlock = schematic.getNamespace(
                 modified.getPosition("X"),
                 modified.getPosition("Y"),
                 modified.getPosition("Z") + 1);
         if(adjacentBlock != null){
             if(check.checkCollision(adjacentBlock, 0, "south"))
-                modified.getDefaultBlockState().getData().put("south", "true");
+                modified.getDefaultBlockState().setData("south", "true");
         }
 
         //Check west
-        adjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(
+        adjacentBlock = schematic.getNamespace(
                 modified.getPosition("X") - 1,
                 modified.getPosition("Y"),
                 modified.getPosition("Z"));
         if(adjacentBlock != null){
             if(check.checkCollision(adjacentBlock, 0, "west"))
-                modified.getDefaultBlockState().getData().put("west", "true");
+                modified.getDefaultBlockState().setData("west", "true");
         }
 
         //Check east
-        adjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(
+        adjacentBlock = schematic.getNamespace(
                 modified.getPosition("X") + 1,
                 modified.getPosition("Y"),
                 modified.getPosition("Z"));
         if(adjacentBlock != null){
             if(check.checkCollision(adjacentBlock, 0, "east"))
-                modified.getDefaultBlockState().getData().put("east", "true");
+                modified.getDefaultBlockState().setData("east", "true");
         }
     }
 
     public static void getAdjacentNamespace_AdjacentState(Namespace namespace, AdjacentBlockState adjacentBlockStates, IAdjacentCheck check){
         Namespace stockNamespace = namespace.duplicate();
+        SchematicHolder schematic = namespace.getContext().getSchematic();
 
         //Get list of order of orientations to check
         List<String> checkOrder = adjacentBlockStates.getCheckOrder();
@@ -701,12 +705,12 @@ public class CubeModelUtility {
             else if(orientation.endsWith("-1"))
                 y -= 1;
 
-            Namespace adjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(x, y, z);
+            Namespace adjacentBlock = schematic.getNamespace(x, y, z);
             if(adjacentBlock != null) {
                 if(check.checkCollision(adjacentBlock,
                         (orientation.endsWith("+1")) ? 1 : (orientation.endsWith("-1") ? -1 : 0),
                         orientation_raw)){
-                    Map<String, String> statesToApply = adjacentBlockStates.getStates(orientation, stockNamespace.getDefaultBlockState().getData(), adjacentBlock.getDefaultBlockState().getData());
+                    Map<String, String> statesToApply = adjacentBlockStates.getStates(orientation, stockNamespace.getDefaultBlockState(), adjacentBlock.getDefaultBlockState());
                     if(statesToApply != null){
                         BlockStateNamespace.cloneData(namespace.getDefaultBlockState(), statesToApply);
                     }
@@ -1363,46 +1367,14 @@ public class CubeModelUtility {
         cubeModel.addCube(cube);
     }
 
-    public static void setUVForPixelCube(List<Double[]> faceUV, Orientation faceOrientation,Integer x, Integer flippedY, Integer imageWidth, Integer imageHeight){
-        Double x1 = x.doubleValue() / imageWidth.doubleValue();
-        Double x2 = (x.doubleValue() + 1.0) / imageWidth.doubleValue();
-        Double y1 = flippedY.doubleValue() / imageHeight.doubleValue();
-        Double y2 =  (flippedY.doubleValue() + 1.0) / imageHeight.doubleValue();
-
-        faceUV.add(new Double[]{x1, y1});
-        faceUV.add(new Double[]{x1, y2});
-        faceUV.add(new Double[]{x2, y2});
-        faceUV.add(new Double[]{x2, y1});
-
-        /*if(faceOrientation.equals(Orientation.NORTH) || faceOrientation.equals(Orientation.SOUTH)){
-            faceUV.add(new Double[]{x1, y1});
-            faceUV.add(new Double[]{x1, y2});
-            faceUV.add(new Double[]{x2, y2});
-            faceUV.add(new Double[]{x2, y1});
-        }else if(faceOrientation.equals(Orientation.WEST)){
-            faceUV.add(new Double[]{x1, y1});
-            faceUV.add(new Double[]{x1, y2});
-            faceUV.add(new Double[]{x1, y2});
-            faceUV.add(new Double[]{x1, y1});
-        }else if(faceOrientation.equals(Orientation.EAST)){
-            faceUV.add(new Double[]{x2, y1});
-            faceUV.add(new Double[]{x2, y2});
-            faceUV.add(new Double[]{x2, y2});
-            faceUV.add(new Double[]{x2, y1});
-        }else if(faceOrientation.equals(Orientation.UP)){
-            faceUV.add(new Double[]{x1, y2});
-            faceUV.add(new Double[]{x1, y2});
-            faceUV.add(new Double[]{x2, y2});
-            faceUV.add(new Double[]{x2, y2});
-        }else {
-            faceUV.add(new Double[]{x1, y1});
-            faceUV.add(new Double[]{x1, y1});
-            faceUV.add(new Double[]{x2, y1});
-            faceUV.add(new Double[]{x2, y1});
-        }*/
-
-    }
-
+    /**
+     * Extrude the item icon into a cube model. The opaque pixels of the icon get merged into as few rectangles as possible
+     * for the front and back faces, and the edges of the icon get merged into strips along the rows and columns,
+     * so that the model keeps the same silhouette and texture mapping as a cube per pixel, with far fewer faces
+     * @param itemCubeModel The cube model to add the cubes to
+     * @param iconPath The path to the icon material, ex. items/diamond_sword
+     * @param itemNamespace The namespace of the item
+     */
     public static void convertItemIconToCubeModel(ICubeModel itemCubeModel, String iconPath, Namespace itemNamespace){
         try{
             //Get material for icon
@@ -1415,118 +1387,85 @@ public class CubeModelUtility {
             //Get diffuse image from icon material
             BufferedImage icon = iconMaterial.getDefaultDiffuseImage();
 
-            //Calculate cube width & height per pixel
-            Double cubeWidth = (16.0 / icon.getWidth()) / 16.0;
-            Double cubeHeight = (16.0 / icon.getHeight()) / 16.0;
-
-            //Loop through the image and convert each pixel to a cube
-            for(int x = 0; x < icon.getWidth(); x++){
-                int flippedX = icon.getWidth() - x - 1;
-                for(int y = 0; y < icon.getHeight(); y++){
-                    int flippedY = icon.getHeight() - y - 1;
-
-                    int _color = icon.getRGB(x, y);
-                    Color color = new Color(_color, true);
-                    if(color.getAlpha() != 0){
-                        boolean createUpFace = false;
-                        boolean createDownFace = false;
-                        boolean createWestFace = false;
-                        boolean createEastFace = false;
-
-                        //Check for transparent pixel above
-                        if(y == 0)
-                            createUpFace = true;
-                        else
-                            createUpFace = (icon.getRGB(x, y - 1) >> 24 & 255) == 0;
-
-                        //Check for transparent pixel bellow
-                        if(y + 1 == icon.getHeight())
-                            createDownFace = true;
-                        else
-                            createDownFace = (icon.getRGB(x, y + 1) >> 24 & 255) == 0;
-
-                        //Check for transparent pixel on the left
-                        if(x == 0)
-                            createEastFace = true;
-                        else
-                            createEastFace = (icon.getRGB(x - 1, y) >> 24 & 255) == 0;
-
-                        //Check for transparent pixel on the right
-                        if(x + 1 == icon.getWidth())
-                            createWestFace = true;
-                        else
-                            createWestFace = (icon.getRGB(x + 1, y) >> 24 & 255) == 0;
-
-                        //Array to store index to material per face (See Orientation.DIRECTIONS for order of faces)
-                        Integer[] materialFaces = new Integer[6];
-                        //Array to store which faces should be exported (See Orientation.DIRECTIONS for order of faces)
-                        Boolean[] generatedFaces = new Boolean[]{createUpFace, createDownFace, true, true, createWestFace, createEastFace};
-                        //Array to store cube faces (See Orientation.DIRECTIONS for order of faces)
-                        CubeFace[] cubeFaces = new CubeFace[6];
-
-                        //Hashed double list to store all the corners the cube uses
-                        HashedDoubleList corners = new HashedDoubleList();
-                        //Hashed double list to store all texture coordinates the cube uses
-                        HashedDoubleList textureCoordinates = new HashedDoubleList();
-
-                        Set<String> faces = new HashSet<>();
-                        faces.add("south");
-                        faces.add("north");
-
-                        if(createUpFace)
-                            faces.add("up");
-                        if(createDownFace)
-                            faces.add("down");
-                        if(createWestFace)
-                            faces.add("west");
-                        if(createEastFace)
-                            faces.add("east");
-
-                        //Calculate cube position
-                        Double[] from = new Double[]{flippedX * cubeWidth, 0.4375, (flippedY * cubeHeight)};
-                        Double[] to = new Double[]{(flippedX + 1) * cubeWidth, 0.5, (flippedY + 1) * cubeHeight};
-
-                        //Create vertices for each corner of a face that the cube uses
-                        Map<String, Double[]> cubeCorners = createCubeVerticesFromPoints(from, to, faces);
-
-                        for (String faceName : faces) {
-
-                            Orientation faceOrientation = Orientation.getOrientation(faceName);
-
-                            //Get the face uv's, or set them, if It's not defined in the uv field
-                            List<Double[]> faceUV = new ArrayList<>();
-                            setUVForPixelCube(faceUV, faceOrientation, x, flippedY, icon.getWidth(), icon.getHeight());
-
-                            //Get the face index from the faceOrientation
-                            Integer faceIndex = faceOrientation.getOrder();
-
-                            //Get the corners names for the original face orientation
-                            String[] cornerNames = getCornerPerOrientation(Orientation.getOrientation(faceName));
-                            //Create Integer list to store the indexes of the vertices the face uses
-                            List<Integer> indexCorners = new ArrayList<>();
-                            for(String cornerName : cornerNames){
-                                indexCorners.add(corners.put(ArrayUtility.cloneArray(cubeCorners.get(cornerName))));
-                            }
+            int width = icon.getWidth();
+            int height = icon.getHeight();
 
-                            //Create Integer list to store the indexes of the texture coordinates the face uses
-                            List<Integer> indexTextureCoordinates = new ArrayList<>();
-                            for(Double[] u : faceUV)
-                                indexTextureCoordinates.add(textureCoordinates.put(u));
+            //Mark the opaque pixels of the icon
+            int[] pixels = ImageUtility.readPixels(icon);
+            boolean[] opaque = new boolean[width * height];
+            for(int i = 0; i < opaque.length; i++)
+                opaque[i] = (pixels[i] >>> 24) != 0;
 
-                            //Mark which material the face uses
-                            materialFaces[faceIndex] = 0;
+            //Merge the opaque pixels into rectangles for the front (south) and back (north) faces
+            boolean[] merged = new boolean[width * height];
+            for(int y = 0; y < height; y++){
+                for(int x = 0; x < width; x++){
+                    if(!opaque[y * width + x] || merged[y * width + x])
+                        continue;
 
-                            //Create cube face and append it to the cube
-                            CubeFace cubeFace = new CubeFace(indexCorners, indexTextureCoordinates, iconPath, false);
-                            cubeFaces[faceIndex] = cubeFace;
-                        }
+                    //Extend the rectangle to the right, and then down while the whole row is opaque
+                    int x1 = x;
+                    while(x1 + 1 < width && opaque[y * width + x1 + 1] && !merged[y * width + x1 + 1])
+                        x1++;
+
+                    int y1 = y;
+                    while(y1 + 1 < height && isRunOpaque(opaque, merged, width, x, x1, y1 + 1))
+                        y1++;
+
+                    for(int my = y; my <= y1; my++)
+                        Arrays.fill(merged, my * width + x, my * width + x1 + 1, true);
+
+                    addIconCube(itemCubeModel, iconPath, new String[]{"south", "north"}, x, y, x1, y1, width, height);
+                }
+            }
+
+            //Merge the up and down edges along the rows
+            for(int y = 0; y < height; y++){
+                for(int x = 0; x < width; x++){
+                    //Check for transparent pixel above
+                    if(isIconEdge(opaque, width, height, x, y, 0, -1)){
+                        int x1 = x;
+                        while(x1 + 1 < width && isIconEdge(opaque, width, height, x1 + 1, y, 0, -1))
+                            x1++;
+                        addIconCube(itemCubeModel, iconPath, new String[]{"up"}, x, y, x1, y, width, height);
+                        x = x1;
+                    }
+                }
+
+                for(int x = 0; x < width; x++){
+                    //Check for transparent pixel bellow
+                    if(isIconEdge(opaque, width, height, x, y, 0, 1)){
+                        int x1 = x;
+                        while(x1 + 1 < width && isIconEdge(opaque, width, height, x1 + 1, y, 0, 1))
+                            x1++;
+                        addIconCube(itemCubeModel, iconPath, new String[]{"down"}, x, y, x1, y, width, height);
+                        x = x1;
+                    }
+                }
+            }
 
-                        //Create cube from cube faces
-                        Cube cube = new Cube(materialFaces, generatedFaces, cubeFaces, corners.toList(), textureCoordinates.toList());
-                        //Append the cube to the cube model
-                        itemCubeModel.addCube(cube);
+            //Merge the west and east edges along the columns
+            for(int x = 0; x < width; x++){
+                for(int y = 0; y < height; y++){
+                    //Check for transparent pixel on the right
+                    if(isIconEdge(opaque, width, height, x, y, 1, 0)){
+                        int y1 = y;
+                        while(y1 + 1 < height && isIconEdge(opaque, width, height, x, y1 + 1, 1, 0))
+                            y1++;
+                        addIconCube(itemCubeModel, iconPath, new String[]{"west"}, x, y, x, y1, width, height);
+                        y = y1;
                     }
+                }
 
+                for(int y = 0; y < height; y++){
+                    //Check for transparent pixel on the left
+                    if(isIconEdge(opaque, width, height, x, y, -1, 0)){
+                        int y1 = y;
+                        while(y1 + 1 < height && isIconEdge(opaque, width, height, x, y1 + 1, -1, 0))
+                            y1++;
+                        addIconCube(itemCubeModel, iconPath, new String[]{"east"}, x, y, x, y1, width, height);
+                        y = y1;
+                    }
                 }
             }
 
@@ -1535,6 +1474,114 @@ public class CubeModelUtility {
         }
     }
 
+    private static boolean isRunOpaque(boolean[] opaque, boolean[] merged, int width, int x0, int x1, int y){
+        for(int x = x0; x <= x1; x++){
+            if(!opaque[y * width + x] || merged[y * width + x])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the pixel is opaque, and the neighbouring pixel in the direction is transparent or outside the icon
+     */
+    private static boolean isIconEdge(boolean[] opaque, int width, int height, int x, int y, int xOffset, int yOffset){
+        if(!opaque[y * width + x])
+            return false;
+
+        int nx = x + xOffset;
+        int ny = y + yOffset;
+        if(nx < 0 || nx >= width || ny < 0 || ny >= height)
+            return true;
+
+        return !opaque[ny * width + nx];
+    }
+
+    /**
+     * Add a cube for the pixels of the icon from (x0, y0) to (x1, y1), with only the provided faces.
+     * The icon is flipped on the x and y axis, and each corner gets the texture coordinate of the icon pixel it lies on
+     * @param itemCubeModel The cube model to add the cube to
+     * @param iconPath The path to the icon material
+     * @param faceNames The faces of the cube, ex. south, north
+     * @param x0 The first column of the pixels
+     * @param y0 The first row of the pixels
+     * @param x1 The last column of the pixels
+     * @param y1 The last row of the pixels
+     * @param width The width of the icon
+     * @param height The height of the icon
+     */
+    private static void addIconCube(ICubeModel itemCubeModel, String iconPath, String[] faceNames, int x0, int y0, int x1, int y1, int width, int height){
+        //Calculate cube width & height per pixel
+        double cubeWidth = (16.0 / width) / 16.0;
+        double cubeHeight = (16.0 / height) / 16.0;
+
+        Set<String> faces = new HashSet<>(Arrays.asList(faceNames));
+
+        //Calculate cube position
+        Double[] from = new Double[]{(width - x1 - 1) * cubeWidth, 0.4375, (height - y1 - 1) * cubeHeight};
+        Double[] to = new Double[]{(width - x0) * cubeWidth, 0.5, (height - y0) * cubeHeight};
+
+        //Texture coordinates of the start (A) and end (F) corner of the cube
+        double uFrom = (x1 + 1) / (double) width;
+        double uTo = x0 / (double) width;
+        double vFrom = (height - y1 - 1) / (double) height;
+        double vTo = (height - y0) / (double) height;
+
+        //Array to store index to material per face (See Orientation.DIRECTIONS for order of faces)
+        Integer[] materialFaces = new Integer[6];
+        //Array to store which faces should be exported (See Orientation.DIRECTIONS for order of faces)
+        Boolean[] generatedFaces = new Boolean[]{false, false, false, false, false, false};
+        //Array to store cube faces (See Orientation.DIRECTIONS for order of faces)
+        CubeFace[] cubeFaces = new CubeFace[6];
+
+        //Hashed double list to store all the corners the cube uses
+        HashedDoubleList corners = new HashedDoubleList();
+        //Hashed double list to store all texture coordinates the cube uses
+        HashedDoubleList textureCoordinates = new HashedDoubleList();
+
+        //Create vertices for each corner of a face that the cube uses
+        Map<String, Double[]> cubeCorners = createCubeVerticesFromPoints(from, to, faces);
+
+        for(String faceName : faceNames){
+            Orientation faceOrientation = Orientation.getOrientation(faceName);
+            boolean alongColumn = faceOrientation.equals(Orientation.WEST) || faceOrientation.equals(Orientation.EAST);
+            boolean alongRow = faceOrientation.equals(Orientation.UP) || faceOrientation.equals(Orientation.DOWN);
+
+            //Get the face index from the faceOrientation
+            Integer faceIndex = faceOrientation.getOrder();
+
+            List<Integer> indexCorners = new ArrayList<>();
+            List<Integer> indexTextureCoordinates = new ArrayList<>();
+
+            for(String cornerName : getCornerPerOrientation(faceOrientation)){
+                indexCorners.add(corners.put(ArrayUtility.cloneArray(cubeCorners.get(cornerName))));
+
+                //Corners F, G, H and M lie on the end x of the cube, C, D, F and M on the end y, and B, C, F and G on the end z
+                boolean endX = "FGHM".contains(cornerName);
+                boolean endY = "CDFM".contains(cornerName);
+                boolean endZ = "BCFG".contains(cornerName);
+
+                //The edges map the depth of the cube to the pixels of the row or column
+                double u = alongColumn ? (endY ? uFrom : uTo) : (endX ? uTo : uFrom);
+                double v = alongRow ? (endY ? vTo : vFrom) : (endZ ? vTo : vFrom);
+
+                indexTextureCoordinates.add(textureCoordinates.put(new Double[]{u, v}));
+            }
+
+            //Mark which material the face uses
+            materialFaces[faceIndex] = 0;
+            generatedFaces[faceIndex] = true;
+
+            //Create cube face and append it to the cube
+            cubeFaces[faceIndex] = new CubeFace(indexCorners, indexTextureCoordinates, iconPath, false);
+        }
+
+        //Create cube from cube faces
+        Cube cube = new Cube(materialFaces, generatedFaces, cubeFaces, corners.toList(), textureCoordinates.toList());
+        //Append the cube to the cube model
+        itemCubeModel.addCube(cube);
+    }
+
     /**
      * Return the name of the texture path (ex. blocks/dirt -> dirt)
      * @param texture The texture path
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for most block that use a simple cube for It's model
@@ -20,7 +21,7 @@ import java.util.Map;
  * @author DavixDevelop
  */
 public class BlockCubeModel extends CubeModel {
-    public static HashMap<BlockState.Variant, ICubeModel> BLOCK_RANDOM_VARIANTS = new HashMap<>();
+    public static Map<BlockState.Variant, ICubeModel> BLOCK_RANDOM_VARIANTS = new ConcurrentHashMap<>();
 
     @Override
     public boolean fromNamespace(Namespace namespace) {
@@ -35,7 +36,7 @@ public class BlockCubeModel extends CubeModel {
         //so get the model from the random variant that was generated in getKey
         if(customData != null && customData.containsKey("variant")){
             BlockState.Variant variant = (BlockState.Variant) customData.get("variant");
-            blockModels = new VariantModels[]{new VariantModels(variant, Constants.BLOCK_MODELS.getBlockModel(variant.getModel()))};
+            blockModels = new VariantModels[]{new VariantModels(variant, Constants.BLOCK_MODELS.getFlattenedBlockModel(variant.getModel()))};
         }else {
             //Get the variant/variants of the block
             ArrayList<BlockState.Variant> variants = blockState.getVariants(namespace);
@@ -44,7 +45,7 @@ public class BlockCubeModel extends CubeModel {
 
             //Get the model/models the block uses based on the BlockState
             for(int c = 0; c < variants.size(); c++){
-                blockModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getBlockModel(variants.get(c).getModel()));
+                blockModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getFlattenedBlockModel(variants.get(c).getModel()));
             }
         }
 
@@ -101,7 +102,7 @@ public class BlockCubeModel extends CubeModel {
 
         //Get the model/models the block uses based on the BlockState
         for(int c = 0; c < variants.size(); c++)
-            blockModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getBlockModel(variants.get(c).getModel()));
+            blockModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getFlattenedBlockModel(variants.get(c).getModel()));
 
         fromVariantModel(namespace.getResource(), namespace, blockModels);
     }
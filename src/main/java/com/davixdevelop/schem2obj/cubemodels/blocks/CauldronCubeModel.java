@@ -26,14 +26,15 @@ public class CauldronCubeModel extends BlockCubeModel {
         BlockState.Variant variant = variants.get(0);
 
         VariantModels[] variantModels = new VariantModels[1];
-        variantModels[0] = new VariantModels(variant, Constants.BLOCK_MODELS.getBlockModel(variant.getModel()));
+        variantModels[0] = new VariantModels(variant, Constants.BLOCK_MODELS.getFlattenedBlockModel(variant.getModel()));
 
         if(!namespace.getDefaultBlockState().getData("level").equals("0")){
             VariantModels models = variantModels[0];
 
             ArrayList<BlockModel> blockModels = models.getModels();;
 
-            BlockModel model = blockModels.get(0);
+            //Duplicate the model, as the flattened models are shared
+            BlockModel model = blockModels.get(0).duplicate();
 
             ArrayList<CubeElement> cubeElements = model.getElements();
 
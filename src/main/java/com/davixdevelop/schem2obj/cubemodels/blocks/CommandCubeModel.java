@@ -33,7 +33,7 @@ public class CommandCubeModel extends BlockCubeModel {
 
         //Get the model for the variant of the command block, only to get the textures
         BlockState.Variant variant = variants.get(0);
-        blockModels[0] = new VariantModels(variant, Constants.BLOCK_MODELS.getBlockModel(variant.getModel()));
+        blockModels[0] = new VariantModels(variant, Constants.BLOCK_MODELS.getFlattenedBlockModel(variant.getModel()));
 
         HashMap<String, HashMap<String, String>> commandBlockMaterials = CubeModelUtility.modelsToMaterials(blockModels, namespace);
 
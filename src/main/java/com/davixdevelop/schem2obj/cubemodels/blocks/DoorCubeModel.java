@@ -29,7 +29,7 @@ public class DoorCubeModel extends BlockCubeModel {
         //Check if the block is the upper part of the door
         if(namespace.getDefaultBlockState().getData("half").equals("upper")){
             //Get the block bellow the upper part of the door
-            Namespace lowerAdjacentBlock = Constants.LOADED_SCHEMATIC.getNamespace(
+            Namespace lowerAdjacentBlock = namespace.getContext().getSchematic().getNamespace(
                     namespace.getPosition("X"),
                     namespace.getPosition("Y") - 1,
                     namespace.getPosition("Z")
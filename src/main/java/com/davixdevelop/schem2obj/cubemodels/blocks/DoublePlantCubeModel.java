@@ -14,10 +14,11 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DoublePlantCubeModel extends BlockCubeModel {
 
-    static Set<String> DOUBLE_PLANT_MATERIALS_MODIFIED = new HashSet<>();
+    static Set<String> DOUBLE_PLANT_MATERIALS_MODIFIED = ConcurrentHashMap.newKeySet();
     @Override
     public boolean fromNamespace(Namespace namespace) {
         String variant = namespace.getDefaultBlockState().getName();
@@ -54,15 +55,15 @@ public class DoublePlantCubeModel extends BlockCubeModel {
         if(namespace.getDefaultBlockState().getData("half").equals("upper")){
             if(namespace.getPosition("Y") - 1 >= 0) {
                 //Check if lower block is of type double plant
-                Namespace lowerBlock = Constants.LOADED_SCHEMATIC.getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") - 1,namespace.getPosition("Z"));
+                Namespace lowerBlock = namespace.getContext().getSchematic().getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") - 1,namespace.getPosition("Z"));
                 if(lowerBlock.getType().equals("double_plant"))
                     namespace.getDefaultBlockState().setName(lowerBlock.getDefaultBlockState().getName());
             }
         }else
         {
-            if(namespace.getPosition("Y") + 1 < Constants.LOADED_SCHEMATIC.getHeight()){
+            if(namespace.getPosition("Y") + 1 < namespace.getContext().getSchematic().getHeight()){
                 //Check if upper block is of type double plant
-                Namespace upperBlock = Constants.LOADED_SCHEMATIC.getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") + 1,namespace.getPosition("Z"));
+                Namespace upperBlock = namespace.getContext().getSchematic().getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") + 1,namespace.getPosition("Z"));
                 if(upperBlock.getType().equals("double_plant"))
                     namespace.getDefaultBlockState().setData("facing", upperBlock.getDefaultBlockState().getData("facing"));
             }
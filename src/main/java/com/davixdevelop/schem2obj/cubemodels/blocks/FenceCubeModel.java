@@ -9,6 +9,7 @@ import com.davixdevelop.schem2obj.namespace.Namespace;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Fence block
@@ -17,7 +18,7 @@ import java.util.Map;
  */
 public class FenceCubeModel extends BlockCubeModel implements IAdjacentCheck {
     //Map<key: %fence_name:north=true|false,south=true|false,east=true|false,west=true|false, value: Fence Cube Model>
-    public static HashMap<String, FenceCubeModel> FENCE_VARIANTS = new HashMap<>();
+    public static Map<String, FenceCubeModel> FENCE_VARIANTS = new ConcurrentHashMap<>();
 
     @Override
     public boolean fromNamespace(Namespace namespace) {
@@ -31,7 +31,7 @@ public class FireCubeModel extends BlockCubeModel{
 
         //Get the model/models the multipart variants use
         for(int c = 0; c < variants.size(); c++)
-            fireModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getBlockModel(variants.get(c).getModel()));
+            fireModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getFlattenedBlockModel(variants.get(c).getModel()));
 
         //Modify the uv's of faces to use a random portion of the texture for fire, that consists of 32 textures
         Double[] uv = CubeModelUtility.getRandomUV(32);
@@ -40,7 +40,8 @@ public class FireCubeModel extends BlockCubeModel{
             ArrayList<BlockModel> blockModels = models.getModels();
 
             for(int c = 0; c <blockModels.size(); c++){
-                BlockModel model = blockModels.get(c);
+                //Duplicate the model, as the flattened models are shared
+                BlockModel model = blockModels.get(c).duplicate();
 
                 ArrayList<CubeElement> cubeElements = model.getElements();
 
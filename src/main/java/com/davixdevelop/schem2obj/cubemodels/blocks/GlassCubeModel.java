@@ -28,7 +28,7 @@ public class GlassCubeModel extends BlockCubeModel {
 
         //Get the models for the glass
         for(int c = 0; c < variants.size(); c++)
-            glassModel[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getBlockModel(variants.get(c).getModel()));
+            glassModel[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getFlattenedBlockModel(variants.get(c).getModel()));
 
 
         //Modify the glass materials if they were not yet modified
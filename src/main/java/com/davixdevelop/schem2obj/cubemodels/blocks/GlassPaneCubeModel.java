@@ -10,6 +10,7 @@ import com.davixdevelop.schem2obj.models.VariantModels;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Glass Pane block
@@ -17,7 +18,7 @@ import java.util.*;
  * @author DavixDevelop
  */
 public class GlassPaneCubeModel extends BlockCubeModel implements IAdjacentCheck {
-    public static Set<String> MODIFIED_GLASS_MATERIALS = new HashSet<>();
+    public static Set<String> MODIFIED_GLASS_MATERIALS = ConcurrentHashMap.newKeySet();
 
     @Override
     public boolean fromNamespace(Namespace namespace) {
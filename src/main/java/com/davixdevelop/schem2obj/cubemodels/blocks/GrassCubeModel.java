@@ -52,7 +52,7 @@ public class GrassCubeModel extends BlockCubeModel {
     public Map<String, Object> getKey(Namespace namespace) {
 
         //Check if the above block is a snow layer
-        Namespace aboveBlock = Constants.LOADED_SCHEMATIC.getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") + 1, namespace.getPosition("Z"));
+        Namespace aboveBlock = namespace.getContext().getSchematic().getNamespace(namespace.getPosition("X"), namespace.getPosition("Y") + 1, namespace.getPosition("Z"));
         if(aboveBlock != null){
             if(aboveBlock.getType().equals("snow_layer"))
                 namespace.getDefaultBlockState().setData("snowy", "true");
@@ -151,8 +151,6 @@ public class GrassCubeModel extends BlockCubeModel {
             grass_top.setSpecularColor(0.0);
             grass_top.setIlluminationModel(2);
 
-            Constants.BLOCK_MATERIALS.unsetUsedMaterial("blocks/grass_side_overlay");
-
             NORMAL_MATERIAL_COLORED = true;
         }
     }
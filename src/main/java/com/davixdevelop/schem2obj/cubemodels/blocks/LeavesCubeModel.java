@@ -10,6 +10,7 @@ import com.davixdevelop.schem2obj.namespace.Namespace;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Leaves block
@@ -17,7 +18,7 @@ import java.util.*;
  * @author DavixDevelop
  */
 public class LeavesCubeModel extends BlockCubeModel {
-    public static Set<String> MODIFIED_LEAVES_MATERIALS = new HashSet<>();
+    public static Set<String> MODIFIED_LEAVES_MATERIALS = ConcurrentHashMap.newKeySet();
 
     @Override
     public boolean fromNamespace(Namespace namespace) {
@@ -31,7 +32,7 @@ public class LeavesCubeModel extends BlockCubeModel {
 
         //Get the models for the glass
         for(int c = 0; c < variants.size(); c++)
-            leavesModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getBlockModel(variants.get(c).getModel()));
+            leavesModels[c] = new VariantModels(variants.get(c), Constants.BLOCK_MODELS.getFlattenedBlockModel(variants.get(c).getModel()));
 
 
         //Modify the leaves materials if they were not yet modified
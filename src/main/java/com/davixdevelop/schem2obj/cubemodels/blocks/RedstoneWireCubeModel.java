@@ -17,6 +17,7 @@ import com.davixdevelop.schem2obj.util.ImageUtility;
 
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Redstone Wire block
@@ -25,7 +26,7 @@ import java.util.*;
  */
 public class RedstoneWireCubeModel extends CubeModel implements IAdjacentCheck {
     static AdjacentBlockState ADJACENT_REDSTONE_WIRE_STATES = new AdjacentBlockState("assets/minecraft/redstone_wire_states.json");
-    static Set<String> MODIFIED_REDSTONE_WIRE_MATERIALS = new HashSet<>();
+    static Set<String> MODIFIED_REDSTONE_WIRE_MATERIALS = ConcurrentHashMap.newKeySet();
 
     private String power;
 
@@ -88,12 +89,8 @@ public class RedstoneWireCubeModel extends CubeModel implements IAdjacentCheck {
                         }
 
                         materials.put(textureVariable, newTextureName);
-                        Constants.BLOCK_MATERIALS.unsetUsedMaterial(textureName);
                     }
                 }
-
-                //Unset the overlay from the used materials
-                Constants.BLOCK_MATERIALS.unsetUsedMaterial(materials.get("overlay"));
             }
         }
 
@@ -13,10 +13,11 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TallGrassCubeModel extends BlockCubeModel {
 
-    static Set<String> TALL_GRASS_MATERIALS_MODIFIED = new HashSet<>();
+    static Set<String> TALL_GRASS_MATERIALS_MODIFIED = ConcurrentHashMap.newKeySet();
 
     @Override
     public boolean fromNamespace(Namespace namespace) {
@@ -10,10 +10,11 @@ import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BoatCubeModel extends EntityCubeModel {
 
-    public static Set<String> GENERATED_MATERIALS = new HashSet<>();
+    public static Set<String> GENERATED_MATERIALS = ConcurrentHashMap.newKeySet();
 
     public boolean onGround = false;
 
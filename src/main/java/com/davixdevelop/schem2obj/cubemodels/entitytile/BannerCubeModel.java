@@ -6,16 +6,16 @@ import com.davixdevelop.schem2obj.materials.IMaterial;
 import com.davixdevelop.schem2obj.models.IntegerString;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 import com.davixdevelop.schem2obj.util.LogUtility;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Banner entity
@@ -27,10 +27,12 @@ import java.util.Map;
  */
 public class BannerCubeModel extends TileEntityCubeModel {
 
-    public static Map<String, BufferedImage> PATTERNS = new HashMap<>();
-    public static Map<String, List<String>> PATTERN_CODES = new HashMap<>();
+    //Key: <index of pattern><color index>, Value: The colored pattern
+    public static Map<String, BufferedImage> PATTERNS = new ConcurrentHashMap<>();
+    //Key: The pattern codes of the banner, Value: Path of the banner material
+    public static Map<String, String> BANNER_MATERIALS = new ConcurrentHashMap<>();
 
-    private static boolean DEFAULT_MATERIAL_GENERATED = false;
+    private static volatile boolean DEFAULT_MATERIAL_GENERATED = false;
     String bannerPatternCode;
     String bannerColor;
 
@@ -66,74 +68,43 @@ public class BannerCubeModel extends TileEntityCubeModel {
             }
         }
 
-        for(String pattern : PATTERN_CODES.keySet()){
-            List<String> patterns = PATTERN_CODES.get(pattern);
-
-            if(patterns.size() == patternCodes.size()){
-                boolean matches = true;
-                for(int p = 0; p < patterns.size(); p++){
-                    if(!patterns.get(p).equals(patternCodes.get(p)))
-                    {
-                        matches = false;
-                        break;
-                    }
-                }
-
-                if(matches) {
-                    bannerPatternCode = pattern;
-                    return true;
-                }
+        //The signature of the banner is the base color followed by the colored patterns
+        StringBuilder patternCodesName = new StringBuilder();
+        List<BufferedImage> layers = new ArrayList<>();
+        for (String patternCode : patternCodes) {
+            if(patternCode != null){
+                patternCodesName.append(patternCode);
+                layers.add(PATTERNS.get(patternCode));
             }
         }
 
-        //Create new material from patterns codes
-        String baseMaterialPath = "entity/banner_base";
-        CubeModelUtility.generateOrGetMaterial(baseMaterialPath, namespace);
-        IMaterial banner_material = Constants.BLOCK_MATERIALS.getMaterial(baseMaterialPath).duplicate();
-
-        try {
-
-            BufferedImage diffuseImage = banner_material.getDefaultDiffuseImage();
-
-            BufferedImage coloredBanner = null;
-
-            StringBuilder patternCodesName = new StringBuilder();
-            for (String patternCode : patternCodes) {
-                if(patternCode != null){
-                    patternCodesName.append(patternCode);
-
-                    //Multiply the diffuse with the pattern
-                    BufferedImage coloredPattern = ImageUtility.multiplyImage(diffuseImage, PATTERNS.get(patternCode));
-
-                    //Get the portion of the colored base patter that the pattern covers
-                    coloredPattern = ImageUtility.maskImage(coloredPattern, PATTERNS.get(patternCode));
+        //Banners with the same signature share the same material, and only the first one composites it
+        String bannerMaterialPath = BANNER_MATERIALS.computeIfAbsent(patternCodesName.toString(), signature -> {
+            //Create new material from patterns codes
+            String baseMaterialPath = "entity/banner_base";
+            CubeModelUtility.generateOrGetMaterial(baseMaterialPath, namespace);
+            IMaterial banner_material = Constants.BLOCK_MATERIALS.getMaterial(baseMaterialPath).duplicate();
 
-                    //Overlay the portion with the diffuse image
-                    if(coloredBanner == null){
-                        coloredBanner = ImageUtility.overlayImage(diffuseImage, coloredPattern);
-                    }else
-                        coloredBanner = ImageUtility.overlayImage(coloredBanner, coloredPattern);
-                }
+            //Composite all the pattern layers with the diffuse image at once
+            BufferedImage coloredBanner = ImageUtility.compositeLayers(banner_material.getDefaultDiffuseImage(), layers);
+            if(coloredBanner == null){
+                LogUtility.Log("Error while creating material for banner");
+                return null;
             }
 
-            banner_material.setName(String.format("banner-%s", patternCodesName));
+            banner_material.setName(String.format("banner-%s", signature));
             banner_material.setDiffuseImage(coloredBanner);
 
             //Put modified material into collection
-            Constants.BLOCK_MATERIALS.setMaterial(String.format("entity/banner-%s", patternCodesName), banner_material);
-            //Remove the base material from the used materials
-            Constants.BLOCK_MATERIALS.unsetUsedMaterial(baseMaterialPath);
+            String materialPath = String.format("entity/banner-%s", signature);
+            Constants.BLOCK_MATERIALS.setMaterial(materialPath, banner_material);
 
-            bannerPatternCode = patternCodesName.toString();
-
-            PATTERN_CODES.put(bannerPatternCode, patternCodes);
+            return materialPath;
+        });
 
+        if(bannerMaterialPath != null){
+            bannerPatternCode = patternCodesName.toString();
             return true;
-
-
-        }catch (Exception ex){
-            LogUtility.Log("Error while creating material for banner");
-            LogUtility.Log(ex.getMessage());
         }
 
         //If an error occurred, set the default material as the banner material
@@ -155,36 +126,33 @@ public class BannerCubeModel extends TileEntityCubeModel {
     private String generateColoredPattern(IntegerString pattern, IntegerString color, Integer colorIndex){
         //<index of pattern>-<color index>
         String patternCode = String.format("%02d%02d",pattern.getIntegerValue(), colorIndex);
-        if(!PATTERNS.containsKey(patternCode)){
+        BufferedImage coloredPattern = PATTERNS.computeIfAbsent(patternCode, key -> {
             try{
                 String patternPath = ResourceLoader.getResourcePath("textures", pattern.getStringValue(), "png");
-                InputStream patternImageStream = ResourceLoader.getResource(patternPath);
-
-                BufferedImage patternImage = ImageUtility.toBuffedImage(patternImageStream);
-
-                patternImage = ImageUtility.colorImage(patternImage, color.getIntegerValue(), true);
-
-                PATTERNS.put(patternCode, patternImage);
+                BufferedImage patternImage = TextureCache.getImage(patternPath);
 
+                return ImageUtility.colorImage(patternImage, color.getIntegerValue(), true);
             }catch (Exception ex){
                 LogUtility.Log(ex.getMessage());
                 return null;
             }
-        }
+        });
+
+        if(coloredPattern == null)
+            return null;
 
         return patternCode;
     }
 
     public void generateDefaultMaterial(Namespace blockNamespace){
+        bannerPatternCode = "default";
+
         if(!DEFAULT_MATERIAL_GENERATED) {
             String baseMaterialPath = "entity/banner_base";
             CubeModelUtility.generateOrGetMaterial(baseMaterialPath, blockNamespace);
             IMaterial default_banner_material = Constants.BLOCK_MATERIALS.getMaterial(baseMaterialPath).duplicate();
             default_banner_material.setName("banner-default");
             Constants.BLOCK_MATERIALS.setMaterial("entity/banner-default", default_banner_material);
-            Constants.BLOCK_MATERIALS.unsetUsedMaterial(baseMaterialPath);
-
-            bannerPatternCode = "default";
 
             DEFAULT_MATERIAL_GENERATED = true;
         }
@@ -9,7 +9,6 @@ import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,13 +30,11 @@ public class BedCubeModel extends TileEntityCubeModel {
     public Map<String, Object> getKey(Namespace namespace) {
         EntityValues entityValues = namespace.getCustomData();
 
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("color", entityValues.getInteger("color"));
-        key.put("facing", namespace.getDefaultBlockState().getData("facing"));
-        key.put("part", namespace.getDefaultBlockState().getData("part"));
-
-        return key;
+        return TileEntityKey.of(namespace)
+                .put("color", entityValues.getInteger("color"))
+                .putState("facing")
+                .putState("part")
+                .build();
     }
 
     public void toCubeModel(int color, String part, String facing, Namespace namespace){
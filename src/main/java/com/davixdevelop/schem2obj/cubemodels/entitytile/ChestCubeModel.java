@@ -12,14 +12,14 @@ import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChestCubeModel extends TileEntityCubeModel implements IAdjacentCheck {
     public static AdjacentBlockState ADJACENT_CHEST_STATES = new AdjacentBlockState("assets/minecraft/chest_states.json");
 
     //Map<key: variant:type:facing, value: Chest Cube Model>
-    public static HashMap<String, ChestCubeModel> CHEST_VARIANTS = new HashMap<>();
+    public static Map<String, ChestCubeModel> CHEST_VARIANTS = new ConcurrentHashMap<>();
 
     String variant;
     String name;
@@ -30,9 +30,6 @@ public class ChestCubeModel extends TileEntityCubeModel implements IAdjacentChec
         this.variant = variant;
         this.name = chest_name;
         this.adjacentCheck = adjacentCheck;
-
-        if(!variant.equals("ender") && Constants.CHRISTMAS_CHEST)
-            this.variant = "christmas";
     }
 
     @Override
@@ -43,6 +40,9 @@ public class ChestCubeModel extends TileEntityCubeModel implements IAdjacentChec
 
     @Override
     public Map<String, Object> getKey(Namespace namespace) {
+        if(!variant.equals("ender") && namespace.getContext() != null && namespace.getContext().isChristmasChest())
+            variant = "christmas";
+
         if(adjacentCheck){
             //Get modified namespace depending on the adjacent block states
             CubeModelUtility.getAdjacentNamespace_AdjacentState(namespace, ADJACENT_CHEST_STATES, this);
@@ -55,13 +55,12 @@ public class ChestCubeModel extends TileEntityCubeModel implements IAdjacentChec
         }else
             type = "single";
 
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("variant", variant);
-        key.put("type", type);
-        key.put("facing", namespace.getDefaultBlockState().getData("facing"));
-
-        return key;
+        //The items in the chest don't change It's model
+        return TileEntityKey.of(namespace)
+                .put("variant", variant)
+                .put("type", type)
+                .putState("facing")
+                .build();
     }
 
     public void toCubeModel(Namespace namespace){
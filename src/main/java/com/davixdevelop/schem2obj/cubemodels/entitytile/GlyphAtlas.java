@@ -0,0 +1,288 @@
+package com.davixdevelop.schem2obj.cubemodels.entitytile;
+
+import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
+import com.davixdevelop.schem2obj.util.ImageUtility;
+import com.davixdevelop.schem2obj.util.LogUtility;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The colored glyphs of a single font page (ex. ascii or unicode_page_04) in a single text color.
+ * All the glyphs of the page get cut out and colored once, when the atlas is first requested,
+ * so that the signs only need to copy the glyphs. The atlases are shared between the threads, and are never modified
+ *
+ * @author DavixDevelop
+ */
+public class GlyphAtlas {
+    //Key: Font page:Color, Value: The glyph atlas
+    private static final Map<String, GlyphAtlas> ATLASES = new ConcurrentHashMap<>();
+    //Key: Font page, Value: The uncolored glyphs of the page
+    private static final Map<String, BufferedImage[]> PAGE_GLYPHS = new ConcurrentHashMap<>();
+
+    private static volatile byte[] UNICODE_GLYPH_SIZES = null;
+
+    //The colored glyphs, indexed by the char index on the page. Null if the char can't be displayed
+    private final BufferedImage[] glyphs;
+    //Key: Row height, Value: The colored glyphs scaled to the row height
+    private final Map<Integer, AtomicReferenceArray<BufferedImage>> scaledGlyphs = new ConcurrentHashMap<>();
+
+    private GlyphAtlas(BufferedImage[] pageGlyphs, int color){
+        glyphs = new BufferedImage[pageGlyphs.length];
+        for(int c = 0; c < pageGlyphs.length; c++){
+            if(pageGlyphs[c] != null)
+                glyphs[c] = ImageUtility.colorImage(pageGlyphs[c], color, true);
+        }
+    }
+
+    /**
+     * Get the atlas of the font page the char lies on, in the color
+     * @param c The char
+     * @param color A Integer color
+     * @return The glyph atlas, or null if the font page doesn't exist
+     */
+    public static GlyphAtlas getAtlas(char c, int color){
+        String pageName = ((int) c < 256) ? "ascii" : String.format("unicode_page_%02X", (int) c / 256);
+
+        BufferedImage[] pageGlyphs = PAGE_GLYPHS.computeIfAbsent(pageName, GlyphAtlas::readPageGlyphs);
+        if(pageGlyphs.length == 0)
+            return null;
+
+        return ATLASES.computeIfAbsent(String.format("%s:%d", pageName, color), key -> new GlyphAtlas(pageGlyphs, color));
+    }
+
+    /**
+     * @param c The char
+     * @return The colored glyph of the char, or null if the char can't be displayed
+     */
+    public BufferedImage getGlyph(char c){
+        return glyphs[(int) c % 256];
+    }
+
+    /**
+     * Get the colored glyph of the char, upscaled to the row height
+     * @param c The char
+     * @param rowHeight The pixel height of the row
+     * @return The scaled glyph, or null if the char can't be displayed
+     */
+    public BufferedImage getGlyph(char c, int rowHeight){
+        BufferedImage glyph = getGlyph(c);
+        if(glyph == null || glyph.getHeight() == rowHeight)
+            return glyph;
+
+        AtomicReferenceArray<BufferedImage> scaled = scaledGlyphs.computeIfAbsent(rowHeight, key -> new AtomicReferenceArray<>(glyphs.length));
+
+        int index = (int) c % 256;
+        BufferedImage scaledGlyph = scaled.get(index);
+        if(scaledGlyph == null){
+            double yRatio = rowHeight / (double) glyph.getHeight();
+            scaledGlyph = ImageUtility.upscaleImage(glyph, (int) (glyph.getWidth() * yRatio), rowHeight);
+            scaled.set(index, scaledGlyph);
+        }
+
+        return scaledGlyph;
+    }
+
+    /**
+     * Cut out all the glyphs of the font page
+     * @param pageName The name of the font page, ex. ascii
+     * @return The glyphs, or an empty array if the font page doesn't exist
+     */
+    private static BufferedImage[] readPageGlyphs(String pageName){
+        BufferedImage fontBitmap = getFontBitmap(pageName);
+        if(fontBitmap == null)
+            return new BufferedImage[0];
+
+        BufferedImage[] pageGlyphs = new BufferedImage[256];
+
+        if(pageName.equals("ascii")){
+            for(int c = 0; c < 256; c++){
+                //Clip the glyph
+                BufferedImage glyph = clipGlyph(getGlyph(fontBitmap, c % 16, c / 16, 0, 15));
+
+                if(glyph == null && Character.isWhitespace((char) c))
+                    glyph = new BufferedImage(fontBitmap.getWidth() / 16, fontBitmap.getHeight() / 16, BufferedImage.TYPE_INT_ARGB_PRE);
+
+                pageGlyphs[c] = glyph;
+            }
+        }else{
+            byte[] glyphSizes = getUnicodeGlyphSizes();
+            int page = Integer.parseInt(pageName.substring(pageName.length() - 2), 16);
+
+            for(int c = 0; c < 256; c++){
+                int ci = (page * 256) + c;
+                //Check if glyph is not in glyph sizes
+                if(glyphSizes.length <= ci)
+                    continue;
+
+                //Get the start and end column of the glyph from the upper and lower 4 bits of the byte
+                int start_column = (glyphSizes[ci] >> 4) & 0x0F;
+                int end_column = glyphSizes[ci] & 0x0F;
+
+                BufferedImage glyph = getGlyph(fontBitmap, c % 16, c / 16, start_column, end_column);
+
+                if(glyph == null || (ImageUtility.isTransparent(glyph) && !Character.isWhitespace((char) ci)))
+                    continue;
+
+                pageGlyphs[c] = glyph;
+            }
+        }
+
+        return pageGlyphs;
+    }
+
+    /**
+     * Get glyph from provide font page
+     * @param fontBitmap The image of the font page
+     * @param x_pos The x position of the glyph on the page (0-15)
+     * @param y_pos The y position of the glyph on the page (0-15)
+     * @param start_column The column where the glyph starts
+     * @param end_column The column where the glyph ends
+     * @return The image of the glyph
+     */
+    private static BufferedImage getGlyph(BufferedImage fontBitmap, int x_pos, int y_pos, int start_column, int end_column){
+        try {
+            int fontWidth = fontBitmap.getWidth() / 16;
+            int fontHeight = fontBitmap.getHeight() / 16;
+
+            double pixelWidth = fontWidth / 16.0;
+            double pixelHeight = fontHeight / 16.0;
+
+            int startPos = (int) ((x_pos * fontWidth) + Math.floor(start_column * pixelWidth));
+            int endPos = (int) ((x_pos * fontWidth) + Math.floor(end_column * pixelWidth));
+
+            int endYPos = (int) ((y_pos * fontHeight) + (15 * pixelHeight));
+
+            BufferedImage glyph = new BufferedImage((int) (((end_column - start_column) + 1) * pixelWidth), (int) (16 * pixelHeight), BufferedImage.TYPE_INT_ARGB_PRE);
+
+            int local_x = 0;
+            for(int x = startPos; x <= endPos; x++ ){
+                int local_y = 0;
+                for(int y = y_pos * fontHeight; y <= endYPos; y++){
+                    int pixelColor = fontBitmap.getRGB(x, y);
+                    glyph.setRGB(local_x, local_y, pixelColor);
+
+                    local_y += 1;
+                }
+
+                local_x += 1;
+            }
+
+            return glyph;
+
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Horizontally clip the glyph. If the glyph is transparent, return null
+     * @param glyph The image of the glyph to clip
+     * @return The clipped glyph
+     */
+    private static BufferedImage clipGlyph(BufferedImage glyph){
+        if(glyph == null)
+            return null;
+
+        Integer min_x = null;
+        Integer max_x = null;
+
+        for(int x = 0; x < glyph.getWidth(); x++){
+            for(int y = 0; y < glyph.getHeight(); y++){
+                int color = glyph.getRGB(x, y);
+
+                int alpha = (color >> 24 & 255);
+
+                if(alpha != 0){
+                    if(min_x == null){
+                        min_x = x;
+                        max_x = x;
+                    }else
+                    {
+                        if(x < min_x)
+                            min_x = x;
+
+                        if(x > max_x)
+                            max_x = x;
+                    }
+                }
+            }
+        }
+
+        if(min_x == null)
+            return null;
+
+        BufferedImage clippedGlyph = new BufferedImage((max_x + 1) - min_x, glyph.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+
+        int local_x = 0;
+        for(int x = min_x; x <= max_x; x++){
+            int local_y = 0;
+            for(int y = 0; y < clippedGlyph.getHeight(); y++){
+                int color = glyph.getRGB(x, y);
+
+                clippedGlyph.setRGB(local_x, local_y, color);
+                local_y += 1;
+            }
+            local_x += 1;
+        }
+
+        return clippedGlyph;
+    }
+
+    /**
+     * Get font page from It's name from Resources. If it doesn't exist, return null
+     * @param name The name of the font page, ex. ascii
+     * @return The image of the font page
+     */
+    private static BufferedImage getFontBitmap(String name){
+        String fontPath = ResourceLoader.getResourcePath("textures", String.format("font/%s", name), "png");
+        if(ResourceLoader.resourceExists(fontPath))
+            return TextureCache.getImage(fontPath);
+
+        return null;
+    }
+
+    /**
+     * Read glyph_sizes.bin from resource into a byte array
+     * @return The size of each unicode glyph, or an empty array if it couldn't be read
+     */
+    private static synchronized byte[] getUnicodeGlyphSizes(){
+        if(UNICODE_GLYPH_SIZES != null)
+            return UNICODE_GLYPH_SIZES;
+
+        UNICODE_GLYPH_SIZES = new byte[0];
+
+        try {
+            String glyphSizesPath = ResourceLoader.getResourcePath("font", "glyph_sizes","bin");
+            InputStream glyphSizesRaw = ResourceLoader.getResource(glyphSizesPath);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            byte[] buffer = new byte[1024];
+            int readBytes = glyphSizesRaw.read(buffer);
+
+            while (readBytes != -1){
+                outputStream.write(buffer, 0, readBytes);
+                readBytes = glyphSizesRaw.read(buffer);
+            }
+
+            UNICODE_GLYPH_SIZES = outputStream.toByteArray();
+
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+        }
+
+        return UNICODE_GLYPH_SIZES;
+    }
+
+    public static void clearData(){
+        ATLASES.clear();
+        PAGE_GLYPHS.clear();
+    }
+}
@@ -9,6 +9,7 @@ import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.cubemodels.model.CubeFace;
 import com.davixdevelop.schem2obj.models.HashedDoubleList;
 import com.davixdevelop.schem2obj.namespace.Namespace;
+import com.davixdevelop.schem2obj.schematic.SchematicHolder;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.*;
@@ -81,13 +82,15 @@ public class LiquidCubeModel extends CubeModel {
         int y_pos = liquidNamespace.getPosition("Y");
         int z_pos = liquidNamespace.getPosition("Z");
 
-        Namespace south = Constants.LOADED_SCHEMATIC.getNamespace(x_pos, y_pos, z_pos + 1);
-        Namespace north = Constants.LOADED_SCHEMATIC.getNamespace(x_pos, y_pos, z_pos - 1);
-        Namespace east = Constants.LOADED_SCHEMATIC.getNamespace(x_pos + 1, y_pos, z_pos);
-        Namespace west = Constants.LOADED_SCHEMATIC.getNamespace(x_pos - 1, y_pos, z_pos);
+        SchematicHolder schematic = liquidNamespace.getContext().getSchematic();
 
-        Namespace up = Constants.LOADED_SCHEMATIC.getNamespace(x_pos, y_pos + 1, z_pos);
-        Namespace down = Constants.LOADED_SCHEMATIC.getNamespace(x_pos, y_pos - 1, z_pos);
+        Namespace south = schematic.getNamespace(x_pos, y_pos, z_pos + 1);
+        Namespace north = schematic.getNamespace(x_pos, y_pos, z_pos - 1);
+        Namespace east = schematic.getNamespace(x_pos + 1, y_pos, z_pos);
+        Namespace west = schematic.getNamespace(x_pos - 1, y_pos, z_pos);
+
+        Namespace up = schematic.getNamespace(x_pos, y_pos + 1, z_pos);
+        Namespace down = schematic.getNamespace(x_pos, y_pos - 1, z_pos);
 
         boolean hasLiquidUp = up != null && isLiquidAdjacent(up);
         boolean hasLiquidDown = down != null && isLiquidAdjacent(down);
@@ -99,10 +102,10 @@ public class LiquidCubeModel extends CubeModel {
         }
 
 
-        Namespace north_east = Constants.LOADED_SCHEMATIC.getNamespace(x_pos + 1, y_pos, z_pos - 1);
-        Namespace north_west = Constants.LOADED_SCHEMATIC.getNamespace(x_pos - 1, y_pos, z_pos - 1);
-        Namespace south_east = Constants.LOADED_SCHEMATIC.getNamespace(x_pos + 1, y_pos, z_pos + 1);
-        Namespace south_west = Constants.LOADED_SCHEMATIC.getNamespace(x_pos - 1, y_pos, z_pos + 1);
+        Namespace north_east = schematic.getNamespace(x_pos + 1, y_pos, z_pos - 1);
+        Namespace north_west = schematic.getNamespace(x_pos - 1, y_pos, z_pos - 1);
+        Namespace south_east = schematic.getNamespace(x_pos + 1, y_pos, z_pos + 1);
+        Namespace south_west = schematic.getNamespace(x_pos - 1, y_pos, z_pos + 1);
 
         Double[] cornerHeights = new Double[]{null, null, null, null};
 
@@ -362,9 +365,11 @@ public class LiquidCubeModel extends CubeModel {
     }
 
     public void createBlock(Namespace liquidNamespace, Double[] cornerHeights, boolean hasLiquidUp, boolean hasLiquidDown, boolean hasLiquidNorth, boolean hasLiquidSouth, boolean hasLiquidEast, boolean hasLiquidWest, boolean[] createSideFace, FLOW_DIRECTION flowDirection, int x, int y, int z){
+        SchematicHolder schematic = liquidNamespace.getContext().getSchematic();
+
         //Value by how much to move each vert (vert + translate)
-        double translateX = x - (Constants.LOADED_SCHEMATIC.getWidth() / 2.0);
-        double translateY = (z * -1.0) + ((Constants.LOADED_SCHEMATIC.getLength() / 2.0) - 1);
+        double translateX = x - (schematic.getWidth() / 2.0);
+        double translateY = (z * -1.0) + ((schematic.getLength() / 2.0) - 1);
         Double[] translate = new Double[]{translateX, translateY, y * 1.0};
 
         //HashMap<String, Integer> CornersIndex = new HashMap<>();
@@ -5,18 +5,17 @@ import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.materials.IMaterial;
 import com.davixdevelop.schem2obj.models.IntegerString;
 import com.davixdevelop.schem2obj.namespace.Namespace;
-import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.schematic.Schematic;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 import com.davixdevelop.schem2obj.util.LogUtility;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Sign entity
@@ -28,79 +27,50 @@ import java.util.*;
  */
 public class SignCubeModel extends TileEntityCubeModel {
 
-    //Key: Color Index:Char, Value: Colored Image of Glyph
-    public static Map<String, BufferedImage> COLORED_GLYPHS = new HashMap<>();
-    //Key: MD5 encoded value (Color:ROW1_Color:ROW2...)
-    public static Set<String> COLORED_TEXT_ROWS = new HashSet<>();
-
-    public static Map<String, BufferedImage> FONT_BITMAPS = new HashMap<>();
-
-    private static byte[] UNICODE_GLYPH_SIZES = null;
+    //Key: MD5 encoded value (Color:ROW1_Color:ROW2...), Value: Path of the text material
+    public static Map<String, String> TEXT_MATERIALS = new ConcurrentHashMap<>();
+    //Key: MD5 encoded value, Value: Text image rendered before the conversion, that doesn't have a material yet
+    static Map<String, BufferedImage> TEXT_IMAGES = new ConcurrentHashMap<>();
 
     String signText;
 
-    Integer bitmapYRes;
-
-    @Override
-    public boolean fromNamespace(Namespace namespace) {
-        EntityValues entityValues = namespace.getCustomData();
-
-        EntityValues Text1 = entityValues.getEntityValues("Text1");
-        EntityValues Text2 = entityValues.getEntityValues("Text2");
-        EntityValues Text3 = entityValues.getEntityValues("Text3");
-        EntityValues Text4 = entityValues.getEntityValues("Text4");
-
-
-        List<String[]> coloredTextRows = new ArrayList<>();
-        //Color the glyphs of each row
-        colorGlyphsRow(Text1, coloredTextRows);
-        colorGlyphsRow(Text2, coloredTextRows);
-        colorGlyphsRow(Text3, coloredTextRows);
-        colorGlyphsRow(Text4, coloredTextRows);
+    /**
+     * A row of sign text, with only the chars that can be displayed
+     */
+    static class TextRow {
+        final IntegerString color;
+        final String text;
 
-        StringBuilder keyBuilder = new StringBuilder();
-        for(int c = 0; c < coloredTextRows.size(); c++){
-            String[] coloredTextRow = coloredTextRows.get(c);
-            keyBuilder.append(String.format((c != 3) ? "%s:%s_" : "%s:%s", coloredTextRow[0], coloredTextRow[1]));
+        TextRow(IntegerString color, String text){
+            this.color = color;
+            this.text = text;
         }
+    }
 
-        String key = keyBuilder.toString();
-
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            md5.update(StandardCharsets.UTF_8.encode(key));
-            key = String.format("%032x", new BigInteger(1, md5.digest()));
-        }catch (Exception ex){
-            LogUtility.Log(ex.getMessage());
-        }
-
-
-
-        if(!COLORED_TEXT_ROWS.contains(key)){
-            //Calculate the x and y resolution so that the glyph with the highest resolution gets displayed at It's full resolution, without downscaling
-            int rowSize = (bitmapYRes != null) ? bitmapYRes / 16 : 8;
-
-            int yPixelSize = rowSize / 8;
-            int yResolution = (4 * (8 * yPixelSize)) + (4 * (2 * yPixelSize)) + (3 * yPixelSize);
-            int xResolution = 2 * yResolution;
-            //Create empty diffuse image
-            BufferedImage diffuseImage = new BufferedImage(xResolution, yResolution, BufferedImage.TYPE_INT_ARGB_PRE);
+    @Override
+    public boolean fromNamespace(Namespace namespace) {
+        List<TextRow> textRows = getTextRows(namespace.getCustomData());
+        String key = getTextKey(textRows);
 
-            for(int c = 0; c < coloredTextRows.size(); c++){
-                 typeGlyphRow(diffuseImage, coloredTextRows.get(c), c + 1, rowSize);
-            }
+        //Signs with the same text share the same material, and only the first one creates it
+        TEXT_MATERIALS.computeIfAbsent(key, k -> {
+            //Use the text image rendered before the conversion, or render it now
+            BufferedImage diffuseImage = TEXT_IMAGES.remove(k);
+            if(diffuseImage == null)
+                diffuseImage = renderText(textRows);
 
             //Create new material for text
             String signMaterialPath = "entity/sign";
             CubeModelUtility.generateOrGetMaterial(signMaterialPath, namespace);
             IMaterial sign_text_material = Constants.BLOCK_MATERIALS.getMaterial(signMaterialPath).duplicate();
 
-            sign_text_material.setName(String.format("sign-%s", key));
+            String textMaterialPath = String.format("entity/sign-%s", k);
+            sign_text_material.setName(String.format("sign-%s", k));
             sign_text_material.setDiffuseImage(diffuseImage);
-            Constants.BLOCK_MATERIALS.setMaterial(String.format("entity/sign-%s", key), sign_text_material);
+            Constants.BLOCK_MATERIALS.setMaterial(textMaterialPath, sign_text_material);
 
-            COLORED_TEXT_ROWS.add(key);
-        }
+            return textMaterialPath;
+        });
 
         signText = key;
 
@@ -113,251 +83,149 @@ public class SignCubeModel extends TileEntityCubeModel {
         return signText;
     }
 
-    public void colorGlyphsRow(EntityValues row, List<String[]> coloredTextRows){
-        if(UNICODE_GLYPH_SIZES == null){
-            setUnicodeGlyphSizes();
+    /**
+     * Render the text of all the signs in the schematic in parallel, before the conversion,
+     * so that the conversion only needs to create the materials
+     * @param schematic The loaded schematic
+     * @return The keys of the rendered text, so that the images of the skipped signs can be removed after the conversion
+     */
+    public static Set<String> prepareTextImages(Schematic schematic){
+        //Collect the text of the signs, without the duplicates and the already rendered text
+        Map<String, List<TextRow>> texts = new LinkedHashMap<>();
+        for(EntityValues tileEntity : schematic.getTileEntities().values()){
+            if(!tileEntity.getString("id").toLowerCase().endsWith("sign"))
+                continue;
+
+            List<TextRow> textRows = getTextRows(tileEntity);
+            String key = getTextKey(textRows);
+            if(!TEXT_MATERIALS.containsKey(key) && !TEXT_IMAGES.containsKey(key))
+                texts.put(key, textRows);
         }
 
-        //Get color of row
-        IntegerString color;
-
-        //Create outRow for all valid chars
-        StringBuilder outRow = new StringBuilder();
-
-        if(row.containsKey("color")){
-            String colorName = row.getString("color");
-            color = Constants.TEXT_COLORS.get(colorName);
-        }else
-            color = Constants.TEXT_COLORS.get("black");
-
-        String text = row.getString("text");
-        for(int d = 0; d < text.length(); d++){
-
-            String coloredGlyphKey = String.format("%s:%s", color.getStringValue(), text.charAt(d));
-            if(!COLORED_GLYPHS.containsKey(coloredGlyphKey)) {
-
-
-                char c = text.charAt(d);
-                //Get numeric value of char
+        if(texts.isEmpty())
+            return Collections.emptySet();
 
-                BufferedImage coloredGlyph;
+        LogUtility.Log(String.format("Rendering the text of %d signs", texts.size()));
 
-                //If numeric value is less than 256, It's a ASCII char
-                if ((int) c < 256) {
-                    //Get textures/font/ascii.png from resources
-                    BufferedImage asciiBitmap = getFontBitmap("ascii");
-                    //If resource doesn't exist, skip char
-                    if (asciiBitmap == null)
-                        continue;
+        texts.entrySet().parallelStream().forEach(text -> TEXT_IMAGES.put(text.getKey(), renderText(text.getValue())));
 
-                    //Calculate position of glyph on fontBitmap
-                    int x = (int) c % 16;
-                    int y = (int) c / 16;
-
-                    coloredGlyph = getGlyph(asciiBitmap, x, y, 0, 15);
-
-                    //Clip the glyph if needed
-                    coloredGlyph = clipGlyph(coloredGlyph);
-
-                    if(coloredGlyph == null && Character.isWhitespace(c)){
-                        coloredGlyph = new BufferedImage(asciiBitmap.getWidth() / 16, asciiBitmap.getHeight() / 16, asciiBitmap.getType());
-                    }
-
-                }else {
-                    //Else It's a unicode char
-
-                    //Check if glyph is not in glyph sizes
-                    if(UNICODE_GLYPH_SIZES.length <= (int) c)
-                        continue;
-
-                    //Get the page number the char lies in
-                    int page = (int) c / 256;
-                    //Get the name of the unicode page
-                    String unicodePageName = String.format("unicode_page_%02X", page);
-                    BufferedImage unicodePage = getFontBitmap(unicodePageName);
-
-                    if(unicodePage == null)
-                        continue;
+        return texts.keySet();
+    }
 
-                    //Get the local index of the char on the page
-                    int local_ci = (int) c - (256 * page);
-                    //Calculate position of glyph on page
-                    int x = local_ci % 16;
-                    int y = local_ci / 16;
+    /**
+     * Remove the text images rendered before the conversion, that weren't used by a sign (ex. the sign was skipped)
+     * @param keys The keys returned by prepareTextImages
+     */
+    public static void clearTextImages(Set<String> keys){
+        TEXT_IMAGES.keySet().removeAll(keys);
+    }
 
-                    byte glyphSize = UNICODE_GLYPH_SIZES[c];
-                    //Get the start and end column of the glyph from the upper and lower 4 bits of the byte
-                    int start_collum = glyphSize >> 4;
-                    int end_column = glyphSize & 0x0F;
+    public static void clearData(){
+        TEXT_IMAGES.clear();
+    }
 
-                    coloredGlyph = getGlyph(unicodePage, x, y, start_collum, end_column);
+    /**
+     * Read the 4 rows of the sign, and remove the chars that can't be displayed
+     * @param entityValues The values of the sign tile entity
+     * @return The 4 text rows
+     */
+    static List<TextRow> getTextRows(EntityValues entityValues){
+        List<TextRow> textRows = new ArrayList<>();
+        for(int r = 1; r <= 4; r++)
+            textRows.add(getTextRow(entityValues.getEntityValues(String.format("Text%d", r))));
 
-                    if(coloredGlyph == null)
-                        continue;
+        return textRows;
+    }
 
-                    boolean isGlyphTransparent = ImageUtility.isTransparent(coloredGlyph);
+    static TextRow getTextRow(EntityValues row){
+        //Get color of row
+        IntegerString color = null;
+        if(row.containsKey("color"))
+            color = Constants.TEXT_COLORS.get(row.getString("color"));
+        if(color == null)
+            color = Constants.TEXT_COLORS.get("black");
 
-                    if(isGlyphTransparent && !Character.isWhitespace(c))
-                        continue;
-                }
+        //Create outRow for all valid chars
+        StringBuilder outRow = new StringBuilder();
 
-                if(coloredGlyph == null)
-                    continue;
+        String text = row.getString("text");
+        for(int d = 0; d < text.length(); d++){
+            char c = text.charAt(d);
 
-                //Color the glyph
-                coloredGlyph = ImageUtility.colorImage(coloredGlyph, color.getIntegerValue(), true);
-                COLORED_GLYPHS.put(coloredGlyphKey, coloredGlyph);
+            GlyphAtlas glyphAtlas = GlyphAtlas.getAtlas(c, color.getIntegerValue());
+            if(glyphAtlas != null && glyphAtlas.getGlyph(c) != null)
                 outRow.append(c);
-
-            }else {
-                outRow.append(text.charAt(d));
-            }
         }
 
-        coloredTextRows.add(new String[]{color.getStringValue(), outRow.toString()});
+        return new TextRow(color, outRow.toString());
     }
 
     /**
-     * Get glyph from provide font page
-     * @param fontBitmap The image of the font page
-     * @param x_pos The x position of the glyph on the page (0-15)
-     * @param y_pos The y position of the glyph on the page (0-15)
-     * @param start_column The column where the glyph starts
-     * @param end_column The column where the glyph ends
-     * @return The image of the glyph
+     * Get the key of the sign text, from the color and the text of each row
+     * @param textRows The 4 text rows
+     * @return The MD5 encoded key
      */
-    public BufferedImage getGlyph(BufferedImage fontBitmap, int x_pos, int y_pos, int start_column, int end_column){
-        try {
-            int fontMapWidth = fontBitmap.getWidth();
-            int fontMapHeight = fontBitmap.getHeight();
-
-            int fontWidth = fontMapWidth / 16;
-            int fontHeight = fontMapHeight / 16;
-
-            if(bitmapYRes == null || fontMapHeight > bitmapYRes)
-                bitmapYRes = fontMapHeight;
-
-            double pixelWidth = fontWidth / 16.0;
-            double pixelHeight = fontHeight / 16.0;
-
-            int startPos = (int) ((x_pos * fontWidth) + Math.floor(start_column * pixelWidth));
-            int endPos = (int) ((x_pos * fontWidth) + Math.floor(end_column * pixelWidth));
-
-            int endYPos = (int) ((y_pos * fontHeight) + (15 * pixelHeight));
-
-            BufferedImage glyph = new BufferedImage((int) (((end_column - start_column) + 1) * pixelWidth), (int) (16 * pixelHeight), BufferedImage.TYPE_INT_ARGB_PRE);
-
-            int local_x = 0;
-            for(int x = startPos; x <= endPos; x++ ){
-                int local_y = 0;
-                for(int y = y_pos * fontHeight; y <= endYPos; y++){
-                    int pixelColor = fontBitmap.getRGB(x, y);
-                    glyph.setRGB(local_x, local_y, pixelColor);
-
-                    local_y += 1;
-                }
-
-                local_x += 1;
-            }
+    static String getTextKey(List<TextRow> textRows){
+        StringBuilder keyBuilder = new StringBuilder();
+        for(int c = 0; c < textRows.size(); c++){
+            TextRow textRow = textRows.get(c);
+            //The color of an empty row isn't visible, so leave it out of the key
+            String rowColor = textRow.text.trim().isEmpty() ? "" : textRow.color.getStringValue();
+            keyBuilder.append(String.format((c != 3) ? "%s:%s_" : "%s:%s", rowColor, textRow.text));
+        }
 
-            return glyph;
+        String key = keyBuilder.toString();
 
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(StandardCharsets.UTF_8.encode(key));
+            key = String.format("%032x", new BigInteger(1, md5.digest()));
         }catch (Exception ex){
             LogUtility.Log(ex.getMessage());
         }
 
-        return null;
+        return key;
     }
 
     /**
-     * Horizontally clip the glyph. If the glyph is transparent, return null
-     * @param glyph The image of the glyph to clip
-     * @return The clipped glyph
+     * Render the text rows on a new image
+     * @param textRows The 4 text rows
+     * @return The diffuse image of the sign text
      */
-    public BufferedImage clipGlyph(BufferedImage glyph){
-        Integer min_x = null;
-        Integer max_x = null;
-
-        for(int x = 0; x < glyph.getWidth(); x++){
-            for(int y = 0; y < glyph.getHeight(); y++){
-                int color = glyph.getRGB(x, y);
-
-                int alpha = (color >> 24 & 255);
-
-                if(alpha != 0){
-                    if(min_x == null){
-                        min_x = x;
-                        max_x = x;
-                    }else
-                    {
-                        if(x < min_x)
-                            min_x = x;
-
-                        if(x > max_x)
-                            max_x = x;
-                    }
-                }
+    static BufferedImage renderText(List<TextRow> textRows){
+        //Calculate the row size so that the glyph with the highest resolution gets displayed at It's full resolution, without downscaling
+        int rowSize = 8;
+        for(TextRow textRow : textRows){
+            for(int c = 0; c < textRow.text.length(); c++){
+                char t = textRow.text.charAt(c);
+                rowSize = Math.max(rowSize, GlyphAtlas.getAtlas(t, textRow.color.getIntegerValue()).getGlyph(t).getHeight());
             }
         }
 
-        if(min_x == null)
-            return null;
-
-        BufferedImage clippedGlyph = new BufferedImage((max_x + 1) - min_x, glyph.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
-
-        int local_x = 0;
-        for(int x = min_x; x <= max_x; x++){
-            int local_y = 0;
-            for(int y = 0; y < clippedGlyph.getHeight(); y++){
-                int color = glyph.getRGB(x, y);
+        int yPixelSize = rowSize / 8;
+        int yResolution = (4 * (8 * yPixelSize)) + (4 * (2 * yPixelSize)) + (3 * yPixelSize);
+        int xResolution = 2 * yResolution;
+        //Create empty diffuse image
+        BufferedImage diffuseImage = new BufferedImage(xResolution, yResolution, BufferedImage.TYPE_INT_ARGB_PRE);
 
-                clippedGlyph.setRGB(local_x, local_y, color);
-                local_y += 1;
-            }
-            local_x += 1;
+        for(int c = 0; c < textRows.size(); c++){
+            typeGlyphRow(diffuseImage, textRows.get(c), c + 1, rowSize);
         }
 
-        return clippedGlyph;
-    }
-
-    /**
-     * Get font page from It's name from Resources. If it doesn't exist, return null
-     * @param name The name of the font page, ex. ascii
-     * @return The image of the font page
-     */
-    public BufferedImage getFontBitmap(String name){
-        if(!FONT_BITMAPS.containsKey(name)){
-            try{
-                String fontPath = ResourceLoader.getResourcePath("textures", String.format("font/%s", name), "png");
-                if(ResourceLoader.resourceExists(fontPath)){
-                    InputStream bitmapStream = ResourceLoader.getResource(fontPath);
-                    BufferedImage bitmapFont = ImageUtility.toBuffedImage(bitmapStream);
-
-                    FONT_BITMAPS.put(name, bitmapFont);
-
-                    return bitmapFont;
-                }
-            }catch (Exception ex){
-                LogUtility.Log(ex.getMessage());
-            }
-
-            return null;
-        }else
-            return FONT_BITMAPS.get(name);
+        return diffuseImage;
     }
 
     /**
      * Type a row of glyphs on a image. Each glyph gets upscaled to the rowHeight
      * @param image A image to type the glyphs on
-     * @param colorAndTextRow A 2 length array [color index, string]
+     * @param textRow The color and text of the row
      * @param row The index of the row (1-4)
      * @param rowHeight The pixel height of each row
      */
-    public void typeGlyphRow(BufferedImage image, String[] colorAndTextRow, Integer row, Integer rowHeight){
-        if(colorAndTextRow[1].length() > 0) {
-            String text = colorAndTextRow[1];
+    static void typeGlyphRow(BufferedImage image, TextRow textRow, int row, int rowHeight){
+        if(textRow.text.length() > 0) {
+            String text = textRow.text;
             BufferedImage[] glyphRow = new BufferedImage[text.length()];
-            String color = colorAndTextRow[0];
 
             int rowWidth = 0;
             double columnSpacing = rowHeight * (1 / 8.0);
@@ -368,13 +236,8 @@ public class SignCubeModel extends TileEntityCubeModel {
 
             for(int c = 0; c < text.length(); c++){
                 char t = text.charAt(c);
-                BufferedImage glyph = COLORED_GLYPHS.get(String.format("%s:%s", color, t));
-                //Upscale glyph is It's height doesn't match the rowHeight
-                if(glyph.getHeight() != rowHeight){
-                    double yRatio = rowHeight.doubleValue() / glyph.getHeight();
-                    int xRes = (int) (glyph.getWidth() * yRatio);
-                    glyph = ImageUtility.upscaleImage(glyph, xRes, rowHeight);
-                }
+                //Get the glyph upscaled to the rowHeight
+                BufferedImage glyph = GlyphAtlas.getAtlas(t, textRow.color.getIntegerValue()).getGlyph(t, rowHeight);
 
                 if (c != text.length() - 1) {
                     rowWidth += glyph.getWidth() + (Character.isWhitespace(t) ? 0 : (int) columnSpacing);
@@ -399,28 +262,4 @@ public class SignCubeModel extends TileEntityCubeModel {
 
         }
     }
-
-    /**
-     * Read glyph_sizes.bin from resource into a byte array
-     */
-    public void setUnicodeGlyphSizes(){
-        try {
-            String glyphSizesPath = ResourceLoader.getResourcePath("font", "glyph_sizes","bin");
-            InputStream glyphSizesRaw = ResourceLoader.getResource(glyphSizesPath);
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            byte[] buffer = new byte[1024];
-            int readBytes = glyphSizesRaw.read(buffer);
-
-            while (readBytes != -1){
-                outputStream.write(buffer, 0, readBytes);
-                readBytes = glyphSizesRaw.read(buffer);
-            }
-
-            UNICODE_GLYPH_SIZES = outputStream.toByteArray();
-
-        }catch (Exception ex){
-            LogUtility.Log(ex.getMessage());
-        }
-    }
 }
@@ -6,29 +6,24 @@ import com.davixdevelop.schem2obj.blockmodels.BlockModel;
 import com.davixdevelop.schem2obj.blockmodels.CubeElement;
 import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.cubemodels.ICubeModel;
-import com.davixdevelop.schem2obj.cubemodels.json.PlayerTextureTemplate;
 import com.davixdevelop.schem2obj.materials.IMaterial;
 import com.davixdevelop.schem2obj.namespace.Namespace;
+import com.davixdevelop.schem2obj.resourceloader.SkinCache;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
-import com.davixdevelop.schem2obj.util.ImageUtility;
-import com.google.gson.Gson;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
-import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SkullCubeModel extends TileEntityCubeModel {
 
     //key facing:Rot:SkullType(:Owner-ID), value Skull Cube Model
-    public static HashMap<String, SkullCubeModel> SKULL_VARIANTS = new HashMap<>();
+    public static Map<String, SkullCubeModel> SKULL_VARIANTS = new ConcurrentHashMap<>();
     //SkullType or Owner-ID
-    public static Set<String> GENERATED_SKULLS = new HashSet<>();
+    public static Set<String> GENERATED_SKULLS = ConcurrentHashMap.newKeySet();
     //Map<key: Owner-ID, value: 0 -> default player head | 1 -> hd player head
-    public static Map<String, Integer> PLAYER_HEAD_TYPES = new HashMap<>();
-
-    static Gson GSON = new Gson();
+    public static Map<String, Integer> PLAYER_HEAD_TYPES = new ConcurrentHashMap<>();
 
     @Override
     public boolean fromNamespace(Namespace blockNamespace) {
@@ -39,18 +34,23 @@ public class SkullCubeModel extends TileEntityCubeModel {
     @Override
     public Map<String, Object> getKey(Namespace namespace) {
         EntityValues entityValues = namespace.getCustomData();
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("facing", namespace.getDefaultBlockState().getData("facing"));
-        key.put("Rot", entityValues.getByte("Rot"));
-        key.put("SkullType", entityValues.getByte("SkullType"));
+        String facing = namespace.getDefaultBlockState().getData("facing");
+
+        TileEntityKey key = TileEntityKey.of(namespace)
+                .put("facing", facing)
+                .put("SkullType", entityValues.getByte("SkullType"));
+
+        //The rotation is only used by skulls placed on the floor or ceiling, skulls on walls face away from the wall
+        if(facing.equals("up") || facing.equals("down"))
+            key.put("Rot", entityValues.getByte("Rot"));
+
         if(entityValues.containsKey("Owner") || entityValues.containsKey("SkullOwner"))
         {
             EntityValues owner = entityValues.getEntityValues(entityValues.containsKey("Owner") ? "Owner" : "SkullOwner");
             key.put("OwnerID", owner.getString("Id"));
         }
 
-        return key;
+        return key.build();
     }
 
     public void toCubeModel(Namespace namespace){
@@ -80,31 +80,15 @@ public class SkullCubeModel extends TileEntityCubeModel {
             material = (skullType == 0) ? "skeleton-skeleton" : (skullType == 1) ? "wither_skeleton-skeleton" : "creeper-creeper";
         }
 
-        //If the skull is a player head, download the player's skin and set the material
+        //If the skull is a player head, get the player's skin and set the material
         if(isPlayerHead){
             try{
                 //Get the "Owner" tag from the tile entity
                 EntityValues owner = entityValues.getEntityValues(entityValues.containsKey("Owner") ? "Owner" : "SkullOwner");
                 //Check if material wasn't generated yet for the player head
                 if(!GENERATED_SKULLS.contains(owner.getString("Id"))) {
-                    //Get the properties of the owner
-                    EntityValues properties = owner.getEntityValues("Properties");
-                    //Get textures from properties
-                    List<?> textures = properties.getList("textures");
-                    EntityValues texture = (EntityValues) textures.get(0);
-                    //Decode the value of the texture
-                    String base64_Value = texture.getString("Value");
-                    byte[] decodedByteValue = Base64.getDecoder().decode(base64_Value);
-                    String value = new String(decodedByteValue);
-                    //Deserialize the value
-                    PlayerTextureTemplate textureTemplate = GSON.fromJson(value, PlayerTextureTemplate.class);
-                    //Get url to player skin
-                    String url = textureTemplate.textures.SKIN.url;
-
-                    //Download the player skin
-                    InputStream inputStream = new URL(url).openStream();
-                    //Create buffered image from it
-                    BufferedImage playerSkin = ImageUtility.toBuffedImage(inputStream);
+                    //Get the player skin from the skin cache (It's usually already prefetched)
+                    BufferedImage playerSkin = SkinCache.getSkin(SkinCache.getSkinUrl(owner));
                     //If ratio of image is not 1:1, use the hd variant of the player head
                     if(playerSkin != null) {
                         if (playerSkin.getWidth() / playerSkin.getHeight() != 1) {
@@ -129,11 +113,12 @@ public class SkullCubeModel extends TileEntityCubeModel {
                         //Put the new material to the material collection
                         Constants.BLOCK_MATERIALS.setMaterial(String.format("entity/%s", material), player_skin_material);
 
-                        if(!GENERATED_SKULLS.contains("steve"))
-                            Constants.BLOCK_MATERIALS.unsetUsedMaterial("entity/steve");
-
                         GENERATED_SKULLS.add(material);
 
+                    }else{
+                        //The skin couldn't be read (ex. offline mode without a cached skin), use the default head
+                        material = "steve";
+                        isPlayerHead = false;
                     }
                 }else{
                     material = owner.getString("Id");
@@ -10,7 +10,6 @@ import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import javax.swing.*;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -29,12 +28,10 @@ public class StandingBannerCubeModel extends BannerCubeModel {
     public Map<String, Object> getKey(Namespace namespace) {
         super.fromNamespace(namespace);
 
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("bannerCode", getBannerPatternCode());
-        key.put("rotation", namespace.getDefaultBlockState().getData("rotation"));
-
-        return key;
+        return TileEntityKey.of(namespace)
+                .put("bannerCode", getBannerPatternCode())
+                .putState("rotation")
+                .build();
     }
 
     public void toCubeModel(Namespace namespace){
@@ -9,8 +9,8 @@ import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Standing Sign block
@@ -19,7 +19,7 @@ import java.util.Map;
  */
 public class StandingSignCubeModel extends SignCubeModel{
 
-    public static HashMap<String, StandingSignCubeModel> STANDING_SIGN_VARIANTS = new HashMap<>();
+    public static Map<String, StandingSignCubeModel> STANDING_SIGN_VARIANTS = new ConcurrentHashMap<>();
 
     @Override
     public boolean fromNamespace(Namespace blockNamespace) {
@@ -31,12 +31,10 @@ public class StandingSignCubeModel extends SignCubeModel{
     public Map<String, Object> getKey(Namespace namespace) {
         super.fromNamespace(namespace);
 
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("signText", getSignText());
-        key.put("rotation", namespace.getDefaultBlockState().getData("rotation"));
-
-        return key;
+        return TileEntityKey.of(namespace)
+                .put("signText", getSignText())
+                .putState("rotation")
+                .build();
     }
 
     public void toCubeModel(String rotation){
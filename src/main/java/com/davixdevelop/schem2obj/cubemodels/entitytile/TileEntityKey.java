@@ -0,0 +1,85 @@
+package com.davixdevelop.schem2obj.cubemodels.entitytile;
+
+import com.davixdevelop.schem2obj.namespace.Namespace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds the cube model key of a tile entity, from only the block state and NBT fields that change how the tile entity looks.
+ * The values are stored in a canonical form (ex. all whole numbers as Integer, so a Byte and an Integer color still match),
+ * and equal keys are returned as the same instance, so that tile entities that look the same,
+ * always share a single cube model, no matter what else (ex. the inventory of a chest) their NBT contains
+ *
+ * @author DavixDevelop
+ */
+public class TileEntityKey {
+    //Canonical instance of each built key
+    private static final ConcurrentMap<Map<String, Object>, Map<String, Object>> KEYS = new ConcurrentHashMap<>();
+
+    private final Namespace namespace;
+    private final Map<String, Object> key = new LinkedHashMap<>();
+
+    private TileEntityKey(Namespace namespace){
+        this.namespace = namespace;
+        key.put("EntityTile", namespace.getType());
+    }
+
+    /**
+     * Start a new key for the tile entity
+     * @param namespace The namespace of the tile entity
+     * @return The key builder
+     */
+    public static TileEntityKey of(Namespace namespace){
+        return new TileEntityKey(namespace);
+    }
+
+    /**
+     * Add a value to the key
+     * @param name The name of the value, ex. color
+     * @param value The value, ex. a Byte from the NBT
+     * @return The key builder
+     */
+    public TileEntityKey put(String name, Object value){
+        key.put(name, canonicalValue(value));
+        return this;
+    }
+
+    /**
+     * Add the value of a block state property to the key
+     * @param property The name of the property, ex. facing
+     * @return The key builder
+     */
+    public TileEntityKey putState(String property){
+        key.put(property, canonicalValue(namespace.getDefaultBlockState().getData(property)));
+        return this;
+    }
+
+    /**
+     * @return The canonical instance of the key
+     */
+    public Map<String, Object> build(){
+        Map<String, Object> built = Collections.unmodifiableMap(key);
+        Map<String, Object> existing = KEYS.putIfAbsent(built, built);
+
+        return (existing != null) ? existing : built;
+    }
+
+    private static Object canonicalValue(Object value){
+        if(value instanceof Byte || value instanceof Short || value instanceof Integer)
+            return ((Number) value).intValue();
+        if(value instanceof Long && (Long) value == ((Long) value).intValue())
+            return ((Long) value).intValue();
+        if(value == null)
+            return "";
+
+        return value;
+    }
+
+    public static void clearData(){
+        KEYS.clear();
+    }
+}
@@ -9,8 +9,8 @@ import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.davixdevelop.schem2obj.util.ArrayVector;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The CubeModel for the Wall Banner block
@@ -19,7 +19,7 @@ import java.util.Map;
  */
 public class WallBannerCubeModel extends BannerCubeModel {
 
-    public static HashMap<String, WallBannerCubeModel> WALL_BANNER_VARIANTS = new HashMap<>();
+    public static Map<String, WallBannerCubeModel> WALL_BANNER_VARIANTS = new ConcurrentHashMap<>();
 
     @Override
     public boolean fromNamespace(Namespace blockNamespace) {
@@ -31,12 +31,10 @@ public class WallBannerCubeModel extends BannerCubeModel {
     public Map<String, Object> getKey(Namespace namespace) {
         super.fromNamespace(namespace);
 
-        Map<String, Object> key = new LinkedHashMap<>();
-        key.put("EntityTile", namespace.getType());
-        key.put("bannerCode", getBannerPatternCode());
-        key.put("facing", namespace.getDefaultBlockState().getData("facing"));
-
-        return key;
+        return TileEntityKey.of(namespace)
+                .put("bannerCode", getBannerPatternCode())
+                .putState("facing")
+                .build();
     }
 
     public String getKey(String facing){
@@ -2,11 +2,12 @@ package com.davixdevelop.schem2obj.materials;
 
 import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 import com.davixdevelop.schem2obj.util.LogUtility;
+import com.davixdevelop.schem2obj.util.TextureWriter;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -82,23 +83,12 @@ public class Material implements IMaterial {
         //Get the relative path to the diffuse texture, ex. textures/entity/bed/blue.png
         String diffusePath = ResourceLoader.getResourcePath("textures", getDiffuseTexturePath(), "png");
 
-        try{
-            InputStream assetStream = ResourceLoader.getResource(diffusePath);
-
-            BufferedImage bufferedImage = ImageUtility.toBuffedImage(assetStream);
-
-            //Only store the default diffuse image, if the the resource can be stored in memory
-            if(defaultDiffuseImage == null && ResourceLoader.storeInMemory(diffusePath)){
-                defaultDiffuseImage = bufferedImage;
-            }
-
-            return bufferedImage;
-
-        }catch (Exception ex){
+        //The decoded texture is kept in the shared texture cache, for all resource packs
+        BufferedImage bufferedImage = TextureCache.getImage(diffusePath);
+        if(bufferedImage == null)
             LogUtility.Log(String.format("Could not find %s in resources", getDiffuseTexturePath()));
-            LogUtility.Log(ex.getMessage());
-            return null;
-        }
+
+        return bufferedImage;
     }
 
     @Override
@@ -188,7 +178,7 @@ public class Material implements IMaterial {
     @Override
     public ArrayList<String> toMTL(String textureFolder) {
 
-        Path diffuseTextureOut = Paths.get(textureFolder, getName() + ".png");
+        Path diffuseTextureOut = Paths.get(textureFolder, getName() + "." + TextureWriter.getExtension());
 
         String textureFolderName = diffuseTextureOut.getParent().toFile().getName();
 
@@ -216,12 +206,12 @@ public class Material implements IMaterial {
         if(getEmissionStrength() > 0.0){
             matLines.add(String.format(Locale.ROOT, "Ke %f %f %f", getEmissionStrength(), getEmissionStrength(), getEmissionStrength()));
         }
-        matLines.add(String.format("map_Ka %s/%s.png", textureFolderName, getName()));
-        matLines.add(String.format("map_Kd %s/%s.png", textureFolderName, getName()));
+        matLines.add(String.format("map_Ka %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
+        matLines.add(String.format("map_Kd %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         if(transparency)
-            matLines.add(String.format("map_d %s/%s.png", textureFolderName, getName()));
+            matLines.add(String.format("map_d %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         if(getEmissionStrength() > 0.0){
-            matLines.add(String.format("map_Ke %s/%s.png", textureFolderName, getName()));
+            matLines.add(String.format("map_Ke %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         }
 
         if(illum != null)
@@ -17,11 +17,9 @@ import java.util.regex.Matcher;
  */
 public class MaterialCollection {
     ConcurrentMap<String, IMaterial> materials;
-    Set<String> usedMaterials;
 
     public MaterialCollection(){
         materials = new ConcurrentHashMap<>();
-        usedMaterials = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -34,14 +32,13 @@ public class MaterialCollection {
     }
 
     /**
-     * Put new material into collection, and set it as a used material
+     * Put new material into collection
      * @param name The name of the material ex, blocks/dirt
      * @param material A Vanilla or SEUS Material object
      */
     public void setMaterial(String name, IMaterial material){
         modifyOtherMaterials(material);
         materials.put(name, material);
-        usedMaterials.add(name);
     }
 
     /**
@@ -54,19 +51,18 @@ public class MaterialCollection {
     }
 
     /**
-     * Remove a material from being used, but keep it in the collection
-     * @param name The name of the material ex, blocks/dirt
+     * Remove the material from the collection
+     * @param name The name of the material
      */
-    public void unsetUsedMaterial(String name){
-        usedMaterials.remove(name);
+    public void removeMaterial(String name){
+        materials.remove(name);
     }
 
     /**
-     * Return the used materials names
-     * @return A set of used materials
+     * Remove all the materials from the collection. The materials get created again by the cube models, that use them
      */
-    public Set<String> usedMaterials(){
-        return usedMaterials;
+    public void clear(){
+        materials.clear();
     }
 
     public static void modifyOtherMaterials(IMaterial material){
@@ -3,11 +3,12 @@ package com.davixdevelop.schem2obj.materials;
 import com.davixdevelop.schem2obj.Constants;
 import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
 import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
 import com.davixdevelop.schem2obj.util.ImageUtility;
 import com.davixdevelop.schem2obj.util.LogUtility;
+import com.davixdevelop.schem2obj.util.TextureWriter;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -52,6 +53,26 @@ public class SEUSMaterial extends Material {
         this.emissionMixFactor = emissionMixFactor;
     }
 
+    public double getEmissionMixFactor() {
+        return emissionMixFactor;
+    }
+
+    public boolean hasNormalsTexture() {
+        return hasNormalsTexture;
+    }
+
+    public boolean hasSpecularTexture() {
+        return hasSpecularTexture;
+    }
+
+    public void setNormalsImage(BufferedImage normalsImage) {
+        this.normalsImage = normalsImage;
+    }
+
+    public void setSpecularImage(BufferedImage specularImage) {
+        this.specularImage = specularImage;
+    }
+
     public BufferedImage getNormalsImage() {
         if (normalsImage != null){
             return normalsImage;
@@ -63,22 +84,12 @@ public class SEUSMaterial extends Material {
         //Get the relative path to the normals texture, ex. textures/entity/bed/blue_n.png
         String normalsTexturePath = ResourceLoader.getResourcePath("textures", String.format("%s_n", getDiffuseTexturePath()), "png");
 
-        try{
-            InputStream assetStream = ResourceLoader.getResource(normalsTexturePath);
-
-            BufferedImage bufferedImage = ImageUtility.toBuffedImage(assetStream);
-
-            //Only store the normals image, if the the resource can be stored in memory
-            if(normalsImage == null && ResourceLoader.storeInMemory(normalsTexturePath))
-                normalsImage = bufferedImage;
-
-            return bufferedImage;
-
-        }catch (Exception ex){
+        //The decoded texture is kept in the shared texture cache, for all resource packs
+        BufferedImage bufferedImage = TextureCache.getImage(normalsTexturePath);
+        if(bufferedImage == null)
             LogUtility.Log(String.format("Could not find %s in resources", normalsTexturePath));
-            LogUtility.Log(ex.getMessage());
-            return null;
-        }
+
+        return bufferedImage;
     }
 
     public BufferedImage getSpecularImage() {
@@ -90,28 +101,18 @@ public class SEUSMaterial extends Material {
         //Get the relative path to the specular texture, ex. textures/entity/bed/blue_s.png
         String specularTexturePath = ResourceLoader.getResourcePath("textures", String.format("%s_s", getDiffuseTexturePath()), "png");
 
-        try{
-            InputStream assetStream = ResourceLoader.getResource(specularTexturePath);
-
-            BufferedImage bufferedImage = ImageUtility.toBuffedImage(assetStream);
-
-            //Only store the specular image, if the the resource can be stored in memory
-            if(specularImage == null && ResourceLoader.storeInMemory(specularTexturePath))
-                specularImage = bufferedImage;
-
-            return bufferedImage;
-
-        }catch (Exception ex){
+        //The decoded texture is kept in the shared texture cache, for all resource packs
+        BufferedImage bufferedImage = TextureCache.getImage(specularTexturePath);
+        if(bufferedImage == null)
             LogUtility.Log(String.format("Could not find %s in resources", specularTexturePath));
-            LogUtility.Log(ex.getMessage());
-            return null;
-        }
+
+        return bufferedImage;
     }
 
     @Override
     public ArrayList<String> toMTL(String textureFolder) {
         //Set the path to the output diffuse texture
-        Path diffuseTextureOut = Paths.get(textureFolder, getName() + ".png");
+        Path diffuseTextureOut = Paths.get(textureFolder, getName() + "." + TextureWriter.getExtension());
 
         String textureFolderName = diffuseTextureOut.getParent().toFile().getName();
 
@@ -124,7 +125,7 @@ public class SEUSMaterial extends Material {
         //Copy normal image to texture folder
         if(hasNormalsTexture){
             //Set the path to the output normals file -> ex <textureFolder>/blue-bed_n.png
-            String normalTextureOut = Paths.get(textureFolder, String.format("%s_n.png",getName())).toFile().toString();
+            String normalTextureOut = Paths.get(textureFolder, String.format("%s_n.%s",getName(), TextureWriter.getExtension())).toFile().toString();
 
             try{
                 //Get normal image resource pack. Ex. <resourcePack>/assets/minecraft/textures/entity/bed/blue_n.png
@@ -162,7 +163,7 @@ public class SEUSMaterial extends Material {
                         }
 
                         //Path to output texture
-                        String textureOut = Paths.get(textureFolder, texturePBRName + ".png").toFile().toString();
+                        String textureOut = Paths.get(textureFolder, texturePBRName + "." + TextureWriter.getExtension()).toFile().toString();
 
                         //Copy buffered image to output texture folder
                         ImageUtility.copyImageToFile(RME[c], textureOut);
@@ -195,27 +196,27 @@ public class SEUSMaterial extends Material {
         if(getEmissionStrength() > 0.0){
             matLines.add(String.format(Locale.ROOT, "Ke %f %f %f", getEmissionStrength(), getEmissionStrength(), getEmissionStrength()));
         }
-        matLines.add(String.format("map_Ka %s/%s.png", textureFolderName, getName()));
-        matLines.add(String.format("map_Kd %s/%s.png", textureFolderName, getName()));
+        matLines.add(String.format("map_Ka %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
+        matLines.add(String.format("map_Kd %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         if(hasTransparency())
-            matLines.add(String.format("map_d %s/%s.png", textureFolderName, getName()));
+            matLines.add(String.format("map_d %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         if(getEmissionStrength() > 0.0){
             if(!hasSpec)
-                matLines.add(String.format("map_Ke %s/%s.png", textureFolderName, getName()));
+                matLines.add(String.format("map_Ke %s/%s.%s", textureFolderName, getName(), TextureWriter.getExtension()));
             else
-                matLines.add(String.format("map_Ke %s/%s_e.png", textureFolderName, getName()));
+                matLines.add(String.format("map_Ke %s/%s_e.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         }
 
         //If material has normal define it
         if(hasNormal){
-            matLines.add(String.format("map_Kn %s/%s_n.png", textureFolderName, getName()));
-            matLines.add(String.format("norm %s/%s_n.png", textureFolderName, getName()));
-            matLines.add(String.format("map_bump -bm 1.0 %s/%s_n.png", textureFolderName, getName()));
+            matLines.add(String.format("map_Kn %s/%s_n.%s", textureFolderName, getName(), TextureWriter.getExtension()));
+            matLines.add(String.format("norm %s/%s_n.%s", textureFolderName, getName(), TextureWriter.getExtension()));
+            matLines.add(String.format("map_bump -bm 1.0 %s/%s_n.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         }
 
         if(hasSpec){
-            matLines.add(String.format("map_Pr %s/%s_r.png", textureFolderName, getName()));
-            matLines.add(String.format("map_Pm %s/%s_m.png", textureFolderName, getName()));
+            matLines.add(String.format("map_Pr %s/%s_r.%s", textureFolderName, getName(), TextureWriter.getExtension()));
+            matLines.add(String.format("map_Pm %s/%s_m.%s", textureFolderName, getName(), TextureWriter.getExtension()));
         }
 
         if(getIlluminationModel() != null)
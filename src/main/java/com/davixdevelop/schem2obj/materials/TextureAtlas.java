@@ -0,0 +1,345 @@
+package com.davixdevelop.schem2obj.materials;
+
+import com.davixdevelop.schem2obj.util.ImageUtility;
+import com.davixdevelop.schem2obj.util.LogUtility;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Packs the diffuse textures (and for SEUS materials the normals and specular textures) of the used materials
+ * into atlas pages, so that the output uses a few materials and texture files, instead of one for each material.
+ * Only materials with the same MTL parameters (ex. Ns, Ke, transparency) can share a page, as each page is a single material
+ *
+ * @author DavixDevelop
+ */
+public class TextureAtlas {
+    public static final int DEFAULT_SIZE = 4096;
+
+    //Number of pixels the edges of each texture get extended by, so that the neighbouring textures don't bleed into the faces
+    private static final int PADDING = 2;
+
+    //Color of a flat normal, used if the normals texture of a material can't be read
+    private static final int FLAT_NORMAL = 0xFF8080FF;
+
+    //key: name of the material (ex. dirt), value: region of the material on the atlas page
+    private final Map<String, Region> regions = new HashMap<>();
+    private final List<IMaterial> pages = new ArrayList<>();
+
+    /**
+     * The location of a material texture on an atlas page, in the uv space of the page
+     */
+    public static class Region {
+        private final String pageName;
+        private final double u;
+        private final double v;
+        private final double width;
+        private final double height;
+
+        Region(String pageName, double u, double v, double width, double height){
+            this.pageName = pageName;
+            this.u = u;
+            this.v = v;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return Name of the atlas material (ex. atlas_0)
+         */
+        public String getPageName() {
+            return pageName;
+        }
+
+        /**
+         * Remap the texture coordinate of the material, to the texture coordinate on the page.
+         * The coordinate gets clamped to the bounds of the material texture
+         * @param uv The texture coordinate (u, v) to remap in place
+         */
+        public void remap(double[] uv){
+            uv[0] = u + Math.min(Math.max(uv[0], 0.0), 1.0) * width;
+            uv[1] = v + Math.min(Math.max(uv[1], 0.0), 1.0) * height;
+        }
+    }
+
+    private static class Tile {
+        IMaterial material;
+        BufferedImage diffuseImage;
+        int width;
+        int height;
+        int x;
+        int y;
+
+        int paddedWidth(){
+            return width + PADDING * 2;
+        }
+
+        int paddedHeight(){
+            return height + PADDING * 2;
+        }
+    }
+
+    /**
+     * Pack the textures of the materials into atlas pages
+     * @param materials The materials to pack
+     * @param maxSize The max width and height of a page
+     * @return The atlas with the regions of the packed materials. Materials that weren't packed keep their own textures
+     */
+    public static TextureAtlas pack(Collection<IMaterial> materials, int maxSize){
+        TextureAtlas atlas = new TextureAtlas();
+
+        //Group the materials, that can share the same page
+        Map<String, List<Tile>> groups = new LinkedHashMap<>();
+        for(IMaterial material : materials){
+            BufferedImage diffuseImage = material.getDiffuseImage();
+            if(diffuseImage == null)
+                continue;
+
+            Tile tile = new Tile();
+            tile.material = material;
+            tile.diffuseImage = diffuseImage;
+            tile.width = diffuseImage.getWidth();
+            tile.height = diffuseImage.getHeight();
+
+            //Textures bigger than the page keep their own material
+            if(tile.paddedWidth() > maxSize || tile.paddedHeight() > maxSize)
+                continue;
+
+            groups.computeIfAbsent(getSignature(material), key -> new ArrayList<>()).add(tile);
+        }
+
+        for(List<Tile> group : groups.values()){
+            //Shelf packing works best with the tallest textures first
+            group.sort(Comparator.comparingInt(Tile::paddedHeight).reversed().thenComparing(Comparator.comparingInt(Tile::paddedWidth).reversed()));
+
+            List<Tile> remaining = group;
+            while(remaining.size() > 1){
+                int size = getStartSize(remaining, maxSize);
+
+                List<Tile> packed = packShelves(remaining, size);
+                while(packed.size() < remaining.size() && size < maxSize){
+                    size = Math.min(size * 2, maxSize);
+                    packed = packShelves(remaining, size);
+                }
+
+                //A page with a single texture doesn't save anything
+                if(packed.size() < 2)
+                    break;
+
+                atlas.createPage(packed, size);
+
+                List<Tile> next = new ArrayList<>(remaining);
+                next.removeAll(packed);
+                remaining = next;
+            }
+        }
+
+        return atlas;
+    }
+
+    /**
+     * Get the smallest power of two size, that could fit all the tiles
+     */
+    private static int getStartSize(List<Tile> tiles, int maxSize){
+        long area = 0;
+        int minSize = 1;
+        for(Tile tile : tiles){
+            area += (long) tile.paddedWidth() * tile.paddedHeight();
+            minSize = Math.max(minSize, Math.max(tile.paddedWidth(), tile.paddedHeight()));
+        }
+
+        int size = nextPowerOfTwo(minSize);
+        while(size < maxSize && (long) size * size < area)
+            size *= 2;
+
+        return Math.min(size, maxSize);
+    }
+
+    /**
+     * Place the tiles on rows (shelves) of the page, until the page is full
+     * @param tiles The tiles sorted by height, from the tallest to the shortest
+     * @param size The width and height of the page
+     * @return The placed tiles
+     */
+    private static List<Tile> packShelves(List<Tile> tiles, int size){
+        List<Tile> packed = new ArrayList<>();
+
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+
+        for(Tile tile : tiles){
+            if(tile.paddedWidth() > size)
+                continue;
+
+            //Start a new shelf, if the tile doesn't fit on the current one
+            if(x + tile.paddedWidth() > size){
+                y += shelfHeight;
+                x = 0;
+                shelfHeight = 0;
+            }
+
+            if(y + tile.paddedHeight() > size)
+                break;
+
+            tile.x = x;
+            tile.y = y;
+
+            x += tile.paddedWidth();
+            shelfHeight = Math.max(shelfHeight, tile.paddedHeight());
+
+            packed.add(tile);
+        }
+
+        return packed;
+    }
+
+    private void createPage(List<Tile> tiles, int size){
+        //Trim the unused right and bottom part of the page
+        int usedWidth = 0;
+        int usedHeight = 0;
+        for(Tile tile : tiles){
+            usedWidth = Math.max(usedWidth, tile.x + tile.paddedWidth());
+            usedHeight = Math.max(usedHeight, tile.y + tile.paddedHeight());
+        }
+
+        int width = Math.min(nextPowerOfTwo(usedWidth), size);
+        int height = Math.min(nextPowerOfTwo(usedHeight), size);
+
+        String pageName = String.format("atlas_%d", pages.size());
+
+        IMaterial first = tiles.get(0).material;
+        boolean hasNormals = first instanceof SEUSMaterial && ((SEUSMaterial) first).hasNormalsTexture();
+        boolean hasSpecular = first instanceof SEUSMaterial && ((SEUSMaterial) first).hasSpecularTexture();
+
+        int[] diffusePixels = new int[width * height];
+        int[] normalsPixels = hasNormals ? new int[width * height] : null;
+        int[] specularPixels = hasSpecular ? new int[width * height] : null;
+
+        for(Tile tile : tiles){
+            insertTile(diffusePixels, width, tile, ImageUtility.readPixels(tile.diffuseImage));
+
+            if(hasNormals)
+                insertTile(normalsPixels, width, tile, readScaledPixels(((SEUSMaterial) tile.material).getNormalsImage(), tile, FLAT_NORMAL));
+
+            if(hasSpecular)
+                insertTile(specularPixels, width, tile, readScaledPixels(((SEUSMaterial) tile.material).getSpecularImage(), tile, 0xFF000000));
+
+            //The v axis of the texture coordinates starts at the bottom of the image
+            regions.put(tile.material.getName(), new Region(pageName,
+                    (tile.x + PADDING) / (double) width,
+                    (height - tile.y - PADDING - tile.height) / (double) height,
+                    tile.width / (double) width,
+                    tile.height / (double) height));
+        }
+
+        IMaterial page = first.duplicate();
+        page.setName(pageName);
+        page.setDiffuseImage(toImage(diffusePixels, width, height));
+
+        if(hasNormals)
+            ((SEUSMaterial) page).setNormalsImage(toImage(normalsPixels, width, height));
+        if(hasSpecular)
+            ((SEUSMaterial) page).setSpecularImage(toImage(specularPixels, width, height));
+
+        pages.add(page);
+
+        LogUtility.Log(String.format("Packed %d textures into %s (%dx%d)", tiles.size(), pageName, width, height));
+    }
+
+    private static int nextPowerOfTwo(int value){
+        int power = 1;
+        while(power < value)
+            power *= 2;
+        return power;
+    }
+
+    /**
+     * Copy the pixels of the texture to the page, with the edges of the texture extended into the padding
+     */
+    private static void insertTile(int[] page, int pageWidth, Tile tile, int[] pixels){
+        for(int y = -PADDING; y < tile.height + PADDING; y++){
+            int sourceRow = Math.min(Math.max(y, 0), tile.height - 1) * tile.width;
+            int pageRow = (tile.y + PADDING + y) * pageWidth + tile.x + PADDING;
+
+            for(int x = -PADDING; x < tile.width + PADDING; x++)
+                page[pageRow + x] = pixels[sourceRow + Math.min(Math.max(x, 0), tile.width - 1)];
+        }
+    }
+
+    /**
+     * Read the pixels of the image, scaled to the size of the diffuse texture of the tile
+     * @param image The normals or specular image
+     * @param tile The tile of the material
+     * @param fillColor The color to use, if the image couldn't be read
+     * @return The pixels of the image
+     */
+    private static int[] readScaledPixels(BufferedImage image, Tile tile, int fillColor){
+        if(image == null){
+            int[] pixels = new int[tile.width * tile.height];
+            Arrays.fill(pixels, fillColor);
+            return pixels;
+        }
+
+        int[] pixels = ImageUtility.readPixels(image);
+        if(image.getWidth() == tile.width && image.getHeight() == tile.height)
+            return pixels;
+
+        //Scale the image with the nearest pixel
+        int[] scaled = new int[tile.width * tile.height];
+        for(int y = 0; y < tile.height; y++){
+            int sourceRow = ((y * image.getHeight()) / tile.height) * image.getWidth();
+            for(int x = 0; x < tile.width; x++)
+                scaled[y * tile.width + x] = pixels[sourceRow + (x * image.getWidth()) / tile.width];
+        }
+
+        return scaled;
+    }
+
+    private static BufferedImage toImage(int[] pixels, int width, int height){
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Get the parameters of the material, that get written to the MTL file
+     * @param material The material
+     * @return A string of the material parameters
+     */
+    private static String getSignature(IMaterial material){
+        StringBuilder signature = new StringBuilder(material.getClass().getName());
+        signature.append(';').append(material.getSpecularHighlights());
+        signature.append(';').append(material.getAmbientColor());
+        signature.append(';').append(material.getSpecularColor());
+        signature.append(';').append(material.getEmissionStrength());
+        signature.append(';').append(material.getIlluminationModel());
+        signature.append(';').append(material.getTransmissionFilter());
+        signature.append(';').append(material.hasTransparency());
+
+        if(material instanceof SEUSMaterial){
+            SEUSMaterial seusMaterial = (SEUSMaterial) material;
+            signature.append(';').append(seusMaterial.hasNormalsTexture());
+            signature.append(';').append(seusMaterial.hasSpecularTexture());
+            signature.append(';').append(seusMaterial.getEmissionMixFactor());
+        }
+
+        return signature.toString();
+    }
+
+    /**
+     * Get the region of the material on the atlas
+     * @param materialName The name of the material (ex. dirt)
+     * @return The region, or null if the material wasn't packed
+     */
+    public Region getRegion(String materialName){
+        return regions.get(materialName);
+    }
+
+    /**
+     * @return The materials of the atlas pages
+     */
+    public List<IMaterial> getPages() {
+        return pages;
+    }
+}
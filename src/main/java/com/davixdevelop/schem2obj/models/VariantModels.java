@@ -19,6 +19,17 @@ public class VariantModels {
         this.models = models;
     }
 
+    /**
+     * @param variant The variant of the block
+     * @param model The flattened model the variant uses, or null if the model doesn't exist
+     */
+    public VariantModels(BlockState.Variant variant, BlockModel model){
+        this.variant = variant;
+        this.models = new ArrayList<>();
+        if(model != null)
+            this.models.add(model);
+    }
+
     public BlockState.Variant getVariant() {
         return variant;
     }
@@ -2,6 +2,7 @@ package com.davixdevelop.schem2obj.namespace;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 public class BlockStateNamespace {
@@ -10,6 +11,9 @@ public class BlockStateNamespace {
     Double lightValue;
     Map<String, String> data;
 
+    //The data packed into a single key (see getPackedData), null until it's first requested or after the data changes
+    String packedData;
+
     public BlockStateNamespace(Integer MetaID, String name, Double lightValue, Map<String, String> data){
         this.MetaID = MetaID;
         this.name = name;
@@ -17,6 +21,11 @@ public class BlockStateNamespace {
         this.data = data;
     }
 
+    private BlockStateNamespace(Integer MetaID, String name, Double lightValue, Map<String, String> data, String packedData){
+        this(MetaID, name, lightValue, data);
+        this.packedData = packedData;
+    }
+
     public String getName() {
         return name;
     }
@@ -33,26 +42,70 @@ public class BlockStateNamespace {
         return data.get(key);
     }
 
+    /**
+     * Get the data of the block state. Changes to the data should be made with setData, else the packed data is kept stale
+     * @return The properties of the block state
+     */
     public Map<String, String> getData() {
         return data;
     }
 
     public void setData(Map<String, String> data) {
         this.data = data;
+        packedData = null;
     }
 
-    public void setData(String key, String value){this.data.put(key, value);}
+    public void setData(String key, String value){
+        this.data.put(key, value);
+        packedData = null;
+    }
+
+    /**
+     * Get the data packed into a single key, where the properties are sorted by name, ex. east=true,north=false
+     * The key is packed only once, and is then reused until the data changes
+     * @return The packed data
+     */
+    public String getPackedData(){
+        String packed = packedData;
+        if(packed == null){
+            packed = packData(data);
+            packedData = packed;
+        }
+
+        return packed;
+    }
+
+    /**
+     * Pack the properties of a block into a single key, where the properties are sorted by name, ex. east=true,north=false
+     * @param properties The properties of the block
+     * @return The packed properties
+     */
+    public static String packData(Map<String, String> properties){
+        if(properties == null || properties.isEmpty())
+            return "";
+
+        StringBuilder packed = new StringBuilder();
+        for(Map.Entry<String, String> property : new TreeMap<>(properties).entrySet()){
+            if(packed.length() > 0)
+                packed.append(',');
+            packed.append(property.getKey()).append('=').append(property.getValue());
+        }
+
+        return packed.toString();
+    }
 
     public BlockStateNamespace duplicate(){
         Map<String, String> cloneData = new LinkedHashMap<>();
         if(data != null)
             cloneData = new LinkedHashMap<>(data.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
 
-        return new BlockStateNamespace(MetaID , name, lightValue, cloneData);
+        //The copy has the same data, so it can keep the packed data
+        return new BlockStateNamespace(MetaID , name, lightValue, cloneData, packedData);
     }
 
     public static void cloneData(BlockStateNamespace blockStateNamespace, Map<String, String> data){
         for(String prop : data.keySet())
             blockStateNamespace.data.put(prop, data.get(prop));
+        blockStateNamespace.packedData = null;
     }
 }
@@ -1,5 +1,6 @@
 package com.davixdevelop.schem2obj.namespace;
 
+import com.davixdevelop.schem2obj.ConversionContext;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
 
 import java.util.*;
@@ -27,6 +28,9 @@ public class Namespace {
 
     Integer[] position;
 
+    //The conversion the namespace was read from
+    ConversionContext context;
+
     public Namespace(String id, String domain, String type, Map<Integer, BlockStateNamespace> blockStates, Integer defaultMetaID, List<String> validTileEntityKeys, EntityValues defaultTileEntityValues) {
         this.id = id;
         this.domain = domain;
@@ -131,6 +135,14 @@ public class Namespace {
         return null;
     }
 
+    public ConversionContext getContext() {
+        return context;
+    }
+
+    public void setContext(ConversionContext context) {
+        this.context = context;
+    }
+
     public Namespace duplicate(){
         Map<Integer, BlockStateNamespace> cloneBlockstates = new LinkedHashMap<>();
         for(Integer metaID : blockStates.keySet()){
@@ -153,6 +165,8 @@ public class Namespace {
         if(position != null)
             clone.position = Arrays.copyOf(position, position.length);
 
+        clone.context = context;
+
         return clone;
     }
 
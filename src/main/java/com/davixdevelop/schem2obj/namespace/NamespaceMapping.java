@@ -2,6 +2,7 @@ package com.davixdevelop.schem2obj.namespace;
 
 import com.davixdevelop.schem2obj.namespace.json.JsonBlockState;
 import com.davixdevelop.schem2obj.namespace.json.JsonBlocks;
+import com.davixdevelop.schem2obj.namespace.json.JsonFlattenedBlock;
 import com.davixdevelop.schem2obj.schematic.EntityValues;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -9,21 +10,30 @@ import com.google.gson.reflect.TypeToken;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class NamespaceMapping {
     Map<String, Namespace> namespaceMap;
     Map<String, String> itemMap;
     Map<String, String> idMapping;
     Map<String, String> itemMapping;
+    //Key: Name of the block state (ex. granite), Value: The namespaces with a block state of that name
+    Map<String, List<Namespace>> blockStateMapping;
+    //Key: The resource of a block in 1.13+ (ex. minecraft:oak_slab), Value: It's block states in 1.12
+    Map<String, List<JsonFlattenedBlock>> flatteningMapping;
 
     public NamespaceMapping(){
         namespaceMap = new LinkedHashMap<>();
         itemMap = new HashMap<>();
         idMapping = new LinkedHashMap<>();
         itemMapping = new LinkedHashMap<>();
+        blockStateMapping = new HashMap<>();
+        flatteningMapping = new HashMap<>();
 
 
         Gson gson = new Gson();
@@ -56,9 +66,16 @@ public class NamespaceMapping {
                     defaultCustomData.parseMap(item.getDefaultCustomData());
                 }
 
-                namespaceMap.put(resource, new Namespace(item.getID(), domain, path, blockStateNamespaceMap, item.getDefaultMetaID(), item.getEntityTileKeys(), defaultCustomData));
+                Namespace namespace = new Namespace(item.getID(), domain, path, blockStateNamespaceMap, item.getDefaultMetaID(), item.getEntityTileKeys(), defaultCustomData);
+                namespaceMap.put(resource, namespace);
                 idMapping.put(item.getID(), resource);
 
+                for(BlockStateNamespace blockState : blockStateNamespaceMap.values()){
+                    List<Namespace> namespaces = blockStateMapping.computeIfAbsent(blockState.getName(), key -> new ArrayList<>());
+                    if(!namespaces.contains(namespace))
+                        namespaces.add(namespace);
+                }
+
                 if(item.getItemResource() != null && item.getItemID() != null) {
                     if (!itemMap.containsKey(item.getItemID()))
                         itemMap.put(item.getItemID(), item.getItemResource());
@@ -71,6 +88,30 @@ public class NamespaceMapping {
 
             }
         }
+
+        //Get the input stream of flattening.json, that maps the blocks renamed or split in 1.13 to their Block ID and Meta
+        InputStream flatteningStream = this.getClass().getClassLoader().getResourceAsStream("assets/minecraft/flattening.json");
+
+        if(flatteningStream != null){
+            Reader reader = new InputStreamReader(flatteningStream);
+            Map<String, JsonFlattenedBlock> blocks = gson.fromJson(reader, new TypeToken<Map<String, JsonFlattenedBlock>>(){}.getType());
+
+            for(String key : blocks.keySet()){
+                JsonFlattenedBlock block = blocks.get(key);
+
+                //The key is either the resource, or the resource with the required properties, ex. minecraft:oak_slab[type=top]
+                String resource = key;
+                Map<String, String> properties = new TreeMap<>();
+                if(key.contains("[") && key.endsWith("]")){
+                    resource = key.substring(0, key.indexOf("["));
+                    for(String property : key.substring(key.indexOf("[") + 1, key.length() - 1).split(","))
+                        properties.put(property.substring(0, property.indexOf("=")), property.substring(property.indexOf("=") + 1));
+                }
+
+                block.setProperties(properties);
+                flatteningMapping.computeIfAbsent(resource, k -> new ArrayList<>()).add(block);
+            }
+        }
     }
 
     /**
@@ -99,7 +140,7 @@ public class NamespaceMapping {
             String resourcePath = resource.substring(resource.indexOf(":") + 1);
             String builtinPath = String.format("builtin:%s", resourcePath);
             if(namespaceMap.containsKey(builtinPath))
-                return namespaceMap.get(builtinPath);
+                return namespaceMap.get(builtinPath).duplicate();
         }
 
         if(itemMapping.containsKey(resource))
@@ -113,4 +154,136 @@ public class NamespaceMapping {
 
         return null;
     }
+
+    /**
+     * Get the Block ID:Meta of a block state from a palette (ex. minecraft:oak_stairs[facing=north,half=bottom]).
+     * The blocks renamed or split in 1.13 (ex. minecraft:stone_bricks) are looked up in flattening.json.
+     * The name of the other blocks is matched to the names of the block states (ex. minecraft:granite) and the resources (ex. minecraft:stone),
+     * and the meta with the most matching properties is used
+     * @param resource The resource of the block, ex. minecraft:oak_stairs
+     * @param properties The properties of the block state
+     * @return The ID and the Meta of the block, or null if no block matches the name
+     */
+    public int[] getBlockStateID(String resource, Map<String, String> properties){
+        String path = resource.contains(":") ? resource.substring(resource.indexOf(":") + 1) : resource;
+
+        //The air variants of newer versions
+        if(path.equals("air") || path.equals("cave_air") || path.equals("void_air"))
+            return new int[]{0, 0};
+
+        //The blocks renamed or split in 1.13 (ex. minecraft:grass_block) are read from the flattening mapping first,
+        //as their names either don't exist in 1.12, or belong to a different block (ex. minecraft:grass)
+        JsonFlattenedBlock flattenedBlock = getFlattenedBlock(path, properties);
+        if(flattenedBlock != null){
+            if(flattenedBlock.getMeta() != null)
+                return new int[]{flattenedBlock.getID(), flattenedBlock.getMeta()};
+
+            String idResource = idMapping.get(flattenedBlock.getID().toString());
+            if(idResource != null){
+                List<Namespace> candidates = new ArrayList<>();
+                candidates.add(namespaceMap.get(idResource));
+
+                int[] blockStateID = getBestBlockState(candidates, null, properties);
+                if(blockStateID != null)
+                    return blockStateID;
+            }
+        }
+
+        List<Namespace> candidates = new ArrayList<>(blockStateMapping.getOrDefault(path, new ArrayList<>()));
+        for(String domain : new String[]{"minecraft", "builtin"}){
+            Namespace namespace = namespaceMap.get(String.format("%s:%s", domain, path));
+            if(namespace != null && !candidates.contains(namespace))
+                candidates.add(namespace);
+        }
+
+        return getBestBlockState(candidates, path, properties);
+    }
+
+    /**
+     * Get the values, that a block state of the newer versions stored in It's tile entity in 1.12 (ex. the color of minecraft:red_bed)
+     * @param resource The resource of the block, ex. minecraft:red_bed
+     * @param properties The properties of the block state
+     * @return The values of the tile entity, or null if the block state doesn't have any
+     */
+    public Map<String, Integer> getBlockStateTileData(String resource, Map<String, String> properties){
+        String path = resource.contains(":") ? resource.substring(resource.indexOf(":") + 1) : resource;
+
+        JsonFlattenedBlock flattenedBlock = getFlattenedBlock(path, properties);
+        return (flattenedBlock != null) ? flattenedBlock.getTileData() : null;
+    }
+
+    /**
+     * Get the 1.12 block state of a block, renamed or split in 1.13.
+     * Of the block states whose properties all match, the one with the most properties is used
+     * @param path The path of the resource, ex. oak_slab
+     * @param properties The properties of the block state
+     * @return The 1.12 block state, or null if the block isn't in the flattening mapping
+     */
+    private JsonFlattenedBlock getFlattenedBlock(String path, Map<String, String> properties){
+        List<JsonFlattenedBlock> flattenedBlocks = flatteningMapping.get(String.format("minecraft:%s", path));
+        if(flattenedBlocks == null)
+            return null;
+
+        JsonFlattenedBlock flattenedBlock = null;
+        for(JsonFlattenedBlock block : flattenedBlocks){
+            boolean matches = true;
+            for(Map.Entry<String, String> property : block.getProperties().entrySet()){
+                if(!property.getValue().equals(properties.get(property.getKey()))){
+                    matches = false;
+                    break;
+                }
+            }
+
+            if(matches && (flattenedBlock == null || block.getProperties().size() > flattenedBlock.getProperties().size()))
+                flattenedBlock = block;
+        }
+
+        return flattenedBlock;
+    }
+
+    /**
+     * Get the Block ID:Meta of the block state with the most matching properties
+     * @param candidates The namespaces, whose block states are checked
+     * @param path The name of the block state, preferred over the other block states, or null to only match the properties
+     * @param properties The properties of the block state
+     * @return The ID and the Meta of the block, or null if none of the candidates has a numeric ID
+     */
+    private int[] getBestBlockState(List<Namespace> candidates, String path, Map<String, String> properties){
+        int[] blockStateID = null;
+        int bestScore = -1;
+
+        for(Namespace namespace : candidates){
+            int id;
+            try{
+                id = Integer.parseInt(namespace.getId());
+            }catch (NumberFormatException ex){
+                continue;
+            }
+
+            for(Map.Entry<Integer, BlockStateNamespace> blockState : namespace.blockStates.entrySet()){
+                int score = blockState.getValue().getName().equals(path) ? 1 : 0;
+
+                Map<String, String> data = blockState.getValue().getData();
+                if(data != null){
+                    for(Map.Entry<String, String> property : properties.entrySet()){
+                        if(property.getValue().equals(data.get(property.getKey())))
+                            score += 2;
+                    }
+                }
+
+                if(score > bestScore){
+                    bestScore = score;
+                    blockStateID = new int[]{id, blockState.getKey()};
+                }
+            }
+
+            //Blocks without block states only have the default meta
+            if(namespace.blockStates.isEmpty() && bestScore < 0){
+                bestScore = 0;
+                blockStateID = new int[]{id, namespace.defaultMetaID != null ? namespace.defaultMetaID : 0};
+            }
+        }
+
+        return blockStateID;
+    }
 }
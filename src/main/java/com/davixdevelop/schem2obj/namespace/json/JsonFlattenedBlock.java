@@ -0,0 +1,39 @@
+package com.davixdevelop.schem2obj.namespace.json;
+
+import java.util.Map;
+
+/**
+ * A block state of the newer versions (1.13+), mapped to It's Block ID and Meta of 1.12.
+ * If the meta is missing, the meta with the most matching properties of the Block ID is used
+ *
+ * @author DavixDevelop
+ */
+public class JsonFlattenedBlock {
+    Integer ID;
+    Integer meta;
+    //The values the block stored in It's tile entity in 1.12 (ex. the color of the bed)
+    Map<String, Integer> tileData;
+
+    //The properties the block state must have, read from the key (ex. minecraft:oak_slab[type=top])
+    transient Map<String, String> properties;
+
+    public Integer getID() {
+        return ID;
+    }
+
+    public Integer getMeta() {
+        return meta;
+    }
+
+    public Map<String, Integer> getTileData() {
+        return tileData;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
+    }
+}
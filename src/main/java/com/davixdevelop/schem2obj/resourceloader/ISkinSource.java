@@ -0,0 +1,19 @@
+package com.davixdevelop.schem2obj.resourceloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A source of the player skins, used by the player heads
+ *
+ * @author DavixDevelop
+ */
+public interface ISkinSource {
+    /**
+     * Get the InputStream of the player skin
+     * @param url The url of the skin, from the textures property of the head owner
+     * @return The InputStream of the png of the skin
+     * @throws IOException If the skin couldn't be read
+     */
+    InputStream openSkin(String url) throws IOException;
+}
@@ -0,0 +1,311 @@
+package com.davixdevelop.schem2obj.resourceloader;
+
+import com.davixdevelop.schem2obj.cubemodels.json.PlayerTextureTemplate;
+import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.schematic.Schematic;
+import com.davixdevelop.schem2obj.util.ImageUtility;
+import com.davixdevelop.schem2obj.util.LogUtility;
+import com.google.gson.Gson;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the player skins of the player heads. The skins are read from the cache folder if they were already downloaded,
+ * else they get downloaded from the skin source and stored in the cache folder.
+ * In offline mode only the cache folder is used, and the heads with missing skins fall back to the default head.
+ * Only the skins hosted on textures.minecraft.net are read, and the downloads time out, so that a schematic can't stall the conversion.
+ *
+ * The skins of a schematic can be prefetched at the same time before the conversion, so that the conversion doesn't wait on the network
+ *
+ * @author DavixDevelop
+ */
+public class SkinCache {
+    //Number of skins to download at the same time while prefetching
+    private static final int PREFETCH_THREADS = 8;
+    //Max time to wait on all the skins of a schematic while prefetching, in seconds
+    private static final int PREFETCH_TIMEOUT = 60;
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 10000;
+    private static final String SKIN_HOST = "textures.minecraft.net";
+
+    private static ISkinSource SOURCE = url -> openUrl(new URL(url));
+    private static Path CACHE_FOLDER = null;
+    private static boolean OFFLINE = false;
+
+    //key: url of the skin, value: the decoded skin
+    private static final Map<String, BufferedImage> SKINS = new ConcurrentHashMap<>();
+    //Urls of the skins that couldn't be decoded or aren't allowed, so they don't get requested again
+    private static final Set<String> MISSING_SKINS = ConcurrentHashMap.newKeySet();
+    //key: url of the skin that couldn't be downloaded, value: the time (in ms) after which the download can be retried
+    private static final Map<String, Long> FAILED_DOWNLOADS = new ConcurrentHashMap<>();
+    //Time to wait before a failed download is retried, in ms
+    static long RETRY_DELAY = 60000;
+
+    static Gson GSON = new Gson();
+
+    /**
+     * Get the url of the skin from the owner of the player head
+     * @param owner The Owner (or SkullOwner) values of the skull tile entity
+     * @return The url of the skin, or null if the owner doesn't have a skin
+     */
+    public static String getSkinUrl(EntityValues owner){
+        try{
+            //Get textures from the properties of the owner
+            List<?> textures = owner.getEntityValues("Properties").getList("textures");
+            if(textures == null || textures.isEmpty())
+                return null;
+
+            EntityValues texture = (EntityValues) textures.get(0);
+            //Decode the value of the texture
+            String value = new String(Base64.getDecoder().decode(texture.getString("Value")), StandardCharsets.UTF_8);
+            //Deserialize the value
+            PlayerTextureTemplate textureTemplate = GSON.fromJson(value, PlayerTextureTemplate.class);
+
+            return textureTemplate.textures.SKIN.url;
+        }catch (Exception ex){
+            return null;
+        }
+    }
+
+    /**
+     * Get the skin, from memory, the cache folder or the skin source
+     * @param url The url of the skin
+     * @return The decoded skin, or null if it couldn't be read
+     */
+    public static BufferedImage getSkin(String url){
+        if(url == null || MISSING_SKINS.contains(url))
+            return null;
+
+        BufferedImage skin = SKINS.get(url);
+        if(skin != null)
+            return skin;
+
+        if(!isSkinUrl(url)){
+            LogUtility.Log(String.format("Skipping skin, that isn't hosted on %s: %s", SKIN_HOST, url));
+            MISSING_SKINS.add(url);
+            return null;
+        }
+
+        byte[] data = readCachedSkin(url);
+
+        if(data == null && !OFFLINE){
+            Long retryTime = FAILED_DOWNLOADS.get(url);
+            if(retryTime != null && System.currentTimeMillis() < retryTime)
+                return null;
+
+            try(InputStream inputStream = SOURCE.openSkin(url)){
+                data = readAll(inputStream);
+                writeCachedSkin(url, data);
+                FAILED_DOWNLOADS.remove(url);
+            }catch (IOException ex){
+                LogUtility.Log(String.format("Could not download skin: %s", url));
+                LogUtility.Log(ex.getMessage());
+                //The network might only be down for a while, so the download is retried later
+                FAILED_DOWNLOADS.put(url, System.currentTimeMillis() + RETRY_DELAY);
+            }
+        }
+
+        if(data == null)
+            return null;
+
+        skin = ImageUtility.toBuffedImage(new ByteArrayInputStream(data));
+
+        if(skin == null){
+            LogUtility.Log(String.format("Could not decode skin: %s", url));
+            MISSING_SKINS.add(url);
+            return null;
+        }
+
+        SKINS.put(url, skin);
+
+        return skin;
+    }
+
+    /**
+     * Resolve the skins of all the player heads in the schematic at the same time
+     * @param schematic The loaded schematic
+     */
+    public static void prefetch(Schematic schematic){
+        Set<String> urls = new LinkedHashSet<>();
+        for(EntityValues tileEntity : schematic.getTileEntities().values()){
+            String owner = tileEntity.containsKey("Owner") ? "Owner" : tileEntity.containsKey("SkullOwner") ? "SkullOwner" : null;
+            if(owner == null || !(tileEntity.get(owner) instanceof EntityValues))
+                continue;
+
+            String url = getSkinUrl(tileEntity.getEntityValues(owner));
+            if(url != null && !SKINS.containsKey(url) && !MISSING_SKINS.contains(url))
+                urls.add(url);
+        }
+
+        if(urls.isEmpty())
+            return;
+
+        LogUtility.Log(String.format("Resolving %d player skins", urls.size()));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(PREFETCH_THREADS, urls.size()));
+        for(String url : urls)
+            executorService.submit(() -> getSkin(url));
+
+        executorService.shutdown();
+        try{
+            //The skins that aren't resolved in time are read again when their heads are converted
+            if(!executorService.awaitTermination(PREFETCH_TIMEOUT, TimeUnit.SECONDS)){
+                LogUtility.Log(String.format("Stopped resolving player skins after %d seconds", PREFETCH_TIMEOUT));
+                executorService.shutdownNow();
+            }
+        }catch (InterruptedException ex){
+            LogUtility.Log(ex.getMessage());
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Check if the url of the skin is a http(s) url on textures.minecraft.net
+     * @param url The url of the skin
+     * @return True if the skin can be downloaded
+     */
+    static boolean isSkinUrl(String url){
+        try{
+            URL skinUrl = new URL(url);
+            return (skinUrl.getProtocol().equals("http") || skinUrl.getProtocol().equals("https")) && skinUrl.getHost().equalsIgnoreCase(SKIN_HOST);
+        }catch (IOException ex){
+            return false;
+        }
+    }
+
+    /**
+     * Open the url with the connect and read timeouts, without following redirects to other hosts
+     * @param url The url of the skin
+     * @return The InputStream of the response
+     * @throws IOException If the url couldn't be read in time
+     */
+    static InputStream openUrl(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        if(connection instanceof HttpURLConnection){
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            httpConnection.setInstanceFollowRedirects(false);
+            if(httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                throw new IOException(String.format("Server responded with %d", httpConnection.getResponseCode()));
+        }
+
+        return connection.getInputStream();
+    }
+
+    private static byte[] readCachedSkin(String url){
+        Path skinFile = getCacheFile(url);
+        if(skinFile == null || !Files.exists(skinFile))
+            return null;
+
+        try{
+            return Files.readAllBytes(skinFile);
+        }catch (IOException ex){
+            LogUtility.Log(ex.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCachedSkin(String url, byte[] data){
+        Path skinFile = getCacheFile(url);
+        if(skinFile == null)
+            return;
+
+        try{
+            Files.createDirectories(CACHE_FOLDER);
+            //Write to a temporary file first, so that a parallel conversion never reads a half written skin
+            Path tempFile = Files.createTempFile(CACHE_FOLDER, "skin", ".tmp");
+            Files.write(tempFile, data);
+            Files.move(tempFile, skinFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch (IOException ex){
+            LogUtility.Log(ex.getMessage());
+        }
+    }
+
+    /**
+     * Get the path of the skin in the cache folder, named by the SHA-1 of the url
+     */
+    static Path getCacheFile(String url){
+        if(CACHE_FOLDER == null)
+            return null;
+
+        try{
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(StandardCharsets.UTF_8.encode(url));
+            return CACHE_FOLDER.resolve(String.format("%040x.png", new BigInteger(1, sha1.digest())));
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = inputStream.read(buffer)) != -1)
+            outputStream.write(buffer, 0, read);
+
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Set where the skins get read from, if they aren't in the cache folder
+     * @param source The skin source, ex. a local mirror of the skin server
+     */
+    public static void setSource(ISkinSource source){
+        SOURCE = source;
+    }
+
+    /**
+     * Set the folder, where the downloaded skins are kept between the runs
+     * @param cacheFolder The path to the folder, or null to not keep the skins
+     */
+    public static void setCacheFolder(Path cacheFolder){
+        CACHE_FOLDER = cacheFolder;
+    }
+
+    public static Path getCacheFolder(){
+        return CACHE_FOLDER;
+    }
+
+    /**
+     * Set if only the cache folder should be used, without downloading the missing skins
+     * @param offline True to only use the cache folder
+     */
+    public static void setOffline(boolean offline){
+        OFFLINE = offline;
+        //The missing skins could now be downloaded
+        MISSING_SKINS.clear();
+        FAILED_DOWNLOADS.clear();
+    }
+
+    public static boolean isOffline(){
+        return OFFLINE;
+    }
+
+    public static void clearData(){
+        SKINS.clear();
+        MISSING_SKINS.clear();
+        FAILED_DOWNLOADS.clear();
+    }
+}
@@ -0,0 +1,214 @@
+package com.davixdevelop.schem2obj.resourceloader;
+
+import com.davixdevelop.schem2obj.util.ImageUtility;
+import com.davixdevelop.schem2obj.util.LogUtility;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared cache of the decoded textures from the resource packs, so that the same png doesn't get decoded
+ * every time a material, banner pattern or font page is needed.
+ * The cache is bounded by the number of bytes of the decoded pixels, and evicts the least recently used textures first,
+ * so a single large texture can push out many small ones.
+ *
+ * The returned images are shared, and must not be modified.
+ *
+ * @author DavixDevelop
+ */
+public class TextureCache {
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static long MAX_BYTES = DEFAULT_MAX_BYTES;
+    //Max width or height of the decoded textures, or 0 to keep the original resolution
+    private static int MAX_TEXTURE_SIZE = 0;
+    private static long USED_BYTES = 0;
+
+    //key: path to the texture (ex. textures/blocks/dirt.png), value: the decoded texture, in access order
+    private static final LinkedHashMap<String, Entry> TEXTURES = new LinkedHashMap<>(256, 0.75f, true);
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private static class Entry {
+        final BufferedImage image;
+        final long bytes;
+
+        Entry(BufferedImage image, long bytes){
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Get the decoded texture from the cache, or decode it from the resource packs
+     * @param path The path to the texture, ex. textures/blocks/dirt.png
+     * @return The decoded texture, or null if it couldn't be read
+     */
+    public static BufferedImage getImage(String path){
+        synchronized (TEXTURES){
+            Entry entry = TEXTURES.get(path);
+            if(entry != null){
+                HITS.incrementAndGet();
+                return entry.image;
+            }
+        }
+
+        MISSES.incrementAndGet();
+
+        //Decode outside of the lock, so that the other threads can still read the cached textures
+        InputStream inputStream = ResourceLoader.getResource(path);
+        if(inputStream == null)
+            return null;
+
+        BufferedImage image = ImageUtility.toBuffedImage(inputStream);
+        if(image == null)
+            return null;
+
+        //Cap the resolution once here, so that all the following image operations work on the smaller texture
+        image = capResolution(image);
+
+        long bytes = getBytes(image);
+
+        synchronized (TEXTURES){
+            //Another thread could have decoded the same texture in the meantime
+            Entry entry = TEXTURES.get(path);
+            if(entry != null)
+                return entry.image;
+
+            //Textures bigger than the whole cache don't get stored
+            if(bytes > MAX_BYTES)
+                return image;
+
+            TEXTURES.put(path, new Entry(image, bytes));
+            USED_BYTES += bytes;
+            evict();
+        }
+
+        return image;
+    }
+
+    /**
+     * Downscale the texture, so that it isn't bigger than the max texture size.
+     * Animated textures (a vertical strip of square frames) are capped by their width, so that each frame stays square
+     * @param image The decoded texture
+     * @return The downscaled texture, or the same texture if it's small enough
+     */
+    private static BufferedImage capResolution(BufferedImage image){
+        int maxSize = MAX_TEXTURE_SIZE;
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        boolean isAnimated = height > width && height % width == 0;
+        int size = isAnimated ? width : Math.max(width, height);
+
+        if(maxSize <= 0 || size <= maxSize)
+            return image;
+
+        //Keep the aspect ratio, and whole frames for the animated textures
+        int scaledWidth = Math.max(1, (int) Math.round(width * maxSize / (double) size));
+        int scaledHeight = isAnimated ? scaledWidth * (height / width) : Math.max(1, (int) Math.round(height * maxSize / (double) size));
+
+        return ImageUtility.downscaleImage(image, scaledWidth, scaledHeight);
+    }
+
+    /**
+     * Remove the least recently used textures, until the cache fits in the max bytes
+     */
+    private static void evict(){
+        Iterator<Entry> iterator = TEXTURES.values().iterator();
+        while(USED_BYTES > MAX_BYTES && iterator.hasNext()){
+            USED_BYTES -= iterator.next().bytes;
+            iterator.remove();
+            EVICTIONS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of bytes the pixels of the image take up in memory
+     * @param image The decoded image
+     * @return The size of the pixel data in bytes
+     */
+    private static long getBytes(BufferedImage image){
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * (DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8);
+    }
+
+    /**
+     * Set the max number of bytes of the decoded textures to keep in memory
+     * @param maxBytes The max bytes, 0 disables the cache
+     */
+    public static void setMaxBytes(long maxBytes){
+        synchronized (TEXTURES){
+            MAX_BYTES = Math.max(0, maxBytes);
+            evict();
+        }
+    }
+
+    /**
+     * Set the max width or height of the decoded textures. The already decoded textures are removed from the cache
+     * @param maxTextureSize The max size in pixels, 0 keeps the original resolution
+     */
+    public static void setMaxTextureSize(int maxTextureSize){
+        synchronized (TEXTURES){
+            MAX_TEXTURE_SIZE = Math.max(0, maxTextureSize);
+            TEXTURES.clear();
+            USED_BYTES = 0;
+        }
+    }
+
+    public static int getMaxTextureSize(){
+        return MAX_TEXTURE_SIZE;
+    }
+
+    public static long getMaxBytes(){
+        return MAX_BYTES;
+    }
+
+    public static long getUsedBytes(){
+        synchronized (TEXTURES){
+            return USED_BYTES;
+        }
+    }
+
+    public static long getHits(){
+        return HITS.get();
+    }
+
+    public static long getMisses(){
+        return MISSES.get();
+    }
+
+    public static long getEvictions(){
+        return EVICTIONS.get();
+    }
+
+    /**
+     * Log the hit rate and the memory usage of the cache
+     */
+    public static void logStatistic(){
+        long hits = HITS.get();
+        long misses = MISSES.get();
+        double hitRate = (hits + misses == 0) ? 0.0 : (hits * 100.0) / (hits + misses);
+
+        LogUtility.Log(String.format(Locale.ROOT, "Texture cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %.1f of %.1f MB used",
+                hits, misses, hitRate, EVICTIONS.get(), getUsedBytes() / (1024.0 * 1024.0), MAX_BYTES / (1024.0 * 1024.0)));
+    }
+
+    public static void clearData(){
+        synchronized (TEXTURES){
+            TEXTURES.clear();
+            USED_BYTES = 0;
+        }
+
+        HITS.set(0);
+        MISSES.set(0);
+        EVICTIONS.set(0);
+    }
+}
@@ -0,0 +1,312 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.davixdevelop.schem2obj.Orientation;
+import com.davixdevelop.schem2obj.util.LogUtility;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The faces of the blocks, that can be seen from a known set of camera positions (ex. the positions of a turntable render).
+ * A ray is marched through the blocks from each camera to points on each face, and the face is visible
+ * if any of the rays only passes through passable blocks (air, liquids, translucent or not full blocks).
+ * The not full blocks are kept whole, if a camera can see into them.
+ * The layers of the schematic are marched in parallel
+ *
+ * @author DavixDevelop
+ */
+public class CameraVisibility {
+    //Bit of the visible passable block, after the bits of the faces (See Orientation.DIRECTIONS for order of faces)
+    private static final int VISIBLE_BLOCK = 1 << 6;
+
+    //Inset of the sampled points from the edges of the face
+    private static final double INSET = 0.1;
+    //Offset of the sampled points from the face, so that the ray ends in front of the face
+    private static final double OFFSET = 0.01;
+
+    private final ExteriorSpace space;
+    //The cameras in the coordinates of the blocks
+    private final List<double[]> cameras;
+
+    //The visible faces of each block (index: x + (y * length + z) * width)
+    private final byte[] visibility;
+
+    /**
+     * @param space The passable blocks of the schematic
+     * @param cameras The positions of the cameras, in the coordinates of the output OBJ
+     */
+    public CameraVisibility(ExteriorSpace space, List<double[]> cameras){
+        this.space = space;
+        this.cameras = new ArrayList<>();
+
+        //The output OBJ is centered on the X and Z axis
+        for(double[] camera : cameras)
+            this.cameras.add(new double[]{camera[0] + (space.getWidth() / 2.0), camera[1], camera[2] + (space.getLength() / 2.0)});
+
+        visibility = new byte[space.getWidth() * space.getHeight() * space.getLength()];
+    }
+
+    /**
+     * March the rays from the cameras to all the blocks, that aren't air
+     * @param schematic The loaded schematic
+     */
+    public void compute(SchematicHolder schematic){
+        int width = space.getWidth();
+        int length = space.getLength();
+
+        IntStream.range(0, space.getHeight()).parallel().forEach(y -> {
+            for(int z = 0; z < length; z++){
+                for(int x = 0; x < width; x++){
+                    int index = x + (y * length + z) * width;
+                    if(schematic.getBlockID(index) == 0)
+                        continue;
+
+                    visibility[index] = (byte) (space.isPassable(index) ? getBlockVisibility(x, y, z) : getFacesVisibility(x, y, z));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if any face of the block, or the inside of the not full block is visible
+     */
+    public boolean isVisible(int x, int y, int z){
+        return visibility[x + (y * space.getLength() + z) * space.getWidth()] != 0;
+    }
+
+    /**
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @param orientation The orientation of the face
+     * @return True if the face of the full block is visible
+     */
+    public boolean isFaceVisible(int x, int y, int z, Orientation orientation){
+        return (visibility[x + (y * space.getLength() + z) * space.getWidth()] & (1 << orientation.getOrder())) != 0;
+    }
+
+    /**
+     * Check if any camera can see into the space of the block (ex. the position of an entity)
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if the space is visible, or it lies outside the schematic
+     */
+    public boolean isSpaceVisible(int x, int y, int z){
+        if(x < 0 || x >= space.getWidth() || y < 0 || y >= space.getHeight() || z < 0 || z >= space.getLength())
+            return true;
+
+        return getBlockVisibility(x, y, z) != 0;
+    }
+
+    /**
+     * Check which faces of the full block are visible
+     * @return The bits of the visible faces
+     */
+    private int getFacesVisibility(int x, int y, int z){
+        int visibleFaces = 0;
+
+        for(int o = 0; o < 6; o++){
+            Orientation orientation = Orientation.getOrientation(o);
+            int normalX = orientation.getXOffset();
+            int normalY = orientation.getZOffset();
+            int normalZ = -orientation.getYOffset();
+
+            //The faces towards the adjacent full blocks can't be seen
+            if(!space.isPassable(x + normalX, y + normalY, z + normalZ))
+                continue;
+
+            //Center of the face
+            double centerX = x + 0.5 + normalX * 0.5;
+            double centerY = y + 0.5 + normalY * 0.5;
+            double centerZ = z + 0.5 + normalZ * 0.5;
+
+            for(double[] camera : cameras){
+                //The camera must lie in front of the face
+                double facing = (camera[0] - centerX) * normalX + (camera[1] - centerY) * normalY + (camera[2] - centerZ) * normalZ;
+                if(facing <= 0)
+                    continue;
+
+                if(isFaceSeen(camera, centerX, centerY, centerZ, normalX, normalY, normalZ)){
+                    visibleFaces |= 1 << o;
+                    break;
+                }
+            }
+        }
+
+        return visibleFaces;
+    }
+
+    /**
+     * March the rays from the camera to the center and the corners of the face
+     */
+    private boolean isFaceSeen(double[] camera, double centerX, double centerY, double centerZ, int normalX, int normalY, int normalZ){
+        double half = 0.5 - INSET;
+
+        //The two axis along the face, are the axis the normal doesn't point along
+        double[][] samples = new double[][]{{0, 0}, {-half, -half}, {half, -half}, {half, half}, {-half, half}};
+        for(double[] sample : samples){
+            double pointX = centerX + normalX * OFFSET;
+            double pointY = centerY + normalY * OFFSET;
+            double pointZ = centerZ + normalZ * OFFSET;
+
+            if(normalX != 0){
+                pointY += sample[0];
+                pointZ += sample[1];
+            }else if(normalY != 0){
+                pointX += sample[0];
+                pointZ += sample[1];
+            }else{
+                pointX += sample[0];
+                pointY += sample[1];
+            }
+
+            if(isRayClear(camera, pointX, pointY, pointZ))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if any camera can see into the passable block, through It's center or corners
+     * @return The bit of the visible passable block, or 0
+     */
+    private int getBlockVisibility(int x, int y, int z){
+        double half = 0.5 - INSET;
+        double[][] samples = new double[][]{{0, 0, 0},
+                {-half, -half, -half}, {half, -half, -half}, {-half, half, -half}, {half, half, -half},
+                {-half, -half, half}, {half, -half, half}, {-half, half, half}, {half, half, half}};
+
+        for(double[] camera : cameras){
+            for(double[] sample : samples){
+                if(isRayClear(camera, x + 0.5 + sample[0], y + 0.5 + sample[1], z + 0.5 + sample[2]))
+                    return VISIBLE_BLOCK;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * March the ray from the camera to the point through the blocks, using a 3D DDA (Amanatides and Woo)
+     * @return True if the ray only passes through passable blocks, before reaching the point
+     */
+    private boolean isRayClear(double[] camera, double pointX, double pointY, double pointZ){
+        double[] start = new double[]{camera[0], camera[1], camera[2]};
+        double[] direction = new double[]{pointX - camera[0], pointY - camera[1], pointZ - camera[2]};
+        int[] size = new int[]{space.getWidth(), space.getHeight(), space.getLength()};
+
+        //Clip the ray to the bounds of the schematic, as the space outside is always passable
+        double tEnter = 0.0;
+        double tExit = 1.0;
+        for(int a = 0; a < 3; a++){
+            if(direction[a] == 0){
+                if(start[a] < 0 || start[a] > size[a])
+                    return true;
+                continue;
+            }
+
+            double t0 = (0 - start[a]) / direction[a];
+            double t1 = (size[a] - start[a]) / direction[a];
+            tEnter = Math.max(tEnter, Math.min(t0, t1));
+            tExit = Math.min(tExit, Math.max(t0, t1));
+        }
+
+        if(tEnter >= tExit)
+            return true;
+
+        int[] cell = new int[3];
+        int[] step = new int[3];
+        double[] tMax = new double[3];
+        double[] tDelta = new double[3];
+
+        for(int a = 0; a < 3; a++){
+            double position = start[a] + direction[a] * tEnter;
+            cell[a] = Math.max(0, Math.min(size[a] - 1, (int) Math.floor(position)));
+
+            if(direction[a] > 0){
+                step[a] = 1;
+                tMax[a] = (cell[a] + 1 - start[a]) / direction[a];
+                tDelta[a] = 1.0 / direction[a];
+            }else if(direction[a] < 0){
+                step[a] = -1;
+                tMax[a] = (cell[a] - start[a]) / direction[a];
+                tDelta[a] = -1.0 / direction[a];
+            }else{
+                step[a] = 0;
+                tMax[a] = Double.POSITIVE_INFINITY;
+                tDelta[a] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        while (true){
+            if(cell[0] < 0 || cell[0] >= size[0] || cell[1] < 0 || cell[1] >= size[1] || cell[2] < 0 || cell[2] >= size[2])
+                return true;
+
+            if(!space.isPassable(cell[0], cell[1], cell[2]))
+                return false;
+
+            //Step into the next block, along the axis whose boundary is crossed first
+            int a = (tMax[0] < tMax[1]) ? ((tMax[0] < tMax[2]) ? 0 : 2) : ((tMax[1] < tMax[2]) ? 1 : 2);
+            if(tMax[a] >= tExit)
+                return true;
+
+            cell[a] += step[a];
+            tMax[a] += tDelta[a];
+        }
+    }
+
+    /**
+     * Read the camera positions from a text file, or from the positions themselves if the file doesn't exist
+     * @param camerasPath The path to the text file of the positions, or the positions
+     * @return The list of the positions, or null if a position isn't valid
+     */
+    public static List<double[]> readCameras(String camerasPath){
+        try{
+            Path camerasFile = Paths.get(camerasPath);
+            if(camerasFile.toFile().isFile())
+                return parseCameras(new String(Files.readAllBytes(camerasFile), StandardCharsets.UTF_8));
+        }catch (Exception ex){
+            //Not a path to a file
+        }
+
+        return parseCameras(camerasPath);
+    }
+
+    /**
+     * Parse the camera positions, in the coordinates of the output OBJ.
+     * Each position is written as x,y,z, and the positions are separated by ; or new lines
+     * @param cameras The positions
+     * @return The list of the positions, or null if a position isn't valid
+     */
+    public static List<double[]> parseCameras(String cameras){
+        List<double[]> positions = new ArrayList<>();
+        for(String position : cameras.split("[;\\r\\n]+")){
+            position = position.trim();
+            if(position.isEmpty() || position.startsWith("#"))
+                continue;
+
+            String[] values = position.split("[,\\s]+");
+            if(values.length != 3)
+                return null;
+
+            try{
+                positions.add(new double[]{Double.parseDouble(values[0]), Double.parseDouble(values[1]), Double.parseDouble(values[2])});
+            }catch (NumberFormatException ex){
+                LogUtility.Log("Invalid camera position: " + position);
+                return null;
+            }
+        }
+
+        return positions;
+    }
+}
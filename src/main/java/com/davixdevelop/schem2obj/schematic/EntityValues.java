@@ -3,10 +3,15 @@ package com.davixdevelop.schem2obj.schematic;
 import com.flowpowered.nbt.*;
 import com.google.gson.Gson;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
 
 public class EntityValues {
+    //The decoded values, and the values that were put
     Map<String, Object> map;
+    //The raw NBT tags, which get decoded into the map only when they are read. It's never modified
+    CompoundMap compoundMap;
 
     static Gson GSON = new Gson();
 
@@ -14,16 +19,43 @@ public class EntityValues {
         map = new HashMap<>();
     }
 
-    public void put(String key, Object value){
+    public synchronized void put(String key, Object value){
         map.put(key, value);
     }
 
     public Object get(String key){
-        return map.get(key);
+        return getValue(key, null);
     }
 
-    public Set<String> keySet(){
-        return map.keySet();
+    /**
+     * Get the decoded value, or decode the raw NBT tag of the value, and store it for the next read
+     * @param key The name of the value
+     * @param defaultValue The value to return, if the key doesn't exist
+     * @return The decoded value, or the default value
+     */
+    private synchronized Object getValue(String key, Object defaultValue){
+        if(map.containsKey(key))
+            return map.get(key);
+
+        if(compoundMap != null){
+            Tag<?> tag = compoundMap.get(key);
+            if(tag != null){
+                Object value = parseTag(tag);
+                map.put(key, value);
+                return value;
+            }
+        }
+
+        return defaultValue;
+    }
+
+    public synchronized Set<String> keySet(){
+        if(compoundMap == null)
+            return map.keySet();
+
+        Set<String> keys = new LinkedHashSet<>(compoundMap.keySet());
+        keys.addAll(map.keySet());
+        return keys;
     }
 
     public void parseMap(Map<String, Object> map1){
@@ -39,7 +71,19 @@ public class EntityValues {
         }
     }
 
-    public void parseCompoundMap(CompoundMap compoundMap){
+    /**
+     * Read the values from the NBT compound. The first compound only gets wrapped, and It's tags get decoded
+     * when they are read, as most of them (ex. the items in a chest) are never used by the cube models
+     * @param compoundMap The raw NBT compound
+     */
+    public synchronized void parseCompoundMap(CompoundMap compoundMap){
+        if(this.compoundMap == null){
+            this.compoundMap = compoundMap;
+            //The values of the compound replace the already stored values
+            map.keySet().removeAll(compoundMap.keySet());
+            return;
+        }
+
         for(String key : compoundMap.keySet()){
             Tag<?> tag = compoundMap.get(key);
             map.put(key, parseTag(tag));
@@ -47,11 +91,48 @@ public class EntityValues {
 
     }
 
-    public boolean containsKey(String key){
-        return map.containsKey(key);
+    /**
+     * Add the keys and values to the digest, sorted by the keys, so that the same values always give the same hash
+     * @param digest The message digest
+     */
+    public void updateDigest(MessageDigest digest){
+        for(String key : new TreeSet<>(keySet())){
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            updateDigest(digest, get(key));
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, Object value){
+        if(value instanceof EntityValues)
+            ((EntityValues) value).updateDigest(digest);
+        else if(value instanceof List<?>){
+            for(Object item : (List<?>) value)
+                updateDigest(digest, item);
+        }
+        else if(value instanceof byte[])
+            digest.update((byte[]) value);
+        else if(value instanceof int[])
+            digest.update(Arrays.toString((int[]) value).getBytes(StandardCharsets.UTF_8));
+        else if(value instanceof short[])
+            digest.update(Arrays.toString((short[]) value).getBytes(StandardCharsets.UTF_8));
+        else if(value instanceof long[])
+            digest.update(Arrays.toString((long[]) value).getBytes(StandardCharsets.UTF_8));
+        else
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+
+        //Separate the values, so that two values can't be read as one
+        digest.update((byte) 0);
+    }
+
+    public synchronized boolean containsKey(String key){
+        return map.containsKey(key) || (compoundMap != null && compoundMap.containsKey(key));
     }
 
     public static Object parseTag(Tag<?> tag){
+        //The long arrays don't have a tag type in flow-nbt
+        if(tag instanceof LongArrayTag)
+            return ((LongArrayTag) tag).getValue();
+
         switch (tag.getType()){
             case TAG_INT:
                 return ((IntTag) tag).getValue();
@@ -116,11 +197,11 @@ public class EntityValues {
     }
 
     public EntityValues getEntityValues(String key){
-        return (EntityValues)map.getOrDefault(key, new EntityValues());
+        return (EntityValues)getValue(key, new EntityValues());
     }
 
     public Integer getInteger(String key){
-        return getIntegerValue(map.getOrDefault(key, 0));
+        return getIntegerValue(getValue(key, 0));
     }
 
     public static Integer getIntegerValue(Object value){
@@ -133,7 +214,7 @@ public class EntityValues {
     }
 
     public Integer[] getIntegerArray(String key){
-        return getIntegerArrayValue(map.getOrDefault(key, new Integer[]{}));
+        return getIntegerArrayValue(getValue(key, new Integer[]{}));
     }
 
     public static Integer[] getIntegerArrayValue(Object value){
@@ -141,7 +222,7 @@ public class EntityValues {
     }
 
     public String getString(String key){
-        return getStringValue(map.getOrDefault(key, ""));
+        return getStringValue(getValue(key, ""));
     }
 
     public static String getStringValue(Object value){
@@ -152,7 +233,7 @@ public class EntityValues {
     }
 
     public Double getDouble(String key){
-        return getDoubleValue(map.getOrDefault(key, 0.0));
+        return getDoubleValue(getValue(key, 0.0));
     }
 
     public static Double getDoubleValue(Object value){
@@ -160,7 +241,7 @@ public class EntityValues {
     }
 
     public Float getFloat(String key){
-        return getFloatValue(map.getOrDefault(key, 0.0));
+        return getFloatValue(getValue(key, 0.0));
     }
 
     public static Float getFloatValue(Object value){
@@ -168,7 +249,7 @@ public class EntityValues {
     }
 
     public Byte getByte(String key){
-        return getByteValue(map.getOrDefault(key, 0x00));
+        return getByteValue(getValue(key, 0x00));
     }
 
     public static Byte getByteValue(Object value){
@@ -183,7 +264,7 @@ public class EntityValues {
     }
 
     public Byte[] getByteArray(String key){
-        return getByteArrayValue(map.getOrDefault(key, new Byte[]{}));
+        return getByteArrayValue(getValue(key, new Byte[]{}));
     }
 
     public static Byte[] getByteArrayValue(Object value){
@@ -191,7 +272,7 @@ public class EntityValues {
     }
 
     public Short getShort(String key){
-        return getShortValue(map.getOrDefault(key, 0));
+        return getShortValue(getValue(key, 0));
     }
 
     public static Short getShortValue(Object value){
@@ -199,7 +280,7 @@ public class EntityValues {
     }
 
     public Short[] getShortArray(String key){
-        return getShortArrayValue(map.getOrDefault(key, new Short[]{}));
+        return getShortArrayValue(getValue(key, new Short[]{}));
     }
 
     public static Short[] getShortArrayValue(Object value){
@@ -207,7 +288,7 @@ public class EntityValues {
     }
 
     public Long getLong(String key){
-        return getLongValue(map.getOrDefault(key, 0));
+        return getLongValue(getValue(key, 0));
     }
 
     public static Long getLongValue(Object value){
@@ -217,9 +298,9 @@ public class EntityValues {
     }
 
     public List<?> getList(String key) {
-        Object list = map.get(key);
+        Object list = get(key);
         if(list instanceof List<?>){
-            return (List<?>) map.get(key);
+            return (List<?>) list;
         }
         return null;
     }
@@ -242,8 +323,10 @@ public class EntityValues {
         return list;
     }
 
-    public EntityValues duplicate(){
+    public synchronized EntityValues duplicate(){
         EntityValues entityValues = new EntityValues();
+        //The raw compound is never modified, so it can be shared
+        entityValues.compoundMap = compoundMap;
         Map<String, Object> cloneMap = new LinkedHashMap<>();
         for(String key : map.keySet()){
             Object item = map.get(key);
@@ -259,8 +342,8 @@ public class EntityValues {
         return entityValues;
     }
 
-    public boolean isEmpty(){
-        return map.isEmpty();
+    public synchronized boolean isEmpty(){
+        return map.isEmpty() && (compoundMap == null || compoundMap.isEmpty());
     }
 
 }
@@ -0,0 +1,147 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The space of the schematic, that can be seen from outside It's bounds.
+ * The air, liquids and the translucent or not full blocks are filled from the sides of the bounding box,
+ * and the space the fill can't reach (ex. sealed rooms, caves or the inside of hollow walls) is enclosed,
+ * so the faces that only face the enclosed space can't be seen from outside
+ *
+ * @author DavixDevelop
+ */
+public class ExteriorSpace {
+    private final int width;
+    private final int height;
+    private final int length;
+
+    //The blocks the fill can pass through (index: x + (y * length + z) * width)
+    private final BitSet passable;
+    //The passable blocks reached from outside
+    private final BitSet exterior;
+    private boolean filled = false;
+
+    public ExteriorSpace(int width, int height, int length){
+        this.width = width;
+        this.height = height;
+        this.length = length;
+
+        passable = new BitSet(width * height * length);
+        exterior = new BitSet(width * height * length);
+    }
+
+    /**
+     * Mark the block as passable (air, liquid, translucent or not a full block)
+     * @param index The index of the block (x + (y * length + z) * width)
+     */
+    public void setPassable(int index){
+        passable.set(index);
+    }
+
+    /**
+     * Fill the passable blocks, starting from the passable blocks on the sides of the bounding box
+     */
+    public void fill(){
+        //Stack of the blocks to visit. Grows as needed, as the fill usually only reaches a part of the space
+        int[] stack = new int[1024];
+        int size = 0;
+
+        for(int y = 0; y < height; y++){
+            for(int z = 0; z < length; z++){
+                for(int x = 0; x < width; x++){
+                    if(x != 0 && x != width - 1 && y != 0 && y != height - 1 && z != 0 && z != length - 1)
+                        continue;
+
+                    int index = x + (y * length + z) * width;
+                    if(passable.get(index) && !exterior.get(index)){
+                        exterior.set(index);
+                        if(size == stack.length)
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        stack[size++] = index;
+                    }
+                }
+            }
+        }
+
+        int layer = width * length;
+        while (size > 0){
+            int index = stack[--size];
+
+            int x = index % width;
+            int z = (index / width) % length;
+            int y = index / layer;
+
+            //Adjacent blocks: west, east, north, south, down, up
+            for(int o = 0; o < 6; o++){
+                int adjacentIndex;
+                switch (o){
+                    case 0: adjacentIndex = (x > 0) ? index - 1 : -1; break;
+                    case 1: adjacentIndex = (x < width - 1) ? index + 1 : -1; break;
+                    case 2: adjacentIndex = (z > 0) ? index - width : -1; break;
+                    case 3: adjacentIndex = (z < length - 1) ? index + width : -1; break;
+                    case 4: adjacentIndex = (y > 0) ? index - layer : -1; break;
+                    default: adjacentIndex = (y < height - 1) ? index + layer : -1; break;
+                }
+
+                if(adjacentIndex < 0 || !passable.get(adjacentIndex) || exterior.get(adjacentIndex))
+                    continue;
+
+                exterior.set(adjacentIndex);
+                if(size == stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[size++] = adjacentIndex;
+            }
+        }
+
+        filled = true;
+    }
+
+    /**
+     * Check if the block is passable, but can't be reached from outside the schematic
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if the block is enclosed, false if it can be reached, it's solid, it lies outside the schematic or the space wasn't filled
+     */
+    public boolean isEnclosed(int x, int y, int z){
+        if(!filled || x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= length)
+            return false;
+
+        int index = x + (y * length + z) * width;
+        return passable.get(index) && !exterior.get(index);
+    }
+
+    /**
+     * @param index The index of the block (x + (y * length + z) * width)
+     * @return True if the fill can pass through the block
+     */
+    public boolean isPassable(int index){
+        return passable.get(index);
+    }
+
+    /**
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if the block is passable, or it lies outside the schematic
+     */
+    public boolean isPassable(int x, int y, int z){
+        if(x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= length)
+            return true;
+
+        return passable.get(x + (y * length + z) * width);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,46 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.flowpowered.nbt.Tag;
+import com.flowpowered.nbt.TagType;
+
+import java.util.Arrays;
+
+/**
+ * The long array tag of the newer versions (ex. the block states of Litematica), that flow-nbt doesn't have.
+ * As flow-nbt doesn't have It's tag type either, the tag uses the type of the end tag, which holds no value
+ *
+ * @author DavixDevelop
+ */
+public class LongArrayTag extends Tag<long[]> {
+    private final long[] value;
+
+    public LongArrayTag(String name, long[] value) {
+        super(TagType.TAG_END, name);
+        this.value = value;
+    }
+
+    @Override
+    public long[] getValue() {
+        return value;
+    }
+
+    @Override
+    public LongArrayTag clone() {
+        return new LongArrayTag(getName(), Arrays.copyOf(value, value.length));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LongArrayTag && getName().equals(((LongArrayTag) other).getName()) && Arrays.equals(value, ((LongArrayTag) other).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return getName().hashCode() * 31 + Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TAG_Long_Array(\"%s\"): [%d longs]", getName(), value.length);
+    }
+}
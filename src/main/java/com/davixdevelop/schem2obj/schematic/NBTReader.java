@@ -0,0 +1,164 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.flowpowered.nbt.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the NBT tags of a schematic, into the same tags as the NBTInputStream of flow-nbt.
+ * Unlike the NBTInputStream, it also reads the long arrays of the newer versions (ex. the block states of Litematica),
+ * which are read into a LongArrayTag, and the uncompressed files (ex. some vanilla structures).
+ * The lengths of the arrays and lists are checked before anything is allocated, as the files may come from an upload
+ *
+ * @author DavixDevelop
+ */
+public class NBTReader {
+    private static final int TAG_LONG_ARRAY = 12;
+    //The max size of an array (128 MiB), ex. the block data of a Sponge schematic with 128 million blocks
+    private static final int MAX_ARRAY_BYTES = 128 * 1024 * 1024;
+    //The max initial capacity of a list, as the list grows while It's elements are read
+    private static final int MAX_LIST_CAPACITY = 1024;
+
+    private final DataInputStream is;
+
+    /**
+     * @param stream The stream of the file, either gzip compressed or uncompressed
+     * @throws IOException If the stream can't be read
+     */
+    public NBTReader(InputStream stream) throws IOException {
+        BufferedInputStream bufferedStream = new BufferedInputStream(stream, 65536);
+
+        //Check for the gzip magic number
+        bufferedStream.mark(2);
+        int first = bufferedStream.read();
+        int second = bufferedStream.read();
+        bufferedStream.reset();
+
+        if(first == 0x1F && second == 0x8B)
+            is = new DataInputStream(new BufferedInputStream(new GZIPInputStream(bufferedStream, 65536), 65536));
+        else
+            is = new DataInputStream(bufferedStream);
+    }
+
+    /**
+     * Read the root tag
+     * @return The root tag
+     * @throws IOException If the stream isn't a valid NBT stream
+     */
+    public Tag<?> readTag() throws IOException {
+        int type = is.readUnsignedByte();
+        String name = (type == 0) ? "" : readString();
+
+        return readTagPayload(type, name, 0);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[is.readUnsignedShort()];
+        is.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the length of an array, and check that it's valid
+     * @param elementSize The size of an element of the array in bytes
+     * @return The length of the array
+     * @throws IOException If the length is negative, or the array would be bigger than 128 MiB
+     */
+    private int readLength(int elementSize) throws IOException {
+        int length = is.readInt();
+        if(length < 0 || length > MAX_ARRAY_BYTES / elementSize)
+            throw new IOException("Invalid array length: " + length);
+
+        return length;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Tag<?> readTagPayload(int type, String name, int depth) throws IOException {
+        if(depth > 512)
+            throw new IOException("Tags are nested too deep");
+
+        switch (type){
+            case 0:
+                return new EndTag();
+            case 1:
+                return new ByteTag(name, is.readByte());
+            case 2:
+                return new ShortTag(name, is.readShort());
+            case 3:
+                return new IntTag(name, is.readInt());
+            case 4:
+                return new LongTag(name, is.readLong());
+            case 5:
+                return new FloatTag(name, is.readFloat());
+            case 6:
+                return new DoubleTag(name, is.readDouble());
+            case 7: {
+                byte[] bytes = new byte[readLength(1)];
+                is.readFully(bytes);
+                return new ByteArrayTag(name, bytes);
+            }
+            case 8:
+                return new StringTag(name, readString());
+            case 9: {
+                int elementType = is.readUnsignedByte();
+                int size = is.readInt();
+                //A list of end tags can only be empty, as It's elements wouldn't read anything from the stream
+                if(size < 0 || (elementType == 0 && size > 0))
+                    throw new IOException("Invalid list length: " + size);
+                if(elementType > TAG_LONG_ARRAY)
+                    throw new IOException("Invalid list type: " + elementType);
+
+                List<Tag<?>> elements = new ArrayList<>(Math.min(size, MAX_LIST_CAPACITY));
+                for(int i = 0; i < size; i++)
+                    elements.add(readTagPayload(elementType, "", depth + 1));
+
+                Class elementClass = (elementType == TAG_LONG_ARRAY) ? LongArrayTag.class : TagType.getById(elementType).getTagClass();
+                return new ListTag(name, elementClass, elements);
+            }
+            case 10: {
+                CompoundMap compoundMap = new CompoundMap();
+                while (true){
+                    int childType = is.readUnsignedByte();
+                    if(childType == 0)
+                        break;
+
+                    compoundMap.put(readTagPayload(childType, readString(), depth + 1));
+                }
+                return new CompoundTag(name, compoundMap);
+            }
+            case 11: {
+                int[] ints = new int[readLength(4)];
+                for(int i = 0; i < ints.length; i++)
+                    ints[i] = is.readInt();
+                return new IntArrayTag(name, ints);
+            }
+            case TAG_LONG_ARRAY: {
+                long[] longs = new long[readLength(8)];
+                for(int i = 0; i < longs.length; i++)
+                    longs[i] = is.readLong();
+                return new LongArrayTag(name, longs);
+            }
+            default:
+                throw new IOException("Invalid tag type: " + type);
+        }
+    }
+
+    /**
+     * Get the values of a long array
+     * @param tag The tag of the long array
+     * @return The values of the long array, or an empty array if the tag isn't a long array
+     */
+    public static long[] getLongArray(Tag<?> tag){
+        if(!(tag instanceof LongArrayTag))
+            return new long[0];
+
+        return ((LongArrayTag) tag).getValue();
+    }
+}
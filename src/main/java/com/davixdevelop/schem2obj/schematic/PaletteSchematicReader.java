@@ -0,0 +1,449 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.util.LogUtility;
+import com.flowpowered.nbt.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reads the schematics, that store their blocks as indexes into a palette of block states:
+ * Sponge schematics (v1, v2 and v3), Litematica schematics and vanilla structures.
+ * Each block state of the palette gets resolved to It's Block ID and Meta only once,
+ * and the blocks are decoded straight into the palette of the schematic
+ *
+ * @author DavixDevelop
+ */
+public class PaletteSchematicReader {
+
+    /**
+     * Read a Sponge schematic (.schem), with the palette indexes stored as varints
+     * @param nbtData The Schematic tag of the file
+     * @return new instance of Schematic
+     * @throws IOException If the size of the schematic is invalid, or the block data doesn't match it
+     */
+    public static Schematic readSponge(CompoundMap nbtData) throws IOException {
+        int version = Schematic.getOrDefault((IntTag) nbtData.get("Version"), 1);
+
+        int width = ((ShortTag) nbtData.get("Width")).getValue() & 0xFFFF;
+        int height = ((ShortTag) nbtData.get("Height")).getValue() & 0xFFFF;
+        int length = ((ShortTag) nbtData.get("Length")).getValue() & 0xFFFF;
+        int volume = Schematic.getVolume(width, height, length);
+
+        //Version 3 moved the palette, the block data and the block entities into the Blocks tag
+        CompoundMap blocksData = (version >= 3) ? ((CompoundTag) nbtData.get("Blocks")).getValue() : nbtData;
+
+        BlockPalette palette = new BlockPalette();
+        CompoundMap rawPalette = ((CompoundTag) blocksData.get("Palette")).getValue();
+
+        int[] paletteMapping = new int[0];
+        for(Tag<?> entry : rawPalette.values()){
+            int spongeIndex = ((IntTag) entry).getValue();
+            if(spongeIndex >= paletteMapping.length)
+                paletteMapping = Arrays.copyOf(paletteMapping, spongeIndex + 1);
+
+            paletteMapping[spongeIndex] = palette.getIndex(entry.getName());
+        }
+
+        byte[] blockData = ((ByteArrayTag) blocksData.get((version >= 3) ? "Data" : "BlockData")).getValue();
+        //Each block takes at least one byte of the block data, so the size is checked before the blocks are allocated
+        if(blockData.length < volume)
+            throw new IOException("Block data doesn't match the size of the schematic");
+
+        int[] blocks = new int[volume];
+        int index = 0;
+        int i = 0;
+        while (i < blockData.length && index < blocks.length){
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do{
+                b = blockData[i++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            }while ((b & 0x80) != 0 && i < blockData.length);
+
+            if(value >= paletteMapping.length)
+                throw new IOException("Block data refers to a missing palette entry");
+
+            blocks[index++] = paletteMapping[value];
+        }
+
+        if(index != blocks.length)
+            throw new IOException("Block data doesn't match the size of the schematic");
+
+        Map<String, EntityValues> tileEntities = new HashMap<>();
+        for(CompoundMap compoundMap : getCompounds(blocksData.get(blocksData.containsKey("BlockEntities") ? "BlockEntities" : "TileEntities"))){
+            int[] pos = ((IntArrayTag) compoundMap.get("Pos")).getValue();
+            tileEntities.put(String.format("%d:%d:%d", pos[0], pos[1], pos[2]), getSpongeValues(compoundMap, version, false));
+        }
+
+        List<EntityValues> entities = new ArrayList<>();
+        for(CompoundMap compoundMap : getCompounds(nbtData.get("Entities"))){
+            if(compoundMap.get("Pos") instanceof ListTag)
+                entities.add(getSpongeValues(compoundMap, version, true));
+        }
+
+        return palette.toSchematic(blocks, width, length, height, tileEntities, entities);
+    }
+
+    /**
+     * Get the values of a Sponge (block) entity, whose data is either next to It's position (v1 and v2), or in It's Data tag (v3).
+     * The id of the values is read from the Id tag
+     * @param compoundMap The tag of the (block) entity
+     * @param version The version of the Sponge schematic
+     * @param keepPos True to keep the position of the entity, relative to the schematic
+     * @return The values of the (block) entity
+     */
+    private static EntityValues getSpongeValues(CompoundMap compoundMap, int version, boolean keepPos){
+        CompoundMap valuesMap = new CompoundMap();
+        if(version >= 3 && compoundMap.get("Data") instanceof CompoundTag)
+            valuesMap.putAll(((CompoundTag) compoundMap.get("Data")).getValue());
+        else
+            valuesMap.putAll(compoundMap);
+
+        valuesMap.remove("Pos");
+        if(keepPos)
+            valuesMap.put(compoundMap.get("Pos"));
+
+        valuesMap.remove("Id");
+        if(compoundMap.get("Id") instanceof StringTag)
+            valuesMap.put(new StringTag("id", ((StringTag) compoundMap.get("Id")).getValue()));
+
+        EntityValues values = new EntityValues();
+        values.parseCompoundMap(valuesMap);
+        return values;
+    }
+
+    /**
+     * Read a Litematica schematic (.litematic), with the palette indexes bit packed into long arrays.
+     * The regions of the schematic are placed into a single schematic, that spans all of them
+     * @param nbtData The root tag of the file
+     * @return new instance of Schematic
+     * @throws IOException If the schematic doesn't have any regions, the size of the schematic is invalid, or the block states of a region don't match It's size
+     */
+    public static Schematic readLitematica(CompoundMap nbtData) throws IOException {
+        CompoundMap regions = ((CompoundTag) nbtData.get("Regions")).getValue();
+        if(regions.isEmpty())
+            throw new IOException("Litematica schematic doesn't have any regions");
+
+        //The min and max corner of all the regions, as longs, so that the positions far apart don't overflow
+        long[] min = new long[]{Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] max = new long[]{Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+
+        for(Tag<?> region : regions.values()){
+            CompoundMap regionMap = ((CompoundTag) region).getValue();
+            int[] position = getVector(regionMap.get("Position"));
+            int[] size = getVector(regionMap.get("Size"));
+
+            for(int a = 0; a < 3; a++){
+                //The size is negative, if the region extends from It's position in the negative direction
+                long regionMin = (long) position[a] + ((size[a] < 0) ? size[a] + 1 : 0);
+                min[a] = Math.min(min[a], regionMin);
+                max[a] = Math.max(max[a], regionMin + Math.abs((long) size[a]));
+            }
+        }
+
+        int volume = Schematic.getVolume(max[0] - min[0], max[1] - min[1], max[2] - min[2]);
+        int width = (int) (max[0] - min[0]);
+        int height = (int) (max[1] - min[1]);
+        int length = (int) (max[2] - min[2]);
+
+        BlockPalette palette = new BlockPalette();
+        //The space outside the regions is filled with air
+        palette.getIndex("minecraft:air", new HashMap<>());
+
+        int[] blocks = new int[volume];
+        Map<String, EntityValues> tileEntities = new HashMap<>();
+        List<EntityValues> entities = new ArrayList<>();
+
+        for(Tag<?> region : regions.values()){
+            CompoundMap regionMap = ((CompoundTag) region).getValue();
+            int[] position = getVector(regionMap.get("Position"));
+            int[] size = getVector(regionMap.get("Size"));
+
+            int sizeX = Math.abs(size[0]);
+            int sizeY = Math.abs(size[1]);
+            int sizeZ = Math.abs(size[2]);
+            int offsetX = (int) ((long) position[0] + ((size[0] < 0) ? size[0] + 1 : 0) - min[0]);
+            int offsetY = (int) ((long) position[1] + ((size[1] < 0) ? size[1] + 1 : 0) - min[1]);
+            int offsetZ = (int) ((long) position[2] + ((size[2] < 0) ? size[2] + 1 : 0) - min[2]);
+
+            List<CompoundMap> regionPalette = getCompounds(regionMap.get("BlockStatePalette"));
+            int[] paletteMapping = new int[Math.max(1, regionPalette.size())];
+            for(int p = 0; p < regionPalette.size(); p++){
+                CompoundMap entry = regionPalette.get(p);
+                paletteMapping[p] = palette.getIndex(((StringTag) entry.get("Name")).getValue(), getProperties(entry.get("Properties")));
+            }
+
+            //Each palette index uses the bits needed to fit the biggest index, but at least 2, and may span two longs
+            long[] blockStates = NBTReader.getLongArray(regionMap.get("BlockStates"));
+            int bits = Math.max(2, 32 - Integer.numberOfLeadingZeros(regionPalette.size() - 1));
+            long mask = (1L << bits) - 1;
+
+            if((long) blockStates.length * 64 / bits < (long) sizeX * sizeY * sizeZ)
+                throw new IOException("Block states don't match the size of the region");
+
+            for(int ry = 0; ry < sizeY; ry++){
+                for(int rz = 0; rz < sizeZ; rz++){
+                    for(int rx = 0; rx < sizeX; rx++){
+                        long bitIndex = (long) ((ry * sizeZ + rz) * sizeX + rx) * bits;
+                        int startLong = (int) (bitIndex >> 6);
+                        int endLong = (int) ((bitIndex + bits - 1) >> 6);
+                        int startBit = (int) (bitIndex & 63);
+
+                        int value;
+                        if(startLong == endLong)
+                            value = (int) ((blockStates[startLong] >>> startBit) & mask);
+                        else
+                            value = (int) (((blockStates[startLong] >>> startBit) | (blockStates[endLong] << (64 - startBit))) & mask);
+
+                        if(value >= paletteMapping.length)
+                            continue;
+
+                        int x = offsetX + rx;
+                        int y = offsetY + ry;
+                        int z = offsetZ + rz;
+                        blocks[x + (y * length + z) * width] = paletteMapping[value];
+                    }
+                }
+            }
+
+            //The positions of the tile entities are relative to the min corner of the region
+            for(CompoundMap compoundMap : getCompounds(regionMap.get("TileEntities"))){
+                int x = ((IntTag) compoundMap.remove("x")).getValue() + offsetX;
+                int y = ((IntTag) compoundMap.remove("y")).getValue() + offsetY;
+                int z = ((IntTag) compoundMap.remove("z")).getValue() + offsetZ;
+
+                EntityValues values = new EntityValues();
+                values.parseCompoundMap(compoundMap);
+                tileEntities.put(String.format("%d:%d:%d", x, y, z), values);
+            }
+
+            //The positions of the entities are relative to the position of the region
+            for(CompoundMap compoundMap : getCompounds(regionMap.get("Entities"))){
+                if(!(compoundMap.get("Pos") instanceof ListTag))
+                    continue;
+
+                List<?> pos = ((ListTag<?>) compoundMap.get("Pos")).getValue();
+                compoundMap.put(getPosTag(
+                        ((DoubleTag) pos.get(0)).getValue() + (position[0] - min[0]),
+                        ((DoubleTag) pos.get(1)).getValue() + (position[1] - min[1]),
+                        ((DoubleTag) pos.get(2)).getValue() + (position[2] - min[2])));
+
+                EntityValues values = new EntityValues();
+                values.parseCompoundMap(compoundMap);
+                entities.add(values);
+            }
+        }
+
+        return palette.toSchematic(blocks, width, length, height, tileEntities, entities);
+    }
+
+    /**
+     * Read a vanilla structure (.nbt), with a list of the blocks and their palette indexes.
+     * The space without blocks (the structure voids) is filled with air
+     * @param nbtData The root tag of the file
+     * @return new instance of Schematic
+     * @throws IOException If the size of the structure is invalid
+     */
+    public static Schematic readStructure(CompoundMap nbtData) throws IOException {
+        List<?> size = ((ListTag<?>) nbtData.get("size")).getValue();
+        int width = ((IntTag) size.get(0)).getValue();
+        int height = ((IntTag) size.get(1)).getValue();
+        int length = ((IntTag) size.get(2)).getValue();
+        int volume = Schematic.getVolume(width, height, length);
+
+        //The structures with random variants (ex. shipwrecks) have multiple palettes, of which the first one is used
+        List<CompoundMap> rawPalette;
+        if(nbtData.containsKey("palette"))
+            rawPalette = getCompounds(nbtData.get("palette"));
+        else{
+            List<?> palettes = ((ListTag<?>) nbtData.get("palettes")).getValue();
+            rawPalette = palettes.isEmpty() ? new ArrayList<>() : getCompounds((Tag<?>) palettes.get(0));
+        }
+
+        BlockPalette palette = new BlockPalette();
+        palette.getIndex("minecraft:air", new HashMap<>());
+
+        int[] paletteMapping = new int[rawPalette.size()];
+        for(int p = 0; p < rawPalette.size(); p++){
+            CompoundMap entry = rawPalette.get(p);
+            paletteMapping[p] = palette.getIndex(((StringTag) entry.get("Name")).getValue(), getProperties(entry.get("Properties")));
+        }
+
+        int[] blocks = new int[volume];
+        Map<String, EntityValues> tileEntities = new HashMap<>();
+
+        for(CompoundMap compoundMap : getCompounds(nbtData.get("blocks"))){
+            int[] pos = getVector(compoundMap.get("pos"));
+            int state = ((IntTag) compoundMap.get("state")).getValue();
+            if(state < 0 || state >= paletteMapping.length || pos[0] < 0 || pos[0] >= width || pos[1] < 0 || pos[1] >= height || pos[2] < 0 || pos[2] >= length)
+                continue;
+
+            blocks[pos[0] + (pos[1] * length + pos[2]) * width] = paletteMapping[state];
+
+            if(compoundMap.get("nbt") instanceof CompoundTag){
+                EntityValues values = new EntityValues();
+                values.parseCompoundMap(((CompoundTag) compoundMap.get("nbt")).getValue());
+                tileEntities.put(String.format("%d:%d:%d", pos[0], pos[1], pos[2]), values);
+            }
+        }
+
+        List<EntityValues> entities = new ArrayList<>();
+        for(CompoundMap compoundMap : getCompounds(nbtData.get("entities"))){
+            if(!(compoundMap.get("nbt") instanceof CompoundTag) || !(compoundMap.get("pos") instanceof ListTag))
+                continue;
+
+            //The Pos of the entity is It's position in the world it was saved from, while pos is It's position in the structure
+            CompoundMap entityMap = ((CompoundTag) compoundMap.get("nbt")).getValue();
+            List<?> pos = ((ListTag<?>) compoundMap.get("pos")).getValue();
+            entityMap.put(getPosTag(((DoubleTag) pos.get(0)).getValue(), ((DoubleTag) pos.get(1)).getValue(), ((DoubleTag) pos.get(2)).getValue()));
+
+            EntityValues values = new EntityValues();
+            values.parseCompoundMap(entityMap);
+            entities.add(values);
+        }
+
+        return palette.toSchematic(blocks, width, length, height, tileEntities, entities);
+    }
+
+    /**
+     * Get the compound tags of a list tag
+     * @param tag The list tag
+     * @return The maps of the compound tags in the list, or an empty list if the tag isn't a list
+     */
+    private static List<CompoundMap> getCompounds(Tag<?> tag){
+        List<CompoundMap> compounds = new ArrayList<>();
+        if(tag instanceof ListTag){
+            for(Object item : ((ListTag<?>) tag).getValue()){
+                if(item instanceof CompoundTag)
+                    compounds.add(((CompoundTag) item).getValue());
+            }
+        }
+
+        return compounds;
+    }
+
+    /**
+     * Get the x, y and z of a vector, stored either as a compound (Litematica) or as a list of ints (structures)
+     */
+    private static int[] getVector(Tag<?> tag){
+        if(tag instanceof CompoundTag){
+            CompoundMap vector = ((CompoundTag) tag).getValue();
+            return new int[]{((IntTag) vector.get("x")).getValue(), ((IntTag) vector.get("y")).getValue(), ((IntTag) vector.get("z")).getValue()};
+        }
+
+        List<?> vector = ((ListTag<?>) tag).getValue();
+        return new int[]{((IntTag) vector.get(0)).getValue(), ((IntTag) vector.get(1)).getValue(), ((IntTag) vector.get(2)).getValue()};
+    }
+
+    private static ListTag<DoubleTag> getPosTag(double x, double y, double z){
+        return new ListTag<>("Pos", DoubleTag.class, Arrays.asList(new DoubleTag("", x), new DoubleTag("", y), new DoubleTag("", z)));
+    }
+
+    /**
+     * Get the properties of a palette entry, ex. {facing: north, half: bottom}
+     */
+    private static Map<String, String> getProperties(Tag<?> tag){
+        Map<String, String> properties = new TreeMap<>();
+        if(tag instanceof CompoundTag){
+            for(Tag<?> property : ((CompoundTag) tag).getValue().values()){
+                if(property instanceof StringTag)
+                    properties.put(property.getName(), ((StringTag) property).getValue());
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * The palette of the schematic, with the Block ID and Meta of each block state
+     */
+    private static class BlockPalette {
+        //Key: The block state, ex. minecraft:oak_stairs[facing=north,half=bottom], Value: The index of the palette entry
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<int[]> entries = new ArrayList<>();
+        //The values each block state stored in It's tile entity in 1.12 (ex. the color of the bed), or null if it has none
+        private final List<Map<String, Integer>> tileData = new ArrayList<>();
+        private boolean hasTileData = false;
+
+        /**
+         * Get the index of the block state, written as minecraft:oak_stairs[facing=north,half=bottom]
+         */
+        int getIndex(String blockState){
+            Map<String, String> properties = new TreeMap<>();
+            String name = blockState;
+
+            if(blockState.contains("[") && blockState.endsWith("]")){
+                name = blockState.substring(0, blockState.indexOf("["));
+                for(String property : blockState.substring(blockState.indexOf("[") + 1, blockState.length() - 1).split(",")){
+                    if(property.contains("="))
+                        properties.put(property.substring(0, property.indexOf("=")).trim(), property.substring(property.indexOf("=") + 1).trim());
+                }
+            }
+
+            return getIndex(name, properties);
+        }
+
+        /**
+         * Get the index of the block state, and resolve the Block ID and Meta of the block state, if it's new
+         * @param name The name of the block, ex. minecraft:oak_stairs
+         * @param properties The properties of the block state, sorted by their name
+         * @return The index of the block state in the palette
+         */
+        int getIndex(String name, Map<String, String> properties){
+            String key = properties.isEmpty() ? name : String.format("%s%s", name, properties);
+
+            Integer index = indexes.get(key);
+            if(index == null){
+                int[] blockStateID = Constants.NAMESPACE_MAPPING.getBlockStateID(name, properties);
+                if(blockStateID == null){
+                    LogUtility.Log(String.format("Unsupported block %s, replacing it with air", key));
+                    blockStateID = new int[]{0, 0};
+                }
+
+                Map<String, Integer> blockStateTileData = Constants.NAMESPACE_MAPPING.getBlockStateTileData(name, properties);
+                hasTileData |= blockStateTileData != null;
+
+                index = entries.size();
+                entries.add(blockStateID);
+                tileData.add(blockStateTileData);
+                indexes.put(key, index);
+            }
+
+            return index;
+        }
+
+        Schematic toSchematic(int[] blocks, int width, int length, int height, Map<String, EntityValues> tileEntities, List<EntityValues> entities){
+            int[] paletteIDs = new int[Math.max(1, entries.size())];
+            int[] paletteData = new int[paletteIDs.length];
+            for(int p = 0; p < entries.size(); p++){
+                paletteIDs[p] = entries.get(p)[0];
+                paletteData[p] = entries.get(p)[1];
+            }
+
+            //Add the values, that the newer versions store in the block state, to the tile entities of the blocks
+            if(hasTileData){
+                for(int index = 0; index < blocks.length; index++){
+                    Map<String, Integer> blockTileData = tileData.get(blocks[index]);
+                    if(blockTileData == null)
+                        continue;
+
+                    int x = index % width;
+                    int z = (index / width) % length;
+                    int y = index / (width * length);
+
+                    EntityValues values = tileEntities.computeIfAbsent(String.format("%d:%d:%d", x, y, z), key -> new EntityValues());
+                    for(Map.Entry<String, Integer> value : blockTileData.entrySet()){
+                        if(!values.containsKey(value.getKey()))
+                            values.put(value.getKey(), value.getValue());
+                    }
+                }
+            }
+
+            return new Schematic(blocks, paletteIDs, paletteData, (short) width, (short) length, (short) height, 0, 0, 0, tileEntities, entities);
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.davixdevelop.schem2obj.schematic;
 
 import com.flowpowered.nbt.*;
-import com.flowpowered.nbt.stream.NBTInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,8 +17,14 @@ import java.util.Map;
  *
  */
 public class Schematic implements java.io.Serializable {
+    //The max number of blocks in a schematic (128 million), as the palette index of each block is stored as an int
+    static final int MAX_VOLUME = 128 * 1024 * 1024;
+
+    //Index of each block (x + (y * length + z) * width) in the palette
     int[] blocks;
-    int[] data;
+    //The Block ID and Meta of each palette entry
+    int[] paletteIDs;
+    int[] paletteData;
     short width;
     short length;
     short height;
@@ -30,9 +36,10 @@ public class Schematic implements java.io.Serializable {
     Map<String, EntityValues>  tileEntities;
     List<EntityValues> entities;
 
-    public Schematic(int[] blocks, int[] data, short width, short length, short height, int originX, int originY, int originZ, Map<String, EntityValues>  tileEntities, List<EntityValues> entities) {
+    public Schematic(int[] blocks, int[] paletteIDs, int[] paletteData, short width, short length, short height, int originX, int originY, int originZ, Map<String, EntityValues>  tileEntities, List<EntityValues> entities) {
         this.blocks = blocks;
-        this.data = data;
+        this.paletteIDs = paletteIDs;
+        this.paletteData = paletteData;
         this.width = width;
         this.length = length;
         this.height = height;
@@ -43,16 +50,32 @@ public class Schematic implements java.io.Serializable {
         this.entities = entities;
     }
 
-    public int[] getBlocks() {
-        return blocks;
+    /**
+     * @param index The index of the block (x + (y * length + z) * width)
+     * @return The Block ID of the block
+     */
+    public int getBlock(int index){
+        return paletteIDs[blocks[index]];
     }
 
-    public int getBlock(int index){
+    /**
+     * @param index The index of the block (x + (y * length + z) * width)
+     * @return The Meta of the block
+     */
+    public int getData(int index){
+        return paletteData[blocks[index]];
+    }
+
+    /**
+     * @param index The index of the block (x + (y * length + z) * width)
+     * @return The index of the block in the palette
+     */
+    public int getPaletteIndex(int index){
         return blocks[index];
     }
 
-    public int[] getData() {
-        return data;
+    public int getPaletteSize(){
+        return paletteIDs.length;
     }
 
     public short getWidth() {
@@ -88,24 +111,48 @@ public class Schematic implements java.io.Serializable {
     }
 
     /**
-     * This method read's a schematic and initializes the class object, to be used later
+     * This method read's a schematic and initializes the class object, to be used later.
+     * Besides the legacy MCEdit schematics, the Sponge schematics (.schem), Litematica schematics (.litematic)
+     * and the vanilla structures (.nbt) are read, based on the tags of the file
      * @param stream A InputStream from a schematic resource
      * @return new instance of Schematic
-     * @throws IOException If root tag of schematic isn't a Compound tag
+     * @throws IOException If root tag of schematic isn't a Compound tag, or the format isn't recognized
      */
     public static Schematic loadSchematic(InputStream stream) throws IOException {
 
-        NBTInputStream nbtInputStream = new NBTInputStream(stream);
+        NBTReader nbtReader = new NBTReader(stream);
 
-        Tag<?> rootTag = nbtInputStream.readTag();
+        Tag<?> rootTag = nbtReader.readTag();
+        stream.close();
 
         if(!rootTag.getType().equals(TagType.TAG_COMPOUND))
             throw new IOException("Doesn't start with Compound tag");
 
         CompoundMap nbtData = ((CompoundTag) rootTag).getValue();
 
-        //NBTTagCompound nbtData = CompressedStreamTools.readCompressed(stream);
+        //Sponge schematics v3 wrap the schematic into a Schematic tag
+        if(nbtData.get("Schematic") instanceof CompoundTag)
+            nbtData = ((CompoundTag) nbtData.get("Schematic")).getValue();
+
+        if(nbtData.containsKey("Blocks") && nbtData.get("Blocks") instanceof ByteArrayTag)
+            return loadLegacySchematic(nbtData);
+        else if(nbtData.containsKey("Palette") || nbtData.get("Blocks") instanceof CompoundTag)
+            return PaletteSchematicReader.readSponge(nbtData);
+        else if(nbtData.containsKey("Regions"))
+            return PaletteSchematicReader.readLitematica(nbtData);
+        else if(nbtData.containsKey("size") && nbtData.containsKey("blocks"))
+            return PaletteSchematicReader.readStructure(nbtData);
+
+        throw new IOException("Unknown schematic format");
+    }
 
+    /**
+     * Read the legacy MCEdit schematic, with the Block ID's and Meta's in the Blocks, AddBlocks and Data tags
+     * @param nbtData The root tag of the schematic
+     * @return new instance of Schematic
+     * @throws IOException If the size of the schematic is invalid, or doesn't match It's block data
+     */
+    private static Schematic loadLegacySchematic(CompoundMap nbtData) throws IOException {
         short width = ((ShortTag)nbtData.get("Width")).getValue();
         short length = ((ShortTag)nbtData.get("Length")).getValue();
         short height = ((ShortTag)nbtData.get("Height")).getValue();
@@ -117,15 +164,26 @@ public class Schematic implements java.io.Serializable {
         byte[] blockId = ((ByteArrayTag)nbtData.get("Blocks")).getValue();
         byte[] blockData = ((ByteArrayTag)nbtData.get("Data")).getValue();
 
+        int volume = getVolume(width, height, length);
+        if(blockId.length < volume || blockData.length < volume)
+            throw new IOException("Block data doesn't match the size of the schematic");
+
         boolean extras = false;
         byte[] extraBlocks = null;
         byte[] extraBlocksNibble;
         int[] blocks = new int[blockId.length];
-        int[] data = new int[blockData.length];
+        //The index of the palette entry of each Block ID << 8 | Meta (12 bit Block ID with AddBlocks), or -1 if it isn't in the palette yet
+        int[] paletteIndexes = new int[4096 * 256];
+        Arrays.fill(paletteIndexes, -1);
+        //The Block ID << 8 | Meta of each palette entry
+        int[] paletteKeys = new int[256];
+        int paletteSize = 0;
 
         if (nbtData.containsKey("AddBlocks")) {
             extras = true;
             extraBlocksNibble = ((ByteArrayTag)nbtData.get("AddBlocks")).getValue();
+            if(extraBlocksNibble.length * 2 < volume)
+                throw new IOException("AddBlocks doesn't match the size of the schematic");
             extraBlocks = new byte[extraBlocksNibble.length * 2];
             for(int i = 0; i < extraBlocksNibble.length; i++) {
                 extraBlocks[i * 2] = (byte) ((extraBlocksNibble[i] >> 4) & 0xF);
@@ -133,16 +191,22 @@ public class Schematic implements java.io.Serializable {
             }
         }
 
-        for(int x = 0; x < width; x++) {
-            for(int y = 0; y < height; y++) {
-                for(int z = 0; z < length; z++) {
-                    final int index = x + (y * length + z) * width;
-                    int blockID = (blockId[index] & 0xFF) | (extras ? ((extraBlocks[index] & 0xFF) << 8) : 0);
-                    final int meta = blockData[index] & 0xFF;
-                    blocks[index] = blockID;
-                    data[index] = meta;
-                }
+        //The blocks are stored in the order of their index (x + (y * length + z) * width)
+        for(int index = 0; index < volume; index++) {
+            int blockID = (blockId[index] & 0xFF) | (extras ? ((extraBlocks[index] & 0xFF) << 8) : 0);
+            int key = (blockID << 8) | (blockData[index] & 0xFF);
+
+            int paletteIndex = paletteIndexes[key];
+            if(paletteIndex == -1){
+                paletteIndex = paletteSize++;
+                paletteIndexes[key] = paletteIndex;
+
+                if(paletteIndex == paletteKeys.length)
+                    paletteKeys = Arrays.copyOf(paletteKeys, paletteKeys.length * 2);
+                paletteKeys[paletteIndex] = key;
             }
+
+            blocks[index] = paletteIndex;
         }
 
         Map<String, EntityValues> tileEntities = new HashMap<>();
@@ -165,7 +229,7 @@ public class Schematic implements java.io.Serializable {
                 compoundMap.remove("y");
                 compoundMap.remove("z");
 
-                //Parse through the compoundMap
+                //Wrap the compoundMap, the values get decoded only when a cube model reads them
                 EntityValues values = new EntityValues();
                 values.parseCompoundMap(compoundMap);
 
@@ -183,7 +247,7 @@ public class Schematic implements java.io.Serializable {
                 //Get the CompoundMap
                 CompoundMap compoundMap = compoundTag.getValue();
 
-                //Parse through the compoundMap
+                //Wrap the compoundMap, the values get decoded only when a cube model reads them
                 EntityValues values = new EntityValues();
                 values.parseCompoundMap(compoundMap);
 
@@ -191,12 +255,36 @@ public class Schematic implements java.io.Serializable {
             }
         }
 
-        stream.close();
+        int[] paletteIDs = new int[paletteSize];
+        int[] paletteData = new int[paletteSize];
+        for(int p = 0; p < paletteSize; p++){
+            paletteIDs[p] = paletteKeys[p] >> 8;
+            paletteData[p] = paletteKeys[p] & 0xFF;
+        }
+
+        return new Schematic(blocks, paletteIDs, paletteData, width, length, height, offsetX, offsetY, offsetZ, tileEntities, entities);
+    }
+
+    /**
+     * Get the number of blocks in the schematic, from the size in It's header
+     * @param width The width of the schematic
+     * @param height The height of the schematic
+     * @param length The length of the schematic
+     * @return The number of blocks
+     * @throws IOException If a dimension is negative or bigger than 32767, or the schematic has more than 128 million blocks
+     */
+    static int getVolume(long width, long height, long length) throws IOException {
+        if(width < 0 || height < 0 || length < 0 || width > Short.MAX_VALUE || height > Short.MAX_VALUE || length > Short.MAX_VALUE)
+            throw new IOException(String.format("Invalid schematic size %dx%dx%d", width, height, length));
+
+        long volume = Math.multiplyExact(Math.multiplyExact(width, height), length);
+        if(volume > MAX_VOLUME)
+            throw new IOException(String.format("Schematic has %d blocks, more than the max of %d blocks", volume, MAX_VOLUME));
 
-        return new Schematic(blocks, data, width, length, height, offsetX, offsetY, offsetZ, tileEntities, entities);
+        return (int) volume;
     }
 
-    private static <VALUE, TAG extends Tag<VALUE>> VALUE getOrDefault(TAG tag, VALUE defaultValue) {
+    static <VALUE, TAG extends Tag<VALUE>> VALUE getOrDefault(TAG tag, VALUE defaultValue) {
         if (tag == null) {
             return defaultValue;
         }
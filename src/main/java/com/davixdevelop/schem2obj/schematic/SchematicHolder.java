@@ -1,19 +1,30 @@
 package com.davixdevelop.schem2obj.schematic;
 
 import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.ConversionContext;
 import com.davixdevelop.schem2obj.namespace.Namespace;
 
 import java.util.List;
+import java.util.Map;
 
 public class SchematicHolder {
     private Schematic schematic;
+    //The resolved namespace of each palette entry of the schematic, or null if it wasn't resolved yet
+    private Namespace[] paletteNamespaces;
+
+    private final ConversionContext context;
 
     private int posX;
     private int posY;
     private int posZ;
 
+    public SchematicHolder(ConversionContext context){
+        this.context = context;
+    }
+
     public void setSchematic(Schematic schematic) {
         this.schematic = schematic;
+        paletteNamespaces = new Namespace[schematic.getPaletteSize()];
     }
 
     public short getWidth(){
@@ -33,7 +44,11 @@ public class SchematicHolder {
     public int getOriginZ(){return schematic.originZ;}
 
     public Namespace getNamespace(String id, Integer meta){
-        return Constants.NAMESPACE_MAPPING.getBlockNamespace(id, meta);
+        Namespace namespace = Constants.NAMESPACE_MAPPING.getBlockNamespace(id, meta);
+        if(namespace != null)
+            namespace.setContext(context);
+
+        return namespace;
     }
 
     public Namespace getNamespace(int x, int y, int z){
@@ -41,15 +56,26 @@ public class SchematicHolder {
 
             final int index = x + (y * schematic.getLength() + z) * schematic.getWidth();
 
-            int blockID = schematic.getBlock(index);
+            //Each palette entry is only resolved once, and It's namespace is duplicated for each block
+            int paletteIndex = schematic.getPaletteIndex(index);
+            Namespace paletteNamespace = paletteNamespaces[paletteIndex];
+            if(paletteNamespace == null){
+                int blockID = schematic.getBlock(index);
+
+                int meta = schematic.getData(index);
+
+                //If blockID is negative add 256 to the id to get the actual id of the block
+                if(blockID < 0)
+                    blockID += 256;
 
-            int meta = schematic.getData()[index];
+                paletteNamespace = getNamespace(Integer.toString(blockID), meta);
+                if(paletteNamespace == null)
+                    return null;
 
-            //If blockID is negative add 256 to the id to get the actual id of the block
-            if(blockID < 0)
-                blockID += 256;
+                paletteNamespaces[paletteIndex] = paletteNamespace;
+            }
 
-            Namespace namespace = getNamespace(Integer.toString(blockID), meta);
+            Namespace namespace = paletteNamespace.duplicate();
             namespace.setPosition(new Integer[]{x, y, z});
 
             return namespace;
@@ -58,6 +84,14 @@ public class SchematicHolder {
         return null;
     }
 
+    public int getBlockID(int blockIndex){
+        return schematic.getBlock(blockIndex);
+    }
+
+    public int getBlockData(int blockIndex){
+        return schematic.getData(blockIndex);
+    }
+
     public boolean isAirOrLiquid(int blockIndex){
         int ID = schematic.getBlock(blockIndex);
         return ID == 0 || (ID >= 8 && ID <= 11);
@@ -78,6 +112,7 @@ public class SchematicHolder {
             return null;
 
         namespace.setPosition(new Integer[]{entityIndex});
+        namespace.setContext(context);
         return namespace;
     }
 
@@ -94,4 +129,11 @@ public class SchematicHolder {
     public List<EntityValues> getEntities(){
         return schematic.getEntities();
     }
+
+    /**
+     * @return Map of the tile entities, where the key is the position of the tile entity (x:y:z)
+     */
+    public Map<String, EntityValues> getTileEntities(){
+        return schematic.getTileEntities();
+    }
 }
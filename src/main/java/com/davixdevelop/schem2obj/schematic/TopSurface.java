@@ -0,0 +1,92 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The blocks of the schematic, that can be seen from directly above (ex. for the thumbnails of a web map).
+ * Each column of blocks is scanned from the top down to It's first opaque block, and only the blocks from that block up
+ * (the opaque surface, and the translucent or not full blocks above it, ex. water or glass) are kept,
+ * together with the blocks in the side walls, that rise above the surface of the adjacent columns (ex. the side of a cliff)
+ *
+ * @author DavixDevelop
+ */
+public class TopSurface {
+    private final int width;
+    private final int height;
+    private final int length;
+
+    //The height of the first opaque block of each column (index: x + z * width), or -1 if the column doesn't have one
+    private final int[] surfaceHeights;
+    //The height above which the blocks of each column are kept, as the adjacent columns are lower
+    private final int[] wallHeights;
+
+    public TopSurface(int width, int height, int length){
+        this.width = width;
+        this.height = height;
+        this.length = length;
+
+        surfaceHeights = new int[width * length];
+        wallHeights = new int[width * length];
+        Arrays.fill(surfaceHeights, -1);
+    }
+
+    /**
+     * Scan each column from the top down, until the first opaque block.
+     * The blocks below the opaque block of the column are never checked
+     * @param isOpaque Check if the block (index: x + (y * length + z) * width) is opaque
+     */
+    public void scan(IntPredicate isOpaque){
+        for(int z = 0; z < length; z++){
+            for(int x = 0; x < width; x++){
+                for(int y = height - 1; y >= 0; y--){
+                    if(isOpaque.test(x + (y * length + z) * width)){
+                        surfaceHeights[x + z * width] = y;
+                        break;
+                    }
+                }
+            }
+        }
+
+        //The columns on the sides of the schematic don't show their outer wall, as the sides can't be seen from above
+        for(int z = 0; z < length; z++){
+            for(int x = 0; x < width; x++){
+                int wallHeight = surfaceHeights[x + z * width];
+                if(x > 0)
+                    wallHeight = Math.min(wallHeight, surfaceHeights[x - 1 + z * width]);
+                if(x < width - 1)
+                    wallHeight = Math.min(wallHeight, surfaceHeights[x + 1 + z * width]);
+                if(z > 0)
+                    wallHeight = Math.min(wallHeight, surfaceHeights[x + (z - 1) * width]);
+                if(z < length - 1)
+                    wallHeight = Math.min(wallHeight, surfaceHeights[x + (z + 1) * width]);
+
+                wallHeights[x + z * width] = wallHeight;
+            }
+        }
+    }
+
+    /**
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if the block lies on or above the surface of It's column, or in a wall above an adjacent lower column
+     */
+    public boolean isKept(int x, int y, int z){
+        return y > wallHeights[x + z * width] || y >= surfaceHeights[x + z * width];
+    }
+
+    /**
+     * Check if the space of the block (ex. the position of an entity) lies on or above the surface of It's column
+     * @param x The x position of the block
+     * @param y The y position of the block
+     * @param z The z position of the block
+     * @return True if the space can be seen from above, or it lies outside the schematic
+     */
+    public boolean isSpaceKept(int x, int y, int z){
+        if(x < 0 || x >= width || z < 0 || z >= length)
+            return true;
+
+        return y >= surfaceHeights[x + z * width];
+    }
+}
@@ -0,0 +1,90 @@
+package com.davixdevelop.schem2obj.server;
+
+import com.davixdevelop.schem2obj.resourceloader.TextureCache;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps count of the handled conversion requests, and the latency of the most recent ones
+ *
+ * @author DavixDevelop
+ */
+public class ConversionMetrics {
+    //Number of recent latencies to calculate the percentiles from
+    private static final int LATENCY_WINDOW = 1024;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    //Ring buffers of the most recent latencies in milliseconds
+    private final long[] totalLatencies = new long[LATENCY_WINDOW];
+    private final long[] queueLatencies = new long[LATENCY_WINDOW];
+    private int latencyIndex = 0;
+    private int latencyCount = 0;
+
+    /**
+     * Record a finished conversion
+     * @param succeeded True if the schematic was converted
+     * @param queueMillis Time the request waited for a free worker
+     * @param totalMillis Time from receiving the request, to having the response ready
+     */
+    public synchronized void record(boolean succeeded, long queueMillis, long totalMillis){
+        if(succeeded)
+            completed.incrementAndGet();
+        else
+            failed.incrementAndGet();
+
+        totalLatencies[latencyIndex] = totalMillis;
+        queueLatencies[latencyIndex] = queueMillis;
+        latencyIndex = (latencyIndex + 1) % LATENCY_WINDOW;
+        if(latencyCount < LATENCY_WINDOW)
+            latencyCount++;
+    }
+
+    public void recordRejected(){
+        rejected.incrementAndGet();
+    }
+
+    /**
+     * Format the metrics in the Prometheus text format
+     * @param queueDepth Number of requests waiting for a free worker
+     * @param activeWorkers Number of workers converting a schematic
+     * @return The metrics as text
+     */
+    public synchronized String toText(int queueDepth, int activeWorkers){
+        long[] total = Arrays.copyOf(totalLatencies, latencyCount);
+        long[] queue = Arrays.copyOf(queueLatencies, latencyCount);
+        Arrays.sort(total);
+        Arrays.sort(queue);
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "schem2obj_queue_depth %d\n", queueDepth));
+        text.append(String.format(Locale.ROOT, "schem2obj_active_workers %d\n", activeWorkers));
+        text.append(String.format(Locale.ROOT, "schem2obj_requests_completed %d\n", completed.get()));
+        text.append(String.format(Locale.ROOT, "schem2obj_requests_failed %d\n", failed.get()));
+        text.append(String.format(Locale.ROOT, "schem2obj_requests_rejected %d\n", rejected.get()));
+        text.append(String.format(Locale.ROOT, "schem2obj_latency_ms{quantile=\"0.5\"} %d\n", percentile(total, 0.5)));
+        text.append(String.format(Locale.ROOT, "schem2obj_latency_ms{quantile=\"0.95\"} %d\n", percentile(total, 0.95)));
+        text.append(String.format(Locale.ROOT, "schem2obj_latency_ms{quantile=\"0.99\"} %d\n", percentile(total, 0.99)));
+        text.append(String.format(Locale.ROOT, "schem2obj_queue_wait_ms{quantile=\"0.5\"} %d\n", percentile(queue, 0.5)));
+        text.append(String.format(Locale.ROOT, "schem2obj_queue_wait_ms{quantile=\"0.95\"} %d\n", percentile(queue, 0.95)));
+        text.append(String.format(Locale.ROOT, "schem2obj_texture_cache_hits %d\n", TextureCache.getHits()));
+        text.append(String.format(Locale.ROOT, "schem2obj_texture_cache_misses %d\n", TextureCache.getMisses()));
+        text.append(String.format(Locale.ROOT, "schem2obj_texture_cache_evictions %d\n", TextureCache.getEvictions()));
+        text.append(String.format(Locale.ROOT, "schem2obj_texture_cache_bytes %d\n", TextureCache.getUsedBytes()));
+        text.append(String.format(Locale.ROOT, "schem2obj_texture_cache_max_bytes %d\n", TextureCache.getMaxBytes()));
+
+        return text.toString();
+    }
+
+    private static long percentile(long[] sorted, double quantile){
+        if(sorted.length == 0)
+            return 0;
+
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,382 @@
+package com.davixdevelop.schem2obj.server;
+
+import com.davixdevelop.schem2obj.ConversionContext;
+import com.davixdevelop.schem2obj.SchemeToObj;
+import com.davixdevelop.schem2obj.materials.TextureAtlas;
+import com.davixdevelop.schem2obj.schematic.CameraVisibility;
+import com.davixdevelop.schem2obj.util.LogUtility;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A HTTP server that converts uploaded schematics to a zip of the OBJ, MTL and textures.
+ * The resource packs, block cube models and block materials stay loaded between the requests, with only the most recently used block cube models kept.
+ * The cube models and materials of the tile entities and entities (ex. sign text, banners and player heads)
+ * are cleared once no conversion is using them, or at the latest after every 32 conversions.
+ *
+ * Endpoints:
+ * POST /convert?name=<name>&allBlocks=<true|false>&snowy=<true|false>&christmasChests=<true|false>&atlas=<max size>&mips=<true|false>&lod=<levels, ex. 2,4,shell>&tiles=<tile size>&cullTileSeams=<true|false>&exteriorOnly=<true|false>&topSurface=<true|false>&cameras=<x,y,z;x,y,z> with the schematic (.schematic, .schem, .litematic or .nbt) as the body,
+ * of at most the max upload size (64 MB by default)
+ * GET /metrics
+ *
+ * @author DavixDevelop
+ */
+public class ConversionServer {
+    //Max number of conversions, that can share the cube models and materials of the tile entities and entities, before they are cleared
+    private static final int MAX_CONVERSIONS_BETWEEN_CLEARS = 32;
+    //Max number of block cube models kept between the requests, the least recently used ones are evicted
+    public static final int MAX_CACHED_CUBE_MODELS = 16384;
+    public static final int DEFAULT_MAX_UPLOAD_MB = 64;
+
+    private final SchemeToObj converter;
+    private final ConversionContext defaultContext;
+
+    //Bounded pool that converts the schematics
+    private final ThreadPoolExecutor workers;
+    private final ConversionMetrics metrics;
+
+    //The conversions hold the read lock, and the cube models and materials get cleared or evicted under the write lock
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    private final AtomicInteger conversionsSinceClear = new AtomicInteger();
+
+    private HttpServer server;
+
+    //Max size of an uploaded schematic in bytes, the bigger uploads are rejected
+    private long maxUploadSize = DEFAULT_MAX_UPLOAD_MB * 1024L * 1024L;
+
+    /**
+     * @param converter The converter to use for all requests
+     * @param defaultContext The context with the default export flags, which gets copied for each request
+     * @param workerCount Number of schematics to convert at the same time
+     * @param queueSize Number of requests to keep waiting for a free worker, before rejecting new ones
+     */
+    public ConversionServer(SchemeToObj converter, ConversionContext defaultContext, int workerCount, int queueSize){
+        this.converter = converter;
+        this.defaultContext = defaultContext;
+
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize));
+        metrics = new ConversionMetrics();
+
+        converter.setKeepCache(true);
+    }
+
+    /**
+     * Set the max size of an uploaded schematic
+     * @param maxUploadSize The max size in bytes
+     */
+    public void setMaxUploadSize(long maxUploadSize){
+        this.maxUploadSize = maxUploadSize;
+    }
+
+    public boolean start(int port){
+        try{
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/convert", this::handleConvert);
+            server.createContext("/metrics", this::handleMetrics);
+            //Requests only wait on the workers, so they can be handled by a cached pool
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+
+            LogUtility.Log(String.format("Conversion server listening on port %d", port));
+            return true;
+        }catch (IOException ex){
+            LogUtility.Log(ex.getMessage());
+            return false;
+        }
+    }
+
+    public void stop(){
+        if(server != null)
+            server.stop(0);
+        workers.shutdown();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] body = metrics.toText(workers.getQueue().size(), workers.getActiveCount()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendResponse(exchange, 200, body);
+    }
+
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        long received = System.nanoTime();
+
+        if(!exchange.getRequestMethod().equals("POST")){
+            sendText(exchange, 405, "Upload the schematic with a POST request");
+            return;
+        }
+
+        //Reject the uploads, that announce a bigger size, before reading them
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if(contentLength != null){
+            try{
+                if(Long.parseLong(contentLength.trim()) > maxUploadSize){
+                    sendUploadTooLarge(exchange);
+                    return;
+                }
+            }catch (NumberFormatException ex){
+                sendText(exchange, 400, "Invalid Content-Length");
+                return;
+            }
+        }
+
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        //Only allow simple names, as the name is used for the output files
+        String name = query.getOrDefault("name", "schematic").replaceAll("[^A-Za-z0-9_\\-]", "_");
+        if(name.isEmpty())
+            name = "schematic";
+
+        ConversionContext context = new ConversionContext(
+                getFlag(query, "allBlocks", defaultContext.isExportAllBlocks()),
+                getFlag(query, "snowy", defaultContext.isSnowy()),
+                getFlag(query, "christmasChests", defaultContext.isChristmasChest()));
+
+        context.setExportMips(getFlag(query, "mips", defaultContext.isExportMips()));
+
+        //Max size of the texture atlases, 0 disables them
+        context.setAtlasSize(defaultContext.getAtlasSize());
+        if(query.containsKey("atlas")){
+            try{
+                String value = query.get("atlas");
+                int atlasSize = value.equals("true") ? TextureAtlas.DEFAULT_SIZE : Integer.parseInt(value);
+                context.setAtlasSize(atlasSize > 0 ? Math.max(16, atlasSize) : 0);
+            }catch (NumberFormatException ex){
+                sendText(exchange, 400, "Invalid atlas size");
+                return;
+            }
+        }
+
+        context.setCullTileSeams(getFlag(query, "cullTileSeams", defaultContext.isCullTileSeams()));
+        context.setExteriorOnly(getFlag(query, "exteriorOnly", defaultContext.isExteriorOnly()));
+        context.setTopSurface(getFlag(query, "topSurface", defaultContext.isTopSurface()));
+
+        //Positions of the cameras, the faces no camera can see get dropped
+        context.setCameras(defaultContext.getCameras());
+        if(query.containsKey("cameras")){
+            List<double[]> cameras = CameraVisibility.parseCameras(query.get("cameras"));
+            if(cameras == null){
+                sendText(exchange, 400, "Invalid camera positions");
+                return;
+            }
+            context.setCameras(cameras);
+        }
+
+        //Number of block columns on the X and Z axis of each output tile, 0 writes a single OBJ
+        context.setTileSize(defaultContext.getTileSize());
+        if(query.containsKey("tiles")){
+            try{
+                context.setTileSize(Math.max(0, Integer.parseInt(query.get("tiles"))));
+            }catch (NumberFormatException ex){
+                sendText(exchange, 400, "Invalid tile size");
+                return;
+            }
+        }
+
+        //Coarse levels of detail, written next to the full detail OBJ
+        context.setLodCellSizes(defaultContext.getLodCellSizes());
+        context.setLodShell(defaultContext.isLodShell());
+        if(query.containsKey("lod")){
+            String value = query.get("lod");
+            if(!context.setLevelsOfDetail(value.equals("true") ? ConversionContext.DEFAULT_LEVELS_OF_DETAIL : value.equals("false") ? "" : value)){
+                sendText(exchange, 400, "Invalid levels of detail");
+                return;
+            }
+        }
+
+        Path workFolder = null;
+        try{
+            workFolder = Files.createTempDirectory("schem2obj");
+            Path schematicFile = workFolder.resolve("input.schematic");
+            if(!copyUpload(exchange.getRequestBody(), schematicFile)){
+                sendUploadTooLarge(exchange);
+                return;
+            }
+
+            Path outputFolder = Files.createDirectory(workFolder.resolve("output"));
+            Path objFile = outputFolder.resolve(String.format("%s.obj", name));
+
+            long[] started = new long[]{0};
+            Future<Boolean> result;
+            try{
+                result = workers.submit(() -> {
+                    started[0] = System.nanoTime();
+
+                    //If the cache wasn't cleared for a while, wait for the running conversions to finish, and clear it first
+                    if(conversionsSinceClear.get() >= MAX_CONVERSIONS_BETWEEN_CLEARS)
+                        clearCache(true);
+
+                    cacheLock.readLock().lock();
+                    try{
+                        return converter.exportScheme(schematicFile.toString(), objFile.toString(), context);
+                    }finally {
+                        cacheLock.readLock().unlock();
+                        conversionsSinceClear.incrementAndGet();
+                        clearCache(false);
+                    }
+                });
+            }catch (RejectedExecutionException ex){
+                metrics.recordRejected();
+                sendText(exchange, 503, "Too many conversions waiting, try again later");
+                return;
+            }
+
+            boolean converted = result.get();
+            long queueMillis = (started[0] - received) / 1000000;
+
+            if(!converted){
+                metrics.record(false, queueMillis, (System.nanoTime() - received) / 1000000);
+                sendText(exchange, 422, "Failed to convert schematic to OBJ");
+                return;
+            }
+
+            byte[] zip = zipFolder(outputFolder);
+            metrics.record(true, queueMillis, (System.nanoTime() - received) / 1000000);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.getResponseHeaders().set("Content-Disposition", String.format("attachment; filename=\"%s.zip\"", name));
+            sendResponse(exchange, 200, zip);
+
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+            metrics.record(false, 0, (System.nanoTime() - received) / 1000000);
+            sendText(exchange, 500, "Error while converting schematic");
+        }finally {
+            if(workFolder != null)
+                deleteFolder(workFolder);
+        }
+    }
+
+    /**
+     * Copy the uploaded schematic to the file, until it exceeds the max upload size
+     * @param body The body of the request
+     * @param file The file to copy the schematic to
+     * @return True if the whole schematic was copied, false if it's bigger than the max upload size
+     */
+    private boolean copyUpload(InputStream body, Path file) throws IOException {
+        byte[] buffer = new byte[65536];
+        long size = 0;
+
+        try(OutputStream outputStream = Files.newOutputStream(file)){
+            int read;
+            while((read = body.read(buffer)) != -1){
+                size += read;
+                if(size > maxUploadSize)
+                    return false;
+
+                outputStream.write(buffer, 0, read);
+            }
+        }
+
+        return true;
+    }
+
+    private void sendUploadTooLarge(HttpExchange exchange) throws IOException {
+        metrics.recordRejected();
+        sendText(exchange, 413, String.format("The schematic is bigger than the max upload size of %d bytes", maxUploadSize));
+    }
+
+    /**
+     * Clear the cube models and materials of the tile entities and entities, and evict the least recently used block cube models,
+     * while keeping the resource packs, the other block cube models and the block materials loaded
+     * @param wait True to wait for the running conversions to finish, else the cache is only cleared if no conversion is running
+     */
+    private void clearCache(boolean wait){
+        if(wait)
+            cacheLock.writeLock().lock();
+        else if(!cacheLock.writeLock().tryLock())
+            return;
+
+        try{
+            converter.clearSchematicCache(MAX_CACHED_CUBE_MODELS);
+            conversionsSinceClear.set(0);
+        }finally {
+            cacheLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zip all files in the folder, and It's sub folders
+     * @param folder The folder with the OBJ, MTL and texture folder
+     * @return The bytes of the zip
+     */
+    private static byte[] zipFolder(Path folder) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try(ZipOutputStream zipStream = new ZipOutputStream(outputStream); Stream<Path> paths = Files.walk(folder)){
+            List<Path> files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            for(Path file : files){
+                //Zip entries always use / as the separator
+                zipStream.putNextEntry(new ZipEntry(folder.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, zipStream);
+                zipStream.closeEntry();
+            }
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    private static void deleteFolder(Path folder){
+        try(Stream<Path> paths = Files.walk(folder)){
+            //Delete the files first, and then the folders
+            List<Path> sorted = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for(Path path : sorted)
+                Files.deleteIfExists(path);
+        }catch (IOException ex){
+            LogUtility.Log(ex.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery){
+        Map<String, String> query = new HashMap<>();
+        if(rawQuery == null || rawQuery.isEmpty())
+            return query;
+
+        for(String pair : rawQuery.split("&")){
+            int separator = pair.indexOf('=');
+            try{
+                if(separator > 0)
+                    query.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                else
+                    query.put(URLDecoder.decode(pair, "UTF-8"), "true");
+            }catch (UnsupportedEncodingException ex){
+                LogUtility.Log(ex.getMessage());
+            }
+        }
+
+        return query;
+    }
+
+    private static boolean getFlag(Map<String, String> query, String key, boolean defaultValue){
+        if(!query.containsKey(key))
+            return defaultValue;
+
+        return Boolean.parseBoolean(query.get(key));
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendResponse(exchange, status, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream outputStream = exchange.getResponseBody()){
+            outputStream.write(body);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.davixdevelop.schem2obj.util;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A summed-area table of the non-opaque pixels of an image,
+ * used to check if any rectangle of the image has transparent pixels in constant time
+ *
+ * @author DavixDevelop
+ */
+public class AlphaIndex {
+    //Index of an image without any non-opaque pixels
+    static final AlphaIndex OPAQUE = new AlphaIndex(null, 0, 0, null);
+
+    //The image the index was built from, or null if the image isn't stored in memory
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+    //(width + 1) * (height + 1) table, where each value is the count of non-opaque pixels above and left of it
+    private final int[] table;
+
+    private AlphaIndex(BufferedImage image, int width, int height, int[] table){
+        this.image = image;
+        this.width = width;
+        this.height = height;
+        this.table = table;
+    }
+
+    /**
+     * Build the index from the image
+     * @param image The image with an alpha channel, or a grayscale image of the alpha channel
+     * @param source The image to store in the index, to later check if the index is still valid
+     * @return The alpha index of the image
+     */
+    public static AlphaIndex fromImage(BufferedImage image, BufferedImage source){
+        boolean isGrayscale = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+
+        if(!isGrayscale && image.getTransparency() != 3)
+            return source == null ? OPAQUE : new AlphaIndex(source, 0, 0, null);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ImageUtility.readPixels(image);
+
+        int stride = width + 1;
+        int[] table = new int[stride * (height + 1)];
+        int nonOpaque = 0;
+
+        for(int y = 0; y < height; y++){
+            int rowCount = 0;
+            for(int x = 0; x < width; x++){
+                int color = pixels[y * width + x];
+                int alpha = (isGrayscale) ? (color >> 16 & 255) : (color >> 24 & 255);
+                if(alpha != 255)
+                    rowCount++;
+
+                table[(y + 1) * stride + x + 1] = table[y * stride + x + 1] + rowCount;
+            }
+            nonOpaque += rowCount;
+        }
+
+        if(nonOpaque == 0)
+            return source == null ? OPAQUE : new AlphaIndex(source, 0, 0, null);
+
+        return new AlphaIndex(source, width, height, table);
+    }
+
+    /**
+     * @param image The current image of the material
+     * @return True if the index was built from the image
+     */
+    public boolean isIndexOf(BufferedImage image){
+        return this.image == image;
+    }
+
+    /**
+     * Check if the rectangle contains any non-opaque pixels.
+     * The rectangle is clipped by the bounds of the image
+     * @param x_min Left edge (inclusive)
+     * @param y_min Top edge (inclusive)
+     * @param x_max Right edge (exclusive)
+     * @param y_max Bottom edge (exclusive)
+     * @return True if any pixel in the rectangle isn't opaque
+     */
+    public boolean hasAlpha(int x_min, int y_min, int x_max, int y_max){
+        if(table == null)
+            return false;
+
+        x_min = Math.max(x_min, 0);
+        y_min = Math.max(y_min, 0);
+        x_max = Math.min(x_max, width);
+        y_max = Math.min(y_max, height);
+
+        if(x_min >= x_max || y_min >= y_max)
+            return false;
+
+        int stride = width + 1;
+        int count = table[y_max * stride + x_max] - table[y_min * stride + x_max] - table[y_max * stride + x_min] + table[y_min * stride + x_min];
+
+        return count > 0;
+    }
+
+    /**
+     * Check if the uv rectangle contains any non-opaque pixels
+     * @param uv_min_x Min x of the uv's
+     * @param uv_min_y Min y of the uv's
+     * @param uv_max_x Max x of the uv's
+     * @param uv_max_y Max y of the uv's
+     * @return True if any pixel in the uv rectangle isn't opaque
+     */
+    public boolean hasAlpha(double uv_min_x, double uv_min_y, double uv_max_x, double uv_max_y){
+        if(table == null)
+            return false;
+
+        int x_min = (int) Math.round(width * uv_min_x);
+        int x_max = (int) Math.round(width * uv_max_x);
+
+        int y_min = (int) Math.round((1.0 - uv_max_y) * height);
+        int y_max = (int) Math.round((1.0 - uv_min_y) * height);
+
+        return hasAlpha(x_min, y_min, x_max, y_max);
+    }
+}
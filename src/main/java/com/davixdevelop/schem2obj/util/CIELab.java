@@ -62,7 +62,7 @@ public class CIELab extends ColorSpace {
         super(ColorSpace.TYPE_Lab, 3);
     }
 
-    private static double f(double x) {
+    static double f(double x) {
         if (x > 216.0 / 24389.0) {
             return Math.cbrt(x);
         } else {
@@ -70,7 +70,7 @@ public class CIELab extends ColorSpace {
         }
     }
 
-    private static double fInv(double x) {
+    static double fInv(double x) {
         if (x > 6.0 / 29.0) {
             return x*x*x;
         } else {
@@ -4,25 +4,26 @@ import com.davixdevelop.schem2obj.materials.IMaterial;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.*;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 public class ImageUtility {
+    /**
+     * Write the image to the file, in the output texture format (see TextureWriter)
+     * @param bufferedImage The image to write
+     * @param filePath The path to the output file, ex. <textureFolder>/dirt.png
+     */
     public static void copyImageToFile(BufferedImage bufferedImage, String filePath){
-        //InputStream assetStream = this.getClass().getClassLoader().getResourceAsStream("assets/" + asset);
-
-        try {
-            InputStream imageStream = toInputStream(bufferedImage);
-
-            copyImageStreamToFile(imageStream, filePath);
-        }catch (Exception ex){
-            LogUtility.Log(String.format("Could not read BufferedImage to InputStream for output image path: %s", filePath));
-            LogUtility.Log(ex.getMessage());
-        }
-
+        TextureWriter.write(bufferedImage, filePath);
     }
 
     public static void copyImageStreamToFile(InputStream imageStream, String filePath){
@@ -83,60 +84,42 @@ public class ImageUtility {
         return null;
     }
 
-    static HashMap<String, BufferedImage> LOADED_ALPHA_IMAGES = new HashMap<>();
+    //Alpha indexes of the materials diffuse images, key: material name
+    static Map<String, AlphaIndex> LOADED_ALPHA_INDEXES = new ConcurrentHashMap<>();
 
     public static boolean hasAlpha(IMaterial material, List<Double[]> UV){
         try {
-            BufferedImage image;
-
-            if(material.storeDiffuseImage())
-                image = material.getDiffuseImage();
-            else {
-                if(!LOADED_ALPHA_IMAGES.containsKey(material.getName())){
-                    BufferedImage diffuseImage = material.getDiffuseImage();
-
-                    if(diffuseImage.getTransparency() != 3)
-                        return false;
-
-                    //Strip the R G B channels, to only store the alpha channel in memory
-                    LOADED_ALPHA_IMAGES.put(material.getName(), extractAlphaChannel(diffuseImage));
+            AlphaIndex alphaIndex = LOADED_ALPHA_INDEXES.get(material.getName());
+
+            if(material.storeDiffuseImage()){
+                //The diffuse image of materials stored in memory can be replaced, so check if the index is still valid
+                BufferedImage image = material.getDiffuseImage();
+                if(alphaIndex == null || !alphaIndex.isIndexOf(image)){
+                    alphaIndex = AlphaIndex.fromImage(image, image);
+                    LOADED_ALPHA_INDEXES.put(material.getName(), alphaIndex);
                 }
-
-                image = LOADED_ALPHA_IMAGES.get(material.getName());
+            }
+            else if(alphaIndex == null){
+                alphaIndex = LOADED_ALPHA_INDEXES.computeIfAbsent(material.getName(), key -> AlphaIndex.fromImage(material.getDiffuseImage(), null));
             }
 
+            double uv_min_x = Double.MAX_VALUE;
+            double uv_max_x = -Double.MAX_VALUE;
+            double uv_min_y = Double.MAX_VALUE;
+            double uv_max_y = -Double.MAX_VALUE;
 
-            boolean hasTransparency = (image.getType() == BufferedImage.TYPE_BYTE_GRAY) || (image.getTransparency() == 3);
-            if(hasTransparency){
-                Double uv_min_x = UV.stream().min(Comparator.comparing(v -> v[0])).get()[0]; //Min x
-                Double uv_max_x = UV.stream().max(Comparator.comparing(v -> v[0])).get()[0]; //Max x
-                Double uv_min_y = UV.stream().min(Comparator.comparing(v -> v[1])).get()[1]; //Min y
-                Double uv_max_y = UV.stream().max(Comparator.comparing(v -> v[1])).get()[1]; //Max y
-
-                int x_min = (int) Math.round(image.getWidth() * uv_min_x);
-                int x_max = (int) Math.round(image.getWidth() * uv_max_x);
-
-                int y_min = (int) Math.round((1.0 - uv_max_y) * image.getHeight());
-                int y_max = (int) Math.round((1.0 - uv_min_y) * image.getHeight());
-
-                boolean isGrayscale = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
-
-                for(int y = y_min ;y < y_max; y++){
-                    for(int x = x_min ;x < x_max; x++){
-                        int color = image.getRGB(x, y);
-                        float alpha = (isGrayscale) ? (float)(color >> 16 & 255) : (float)(color >> 24 & 255);
-                        if(alpha != 255.0) {
-                            return true;
-                        }
-                    }
-                }
+            for(Double[] uv : UV){
+                uv_min_x = Math.min(uv_min_x, uv[0]);
+                uv_max_x = Math.max(uv_max_x, uv[0]);
+                uv_min_y = Math.min(uv_min_y, uv[1]);
+                uv_max_y = Math.max(uv_max_y, uv[1]);
             }
 
+            return alphaIndex.hasAlpha(uv_min_x, uv_min_y, uv_max_x, uv_max_y);
+
         }catch (Exception ex){
             return false;
         }
-
-        return false;
     }
 
     public static BufferedImage extractAlphaChannel(BufferedImage bufferedImage){
@@ -213,68 +196,68 @@ public class ImageUtility {
      */
     public static BufferedImage maskImage(BufferedImage image, BufferedImage mask,double mixFactor){
         try {
-            BufferedImage maskedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int maskWidth = mask.getWidth();
 
-            Color color;
-            Color maskColor;
+            BufferedImage maskedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+            final int[] pixels = readPixels(image);
+            final int[] maskPixels = readPixels(mask);
 
             int max_alpha = -1;
             int min_alpha = -1;
             int values = 0;
             boolean transparent = true;
-            for(int y = 0; y < mask.getHeight(); y++){
-                for(int x = 0; x < mask.getWidth(); x++){
-                    int m = mask.getRGB(x , y);
-                    maskColor = new Color(m);
-
-                    if(max_alpha == -1){
-                        max_alpha = maskColor.getRed();
-                        min_alpha = maskColor.getRed();
-                        values = maskColor.getRed();
-                    }
-                    if(maskColor.getRed() > max_alpha)
-                        max_alpha = maskColor.getRed();
-                    else if(maskColor.getRed() < min_alpha)
-                        min_alpha = maskColor.getRed();
+            for(int m : maskPixels){
+                int red = m >> 16 & 255;
 
-                    if(values != maskColor.getRed())
-                        transparent = false;
+                if(max_alpha == -1){
+                    max_alpha = red;
+                    min_alpha = red;
+                    values = red;
                 }
-            }
+                if(red > max_alpha)
+                    max_alpha = red;
+                else if(red < min_alpha)
+                    min_alpha = red;
 
+                if(values != red)
+                    transparent = false;
+            }
 
-            for(int x = 0; x < image.getWidth(); x++){
-                for(int y = 0; y < image.getHeight(); y++){
-                    int col = image.getRGB(x, y);
-                    color = new Color(col);
-
-                    int m = mask.getRGB((x * mask.getWidth()) / image.getWidth(), (y * mask.getHeight()) / image.getHeight());
-                    maskColor = new Color(m);
-
-                    int alpha = maskColor.getRed();
-                    int r = color.getRed();
-                    int b = color.getBlue();
-                    int g = color.getGreen();
-
-
-                    if(mixFactor != 0.0)
-                    {
-                        if(alpha != 0 || min_alpha == 0 && !transparent) {
-                            int a = (int) Math.round(255 * mixFactor);
-                            if (alpha < a) {
-                                alpha = a;
-                            } else {
-                                a = (int) Math.round((1 / mixFactor) * (alpha * mixFactor));
-                                alpha = ColorUtility.clipRGB(a + alpha);
-                            }
+            //The new alpha only depends on the mask value, so calculate it once for every possible value
+            final int[] alphaTable = new int[256];
+            for(int alpha = 0; alpha < 256; alpha++){
+                alphaTable[alpha] = alpha;
+
+                if(mixFactor != 0.0)
+                {
+                    if(alpha != 0 || min_alpha == 0 && !transparent) {
+                        int a = (int) Math.round(255 * mixFactor);
+                        if (alpha < a) {
+                            alphaTable[alpha] = a;
+                        } else {
+                            a = (int) Math.round((1 / mixFactor) * (alpha * mixFactor));
+                            alphaTable[alpha] = ColorUtility.clipRGB(a + alpha);
                         }
                     }
+                }
+            }
 
+            final int[] maskX = scaleIndexes(width, maskWidth);
+            final int[] maskY = scaleIndexes(height, mask.getHeight());
+            final int[] masked = pixelTarget(maskedImage);
 
-                    color = new Color(r, g, b, alpha);
-                    maskedImage.setRGB(x, y, color.getRGB());
+            forEachRow(width, height, y -> {
+                int maskRow = maskY[y] * maskWidth;
+                for(int x = 0, i = y * width; x < width; x++, i++){
+                    int alpha = alphaTable[maskPixels[maskRow + maskX[x]] >> 16 & 255];
+                    masked[i] = (pixels[i] & 0xFFFFFF) | alpha << 24;
                 }
-            }
+            });
+
+            writePixels(maskedImage, masked);
 
             return maskedImage;
 
@@ -287,28 +270,33 @@ public class ImageUtility {
 
     public static BufferedImage maskImage(BufferedImage image, BufferedImage image2){
         try{
-            boolean hasOverlayAlpha = image2.getTransparency() == 3;
-            BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-
-            for(int x = 0; x < image.getWidth(); x++){
-                for(int y = 0; y < image.getHeight(); y++){
-                    final int color1 = image.getRGB(x, y);
-                    final int x1 = (x * image2.getWidth()) / image.getWidth();
-                    final int y1 = (y * image2.getHeight()) / image.getHeight();
-                    final int color2 = image2.getRGB(x1, y1);
-
-                    Color originalColor = new Color(color1);
-                    Color maskColor = new Color(color2, hasOverlayAlpha);
-                    if(maskColor.getAlpha() != 0){
-                        combinedImage.setRGB(x, y, originalColor.getRGB());
-                    }else
-                    {
-                        combinedImage.setRGB(x, y, maskColor.getRGB());
-                    }
-
-
+            final boolean hasOverlayAlpha = image2.getTransparency() == 3;
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int maskWidth = image2.getWidth();
+
+            BufferedImage combinedImage = new BufferedImage(width, height, image.getType());
+
+            final int[] pixels = readPixels(image);
+            final int[] maskPixels = readPixels(image2);
+            final int[] maskX = scaleIndexes(width, maskWidth);
+            final int[] maskY = scaleIndexes(height, image2.getHeight());
+            final int[] combined = pixelTarget(combinedImage);
+
+            forEachRow(width, height, y -> {
+                int maskRow = maskY[y] * maskWidth;
+                for(int x = 0, i = y * width; x < width; x++, i++){
+                    int maskColor = maskPixels[maskRow + maskX[x]];
+
+                    //Only a mask with an alpha channel can have a transparent pixel
+                    if(hasOverlayAlpha && (maskColor >>> 24) == 0)
+                        combined[i] = maskColor;
+                    else
+                        combined[i] = pixels[i] | 0xFF000000;
                 }
-            }
+            });
+
+            writePixels(combinedImage, combined);
 
             return combinedImage;
 
@@ -327,23 +315,26 @@ public class ImageUtility {
      */
     public static BufferedImage colorImage(BufferedImage bufferedImage, int color, boolean ...isMask){
 
-        float multiRed = (float)(color >> 16 & 255) / 255.0f;
-        float multiGreen = (float)(color >> 8 & 255) / 255.0f;
-        float multiBlue = (float) (color & 255) / 255.0f;
+        final float multiRed = (float)(color >> 16 & 255) / 255.0f;
+        final float multiGreen = (float)(color >> 8 & 255) / 255.0f;
+        final float multiBlue = (float) (color & 255) / 255.0f;
 
-        boolean masked = false;
-
-        if(isMask.length > 0)
-            masked = isMask[0];
+        final boolean masked = isMask.length > 0 && isMask[0];
 
         try {
-            BufferedImage coloredImage = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), bufferedImage.getType());
+            final int width = bufferedImage.getWidth();
+            final int height = bufferedImage.getHeight();
+
+            BufferedImage coloredImage = new BufferedImage(width, height, bufferedImage.getType());
+
+            final boolean hasAlpha = bufferedImage.getTransparency() == 3;
 
-            boolean hasAlpha = bufferedImage.getTransparency() == 3;
+            final int[] pixels = readPixels(bufferedImage);
+            final int[] colored = pixelTarget(coloredImage);
 
-            for(int x = 0; x < bufferedImage.getWidth(); x++){
-                for(int y = 0; y < bufferedImage.getHeight(); y++){
-                    int c = bufferedImage.getRGB(x, y);
+            forEachRow(width, height, y -> {
+                for(int i = y * width, end = i + width; i < end; i++){
+                    int c = pixels[i];
 
                     float alpha = 0.0f;
 
@@ -365,11 +356,11 @@ public class ImageUtility {
                         }
                     }
 
-                    int new_color = (int)r << 16 | (int)g << 8 | (int)b | (int)alpha << 24;
-
-                    coloredImage.setRGB(x, y, new_color);
+                    colored[i] = (int)r << 16 | (int)g << 8 | (int)b | (int)alpha << 24;
                 }
-            }
+            });
+
+            writePixels(coloredImage, colored);
 
             return coloredImage;
 
@@ -382,31 +373,40 @@ public class ImageUtility {
 
     public static BufferedImage multiplyImage(BufferedImage image, BufferedImage multiplyImage){
         try{
-            boolean hasMultiplyAlpha = multiplyImage.getTransparency() == 3;
-            BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            final boolean hasMultiplyAlpha = multiplyImage.getTransparency() == 3;
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int multiplyWidth = multiplyImage.getWidth();
 
-            for(int x = 0; x < image.getWidth(); x++){
-                for(int y = 0; y < image.getHeight(); y++){
-                    final int color1 = image.getRGB(x, y);
-                    final int x1 = (x * multiplyImage.getWidth()) / image.getWidth();
-                    final int y1 = (y * multiplyImage.getHeight()) / image.getHeight();
-                    final int color2 = multiplyImage.getRGB(x1, y1);
+            BufferedImage combinedImage = new BufferedImage(width, height, image.getType());
 
-                    Color originalColor = new Color(color1);
-                    Color multiplyColor = new Color(color2, hasMultiplyAlpha);
+            final int[] pixels = readPixels(image);
+            final int[] multiplyPixels = readPixels(multiplyImage);
+            final int[] multiplyX = scaleIndexes(width, multiplyWidth);
+            final int[] multiplyY = scaleIndexes(height, multiplyImage.getHeight());
+            final int[] combined = pixelTarget(combinedImage);
 
-                    if(originalColor.getAlpha() != 0 && multiplyColor.getAlpha() != 0) {
+            forEachRow(width, height, y -> {
+                int multiplyRow = multiplyY[y] * multiplyWidth;
+                for(int x = 0, i = y * width; x < width; x++, i++){
+                    //The alpha of the original image is ignored
+                    int originalColor = pixels[i] | 0xFF000000;
+                    int multiplyColor = multiplyPixels[multiplyRow + multiplyX[x]];
 
-                        int red = (originalColor.getRed() * multiplyColor.getRed()) / 255;
-                        int green = (originalColor.getGreen() * multiplyColor.getGreen()) / 255;
-                        int blue = (originalColor.getBlue() * multiplyColor.getBlue()) / 255;
+                    if(!hasMultiplyAlpha || (multiplyColor >>> 24) != 0) {
 
-                        originalColor = new Color(ColorUtility.clipRGB(Math.abs(red)), ColorUtility.clipRGB(Math.abs(green)), ColorUtility.clipRGB(Math.abs(blue)), originalColor.getAlpha());
+                        int red = ((originalColor >> 16 & 255) * (multiplyColor >> 16 & 255)) / 255;
+                        int green = ((originalColor >> 8 & 255) * (multiplyColor >> 8 & 255)) / 255;
+                        int blue = ((originalColor & 255) * (multiplyColor & 255)) / 255;
+
+                        originalColor = 0xFF000000 | red << 16 | green << 8 | blue;
 
                     }
-                    combinedImage.setRGB(x, y, originalColor.getRGB());
+                    combined[i] = originalColor;
                 }
-            }
+            });
+
+            writePixels(combinedImage, combined);
 
             return combinedImage;
 
@@ -419,31 +419,116 @@ public class ImageUtility {
 
     public static BufferedImage overlayImage(BufferedImage image, BufferedImage overlay){
         try{
-            boolean hasOverlayAlpha = overlay.getTransparency() == 3;
-            boolean hasImageAlpha = image.getTransparency() == 3;
-            BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            final boolean hasOverlayAlpha = overlay.getTransparency() == 3;
+            final boolean hasImageAlpha = image.getTransparency() == 3;
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int overlayWidth = overlay.getWidth();
+
+            BufferedImage combinedImage = new BufferedImage(width, height, image.getType());
+
+            final int[] pixels = readPixels(image);
+            final int[] overlayPixels = readPixels(overlay);
+            final int[] overlayX = scaleIndexes(width, overlayWidth);
+            final int[] overlayY = scaleIndexes(height, overlay.getHeight());
+            final int[] combined = pixelTarget(combinedImage);
+
+            //Images without an alpha channel are fully opaque
+            final int imageAlpha = hasImageAlpha ? 0 : 0xFF000000;
+            final int overlayAlpha = hasOverlayAlpha ? 0 : 0xFF000000;
+
+            forEachRow(width, height, y -> {
+                int overlayRow = overlayY[y] * overlayWidth;
+                for(int x = 0, i = y * width; x < width; x++, i++){
+                    int overlayColor = overlayPixels[overlayRow + overlayX[x]] | overlayAlpha;
+
+                    if((overlayColor >>> 24) != 0)
+                        combined[i] = overlayColor;
+                    else
+                        combined[i] = pixels[i] | imageAlpha;
+                }
+            });
 
-            for(int x = 0; x < image.getWidth(); x++){
-                for(int y = 0; y < image.getHeight(); y++){
-                    final int color1 = image.getRGB(x, y);
-                    final int x1 = (x * overlay.getWidth()) / image.getWidth();
-                    final int y1 = (y * overlay.getHeight()) / image.getHeight();
-                    final int color2 = overlay.getRGB(x1, y1);
-
-                    Color originalColor = new Color(color1, hasImageAlpha);
-                    Color overlayColor = new Color(color2, hasOverlayAlpha);
-                    if(overlayColor.getAlpha() != 0){
-                        originalColor = overlayColor;
+            writePixels(combinedImage, combined);
+
+            return combinedImage;
+
+        }catch (Exception ex){
+            LogUtility.Log("Failed to combine images");
+            LogUtility.Log(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Composite the colored pattern layers onto the image in a single pass over the pixels.
+     * Each layer gives the same result as multiplying the image with the layer,
+     * masking the result with the layer and overlaying it on the previous layers
+     * @param image The image the layers get multiplied with, ex. the banner base
+     * @param layers The colored pattern layers, from the bottom to the top
+     * @return The composited image
+     */
+    public static BufferedImage compositeLayers(BufferedImage image, List<BufferedImage> layers){
+        try{
+            final boolean hasImageAlpha = image.getTransparency() == 3;
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final int layerCount = layers.size();
+
+            BufferedImage compositeImage = new BufferedImage(width, height, image.getType());
+
+            final int[] pixels = readPixels(image);
+            final int[] composite = pixelTarget(compositeImage);
+
+            final int[][] layerPixels = new int[layerCount][];
+            final int[][] layerX = new int[layerCount][];
+            final int[][] layerY = new int[layerCount][];
+            final int[] layerWidths = new int[layerCount];
+            final boolean[] hasLayerAlpha = new boolean[layerCount];
+
+            for(int l = 0; l < layerCount; l++){
+                BufferedImage layer = layers.get(l);
+                layerPixels[l] = readPixels(layer);
+                layerWidths[l] = layer.getWidth();
+                layerX[l] = scaleIndexes(width, layer.getWidth());
+                layerY[l] = scaleIndexes(height, layer.getHeight());
+                hasLayerAlpha[l] = layer.getTransparency() == 3;
+            }
+
+            //Images without an alpha channel are fully opaque
+            final int imageAlpha = hasImageAlpha ? 0 : 0xFF000000;
+
+            forEachRow(width, height, y -> {
+                for(int x = 0, i = y * width; x < width; x++, i++){
+                    //The alpha of the original image is ignored, when multiplied
+                    int originalColor = pixels[i] | 0xFF000000;
+                    int color = pixels[i] | imageAlpha;
+
+                    for(int l = 0; l < layerCount; l++){
+                        int layerColor = layerPixels[l][layerY[l][y] * layerWidths[l] + layerX[l][x]];
+
+                        if(!hasLayerAlpha[l] || (layerColor >>> 24) != 0){
+                            int red = ((originalColor >> 16 & 255) * (layerColor >> 16 & 255)) / 255;
+                            int green = ((originalColor >> 8 & 255) * (layerColor >> 8 & 255)) / 255;
+                            int blue = ((originalColor & 255) * (layerColor & 255)) / 255;
+
+                            color = 0xFF000000 | red << 16 | green << 8 | blue;
+                        }else if(!hasImageAlpha){
+                            //Without an alpha channel, the transparent part of the layer isn't transparent
+                            color = layerColor | 0xFF000000;
+                        }
                     }
 
-                    combinedImage.setRGB(x, y, originalColor.getRGB());
+                    composite[i] = color;
                 }
-            }
+            });
 
-            return combinedImage;
+            writePixels(compositeImage, composite);
+
+            return compositeImage;
 
         }catch (Exception ex){
-            LogUtility.Log("Failed to combine images");
+            LogUtility.Log("Failed to composite images");
             LogUtility.Log(ex.getMessage());
             return null;
         }
@@ -465,6 +550,202 @@ public class ImageUtility {
         return upscaleImage;
     }
 
+    /**
+     * Downscale the image to a smaller resolution. If the image size is a multiple of the new size,
+     * each new pixel is the average of the block of pixels it covers (box filter), which keeps pixel art sharp.
+     * Else the image is resampled with a Lanczos filter. The colors are weighted by their alpha,
+     * so that transparent pixels don't darken the edges
+     * @param image The image to downscale
+     * @param width The new width, smaller or equal to the width of the image
+     * @param height The new height, smaller or equal to the height of the image
+     * @return The downscaled image, or the same image if the new size isn't smaller
+     */
+    public static BufferedImage downscaleImage(BufferedImage image, int width, int height){
+        final int sourceWidth = image.getWidth();
+        final int sourceHeight = image.getHeight();
+
+        if(width >= sourceWidth && height >= sourceHeight)
+            return image;
+
+        width = Math.max(1, Math.min(width, sourceWidth));
+        height = Math.max(1, Math.min(height, sourceHeight));
+
+        final boolean hasAlpha = image.getTransparency() != 1;
+        BufferedImage scaledImage = new BufferedImage(width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+        final int[] pixels = readPixels(image);
+        final int[] scaled = pixelTarget(scaledImage);
+
+        if(sourceWidth % width == 0 && sourceHeight % height == 0)
+            boxDownscale(pixels, sourceWidth, scaled, width, height, sourceWidth / width, sourceHeight / height);
+        else
+            lanczosDownscale(pixels, sourceWidth, sourceHeight, scaled, width, height);
+
+        writePixels(scaledImage, scaled);
+
+        return scaledImage;
+    }
+
+    private static void boxDownscale(int[] pixels, int sourceWidth, int[] scaled, int width, int height, int factorX, int factorY){
+        final int count = factorX * factorY;
+
+        forEachRow(width, height, y -> {
+            for(int x = 0; x < width; x++){
+                long a = 0, r = 0, g = 0, b = 0;
+
+                for(int sy = y * factorY, endY = sy + factorY; sy < endY; sy++){
+                    for(int i = sy * sourceWidth + x * factorX, end = i + factorX; i < end; i++){
+                        int c = pixels[i];
+                        int alpha = c >>> 24;
+                        a += alpha;
+                        r += (c >> 16 & 255) * alpha;
+                        g += (c >> 8 & 255) * alpha;
+                        b += (c & 255) * alpha;
+                    }
+                }
+
+                if(a == 0){
+                    scaled[y * width + x] = 0;
+                    continue;
+                }
+
+                int alpha = (int) ((a + count / 2) / count);
+                scaled[y * width + x] = alpha << 24 | (int) ((r + a / 2) / a) << 16 | (int) ((g + a / 2) / a) << 8 | (int) ((b + a / 2) / a);
+            }
+        });
+    }
+
+    //Number of lobes of the Lanczos filter
+    private static final int LANCZOS_LOBES = 3;
+
+    private static void lanczosDownscale(int[] pixels, int sourceWidth, int sourceHeight, int[] scaled, int width, int height){
+        //Channels premultiplied by alpha, after the horizontal pass (a, r, g, b)
+        final float[] horizontal = new float[width * sourceHeight * 4];
+
+        final LanczosWeights weightsX = new LanczosWeights(sourceWidth, width);
+        final LanczosWeights weightsY = new LanczosWeights(sourceHeight, height);
+
+        forEachRow(width, sourceHeight, y -> {
+            for(int x = 0; x < width; x++){
+                float a = 0, r = 0, g = 0, b = 0;
+
+                for(int t = 0; t < weightsX.counts[x]; t++){
+                    int c = pixels[y * sourceWidth + weightsX.starts[x] + t];
+                    float weight = weightsX.weights[x][t];
+                    float alpha = (c >>> 24) * weight;
+
+                    a += alpha;
+                    r += (c >> 16 & 255) * alpha;
+                    g += (c >> 8 & 255) * alpha;
+                    b += (c & 255) * alpha;
+                }
+
+                int index = (y * width + x) * 4;
+                horizontal[index] = a;
+                horizontal[index + 1] = r;
+                horizontal[index + 2] = g;
+                horizontal[index + 3] = b;
+            }
+        });
+
+        forEachRow(width, height, y -> {
+            for(int x = 0; x < width; x++){
+                float a = 0, r = 0, g = 0, b = 0;
+
+                for(int t = 0; t < weightsY.counts[y]; t++){
+                    int index = ((weightsY.starts[y] + t) * width + x) * 4;
+                    float weight = weightsY.weights[y][t];
+
+                    a += horizontal[index] * weight;
+                    r += horizontal[index + 1] * weight;
+                    g += horizontal[index + 2] * weight;
+                    b += horizontal[index + 3] * weight;
+                }
+
+                //The negative lobes can push the values out of range
+                int alpha = Math.min(Math.max(Math.round(a), 0), 255);
+                if(alpha == 0 || a <= 0.0f){
+                    scaled[y * width + x] = 0;
+                    continue;
+                }
+
+                scaled[y * width + x] = alpha << 24 | clampChannel(r / a) << 16 | clampChannel(g / a) << 8 | clampChannel(b / a);
+            }
+        });
+    }
+
+    private static int clampChannel(float value){
+        return Math.min(Math.max(Math.round(value), 0), 255);
+    }
+
+    /**
+     * The normalized Lanczos weights of the source pixels, for each pixel along one axis of the downscaled image
+     */
+    private static class LanczosWeights {
+        final int[] starts;
+        final int[] counts;
+        final float[][] weights;
+
+        LanczosWeights(int sourceSize, int size){
+            starts = new int[size];
+            counts = new int[size];
+            weights = new float[size][];
+
+            double scale = sourceSize / (double) size;
+            double support = LANCZOS_LOBES * scale;
+
+            for(int i = 0; i < size; i++){
+                double center = (i + 0.5) * scale - 0.5;
+                int start = Math.max(0, (int) Math.floor(center - support) + 1);
+                int end = Math.min(sourceSize - 1, (int) Math.floor(center + support));
+
+                float[] pixelWeights = new float[end - start + 1];
+                double total = 0.0;
+                for(int s = start; s <= end; s++){
+                    double weight = lanczos((s - center) / scale);
+                    pixelWeights[s - start] = (float) weight;
+                    total += weight;
+                }
+
+                for(int w = 0; w < pixelWeights.length; w++)
+                    pixelWeights[w] = (float) (pixelWeights[w] / total);
+
+                starts[i] = start;
+                counts[i] = pixelWeights.length;
+                weights[i] = pixelWeights;
+            }
+        }
+
+        private static double lanczos(double x){
+            if(x == 0.0)
+                return 1.0;
+            if(Math.abs(x) >= LANCZOS_LOBES)
+                return 0.0;
+
+            double px = Math.PI * x;
+            return LANCZOS_LOBES * Math.sin(px) * Math.sin(px / LANCZOS_LOBES) / (px * px);
+        }
+    }
+
+    /**
+     * Write the mip chain of the image next to it, where each level is half the size of the previous one,
+     * ex. dirt.png -> dirt_mip1.png, dirt_mip2.png... until the image is 1 pixel wide or tall
+     * @param image The full size image
+     * @param filePath The path to the full size image, with the extension of the output texture format
+     */
+    public static void writeMipChain(BufferedImage image, String filePath){
+        String extension = "." + TextureWriter.getExtension();
+        String basePath = filePath.endsWith(extension) ? filePath.substring(0, filePath.length() - extension.length()) : filePath;
+
+        BufferedImage mip = image;
+        int level = 1;
+        while(mip.getWidth() > 1 && mip.getHeight() > 1){
+            mip = downscaleImage(mip, Math.max(1, mip.getWidth() / 2), Math.max(1, mip.getHeight() / 2));
+            copyImageToFile(mip, String.format("%s_mip%d%s", basePath, level, extension));
+            level++;
+        }
+    }
+
     public static void insertIntoImage(BufferedImage image, BufferedImage image2, int xOffset, int yOffset){
         int local_x = 0;
         for(int x = xOffset; x < xOffset + image2.getWidth(); x++){
@@ -486,23 +767,25 @@ public class ImageUtility {
      */
     public static BufferedImage maskImageFromAlpha(BufferedImage originalImage, BufferedImage alpha){
         try {
-            BufferedImage maskedImage = new BufferedImage(originalImage.getWidth(), originalImage.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+            final int width = originalImage.getWidth();
+            final int height = originalImage.getHeight();
+            final int alphaWidth = alpha.getWidth();
 
-            for(int y = 0; y < originalImage.getHeight(); y++){
-                for(int x = 0; x < originalImage.getWidth(); x++){
-                    final int orgColor = originalImage.getRGB(x, y);
-                    final Color color = new Color(orgColor);
+            BufferedImage maskedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
 
-                    final int x1 = (x * alpha.getWidth()) / originalImage.getWidth();
-                    final int y1 = (y * alpha.getHeight()) / originalImage.getHeight();
-                    final int mask = alpha.getRGB(x1, y1);
-                    final Color maskColor = new Color(mask, true);
+            final int[] pixels = readPixels(originalImage);
+            final int[] alphaPixels = readPixels(alpha);
+            final int[] alphaX = scaleIndexes(width, alphaWidth);
+            final int[] alphaY = scaleIndexes(height, alpha.getHeight());
+            final int[] masked = pixelTarget(maskedImage);
 
-                    final Color maskedColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), maskColor.getAlpha());
+            forEachRow(width, height, y -> {
+                int alphaRow = alphaY[y] * alphaWidth;
+                for(int x = 0, i = y * width; x < width; x++, i++)
+                    masked[i] = (pixels[i] & 0xFFFFFF) | (alphaPixels[alphaRow + alphaX[x]] & 0xFF000000);
+            });
 
-                    maskedImage.setRGB(x, y, maskedColor.getRGB());
-                }
-            }
+            writePixels(maskedImage, masked);
 
             return maskedImage;
 
@@ -538,107 +821,68 @@ public class ImageUtility {
      * @return Color matched target image
      */
     public static BufferedImage colorMatch(BufferedImage source, BufferedImage target){
-        Object[] lab_source = new Object[source.getWidth() * source.getHeight()];
-        Object[] lab_target = new Object[target.getWidth() * target.getHeight()];
-
-        //Convert source and target image to CIE LAB color space
-        for(int y = 0; y < source.getHeight(); y++){
-            for(int x = 0; x < source.getWidth(); x++){
-                final int _color = source.getRGB(x, y);
-                final Color color = new Color(_color, true);
-
-                //Only convert if alpha is bigger than 0
-                if(color.getAlpha() != 0){
-                    double[] lab = new double[4];
-                    ColorUtility.RGB2LAB(new int[]{color.getRed(), color.getGreen(), color.getBlue()}, lab);
-                    lab[3] = color.getAlpha();
-
-                    final int index = (y * target.getWidth()) + x;
-                    lab_source[index]= lab;
-                }
-            }
-        }
-
-        for(int y = 0; y < target.getHeight(); y++){
-            for(int x = 0; x < target.getWidth(); x++){
-                final int _color = target.getRGB(x, y);
-                final Color color = new Color(_color, true);
-
-                //Only convert if alpha is bigger than 0
-                if(color.getAlpha() != 0){
-                    double[] lab = new double[4];
-                    ColorUtility.RGB2LAB(new int[]{color.getRed(), color.getGreen(), color.getBlue()}, lab);
-                    lab[3] = color.getAlpha();
-
-                    final int index = (y * target.getWidth()) + x;
-                    lab_target[index]= lab;
-                }
-            }
-        }
-
-        //Get the statistics (the mean and standard deviation for each channel) for the source and target image
-        double[] stats = ImageStatistic(lab_source);
-        double L_MeanSource = stats[0];
-        double L_StdSource = stats[1];
-        double a_MeanSource = stats[2];
-        double a_StdSource = stats[3];
-        double b_MeanSource = stats[4];
-        double b_StdSource = stats[5];
-
-        stats = ImageStatistic(lab_target);
-        double L_MeanTarget = stats[0];
-        double L_StdTarget = stats[1];
-        double a_MeanTarget = stats[2];
-        double a_StdTarget = stats[3];
-        double b_MeanTarget = stats[4];
-        double b_StdTarget = stats[5];
+        final int width = target.getWidth();
+        final int height = target.getHeight();
+
+        //Convert source and target image to CIE LAB color space, and get the statistics
+        //(the mean and standard deviation for each channel) for them
+        double[] stats = ImageStatistic(readPixels(source), source.getWidth(), source.getHeight(), null);
+        final double L_MeanSource = stats[0];
+        final double L_StdSource = stats[1];
+        final double a_MeanSource = stats[2];
+        final double a_StdSource = stats[3];
+        final double b_MeanSource = stats[4];
+        final double b_StdSource = stats[5];
+
+        final int[] targetPixels = readPixels(target);
+        final double[] lab_target = new double[width * height * 3];
+
+        stats = ImageStatistic(targetPixels, width, height, lab_target);
+        final double L_MeanTarget = stats[0];
+        final double L_StdTarget = stats[1];
+        final double a_MeanTarget = stats[2];
+        final double a_StdTarget = stats[3];
+        final double b_MeanTarget = stats[4];
+        final double b_StdTarget = stats[5];
+
+        final int[] matched = pixelTarget(target);
 
         //4. Clip each target channel by 0 - 255
         //5. Convert the channels from the CIELAB space to RGB
         //6. Save pixel color to target image
-        for(int y = 0; y < target.getHeight(); y++) {
-            for(int x = 0; x < target.getWidth(); x++){
-                final int index = (y * target.getWidth()) + x;
-                Object d = lab_target[index];
-
-                Color finalColor = new Color(255, 255, 255, 0);
-
-                if (d != null) {
-                    double[] values = (double[]) d;
-                    //1. Subtract mean for each channel in target
-                    values[0] -= L_MeanTarget;
-                    values[1] -= a_MeanTarget;
-                    values[2] -= b_MeanTarget;
-
-                    //2. Scale each channel by the standard deviations
-                    values[0] *= L_StdTarget / L_StdSource;
-                    values[1] *= a_StdTarget / a_StdSource;
-                    values[2] *= b_StdTarget / b_StdSource;
-
-                    //3. Add the channels with the source mean
-                    values[0] += L_MeanSource;
-                    values[1] += a_MeanSource;
-                    values[2] += b_MeanSource;
-
-                    int[] RGB = new int[3];
-                    ColorUtility.LAB2RGB(values, RGB);
-                    //ColorUtility.clipSRGB(RGB);
-
-                    finalColor = new Color(RGB[0], RGB[1], RGB[2], (int)Math.round(values[3]));
+        forEachRow(width, height, y -> {
+            for(int i = y * width, end = i + width; i < end; i++){
+                final int alpha = targetPixels[i] >>> 24;
+
+                if(alpha == 0){
+                    matched[i] = 0x00FFFFFF;
+                    continue;
                 }
 
+                //1. Subtract mean for each channel in target
+                //2. Scale each channel by the standard deviations
+                //3. Add the channels with the source mean
+                double L = (lab_target[i * 3] - L_MeanTarget) * (L_StdTarget / L_StdSource) + L_MeanSource;
+                double a = (lab_target[i * 3 + 1] - a_MeanTarget) * (a_StdTarget / a_StdSource) + a_MeanSource;
+                double b = (lab_target[i * 3 + 2] - b_MeanTarget) * (b_StdTarget / b_StdSource) + b_MeanSource;
+
                 //6
-                target.setRGB(x, y, finalColor.getRGB());
+                matched[i] = alpha << 24 | LabTables.toRGB(L, a, b);
             }
-        }
+        });
+
+        writePixels(target, matched);
 
         return target;
 
     }
 
     /**
-     * Calculate the mean and standard deviation for the image data
-     * @param data A flat map array of the image data, where each item is a 3 length double array consisting of values in any color space
+     * Convert the image to CIE LAB, and calculate the mean and standard deviation of the opaque pixels in one pass
+     * @param pixels The ARGB pixels of the image
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param lab Array to store the L, a, b values of each pixel in, or null if they aren't needed
      * @return Double array with the following items:
      *      Channel 1 mean
      *      Channel 1 standard deviation
@@ -647,63 +891,326 @@ public class ImageUtility {
      *      Channel 3 mean
      *      Channel 4 standard deviation
      */
-    private static double[] ImageStatistic(Object[] data){
+    private static double[] ImageStatistic(int[] pixels, int width, int height, double[] lab){
+        //The sums and sums of squares of each channel, and the count of opaque pixels per row
+        final double[] rowSums = new double[height * 7];
+
+        forEachRow(width, height, y -> {
+            double[] values = new double[3];
+            int s = y * 7;
+
+            for(int i = y * width, end = i + width; i < end; i++){
+                final int color = pixels[i];
+
+                //Only convert if alpha is bigger than 0
+                if((color >>> 24) == 0)
+                    continue;
+
+                LabTables.toLab(color, values);
+
+                if(lab != null){
+                    lab[i * 3] = values[0];
+                    lab[i * 3 + 1] = values[1];
+                    lab[i * 3 + 2] = values[2];
+                }
+
+                rowSums[s] += values[0];
+                rowSums[s + 1] += values[0] * values[0];
+                rowSums[s + 2] += values[1];
+                rowSums[s + 3] += values[1] * values[1];
+                rowSums[s + 4] += values[2];
+                rowSums[s + 5] += values[2] * values[2];
+                rowSums[s + 6] += 1;
+            }
+        });
+
+        double[] sums = new double[7];
+        for(int y = 0; y < height; y++){
+            for(int s = 0; s < 7; s++)
+                sums[s] += rowSums[y * 7 + s];
+        }
+
+        double total_size = sums[6];
+
         double[] stats = new double[6];
+        for(int c = 0; c < 3; c++){
+            //Find the mean of each channel
+            double mean = sums[c * 2] / total_size;
 
-        //Mean deviation calculation
-        double mean1 = 0.0;
-        double mean2 = 0.0;
-        double mean3 = 0.0;
+            stats[c * 2] = mean;
+            //The mean of squared differences between each channel value and the mean
+            stats[c * 2 + 1] = Math.max(sums[c * 2 + 1] / total_size - mean * mean, 0.0) - 1;
+        }
 
-        int total_size = 0;
+        return stats;
+    }
 
-        //Sum each channel
-        for(Object d : data){
-            if(d != null){
-                double[] values = (double[])d;
-                mean1 += values[0];
-                mean2 += values[1];
-                mean3 += values[2];
+    /**
+     * Lookup tables for converting between 8-bit sRGB and the CIE LAB color space of CIELab,
+     * without going through the color management for each pixel
+     */
+    private static class LabTables {
+        //The XYZ values each 8-bit value of the red, green and blue channel contributes, 3 values per entry
+        static final double[] RED_XYZ = new double[256 * 3];
+        static final double[] GREEN_XYZ = new double[256 * 3];
+        static final double[] BLUE_XYZ = new double[256 * 3];
+
+        //Row-major matrix, that converts XYZ to linear RGB
+        static final double[] XYZ_TO_LINEAR;
+
+        //The largest XYZ value the color management can store (1.15 fixed point)
+        static final double XYZ_MAX = 65535.0 / 32768.0;
+
+        //The linear value at which each 8-bit value ends when rounding, ex. values below ENCODE_LIMITS[0] round to 0
+        static final double[] ENCODE_LIMITS = new double[256];
+
+        static {
+            ColorSpace CIEXYZ = ColorSpace.getInstance(ColorSpace.CS_CIEXYZ);
+
+            //The sRGB profile is a matrix with a curve for each channel, so the channels can be converted separately
+            for(int v = 0; v < 256; v++){
+                float[] red = CIEXYZ.fromRGB(new float[]{v / 255f, 0f, 0f});
+                float[] green = CIEXYZ.fromRGB(new float[]{0f, v / 255f, 0f});
+                float[] blue = CIEXYZ.fromRGB(new float[]{0f, 0f, v / 255f});
+
+                for(int c = 0; c < 3; c++){
+                    RED_XYZ[v * 3 + c] = red[c];
+                    GREEN_XYZ[v * 3 + c] = green[c];
+                    BLUE_XYZ[v * 3 + c] = blue[c];
+                }
 
-                total_size += 1;
             }
+
+            //Use the curve of the color management, as it differs slightly from the sRGB formula for dark values
+            for(int v = 0; v < 255; v++)
+                ENCODE_LIMITS[v] = (GREEN_XYZ[v * 3 + 1] + GREEN_XYZ[v * 3 + 4]) / (2 * GREEN_XYZ[766]);
+            ENCODE_LIMITS[255] = Double.MAX_VALUE;
+
+            //The full red, green and blue values are the columns of the linear RGB to XYZ matrix
+            double[] m = new double[]{
+                    RED_XYZ[765], GREEN_XYZ[765], BLUE_XYZ[765],
+                    RED_XYZ[766], GREEN_XYZ[766], BLUE_XYZ[766],
+                    RED_XYZ[767], GREEN_XYZ[767], BLUE_XYZ[767]
+            };
+
+            double det = m[0] * (m[4] * m[8] - m[5] * m[7]) - m[1] * (m[3] * m[8] - m[5] * m[6]) + m[2] * (m[3] * m[7] - m[4] * m[6]);
+
+            XYZ_TO_LINEAR = new double[]{
+                    (m[4] * m[8] - m[5] * m[7]) / det, (m[2] * m[7] - m[1] * m[8]) / det, (m[1] * m[5] - m[2] * m[4]) / det,
+                    (m[5] * m[6] - m[3] * m[8]) / det, (m[0] * m[8] - m[2] * m[6]) / det, (m[2] * m[3] - m[0] * m[5]) / det,
+                    (m[3] * m[7] - m[4] * m[6]) / det, (m[1] * m[6] - m[0] * m[7]) / det, (m[0] * m[4] - m[1] * m[3]) / det
+            };
         }
 
-        //Find the mean of each channel
-        mean1 = mean1 / total_size;
-        mean2 = mean2 / total_size;
-        mean3 = mean3 / total_size;
+        /**
+         * Convert the color to CIE LAB
+         * @param color ARGB color
+         * @param out Array to store the L, a, b values in
+         */
+        static void toLab(int color, double[] out){
+            int r = (color >> 16 & 255) * 3;
+            int g = (color >> 8 & 255) * 3;
+            int b = (color & 255) * 3;
+
+            double X = RED_XYZ[r] + GREEN_XYZ[g] + BLUE_XYZ[b];
+            double Y = RED_XYZ[r + 1] + GREEN_XYZ[g + 1] + BLUE_XYZ[b + 1];
+            double Z = RED_XYZ[r + 2] + GREEN_XYZ[g + 2] + BLUE_XYZ[b + 2];
+
+            double l = CIELab.f(Y);
+            out[0] = (float) (116.0 * l - 16.0);
+            out[1] = (float) (500.0 * (CIELab.f(X) - l));
+            out[2] = (float) (200.0 * (l - CIELab.f(Z)));
+        }
 
-        stats[0] = mean1;
-        stats[2] = mean2;
-        stats[4] = mean3;
+        /**
+         * Convert the CIE LAB color to RGB, with each channel clipped by 0 - 255
+         * @return RGB color without alpha
+         */
+        static int toRGB(double L, double a, double b){
+            double i = (L + 16.0) * (1.0 / 116.0);
+            double X = CIELab.fInv(i + a * (1.0 / 500.0));
+            double Y = CIELab.fInv(i);
+            double Z = CIELab.fInv(i - b * (1.0 / 200.0));
+
+            //Clip the XYZ values to the range of the color management, as it does before converting them
+            X = Math.min(Math.max(X, 0.0), XYZ_MAX);
+            Y = Math.min(Math.max(Y, 0.0), XYZ_MAX);
+            Z = Math.min(Math.max(Z, 0.0), XYZ_MAX);
+
+            int red = encode(XYZ_TO_LINEAR[0] * X + XYZ_TO_LINEAR[1] * Y + XYZ_TO_LINEAR[2] * Z);
+            int green = encode(XYZ_TO_LINEAR[3] * X + XYZ_TO_LINEAR[4] * Y + XYZ_TO_LINEAR[5] * Z);
+            int blue = encode(XYZ_TO_LINEAR[6] * X + XYZ_TO_LINEAR[7] * Y + XYZ_TO_LINEAR[8] * Z);
+
+            return red << 16 | green << 8 | blue;
+        }
 
+        /**
+         * Find the rounded 8-bit sRGB value of the linear value
+         */
+        private static int encode(double linear){
+            //Also catches NaN
+            if(!(linear > ENCODE_LIMITS[0]))
+                return 0;
+
+            int low = 0;
+            int high = 255;
+            //Find the first value, whose limit is bigger than the linear value
+            while(low < high){
+                int mid = (low + high) >>> 1;
+                if(ENCODE_LIMITS[mid] > linear)
+                    high = mid;
+                else
+                    low = mid + 1;
+            }
+
+            return low;
+        }
+    }
 
-        //Standard deviation calculation
-        //The sum of squared differences between each channel value and the mean
-        double standard_deviation1 = 0.0;
-        double standard_deviation2 = 0.0;
-        double standard_deviation3 = 0.0;
+    //Images with at least this many pixels are processed in parallel, row by row
+    private static final int PARALLEL_PIXEL_THRESHOLD = 256 * 256;
 
-        for(Object d : data){
-            if(d != null){
-                double[] values = (double[])d;
-                standard_deviation1 += Math.pow(values[0] - mean1, 2);
-                standard_deviation2 += Math.pow(values[1] - mean2, 2);
-                standard_deviation3 += Math.pow(values[2] - mean3, 2);
+    interface RowOperation {
+        void apply(int y);
+    }
+
+    /**
+     * Run the operation for each row of the image. Large images are processed in parallel,
+     * so the operation must only write to the pixels in It's row
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param operation The operation to run for each row
+     */
+    static void forEachRow(int width, int height, RowOperation operation){
+        if((long) width * height >= PARALLEL_PIXEL_THRESHOLD)
+            IntStream.range(0, height).parallel().forEach(operation::apply);
+        else {
+            for(int y = 0; y < height; y++)
+                operation.apply(y);
+        }
+    }
+
+    /**
+     * Get the backing int array of the image, if the image stores each pixel in a single int, without an offset
+     * @param image The image
+     * @return The backing array, or null if the image stores It's pixels differently
+     */
+    private static int[] getIntData(BufferedImage image){
+        WritableRaster raster = image.getRaster();
+        if(!(raster.getDataBuffer() instanceof DataBufferInt) || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel))
+            return null;
+
+        DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+
+        if(dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0 || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0)
+            return null;
+
+        if(sampleModel.getScanlineStride() != image.getWidth() || dataBuffer.getSize() != image.getWidth() * image.getHeight())
+            return null;
+
+        return dataBuffer.getData();
+    }
+
+    /**
+     * Read the pixels of the image as non-premultiplied ARGB, the same as getRGB would return them
+     * @param image The image to read
+     * @return The pixels, row by row. The array may be the backing array of the image, so it must not be modified
+     */
+    public static int[] readPixels(BufferedImage image){
+        int[] data = getIntData(image);
+
+        if(data != null){
+            if(image.getType() == BufferedImage.TYPE_INT_ARGB)
+                return data;
+
+            if(image.getType() == BufferedImage.TYPE_INT_RGB){
+                int[] pixels = new int[data.length];
+                for(int i = 0; i < data.length; i++)
+                    pixels[i] = data[i] | 0xFF000000;
+                return pixels;
             }
         }
 
-        //Divide the sum of squared differences between each channel value and the mean by the total count of the data
-        stats[1] = standard_deviation1 / total_size - 1;
-        stats[3] = standard_deviation2 / total_size - 1;
-        stats[5] = standard_deviation3 / total_size - 1;
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
 
-        return stats;
+    /**
+     * Get an array to write the non-premultiplied ARGB pixels of the image to.
+     * Call writePixels after the array is filled
+     * @param image The image to write to
+     * @return The backing array of the image if possible, else a new array
+     */
+    static int[] pixelTarget(BufferedImage image){
+        int[] data = getIntData(image);
+
+        if(data != null && (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB_PRE))
+            return data;
+
+        return new int[image.getWidth() * image.getHeight()];
+    }
+
+    /**
+     * Store the non-premultiplied ARGB pixels into the image, the same as setRGB would store them
+     * @param image The image to write to
+     * @param pixels The pixels from pixelTarget
+     */
+    static void writePixels(BufferedImage image, int[] pixels){
+        if(pixels != getIntData(image)){
+            image.setRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
+            return;
+        }
+
+        switch (image.getType()){
+            case BufferedImage.TYPE_INT_RGB:
+                for(int i = 0; i < pixels.length; i++)
+                    pixels[i] &= 0xFFFFFF;
+                break;
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+                for(int i = 0; i < pixels.length; i++)
+                    pixels[i] = premultiply(pixels[i]);
+                break;
+        }
+    }
+
+    private static int premultiply(int color){
+        int alpha = color >>> 24;
+        if(alpha == 255)
+            return color;
+        if(alpha == 0)
+            return 0;
+
+        float factor = alpha * (1.0f / 255.0f);
+        int r = (int) ((color >> 16 & 255) * factor + 0.5f);
+        int g = (int) ((color >> 8 & 255) * factor + 0.5f);
+        int b = (int) ((color & 255) * factor + 0.5f);
+
+        return alpha << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Map each pixel index of the image to the pixel index of a scaled image (nearest neighbour)
+     * @param size The width or height of the image
+     * @param scaledSize The width or height of the scaled image
+     * @return Array of scaled indexes
+     */
+    private static int[] scaleIndexes(int size, int scaledSize){
+        int[] indexes = new int[size];
+        for(int i = 0; i < size; i++)
+            indexes[i] = (i * scaledSize) / size;
+        return indexes;
+    }
+
+    /**
+     * Remove the alpha index of the material, that was removed from the materials
+     * @param materialName The name of the material
+     */
+    public static void removeAlphaIndex(String materialName){
+        LOADED_ALPHA_INDEXES.remove(materialName);
     }
 
     public static void clearData(){
-        LOADED_ALPHA_IMAGES.clear();
+        LOADED_ALPHA_INDEXES.clear();
     }
 
 
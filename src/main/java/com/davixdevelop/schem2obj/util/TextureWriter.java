@@ -0,0 +1,455 @@
+package com.davixdevelop.schem2obj.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the output textures as PNG (with a configurable compression level, where large images
+ * get compressed in parallel blocks), or as uncompressed TGA, or QOI
+ *
+ * @author DavixDevelop
+ */
+public class TextureWriter {
+    public enum Format {
+        PNG("png"),
+        TGA("tga"),
+        QOI("qoi");
+
+        private final String extension;
+
+        Format(String extension){
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromName(String name){
+            for(Format format : values()){
+                if(format.extension.equalsIgnoreCase(name))
+                    return format;
+            }
+
+            return null;
+        }
+    }
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = 4;
+
+    //Size of the filtered image data, each parallel deflate block gets
+    private static final int BLOCK_SIZE = 128 * 1024;
+    //Size of the deflate window, that each block gets from the end of the previous block as the dictionary
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static Format FORMAT = Format.PNG;
+    private static int COMPRESSION_LEVEL = DEFAULT_COMPRESSION_LEVEL;
+
+    public static Format getFormat() {
+        return FORMAT;
+    }
+
+    public static void setFormat(Format format) {
+        FORMAT = format;
+    }
+
+    /**
+     * @return The file extension of the output textures, ex. png
+     */
+    public static String getExtension(){
+        return FORMAT.getExtension();
+    }
+
+    public static int getCompressionLevel() {
+        return COMPRESSION_LEVEL;
+    }
+
+    /**
+     * Set the PNG compression level
+     * @param compressionLevel 0 (fastest, no compression) to 9 (smallest files)
+     */
+    public static void setCompressionLevel(int compressionLevel) {
+        COMPRESSION_LEVEL = Math.min(Math.max(compressionLevel, 0), 9);
+    }
+
+    /**
+     * Write the image to the file, in the output texture format
+     * @param image The image to write
+     * @param filePath The path to the output file, with the extension of the format
+     */
+    public static void write(BufferedImage image, String filePath){
+        if(image == null){
+            LogUtility.Log(String.format("Could not write missing image to: %s", filePath));
+            return;
+        }
+
+        try(OutputStream outputStream = new FileOutputStream(filePath)){
+            switch (FORMAT){
+                case TGA:
+                    writeTGA(image, outputStream);
+                    break;
+                case QOI:
+                    writeQOI(image, outputStream);
+                    break;
+                default:
+                    writePNG(image, outputStream, COMPRESSION_LEVEL);
+            }
+        }catch (IOException ex){
+            LogUtility.Log(String.format("Could not write image to: %s", filePath));
+            LogUtility.Log(ex.getMessage());
+        }
+    }
+
+    /**
+     * Encode the image as an 8 bit RGB or RGBA PNG
+     * @param image The image to encode
+     * @param outputStream The stream to write the PNG to
+     * @param level The compression level, 0 to 9
+     */
+    public static void writePNG(BufferedImage image, OutputStream outputStream, int level) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean hasAlpha = image.getTransparency() != 1;
+        final int bytesPerPixel = hasAlpha ? 4 : 3;
+        final int stride = width * bytesPerPixel;
+
+        final int[] pixels = ImageUtility.readPixels(image);
+
+        //Each row starts with the filter type, followed by the filtered bytes of the row
+        final byte[] filtered = new byte[(stride + 1) * height];
+
+        ImageUtility.forEachRow(width, height, y -> {
+            byte[] row = new byte[stride];
+            byte[] previous = new byte[stride];
+
+            toRowBytes(pixels, y, width, hasAlpha, row);
+            if(y > 0)
+                toRowBytes(pixels, y - 1, width, hasAlpha, previous);
+
+            filterRow(row, previous, bytesPerPixel, level, filtered, y * (stride + 1));
+        });
+
+        byte[] compressed = deflate(filtered, level);
+
+        DataOutputStream dataStream = new DataOutputStream(outputStream);
+        dataStream.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerStream = new DataOutputStream(header);
+        headerStream.writeInt(width);
+        headerStream.writeInt(height);
+        //Bit depth, color type (6 = RGBA, 2 = RGB), compression, filter and interlace method
+        headerStream.writeByte(8);
+        headerStream.writeByte(hasAlpha ? 6 : 2);
+        headerStream.writeByte(0);
+        headerStream.writeByte(0);
+        headerStream.writeByte(0);
+
+        writeChunk(dataStream, "IHDR", header.toByteArray());
+        writeChunk(dataStream, "IDAT", compressed);
+        writeChunk(dataStream, "IEND", new byte[0]);
+
+        dataStream.flush();
+    }
+
+    private static void toRowBytes(int[] pixels, int y, int width, boolean hasAlpha, byte[] row){
+        int index = 0;
+        for(int i = y * width, end = i + width; i < end; i++){
+            int c = pixels[i];
+            row[index++] = (byte) (c >> 16);
+            row[index++] = (byte) (c >> 8);
+            row[index++] = (byte) c;
+            if(hasAlpha)
+                row[index++] = (byte) (c >>> 24);
+        }
+    }
+
+    /**
+     * Filter the row, with no filter for the fast levels, else with the filter that gives the smallest sum of absolute differences
+     */
+    private static void filterRow(byte[] row, byte[] previous, int bytesPerPixel, int level, byte[] filtered, int offset){
+        if(level <= 1){
+            filtered[offset] = 0;
+            System.arraycopy(row, 0, filtered, offset + 1, row.length);
+            return;
+        }
+
+        byte[] candidate = new byte[row.length];
+        long bestSum = Long.MAX_VALUE;
+
+        for(int filter = 0; filter < 5; filter++){
+            long sum = 0;
+            for(int i = 0; i < row.length; i++){
+                int a = (i >= bytesPerPixel) ? row[i - bytesPerPixel] & 255 : 0;
+                int b = previous[i] & 255;
+                int c = (i >= bytesPerPixel) ? previous[i - bytesPerPixel] & 255 : 0;
+                int x = row[i] & 255;
+
+                int value;
+                switch (filter){
+                    case 1:
+                        value = x - a;
+                        break;
+                    case 2:
+                        value = x - b;
+                        break;
+                    case 3:
+                        value = x - ((a + b) >> 1);
+                        break;
+                    case 4:
+                        value = x - paeth(a, b, c);
+                        break;
+                    default:
+                        value = x;
+                }
+
+                candidate[i] = (byte) value;
+                sum += Math.abs((byte) value);
+            }
+
+            if(sum < bestSum){
+                bestSum = sum;
+                filtered[offset] = (byte) filter;
+                System.arraycopy(candidate, 0, filtered, offset + 1, row.length);
+            }
+        }
+    }
+
+    private static int paeth(int a, int b, int c){
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+
+        if(pa <= pb && pa <= pc)
+            return a;
+        if(pb <= pc)
+            return b;
+        return c;
+    }
+
+    /**
+     * Compress the data into a zlib stream. Large data is split into blocks that get compressed in parallel,
+     * where each block uses the end of the previous block as It's dictionary, so the ratio stays close to a single stream
+     * @param data The data to compress
+     * @param level The compression level, 0 to 9
+     * @return The zlib stream
+     */
+    private static byte[] deflate(byte[] data, int level){
+        int blockCount = Math.max(1, (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+
+        byte[][] blocks = new byte[blockCount][];
+        IntStream.range(0, blockCount).parallel().forEach(b -> {
+            int start = b * BLOCK_SIZE;
+            int end = Math.min(start + BLOCK_SIZE, data.length);
+
+            Deflater deflater = new Deflater(level, true);
+            if(b > 0){
+                int dictionaryStart = Math.max(0, start - DICTIONARY_SIZE);
+                deflater.setDictionary(data, dictionaryStart, start - dictionaryStart);
+            }
+
+            deflater.setInput(data, start, end - start);
+
+            ByteArrayOutputStream blockStream = new ByteArrayOutputStream(Math.max(64, (end - start) / 2));
+            byte[] buffer = new byte[16 * 1024];
+
+            //The last block ends the stream, the other blocks are flushed on a byte boundary, so they can be joined
+            if(b == blockCount - 1){
+                deflater.finish();
+                while(!deflater.finished()){
+                    int length = deflater.deflate(buffer);
+                    blockStream.write(buffer, 0, length);
+                }
+            }else{
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    blockStream.write(buffer, 0, length);
+                }while (length == buffer.length);
+            }
+
+            deflater.end();
+            blocks[b] = blockStream.toByteArray();
+        });
+
+        Adler32 adler32 = new Adler32();
+        adler32.update(data, 0, data.length);
+        long checksum = adler32.getValue();
+
+        int length = 6;
+        for(byte[] block : blocks)
+            length += block.length;
+
+        byte[] stream = new byte[length];
+        //zlib header, with the deflate method and a 32K window
+        stream[0] = 0x78;
+        stream[1] = (byte) 0xDA;
+
+        int offset = 2;
+        for(byte[] block : blocks){
+            System.arraycopy(block, 0, stream, offset, block.length);
+            offset += block.length;
+        }
+
+        stream[offset] = (byte) (checksum >>> 24);
+        stream[offset + 1] = (byte) (checksum >>> 16);
+        stream[offset + 2] = (byte) (checksum >>> 8);
+        stream[offset + 3] = (byte) checksum;
+
+        return stream;
+    }
+
+    private static void writeChunk(DataOutputStream dataStream, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(typeBytes);
+        crc32.update(data);
+
+        dataStream.writeInt(data.length);
+        dataStream.write(typeBytes);
+        dataStream.write(data);
+        dataStream.writeInt((int) crc32.getValue());
+    }
+
+    /**
+     * Write the image as an uncompressed 24 or 32 bit TGA, with the origin at the top left
+     * @param image The image to write
+     * @param outputStream The stream to write the TGA to
+     */
+    public static void writeTGA(BufferedImage image, OutputStream outputStream) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean hasAlpha = image.getTransparency() != 1;
+        final int bytesPerPixel = hasAlpha ? 4 : 3;
+
+        int[] pixels = ImageUtility.readPixels(image);
+
+        byte[] tga = new byte[18 + width * height * bytesPerPixel];
+        //Uncompressed true color image
+        tga[2] = 2;
+        tga[12] = (byte) width;
+        tga[13] = (byte) (width >> 8);
+        tga[14] = (byte) height;
+        tga[15] = (byte) (height >> 8);
+        tga[16] = (byte) (bytesPerPixel * 8);
+        //Top left origin, and the number of alpha bits
+        tga[17] = (byte) (0x20 | (hasAlpha ? 8 : 0));
+
+        int index = 18;
+        for(int c : pixels){
+            tga[index++] = (byte) c;
+            tga[index++] = (byte) (c >> 8);
+            tga[index++] = (byte) (c >> 16);
+            if(hasAlpha)
+                tga[index++] = (byte) (c >>> 24);
+        }
+
+        outputStream.write(tga);
+    }
+
+    /**
+     * Write the image in the Quite OK Image format
+     * @param image The image to write
+     * @param outputStream The stream to write the QOI to
+     */
+    public static void writeQOI(BufferedImage image, OutputStream outputStream) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean hasAlpha = image.getTransparency() != 1;
+
+        int[] pixels = ImageUtility.readPixels(image);
+
+        ByteArrayOutputStream qoi = new ByteArrayOutputStream(14 + pixels.length * 2);
+        DataOutputStream dataStream = new DataOutputStream(qoi);
+
+        dataStream.write(new byte[]{'q', 'o', 'i', 'f'});
+        dataStream.writeInt(width);
+        dataStream.writeInt(height);
+        dataStream.writeByte(hasAlpha ? 4 : 3);
+        //sRGB with linear alpha
+        dataStream.writeByte(0);
+
+        int[] seen = new int[64];
+        int previous = 0xFF000000;
+        int run = 0;
+
+        for(int i = 0; i < pixels.length; i++){
+            int pixel = hasAlpha ? pixels[i] : pixels[i] | 0xFF000000;
+
+            if(pixel == previous){
+                run++;
+                if(run == 62 || i == pixels.length - 1){
+                    qoi.write(0xC0 | (run - 1));
+                    run = 0;
+                }
+                continue;
+            }
+
+            if(run > 0){
+                qoi.write(0xC0 | (run - 1));
+                run = 0;
+            }
+
+            int r = pixel >> 16 & 255;
+            int g = pixel >> 8 & 255;
+            int b = pixel & 255;
+            int a = pixel >>> 24;
+
+            int hash = (r * 3 + g * 5 + b * 7 + a * 11) % 64;
+
+            if(seen[hash] == pixel){
+                qoi.write(hash);
+            }else{
+                seen[hash] = pixel;
+
+                if(a == previous >>> 24){
+                    //Differences wrap around, as in the decoder
+                    int dr = (byte) (r - (previous >> 16 & 255));
+                    int dg = (byte) (g - (previous >> 8 & 255));
+                    int db = (byte) (b - (previous & 255));
+
+                    int drdg = dr - dg;
+                    int dbdg = db - dg;
+
+                    if(dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1)
+                        qoi.write(0x40 | (dr + 2) << 4 | (dg + 2) << 2 | (db + 2));
+                    else if(dg >= -32 && dg <= 31 && drdg >= -8 && drdg <= 7 && dbdg >= -8 && dbdg <= 7){
+                        qoi.write(0x80 | (dg + 32));
+                        qoi.write((drdg + 8) << 4 | (dbdg + 8));
+                    }else{
+                        qoi.write(0xFE);
+                        qoi.write(r);
+                        qoi.write(g);
+                        qoi.write(b);
+                    }
+                }else{
+                    qoi.write(0xFF);
+                    qoi.write(r);
+                    qoi.write(g);
+                    qoi.write(b);
+                    qoi.write(a);
+                }
+            }
+
+            previous = pixel;
+        }
+
+        //End marker
+        qoi.write(new byte[]{0, 0, 0, 0, 0, 0, 0, 1});
+
+        qoi.writeTo(outputStream);
+    }
+}
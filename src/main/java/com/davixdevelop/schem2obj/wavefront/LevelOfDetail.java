@@ -0,0 +1,318 @@
+package com.davixdevelop.schem2obj.wavefront;
+
+import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.ConversionContext;
+import com.davixdevelop.schem2obj.Orientation;
+import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
+import com.davixdevelop.schem2obj.cubemodels.ICube;
+import com.davixdevelop.schem2obj.cubemodels.ICubeModel;
+import com.davixdevelop.schem2obj.materials.IMaterial;
+import com.davixdevelop.schem2obj.models.HashedStringList;
+import com.davixdevelop.schem2obj.util.LogUtility;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes coarse versions of the converted schematic, for viewing it from a distance.
+ * Each block is reduced to the opaque material on It's surface (preferably the top face), and from those:
+ * the cell levels merge NxNxN blocks into a single cell with the most used material of the cell,
+ * and the shell only keeps the top of each column of blocks as a heightmap.
+ * The levels are written to their own OBJ files, that use the same material file as the full detail OBJ
+ *
+ * @author DavixDevelop
+ */
+public class LevelOfDetail {
+    private final int width;
+    private final int height;
+    private final int length;
+
+    //Index of the surface material of each block (index: x + (y * length + z) * width) in the materials, or -1 if the block isn't opaque
+    private final short[] blockMaterials;
+    private final HashedStringList materials = new HashedStringList();
+    //key: singleton cube model, value: index of It's surface material
+    private final Map<ICubeModel, Short> modelMaterials = new IdentityHashMap<>();
+
+    //Corners of each face of a cell, where 0 is the start and 1 the end of the cell on each axis (x, y, z)
+    //The faces are ordered counterclockwise when viewed from outside, in the order of Orientation.DIRECTIONS (up, down, north, south, west, east)
+    private static final int[][][] FACE_CORNERS = new int[][][]{
+            {{0,1,0},{0,1,1},{1,1,1},{1,1,0}},
+            {{0,0,0},{1,0,0},{1,0,1},{0,0,1}},
+            {{0,0,0},{0,1,0},{1,1,0},{1,0,0}},
+            {{0,0,1},{1,0,1},{1,1,1},{0,1,1}},
+            {{0,0,0},{0,0,1},{0,1,1},{0,1,0}},
+            {{1,0,0},{1,1,0},{1,1,1},{1,0,1}}
+    };
+    //Offset to the neighbouring cell of each face (x, y, z)
+    private static final int[][] FACE_OFFSETS = new int[][]{{0,1,0},{0,-1,0},{0,0,-1},{0,0,1},{-1,0,0},{1,0,0}};
+
+    public LevelOfDetail(int width, int height, int length){
+        this.width = width;
+        this.height = height;
+        this.length = length;
+
+        blockMaterials = new short[width * height * length];
+        Arrays.fill(blockMaterials, (short) -1);
+    }
+
+    /**
+     * Set the block, from the singleton cube model of the block
+     * @param index The index of the block (x + (y * length + z) * width)
+     * @param cubeModel The singleton cube model of the block
+     */
+    public void setBlock(int index, ICubeModel cubeModel){
+        blockMaterials[index] = modelMaterials.computeIfAbsent(cubeModel, this::getSurfaceMaterial);
+    }
+
+    /**
+     * Get the opaque material on the top face of the cube model, or on any other face if the top isn't opaque
+     * @param cubeModel The cube model of the block
+     * @return The index of the material, or -1 if the cube model doesn't have an opaque face
+     */
+    private Short getSurfaceMaterial(ICubeModel cubeModel){
+        String surfaceMaterial = null;
+
+        for(ICube cube : cubeModel.getCubes()){
+            for(int o = 0; o < 6; o++){
+                if(!Boolean.TRUE.equals(cube.getGeneratedFaces()[o]) || cube.getMaterialFaces()[o] == null)
+                    continue;
+
+                String materialName = cubeModel.getMaterials().get(cube.getMaterialFaces()[o]);
+                IMaterial material = Constants.BLOCK_MATERIALS.getMaterial(materialName);
+                if(material == null || material.hasTransparency())
+                    continue;
+
+                if(o == Orientation.UP.getOrder())
+                    return (short) (int) materials.put(materialName);
+
+                if(surfaceMaterial == null)
+                    surfaceMaterial = materialName;
+            }
+        }
+
+        if(surfaceMaterial == null || materials.toList().size() >= Short.MAX_VALUE)
+            return -1;
+
+        return (short) (int) materials.put(surfaceMaterial);
+    }
+
+    /**
+     * Write the levels of detail, next to the full detail OBJ
+     * @param objFile The path to the full detail OBJ file
+     * @param context The context of the conversion, with the levels to write
+     * @return The written OBJ files, or null if one of them couldn't be written
+     */
+    public List<Path> export(Path objFile, ConversionContext context){
+        String fileName = objFile.toFile().getName().replace(".obj", "");
+        List<Path> written = new ArrayList<>();
+
+        for(int cellSize : context.getLodCellSizes()){
+            Path lodFile = objFile.resolveSibling(String.format("%s_lod%d.obj", fileName, cellSize));
+            if(!writeOBJ(lodFile, fileName, String.format("lod%d", cellSize), cellSize, false, context))
+                return null;
+            written.add(lodFile);
+        }
+
+        if(context.isLodShell()){
+            Path shellFile = objFile.resolveSibling(String.format("%s_shell.obj", fileName));
+            if(!writeOBJ(shellFile, fileName, "shell", 1, true, context))
+                return null;
+            written.add(shellFile);
+        }
+
+        return written;
+    }
+
+    /**
+     * Write the cells of the level to the OBJ file. Only the faces between a filled and an empty cell get written
+     * @param lodFile The path to the OBJ file
+     * @param mtlName The name of the material file
+     * @param objectName The name of the object
+     * @param cellSize The number of blocks on each axis of a cell
+     * @param shell True to only keep the top of each column
+     * @param context The context of the conversion
+     * @return True if the file was written
+     */
+    private boolean writeOBJ(Path lodFile, String mtlName, String objectName, int cellSize, boolean shell, ConversionContext context){
+        int cellWidth = (width + cellSize - 1) / cellSize;
+        int cellHeight = (height + cellSize - 1) / cellSize;
+        int cellLength = (length + cellSize - 1) / cellSize;
+
+        short[] cells = shell ? getShellCells() : getCells(cellSize, cellWidth, cellHeight, cellLength);
+
+        try(PrintWriter f = new PrintWriter(new BufferedWriter(new FileWriter(lodFile.toFile())), false){
+            @Override
+            public void println() {
+                write('\n');
+            }
+        }){
+            f.println(String.format("mtllib %s.mtl", mtlName));
+            f.println(String.format("o %s", objectName));
+
+            //Each face maps the whole texture
+            f.println("vt 0 0");
+            f.println("vt 1 0");
+            f.println("vt 1 1");
+            f.println("vt 0 1");
+
+            //key: corner position, value: index of the written vertex
+            Map<Long, Integer> vertices = new HashMap<>();
+            //key: index of the material, value: the faces that use the material
+            Map<Short, StringBuilder> materialFaces = new TreeMap<>();
+
+            for(int cy = 0; cy < cellHeight; cy++){
+                for(int cz = 0; cz < cellLength; cz++){
+                    for(int cx = 0; cx < cellWidth; cx++){
+                        short material = cells[cx + (cy * cellLength + cz) * cellWidth];
+                        if(material < 0)
+                            continue;
+
+                        StringBuilder faces = materialFaces.computeIfAbsent(material, key -> new StringBuilder());
+
+                        for(int o = 0; o < 6; o++){
+                            int nx = cx + FACE_OFFSETS[o][0];
+                            int ny = cy + FACE_OFFSETS[o][1];
+                            int nz = cz + FACE_OFFSETS[o][2];
+
+                            //Skip the faces between two filled cells
+                            if(nx >= 0 && nx < cellWidth && ny >= 0 && ny < cellHeight && nz >= 0 && nz < cellLength && cells[nx + (ny * cellLength + nz) * cellWidth] >= 0)
+                                continue;
+
+                            //The bottom of the shell is never visible
+                            if(shell && o == Orientation.DOWN.getOrder())
+                                continue;
+
+                            faces.append("f");
+                            for(int c = 0; c < 4; c++){
+                                int[] corner = FACE_CORNERS[o][c];
+                                int x = Math.min((cx + corner[0]) * cellSize, width);
+                                int y = Math.min((cy + corner[1]) * cellSize, height);
+                                int z = Math.min((cz + corner[2]) * cellSize, length);
+
+                                long key = ((long) x << 42) | ((long) y << 21) | z;
+                                Integer vertexIndex = vertices.get(key);
+                                if(vertexIndex == null){
+                                    //Same placement of the blocks, as in the full detail OBJ
+                                    f.println(String.format(Locale.ROOT, "v %f %f %f", x - (width / 2.0), (double) y, z - (length / 2.0)));
+                                    vertexIndex = vertices.size() + 1;
+                                    vertices.put(key, vertexIndex);
+                                }
+
+                                faces.append(String.format(" %d/%d", vertexIndex, getTextureCoordinate(o, corner)));
+                            }
+                            faces.append('\n');
+                        }
+                    }
+                }
+            }
+
+            for(Map.Entry<Short, StringBuilder> entry : materialFaces.entrySet()){
+                if(entry.getValue().length() == 0)
+                    continue;
+
+                String materialName = materials.get((int) entry.getKey());
+                context.setUsedMaterial(materialName);
+
+                f.println(String.format("usemtl %s", CubeModelUtility.textureName(materialName)));
+                f.print(entry.getValue());
+            }
+
+            f.flush();
+            return true;
+
+        }catch (Exception ex){
+            LogUtility.Log(String.format("Could not write %s", lodFile.toFile().getName()));
+            LogUtility.Log(ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get the index of the texture coordinate of the face corner, so that the sides of the cell have the texture upright
+     */
+    private static int getTextureCoordinate(int orientation, int[] corner){
+        int u;
+        int v;
+        if(orientation == Orientation.UP.getOrder() || orientation == Orientation.DOWN.getOrder()){
+            u = corner[0];
+            v = 1 - corner[2];
+        }else if(orientation == Orientation.WEST.getOrder() || orientation == Orientation.EAST.getOrder()){
+            u = corner[2];
+            v = corner[1];
+        }else{
+            u = corner[0];
+            v = corner[1];
+        }
+
+        //vt 0 0, vt 1 0, vt 1 1, vt 0 1
+        return (v == 0) ? 1 + u : 4 - u;
+    }
+
+    /**
+     * Merge the blocks into cells, with the most used surface material of the blocks in the cell
+     */
+    private short[] getCells(int cellSize, int cellWidth, int cellHeight, int cellLength){
+        short[] cells = new short[cellWidth * cellHeight * cellLength];
+        int[] counts = new int[Math.max(1, materials.toList().size())];
+
+        for(int cy = 0; cy < cellHeight; cy++){
+            for(int cz = 0; cz < cellLength; cz++){
+                for(int cx = 0; cx < cellWidth; cx++){
+                    short dominant = -1;
+                    List<Short> counted = new ArrayList<>();
+
+                    for(int y = cy * cellSize; y < Math.min((cy + 1) * cellSize, height); y++){
+                        for(int z = cz * cellSize; z < Math.min((cz + 1) * cellSize, length); z++){
+                            for(int x = cx * cellSize; x < Math.min((cx + 1) * cellSize, width); x++){
+                                short material = blockMaterials[x + (y * length + z) * width];
+                                if(material < 0)
+                                    continue;
+
+                                if(counts[material] == 0)
+                                    counted.add(material);
+                                counts[material]++;
+
+                                if(dominant < 0 || counts[material] > counts[dominant])
+                                    dominant = material;
+                            }
+                        }
+                    }
+
+                    for(short material : counted)
+                        counts[material] = 0;
+
+                    cells[cx + (cy * cellLength + cz) * cellWidth] = dominant;
+                }
+            }
+        }
+
+        return cells;
+    }
+
+    /**
+     * Fill each column of blocks up to It's top opaque block, with the material of the top block
+     */
+    private short[] getShellCells(){
+        short[] cells = new short[blockMaterials.length];
+        Arrays.fill(cells, (short) -1);
+
+        for(int z = 0; z < length; z++){
+            for(int x = 0; x < width; x++){
+                for(int y = height - 1; y >= 0; y--){
+                    short material = blockMaterials[x + (y * length + z) * width];
+                    if(material < 0)
+                        continue;
+
+                    for(int fy = 0; fy <= y; fy++)
+                        cells[x + (fy * length + z) * width] = material;
+                    break;
+                }
+            }
+        }
+
+        return cells;
+    }
+}
@@ -0,0 +1,565 @@
+package com.davixdevelop.schem2obj.wavefront;
+
+import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.ConversionContext;
+import com.davixdevelop.schem2obj.cubemodels.CubeModel;
+import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
+import com.davixdevelop.schem2obj.cubemodels.ICube;
+import com.davixdevelop.schem2obj.cubemodels.ICubeModel;
+import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.schematic.SchematicHolder;
+import com.davixdevelop.schem2obj.util.LogUtility;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the output into tiles of NxN block columns on the X and Z axis, each written to It's own OBJ file (ex. house_0_1.obj),
+ * that use the same material file and textures. The cubes of the cube models are sorted into the tile their center lies in,
+ * so the entities and liquids that span over multiple tiles get split too.
+ * The tiles are listed in a manifest (ex. house_tiles.json), with their bounds, face count and file size,
+ * so that a viewer can only load the tiles it needs.
+ *
+ * The manifest also keeps a hash of the blocks of each tile, including a one block border around the tile,
+ * so that on the next export of the same schematic, the tiles whose blocks didn't change can be kept as they are
+ *
+ * @author DavixDevelop
+ */
+public class TiledOBJWriter {
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private final int tileSize;
+    private final int width;
+    private final int length;
+    private final int tileCountX;
+    private final int tileCountZ;
+
+    private final Path outFolder;
+    private final String fileName;
+
+    //key: tile index (tx + tz * tileCountX), value: the temp OBJ file of the tile. Only accessed from the writer thread
+    private final Map<Integer, TileOutput> tiles = new TreeMap<>();
+
+    //key: tile index, value: the hash of the blocks of the tile, or empty if the hashes weren't computed
+    private Map<Integer, String> tileHashes = new HashMap<>();
+    //key: tile index, value: the materials of the tile, that is kept from the previous export
+    private final Map<Integer, List<String>> reusedTiles = new TreeMap<>();
+
+    private static class TileOutput {
+        final PrintWriter writer;
+        final Path file;
+        //Count of written vertices, texture coordinates and vertex normals
+        final int[] countTracker = new int[]{0,0,0};
+
+        TileOutput(PrintWriter writer, Path file){
+            this.writer = writer;
+            this.file = file;
+        }
+    }
+
+    /**
+     * @param tileSize The number of block columns on the X and Z axis of a tile
+     * @param width The width of the schematic
+     * @param length The length of the schematic
+     * @param outFile The path to the output OBJ file, the tiles are written next to it
+     */
+    public TiledOBJWriter(int tileSize, int width, int length, Path outFile){
+        this.tileSize = tileSize;
+        this.width = width;
+        this.length = length;
+        this.tileCountX = (width + tileSize - 1) / tileSize;
+        this.tileCountZ = (length + tileSize - 1) / tileSize;
+
+        this.outFolder = outFile.toAbsolutePath().getParent();
+        this.fileName = outFile.toFile().getName().replace(".obj", "");
+    }
+
+    /**
+     * Compute the hash of each tile, from the ID, meta and NBT of the blocks, entities and tile entities
+     * in the tile and a one block border around it, as the border changes the culled faces and the connected blocks of the tile
+     * @param schematic The loaded schematic
+     */
+    public void computeHashes(SchematicHolder schematic){
+        int height = schematic.getHeight();
+
+        //Sort the tile entities and entities into the tiles they touch
+        Map<Integer, Map<String, EntityValues>> tileEntities = new HashMap<>();
+        for(Map.Entry<String, EntityValues> entry : schematic.getTileEntities().entrySet()){
+            String[] position = entry.getKey().split(":");
+            for(int tileIndex : getTilesAround(Integer.parseInt(position[0]), Integer.parseInt(position[2]), 1))
+                tileEntities.computeIfAbsent(tileIndex, key -> new TreeMap<>()).put(entry.getKey(), entry.getValue());
+        }
+
+        Map<Integer, List<EntityValues>> entities = new HashMap<>();
+        for(EntityValues entityValues : schematic.getEntities()){
+            List<?> pos = entityValues.getList("Pos");
+            if(pos == null || pos.size() < 3)
+                continue;
+
+            int x = (int) Math.floor(((Number) pos.get(0)).doubleValue() - schematic.getOriginX());
+            int z = (int) Math.floor(((Number) pos.get(2)).doubleValue() - schematic.getOriginZ());
+
+            //Entities (ex. paintings) can span over more than a block
+            for(int tileIndex : getTilesAround(x, z, 2))
+                entities.computeIfAbsent(tileIndex, key -> new ArrayList<>()).add(entityValues);
+        }
+
+        Map<Integer, String> hashes = new ConcurrentHashMap<>();
+        IntStream.range(0, tileCountX * tileCountZ).parallel().forEach(tileIndex -> {
+            try{
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+                int x0 = Math.max(0, (tileIndex % tileCountX) * tileSize - 1);
+                int x1 = Math.min(width, ((tileIndex % tileCountX) + 1) * tileSize + 1);
+                int z0 = Math.max(0, (tileIndex / tileCountX) * tileSize - 1);
+                int z1 = Math.min(length, ((tileIndex / tileCountX) + 1) * tileSize + 1);
+
+                //The ID and meta of each block, a row at a time
+                ByteBuffer row = ByteBuffer.allocate((x1 - x0) * 8);
+                for(int y = 0; y < height; y++){
+                    for(int z = z0; z < z1; z++){
+                        row.clear();
+                        for(int x = x0; x < x1; x++){
+                            int index = x + (y * length + z) * width;
+                            row.putInt(schematic.getBlockID(index));
+                            row.putInt(schematic.getBlockData(index));
+                        }
+                        digest.update(row.array());
+                    }
+                }
+
+                for(Map.Entry<String, EntityValues> entry : tileEntities.getOrDefault(tileIndex, Collections.emptyMap()).entrySet()){
+                    digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    entry.getValue().updateDigest(digest);
+                }
+
+                for(EntityValues entityValues : entities.getOrDefault(tileIndex, Collections.emptyList()))
+                    entityValues.updateDigest(digest);
+
+                StringBuilder hash = new StringBuilder();
+                for(byte b : digest.digest())
+                    hash.append(String.format("%02x", b));
+
+                hashes.put(tileIndex, hash.toString());
+            }catch (Exception ex){
+                LogUtility.Log(ex.getMessage());
+            }
+        });
+
+        tileHashes = hashes;
+    }
+
+    /**
+     * Get the tiles, that lie in the distance of the block
+     */
+    private Set<Integer> getTilesAround(int x, int z, int distance){
+        Set<Integer> tileIndexes = new HashSet<>();
+        for(int offsetX = -distance; offsetX <= distance; offsetX += distance)
+            for(int offsetZ = -distance; offsetZ <= distance; offsetZ += distance)
+                tileIndexes.add(getTileIndex(x + offsetX, z + offsetZ));
+
+        return tileIndexes;
+    }
+
+    /**
+     * Read the manifest of the previous export, and keep the tiles whose hash didn't change.
+     * The materials of the kept tiles are only recorded, as they don't exist yet (See keepTilesWithMaterials)
+     * @param context The context of the conversion
+     */
+    public void reusePreviousTiles(ConversionContext context){
+        Path manifestFile = getManifestFile();
+        if(!manifestFile.toFile().exists() || tileHashes.isEmpty())
+            return;
+
+        //The atlases are packed from the materials of all the tiles, so the tiles can't be kept when they are used
+        if(context.getAtlasSize() > 0)
+            return;
+
+        //The exterior is filled across the whole schematic, so a change in any tile can open or seal the space inside an unchanged tile,
+        //and the rays from the cameras cross the tiles, so a change in any tile can hide or reveal the faces of an unchanged tile
+        if(context.isExteriorOnly() || !context.getCameras().isEmpty())
+            return;
+
+        try(Reader reader = Files.newBufferedReader(manifestFile)){
+            Manifest previous = new Gson().fromJson(reader, Manifest.class);
+            if(previous == null || previous.tiles == null || !getSettings(context).equals(previous.settings))
+                return;
+
+            for(Manifest.Tile tile : previous.tiles){
+                int tileIndex = tile.x + tile.z * tileCountX;
+                if(tile.hash == null || tile.materials == null || !tile.hash.equals(tileHashes.get(tileIndex)))
+                    continue;
+
+                if(!outFolder.resolve(tile.file).toFile().exists())
+                    continue;
+
+                reusedTiles.put(tileIndex, tile.materials);
+            }
+        }catch (Exception ex){
+            LogUtility.Log("Could not read the previous tile manifest");
+            LogUtility.Log(ex.getMessage());
+        }
+    }
+
+    /**
+     * Only keep the tiles, whose materials exist in the material collection, and mark their materials as used.
+     * The materials get created together with the singleton cube models, so this is called once the singletons of the blocks
+     * in the kept tiles were created. The tiles with a material that still doesn't exist (ex. the material of an entity)
+     * get converted again, so that the material file and the textures include all the materials of the tiles
+     * @param context The context of the conversion
+     * @return The materials of the kept tiles
+     */
+    public Set<String> keepTilesWithMaterials(ConversionContext context){
+        Set<String> keptMaterials = new TreeSet<>();
+
+        Iterator<Map.Entry<Integer, List<String>>> iterator = reusedTiles.entrySet().iterator();
+        while (iterator.hasNext()){
+            List<String> materials = iterator.next().getValue();
+            if(!materials.stream().allMatch(Constants.BLOCK_MATERIALS::containsMaterial)){
+                iterator.remove();
+                continue;
+            }
+
+            keptMaterials.addAll(materials);
+        }
+
+        for(String material : keptMaterials)
+            context.setUsedMaterial(material);
+
+        return keptMaterials;
+    }
+
+    /**
+     * @param tileIndex The index of the tile
+     * @return True if the tile is kept from the previous export, and doesn't need to be converted
+     */
+    public boolean isReused(int tileIndex){
+        return reusedTiles.containsKey(tileIndex);
+    }
+
+    /**
+     * @return The number of the tiles kept from the previous export
+     */
+    public int getReusedCount(){
+        return reusedTiles.size();
+    }
+
+    /**
+     * Get the flags of the conversion, that change the output of the tiles
+     */
+    private String getSettings(ConversionContext context){
+        StringBuilder cameras = new StringBuilder();
+        for(double[] camera : context.getCameras())
+            cameras.append(String.format(Locale.ROOT, ";%f,%f,%f", camera[0], camera[1], camera[2]));
+
+        return String.format("%dx%d:%d:%b:%b:%b:%b:%b:%b:%d%s", tileCountX, tileCountZ, tileSize,
+                context.isExportAllBlocks(), context.isSnowy(), context.isChristmasChest(), context.isCullTileSeams(), context.isExteriorOnly(), context.isTopSurface(), context.getAtlasSize(), cameras);
+    }
+
+    /**
+     * Get the index of the tile the block lies in
+     * @param x The x position of the block
+     * @param z The z position of the block
+     * @return The index of the tile
+     */
+    public int getTileIndex(int x, int z){
+        return (Math.max(0, Math.min(x, width - 1)) / tileSize) + (Math.max(0, Math.min(z, length - 1)) / tileSize) * tileCountX;
+    }
+
+    /**
+     * Get the index of the tile the center of the cube lies in
+     * @param cube The translated cube
+     * @return The index of the tile
+     */
+    private int getTileIndex(ICube cube){
+        List<Double[]> corners = cube.getCorners();
+        if(corners.isEmpty())
+            return 0;
+
+        double centerX = 0.0;
+        double centerY = 0.0;
+        for(Double[] corner : corners){
+            centerX += corner[0];
+            centerY += corner[1];
+        }
+        centerX /= corners.size();
+        centerY /= corners.size();
+
+        //Reverse the translation of the block, to get the position of the block (x - width / 2, -z + length / 2 - 1)
+        return getTileIndex((int) Math.floor(centerX + (width / 2.0)), (int) Math.floor((length / 2.0) - centerY));
+    }
+
+    /**
+     * Split the translated cube model into the tiles, that the cubes lie in
+     * @param cubeModel The translated cube model
+     * @return Map of the tile index and the part of the cube model in that tile
+     */
+    public Map<Integer, ICubeModel> split(ICubeModel cubeModel){
+        Map<Integer, List<ICube>> tileCubes = new HashMap<>();
+        for(ICube cube : cubeModel.getCubes())
+            tileCubes.computeIfAbsent(getTileIndex(cube), key -> new ArrayList<>()).add(cube);
+
+        //Most cube models lie in a single tile
+        if(tileCubes.size() <= 1){
+            int tileIndex = tileCubes.isEmpty() ? 0 : tileCubes.keySet().iterator().next();
+            return Collections.singletonMap(tileIndex, cubeModel);
+        }
+
+        List<String> materials = cubeModel.getMaterials().toList();
+
+        Map<Integer, ICubeModel> parts = new HashMap<>();
+        for(Map.Entry<Integer, List<ICube>> entry : tileCubes.entrySet()){
+            CubeModel part = new CubeModel();
+            part.setName(cubeModel.getName());
+
+            //Keep the same indexes of the materials, as the cubes use
+            for(String material : materials)
+                part.putMaterial(material);
+
+            for(ICube cube : entry.getValue())
+                part.addCube(cube);
+
+            parts.put(entry.getKey(), part);
+        }
+
+        return parts;
+    }
+
+    /**
+     * Get the writer of the tile, and create the temp OBJ file of the tile if it doesn't exist yet
+     * @param tileIndex The index of the tile
+     * @return The writer, or null if the file couldn't be created
+     */
+    public PrintWriter getWriter(int tileIndex){
+        TileOutput output = getOutput(tileIndex);
+        return (output != null) ? output.writer : null;
+    }
+
+    /**
+     * @param tileIndex The index of the tile
+     * @return The count of the written vertices, texture coordinates and vertex normals of the tile
+     */
+    public int[] getCountTracker(int tileIndex){
+        TileOutput output = getOutput(tileIndex);
+        return (output != null) ? output.countTracker : null;
+    }
+
+    private TileOutput getOutput(int tileIndex){
+        TileOutput output = tiles.get(tileIndex);
+        if(output != null)
+            return output;
+
+        Path tempFile = outFolder.resolve(String.format("%s_temp.obj", getTileName(tileIndex)));
+        try{
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(tempFile.toFile())), false){
+                @Override
+                public void println() {
+                    write('\n');
+                }
+            };
+            writer.println(String.format("mtllib %s.mtl", fileName));
+
+            output = new TileOutput(writer, tempFile);
+            tiles.put(tileIndex, output);
+
+            return output;
+        }catch (Exception ex){
+            LogUtility.Log(String.format("Could not create %s", tempFile.toFile().getName()));
+            LogUtility.Log(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Close the temp files of the tiles
+     */
+    public void close(){
+        for(TileOutput output : tiles.values()){
+            output.writer.flush();
+            output.writer.close();
+        }
+    }
+
+    /**
+     * Close the temp files, and write the final OBJ file of each tile in parallel.
+     * The vertices and texture coordinates of each tile get merged, if merge is true
+     * @param merge Merge the duplicated vertices and texture coordinates of the tile
+     * @param threads The number of tiles to write at the same time
+     * @return The written OBJ files of the tiles, or null if any of them couldn't be written
+     */
+    public List<Path> finish(boolean merge, int threads){
+        close();
+
+        List<Path> tileFiles = new ArrayList<>();
+        for(int tileIndex : getTileIndexes())
+            tileFiles.add(getTileFile(tileIndex));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tiles.size())));
+        try{
+            List<Future<Boolean>> results = new ArrayList<>();
+            for(Map.Entry<Integer, TileOutput> entry : tiles.entrySet()){
+                Path tempFile = entry.getValue().file;
+                Path tileFile = getTileFile(entry.getKey());
+
+                results.add(executorService.submit(() -> {
+                    if(merge)
+                        return WavefrontUtility.mergeOBJ(tempFile, tileFile, fileName);
+
+                    Files.move(tempFile, tileFile, StandardCopyOption.REPLACE_EXISTING);
+                    return true;
+                }));
+            }
+
+            boolean written = true;
+            for(Future<Boolean> result : results){
+                if(!result.get())
+                    written = false;
+            }
+
+            return written ? tileFiles : null;
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+            return null;
+        }finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Write the manifest of the written tiles (ex. house_tiles.json)
+     * @return True if the manifest was written
+     */
+    public boolean writeManifest(ConversionContext context){
+        Manifest manifest = new Manifest();
+        manifest.mtllib = String.format("%s.mtl", fileName);
+        manifest.tileSize = tileSize;
+        manifest.settings = getSettings(context);
+        manifest.tiles = new ArrayList<>();
+
+        //key: name of the material in the OBJ (ex. dirt), value: the names of the used materials (ex. blocks/dirt)
+        Map<String, List<String>> materialNames = new HashMap<>();
+        for(String material : context.getUsedMaterials())
+            materialNames.computeIfAbsent(CubeModelUtility.textureName(material), key -> new ArrayList<>()).add(material);
+
+        for(int tileIndex : getTileIndexes()){
+            Path tileFile = getTileFile(tileIndex);
+
+            Manifest.Tile tile = new Manifest.Tile();
+            tile.file = tileFile.toFile().getName();
+            tile.x = tileIndex % tileCountX;
+            tile.z = tileIndex / tileCountX;
+            tile.hash = tileHashes.get(tileIndex);
+
+            //The materials of the atlases can't be read back from the tile
+            Set<String> materials = new TreeSet<>();
+            if(isReused(tileIndex))
+                materials.addAll(reusedTiles.get(tileIndex));
+            tile.min = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+            tile.max = new double[]{-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+
+            //Read the bounds and the face count from the final tile, as the atlas could have rewritten it
+            try(BufferedReader reader = Files.newBufferedReader(tileFile)){
+                String line;
+                while ((line = reader.readLine()) != null){
+                    if(line.startsWith("v ")){
+                        String[] values = line.split(" ");
+                        for(int c = 0; c < 3; c++){
+                            double value = Double.parseDouble(values[c + 1]);
+                            tile.min[c] = Math.min(tile.min[c], value);
+                            tile.max[c] = Math.max(tile.max[c], value);
+                        }
+                    }else if(line.startsWith("f "))
+                        tile.faces++;
+                    else if(line.startsWith("usemtl "))
+                        materials.addAll(materialNames.getOrDefault(line.substring(7), Collections.emptyList()));
+                }
+
+                tile.bytes = Files.size(tileFile);
+            }catch (Exception ex){
+                LogUtility.Log(ex.getMessage());
+                return false;
+            }
+
+            if(context.getAtlasSize() == 0)
+                tile.materials = new ArrayList<>(materials);
+
+            if(tile.faces == 0){
+                tile.min = new double[]{0.0, 0.0, 0.0};
+                tile.max = new double[]{0.0, 0.0, 0.0};
+            }
+
+            manifest.tiles.add(tile);
+        }
+
+        Path manifestFile = getManifestFile();
+        try(Writer writer = Files.newBufferedWriter(manifestFile)){
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            gson.toJson(manifest, writer);
+            return true;
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return The indexes of the written and the kept tiles, in order
+     */
+    private Set<Integer> getTileIndexes(){
+        Set<Integer> tileIndexes = new TreeSet<>(tiles.keySet());
+        tileIndexes.addAll(reusedTiles.keySet());
+        return tileIndexes;
+    }
+
+    private Path getManifestFile(){
+        return outFolder.resolve(String.format("%s_tiles.json", fileName));
+    }
+
+    private String getTileName(int tileIndex){
+        return String.format("%s_%d_%d", fileName, tileIndex % tileCountX, tileIndex / tileCountX);
+    }
+
+    private Path getTileFile(int tileIndex){
+        return outFolder.resolve(String.format("%s.obj", getTileName(tileIndex)));
+    }
+
+    /**
+     * JSON Template of the tile manifest
+     */
+    public static class Manifest {
+        public String mtllib;
+        public int tileSize;
+        //The flags of the conversion, the tiles can only be kept if they match
+        public String settings;
+        public List<Tile> tiles;
+
+        public static class Tile {
+            public String file;
+            //Position of the tile on the X and Z axis (in tiles)
+            public int x;
+            public int z;
+            //Bounds of the vertices of the tile, in the OBJ coordinates
+            public double[] min;
+            public double[] max;
+            public int faces;
+            public long bytes;
+            //Hash of the blocks of the tile and It's border
+            public String hash;
+            //Names of the materials the tile uses, ex. blocks/dirt
+            public List<String> materials;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.davixdevelop.schem2obj.wavefront;
 
 import com.davixdevelop.schem2obj.cubemodels.CubeModelUtility;
+import com.davixdevelop.schem2obj.materials.TextureAtlas;
 import com.davixdevelop.schem2obj.models.HashedDoubleList;
 import com.davixdevelop.schem2obj.models.HashedStringList;
 import com.davixdevelop.schem2obj.util.ArrayVector;
@@ -8,8 +9,12 @@ import com.davixdevelop.schem2obj.util.LogUtility;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class WavefrontUtility {
@@ -234,6 +239,17 @@ public class WavefrontUtility {
     setBoundingFaces(boundingFaces);*/
 
     public static boolean mergeOBJ(Path obj_file, Path out_file){
+        return mergeOBJ(obj_file, out_file, out_file.toFile().getName().replace(".obj",""));
+    }
+
+    /**
+     * Merge the duplicated vertices and texture coordinates of the objects in the OBJ file, into a single object
+     * @param obj_file The OBJ file to merge, it gets deleted afterwards
+     * @param out_file The merged OBJ file
+     * @param mtl_name The name of the material file, the merged OBJ uses
+     * @return True if the OBJ was merged
+     */
+    public static boolean mergeOBJ(Path obj_file, Path out_file, String mtl_name){
         try{
             Scanner scanner = new Scanner(obj_file.toFile());
 
@@ -262,7 +278,7 @@ public class WavefrontUtility {
                 }
             };
             String file_name = out_file.toFile().getName().replace(".obj","");
-            writer.println(String.format("mtllib %s.mtl", file_name));
+            writer.println(String.format("mtllib %s.mtl", mtl_name));
             writer.println(String.format("o %s", file_name));
 
             //Write all vertices to output file
@@ -345,4 +361,156 @@ public class WavefrontUtility {
         }
     }
 
+    //Allowed error of the written texture coordinates, when checking if they are outside the texture
+    private static final double UV_TOLERANCE = 0.0001;
+
+    /**
+     * Find the materials, whose faces use texture coordinates outside the bounds of the texture (tiled textures)
+     * @param obj_file The OBJ file
+     * @return Set of material names (ex. water_still)
+     */
+    public static Set<String> findTiledMaterials(Path obj_file){
+        Set<String> tiledMaterials = new HashSet<>();
+
+        try(Scanner scanner = new Scanner(obj_file.toFile())){
+            //Keep track of which texture coordinates are outside the texture
+            BitSet outside = new BitSet();
+            int uvCount = 0;
+            String material = null;
+
+            while (scanner.hasNext()){
+                String line = scanner.nextLine();
+                if(line.startsWith("vt ")){
+                    String[] values = line.split(" ");
+                    for(int c = 1; c < 3; c++){
+                        double value = Double.parseDouble(values[c]);
+                        if(value < -UV_TOLERANCE || value > 1.0 + UV_TOLERANCE)
+                            outside.set(uvCount);
+                    }
+                    uvCount++;
+                }else if(line.startsWith("usemtl ")){
+                    material = line.substring(7);
+                }else if(line.startsWith("f ") && material != null && !tiledMaterials.contains(material)){
+                    for(String ind : line.substring(2).split(" ")){
+                        String[] indicesIndex = ind.split("/");
+                        if(indicesIndex.length > 1 && outside.get(Integer.parseInt(indicesIndex[1]) - 1)){
+                            tiledMaterials.add(material);
+                            break;
+                        }
+                    }
+                }
+            }
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+        }
+
+        return tiledMaterials;
+    }
+
+    /**
+     * Rewrite the OBJ file, so that the faces of the packed materials use the atlas pages.
+     * The texture coordinates of the packed materials are remapped to their region on the page
+     * @param obj_file The OBJ file to rewrite
+     * @param atlas The atlas with the packed materials
+     * @return True if the OBJ file was rewritten, else false
+     */
+    public static boolean remapToAtlas(Path obj_file, TextureAtlas atlas){
+        Path temp_file = Paths.get(obj_file.toFile().getParent(), obj_file.toFile().getName().replace(".obj", "_atlas.obj"));
+
+        try(Scanner scanner = new Scanner(obj_file.toFile())){
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(temp_file.toFile().getAbsolutePath())), false){
+                @Override
+                public void println() {
+                    write('\n');
+                }
+            };
+
+            //The original texture coordinates (u, v)
+            double[] uvs = new double[1024];
+            int uvCount = 0;
+
+            //key: original texture coordinate index and region index, value: index of the written texture coordinate
+            Map<Long, Integer> writtenUVs = new HashMap<>();
+            //Index of each region, so that the texture coordinates of different regions don't get merged
+            Map<TextureAtlas.Region, Integer> regionIndexes = new HashMap<>();
+
+            TextureAtlas.Region region = null;
+            int regionIndex = 0;
+            double[] uv = new double[2];
+
+            while (scanner.hasNext()){
+                String line = scanner.nextLine();
+                if(line.startsWith("vt ")){
+                    //The texture coordinates get written before the first face that uses them
+                    String[] values = line.split(" ");
+                    if(uvCount * 2 == uvs.length)
+                        uvs = Arrays.copyOf(uvs, uvs.length * 2);
+
+                    uvs[uvCount * 2] = Double.parseDouble(values[1]);
+                    uvs[uvCount * 2 + 1] = Double.parseDouble(values[2]);
+                    uvCount++;
+                }else if(line.startsWith("usemtl ")){
+                    region = atlas.getRegion(line.substring(7));
+
+                    if(region != null){
+                        regionIndex = regionIndexes.computeIfAbsent(region, key -> regionIndexes.size() + 1);
+                        writer.println(String.format("usemtl %s", region.getPageName()));
+                    }else{
+                        regionIndex = 0;
+                        writer.println(line);
+                    }
+                }else if(line.startsWith("f ")){
+                    StringBuilder newFace = new StringBuilder();
+                    newFace.append("f");
+
+                    for(String ind : line.substring(2).split(" ")){
+                        String[] indicesIndex = ind.split("/");
+                        if(indicesIndex.length < 2){
+                            newFace.append(" ").append(ind);
+                            continue;
+                        }
+
+                        int uvIndex = Integer.parseInt(indicesIndex[1]) - 1;
+                        long key = ((long) uvIndex << 32) | regionIndex;
+
+                        Integer newUVIndex = writtenUVs.get(key);
+                        if(newUVIndex == null){
+                            uv[0] = uvs[uvIndex * 2];
+                            uv[1] = uvs[uvIndex * 2 + 1];
+                            if(region != null)
+                                region.remap(uv);
+
+                            writer.println(String.format(Locale.ROOT, "vt %f %f", uv[0], uv[1]));
+                            newUVIndex = writtenUVs.size() + 1;
+                            writtenUVs.put(key, newUVIndex);
+                        }
+
+                        indicesIndex[1] = newUVIndex.toString();
+                        newFace.append(" ").append(String.join("/", indicesIndex));
+                    }
+
+                    writer.println(newFace);
+                }else
+                    writer.println(line);
+            }
+
+            writer.flush();
+            writer.close();
+
+        }catch (Exception ex){
+            LogUtility.Log(ex.getMessage());
+            temp_file.toFile().delete();
+            return false;
+        }
+
+        try{
+            Files.move(temp_file, obj_file, StandardCopyOption.REPLACE_EXISTING);
+        }catch (IOException ex){
+            LogUtility.Log(ex.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
 }
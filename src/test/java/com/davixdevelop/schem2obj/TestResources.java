@@ -0,0 +1,100 @@
+package com.davixdevelop.schem2obj;
+
+import com.davixdevelop.schem2obj.resourceloader.ResourceLoader;
+import com.davixdevelop.schem2obj.resourceloader.ResourcePack;
+import com.flowpowered.nbt.*;
+import com.flowpowered.nbt.stream.NBTOutputStream;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Shared resources of the tests: a minimal resource pack with a few full blocks, and legacy schematics
+ *
+ * @author DavixDevelop
+ */
+public class TestResources {
+    private static boolean registered = false;
+
+    /**
+     * Create and register a resource pack with stone, white wool and orange wool, once per test run
+     * @param folder The folder to create the resource pack in
+     */
+    public static synchronized void registerResourcePack(Path folder) throws IOException {
+        if(registered)
+            return;
+
+        Constants.setConstants();
+
+        Path assets = folder.resolve("assets").resolve("minecraft");
+        write(folder.resolve("pack.mcmeta"), "{\"pack\":{\"pack_format\":3,\"description\":\"test\"}}");
+
+        write(assets.resolve("models/block/cube.json"), "{\"elements\":[{\"from\":[0,0,0],\"to\":[16,16,16],\"faces\":{" +
+                "\"down\":{\"texture\":\"#down\",\"cullface\":\"down\"},\"up\":{\"texture\":\"#up\",\"cullface\":\"up\"}," +
+                "\"north\":{\"texture\":\"#north\",\"cullface\":\"north\"},\"south\":{\"texture\":\"#south\",\"cullface\":\"south\"}," +
+                "\"west\":{\"texture\":\"#west\",\"cullface\":\"west\"},\"east\":{\"texture\":\"#east\",\"cullface\":\"east\"}}}]}");
+        write(assets.resolve("models/block/cube_all.json"), "{\"parent\":\"block/cube\",\"textures\":{\"particle\":\"#all\",\"down\":\"#all\",\"up\":\"#all\",\"north\":\"#all\",\"east\":\"#all\",\"south\":\"#all\",\"west\":\"#all\"}}");
+
+        String[][] blocks = new String[][]{{"stone", "stone"}, {"white_wool", "wool_colored_white"}, {"orange_wool", "wool_colored_orange"}};
+        for(String[] block : blocks){
+            write(assets.resolve(String.format("blockstates/%s.json", block[0])), String.format("{\"variants\":{\"normal\":{\"model\":\"%s\"}}}", block[0]));
+            write(assets.resolve(String.format("models/block/%s.json", block[0])), String.format("{\"parent\":\"block/cube_all\",\"textures\":{\"all\":\"blocks/%s\"}}", block[1]));
+
+            BufferedImage texture = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+            for(int x = 0; x < 16; x++)
+                for(int y = 0; y < 16; y++)
+                    texture.setRGB(x, y, 0xFF000000 | block[1].hashCode());
+
+            Path textureFile = assets.resolve(String.format("textures/blocks/%s.png", block[1]));
+            Files.createDirectories(textureFile.getParent());
+            ImageIO.write(texture, "png", textureFile.toFile());
+        }
+
+        if(!ResourceLoader.registerResourcePack(folder.toString(), ResourcePack.Format.Vanilla))
+            throw new IOException("Could not register the test resource pack");
+
+        registered = true;
+    }
+
+    /**
+     * Write a legacy MCEdit schematic, without tile entities and entities
+     * @param file The schematic file
+     * @param width The width of the schematic
+     * @param height The height of the schematic
+     * @param length The length of the schematic
+     * @param ids The Block ID of each block (index: x + (y * length + z) * width)
+     * @param data The Meta of each block
+     */
+    public static void writeSchematic(Path file, int width, int height, int length, int[] ids, int[] data) throws IOException {
+        byte[] blocks = new byte[ids.length];
+        byte[] meta = new byte[data.length];
+        for(int i = 0; i < ids.length; i++){
+            blocks[i] = (byte) ids[i];
+            meta[i] = (byte) data[i];
+        }
+
+        CompoundMap root = new CompoundMap();
+        root.put(new ShortTag("Width", (short) width));
+        root.put(new ShortTag("Height", (short) height));
+        root.put(new ShortTag("Length", (short) length));
+        root.put(new ByteArrayTag("Blocks", blocks));
+        root.put(new ByteArrayTag("Data", meta));
+        root.put(new ListTag<>("TileEntities", CompoundTag.class, new ArrayList<>()));
+        root.put(new ListTag<>("Entities", CompoundTag.class, new ArrayList<>()));
+
+        try(NBTOutputStream outputStream = new NBTOutputStream(new FileOutputStream(file.toFile()))){
+            outputStream.writeTag(new CompoundTag("Schematic", root));
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package com.davixdevelop.schem2obj.namespace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the packed data of a block state is sorted, and that it follows the changes to the data
+ *
+ * @author DavixDevelop
+ */
+public class BlockStateNamespaceTest {
+
+    @Test
+    public void packsSortedData(){
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("south", "true");
+        data.put("east", "false");
+        BlockStateNamespace blockState = new BlockStateNamespace(0, "fence", 0.0, data);
+
+        assertEquals("east=false,south=true", blockState.getPackedData());
+        assertEquals("", new BlockStateNamespace(0, "stone", 0.0, new HashMap<>()).getPackedData());
+    }
+
+    @Test
+    public void repacksChangedData(){
+        BlockStateNamespace blockState = new BlockStateNamespace(0, "fence", 0.0, new LinkedHashMap<>());
+        assertEquals("", blockState.getPackedData());
+
+        blockState.setData("north", "true");
+        assertEquals("north=true", blockState.getPackedData());
+
+        BlockStateNamespace copy = blockState.duplicate();
+        assertEquals("north=true", copy.getPackedData());
+
+        Map<String, String> apply = new HashMap<>();
+        apply.put("west", "true");
+        BlockStateNamespace.cloneData(copy, apply);
+        assertEquals("north=true,west=true", copy.getPackedData());
+        assertEquals("north=true", blockState.getPackedData());
+    }
+}
@@ -0,0 +1,33 @@
+package com.davixdevelop.schem2obj.namespace;
+
+import com.davixdevelop.schem2obj.Constants;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the namespaces of the builtin entities are copies, that the conversions running at the same time can change
+ *
+ * @author DavixDevelop
+ */
+public class NamespaceMappingTest {
+
+    @BeforeAll
+    public static void setConstants(){
+        Constants.setConstants();
+    }
+
+    @Test
+    public void duplicatesBuiltinNamespaces(){
+        Namespace first = Constants.NAMESPACE_MAPPING.getNamespace("minecraft:chest");
+        Namespace second = Constants.NAMESPACE_MAPPING.getNamespace("minecraft:chest");
+        assertNotNull(first);
+        assertEquals("builtin", first.getDomain());
+        assertNotSame(first, second);
+
+        first.setPosition(new Integer[]{1});
+        second.setPosition(new Integer[]{2});
+        assertEquals(1, (int) first.getPosition());
+    }
+}
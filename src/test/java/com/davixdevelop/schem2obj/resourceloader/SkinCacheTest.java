@@ -0,0 +1,180 @@
+package com.davixdevelop.schem2obj.resourceloader;
+
+import com.davixdevelop.schem2obj.schematic.EntityValues;
+import com.davixdevelop.schem2obj.schematic.Schematic;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the skins from the cache folder, falls back to the default head when offline,
+ * and prefetches the skins of a schematic from a local skin server
+ *
+ * @author DavixDevelop
+ */
+public class SkinCacheTest {
+    private static final String SKIN_URL = "http://textures.minecraft.net/texture/0123456789abcdef";
+    private static final int SKIN_COLOR = 0xFF3366CC;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger sourceCalls = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp(){
+        SkinCache.clearData();
+        SkinCache.setCacheFolder(tempDir.resolve("skins"));
+        SkinCache.setOffline(false);
+        //Count the downloads, which fail as if the network was down, unless the test sets It's own source
+        SkinCache.setSource(url -> {
+            sourceCalls.incrementAndGet();
+            throw new IOException("Network is down");
+        });
+    }
+
+    @AfterEach
+    public void tearDown(){
+        SkinCache.clearData();
+        SkinCache.setCacheFolder(null);
+        SkinCache.setOffline(false);
+        SkinCache.setSource(url -> SkinCache.openUrl(new URL(url)));
+    }
+
+    @Test
+    public void readsSkinFromCacheFolder() throws IOException {
+        Path skinFile = SkinCache.getCacheFile(SKIN_URL);
+        Files.createDirectories(skinFile.getParent());
+        Files.write(skinFile, getSkinPng());
+
+        BufferedImage skin = SkinCache.getSkin(SKIN_URL);
+        assertNotNull(skin);
+        assertEquals(64, skin.getWidth());
+        assertEquals(SKIN_COLOR, skin.getRGB(8, 8));
+        assertEquals(0, sourceCalls.get());
+    }
+
+    @Test
+    public void fallsBackWhenOffline() throws IOException {
+        SkinCache.setOffline(true);
+
+        assertNull(SkinCache.getSkin(SKIN_URL));
+        assertEquals(0, sourceCalls.get());
+
+        //Once online, the skin is downloaded, as it wasn't recorded as missing
+        SkinCache.setOffline(false);
+        byte[] png = getSkinPng();
+        SkinCache.setSource(url -> new ByteArrayInputStream(png));
+        assertNotNull(SkinCache.getSkin(SKIN_URL));
+    }
+
+    @Test
+    public void retriesFailedDownloads() throws IOException {
+        SkinCache.RETRY_DELAY = 0;
+        try{
+            assertNull(SkinCache.getSkin(SKIN_URL));
+            assertEquals(1, sourceCalls.get());
+
+            byte[] png = getSkinPng();
+            SkinCache.setSource(url -> new ByteArrayInputStream(png));
+            assertNotNull(SkinCache.getSkin(SKIN_URL));
+        }finally {
+            SkinCache.RETRY_DELAY = 60000;
+        }
+    }
+
+    @Test
+    public void skipsOtherHosts(){
+        assertNull(SkinCache.getSkin("http://localhost/texture/0123456789abcdef"));
+        assertNull(SkinCache.getSkin("file:///etc/passwd"));
+        assertEquals(0, sourceCalls.get());
+    }
+
+    @Test
+    public void prefetchesFromSkinServer() throws IOException {
+        byte[] png = getSkinPng();
+        AtomicInteger requests = new AtomicInteger();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/texture/", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, png.length);
+            try(OutputStream os = exchange.getResponseBody()){
+                os.write(png);
+            }
+        });
+        server.start();
+
+        try{
+            //The skin server stands in for textures.minecraft.net
+            String localHost = String.format("http://localhost:%d", server.getAddress().getPort());
+            SkinCache.setSource(url -> SkinCache.openUrl(new URL(url.replace("http://textures.minecraft.net", localHost))));
+
+            //Two heads with the same skin
+            Map<String, EntityValues> tileEntities = new HashMap<>();
+            tileEntities.put("0:0:0", getSkull(SKIN_URL));
+            tileEntities.put("1:0:0", getSkull(SKIN_URL));
+            Schematic schematic = new Schematic(new int[2], new int[]{144}, new int[]{1}, (short) 2, (short) 1, (short) 1, 0, 0, 0, tileEntities, new ArrayList<>());
+
+            SkinCache.prefetch(schematic);
+
+            assertEquals(1, requests.get());
+            assertTrue(Files.exists(SkinCache.getCacheFile(SKIN_URL)));
+
+            //The skin is now read from memory
+            BufferedImage skin = SkinCache.getSkin(SKIN_URL);
+            assertNotNull(skin);
+            assertEquals(SKIN_COLOR, skin.getRGB(8, 8));
+            assertEquals(1, requests.get());
+        }finally {
+            server.stop(0);
+        }
+    }
+
+    private static EntityValues getSkull(String skinUrl){
+        String value = String.format("{\"textures\":{\"SKIN\":{\"url\":\"%s\"}}}", skinUrl);
+
+        EntityValues texture = new EntityValues();
+        texture.put("Value", Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+
+        EntityValues properties = new EntityValues();
+        properties.put("textures", Collections.singletonList(texture));
+
+        EntityValues owner = new EntityValues();
+        owner.put("Properties", properties);
+
+        EntityValues skull = new EntityValues();
+        skull.put("SkullOwner", owner);
+        return skull;
+    }
+
+    private static byte[] getSkinPng() throws IOException {
+        BufferedImage skin = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for(int x = 0; x < 64; x++)
+            for(int y = 0; y < 64; y++)
+                skin.setRGB(x, y, SKIN_COLOR);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(skin, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.flowpowered.nbt.CompoundTag;
+import com.flowpowered.nbt.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the long arrays of the newer versions, and rejects the arrays and lists with invalid lengths
+ *
+ * @author DavixDevelop
+ */
+public class NBTReaderTest {
+
+    @Test
+    public void readsLongArray() throws IOException {
+        Tag<?> root = read(compound(12, "BlockStates", new long[]{1L, -1L, Long.MAX_VALUE}));
+
+        Tag<?> blockStates = ((CompoundTag) root).getValue().get("BlockStates");
+        assertTrue(blockStates instanceof LongArrayTag);
+        assertArrayEquals(new long[]{1L, -1L, Long.MAX_VALUE}, NBTReader.getLongArray(blockStates));
+    }
+
+    @Test
+    public void rejectsNegativeArrayLength(){
+        assertThrows(IOException.class, () -> read(compoundWithLength(7, -1)));
+        assertThrows(IOException.class, () -> read(compoundWithLength(11, -1)));
+        assertThrows(IOException.class, () -> read(compoundWithLength(12, -1)));
+    }
+
+    @Test
+    public void rejectsOversizedArrayLength(){
+        assertThrows(IOException.class, () -> read(compoundWithLength(7, Integer.MAX_VALUE)));
+        assertThrows(IOException.class, () -> read(compoundWithLength(11, Integer.MAX_VALUE / 2)));
+        assertThrows(IOException.class, () -> read(compoundWithLength(12, Integer.MAX_VALUE / 4)));
+    }
+
+    @Test
+    public void rejectsInvalidListLength() throws IOException {
+        //A list of ints with a negative length
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = startCompound(bytes, 9, "list");
+        os.writeByte(3);
+        os.writeInt(-1);
+        assertThrows(IOException.class, () -> read(bytes.toByteArray()));
+
+        //A list of end tags, that would never run out of elements
+        ByteArrayOutputStream endBytes = new ByteArrayOutputStream();
+        DataOutputStream endOs = startCompound(endBytes, 9, "list");
+        endOs.writeByte(0);
+        endOs.writeInt(Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> read(endBytes.toByteArray()));
+    }
+
+    private static Tag<?> read(byte[] bytes) throws IOException {
+        return new NBTReader(new ByteArrayInputStream(bytes)).readTag();
+    }
+
+    private static byte[] compound(int type, String name, long[] longs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = startCompound(bytes, type, name);
+        os.writeInt(longs.length);
+        for(long l : longs)
+            os.writeLong(l);
+        os.writeByte(0);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * An uncompressed root compound with an array tag, that only has It's length
+     */
+    private static byte[] compoundWithLength(int type, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = startCompound(bytes, type, "array");
+        os.writeInt(length);
+        return bytes.toByteArray();
+    }
+
+    private static DataOutputStream startCompound(ByteArrayOutputStream bytes, int childType, String childName) throws IOException {
+        DataOutputStream os = new DataOutputStream(bytes);
+        os.writeByte(10);
+        os.writeUTF("");
+        os.writeByte(childType);
+        os.writeUTF(childName);
+        return os;
+    }
+}
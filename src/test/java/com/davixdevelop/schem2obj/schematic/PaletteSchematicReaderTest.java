@@ -0,0 +1,298 @@
+package com.davixdevelop.schem2obj.schematic;
+
+import com.davixdevelop.schem2obj.Constants;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the same row of 1.13+ blocks from a Sponge schematic, a Litematica schematic and a vanilla structure,
+ * and checks that each block state resolves to It's 1.12 Block ID and Meta
+ *
+ * @author DavixDevelop
+ */
+public class PaletteSchematicReaderTest {
+    //The block states of the row, with their expected Block ID and Meta
+    private static final String[] BLOCK_STATES = new String[]{
+            "minecraft:air",
+            "minecraft:grass_block[snowy=false]",
+            "minecraft:stone_bricks",
+            "minecraft:bricks",
+            "minecraft:oak_fence[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:oak_door[facing=east,half=lower,hinge=right,open=false,powered=false]",
+            "minecraft:red_bed[facing=south,occupied=false,part=foot]",
+            "minecraft:wall_torch[facing=north]",
+            "minecraft:white_terracotta",
+            "minecraft:oak_slab[type=top,waterlogged=false]",
+            "minecraft:grass"
+    };
+    private static final int[][] EXPECTED = new int[][]{
+            {0, 0}, {2, 0}, {98, 0}, {45, 0}, {85, 0}, {64, 0}, {26, 0}, {50, 4}, {159, 0}, {126, 8}, {31, 1}
+    };
+    //The bed is at x 6, and the color of the red bed is 14
+    private static final String BED_POSITION = "6:0:0";
+    private static final int RED = 14;
+
+    @BeforeAll
+    public static void setConstants(){
+        Constants.setConstants();
+    }
+
+    @Test
+    public void readsSponge() throws IOException {
+        Map<String, Object> palette = new LinkedHashMap<>();
+        byte[] blockData = new byte[BLOCK_STATES.length];
+        for(int i = 0; i < BLOCK_STATES.length; i++){
+            palette.put(BLOCK_STATES[i], i);
+            blockData[i] = (byte) i;
+        }
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("Version", 2);
+        root.put("Width", (short) BLOCK_STATES.length);
+        root.put("Height", (short) 1);
+        root.put("Length", (short) 1);
+        root.put("Palette", palette);
+        root.put("BlockData", blockData);
+
+        assertBlocks(Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("Schematic", root))));
+    }
+
+    @Test
+    public void readsLitematica() throws IOException {
+        //4 bits per palette index, 16 indexes per long
+        long[] blockStates = new long[1];
+        for(int i = 0; i < BLOCK_STATES.length; i++)
+            blockStates[0] |= (long) i << (i * 4);
+
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("Position", vector(0, 0, 0));
+        region.put("Size", vector(BLOCK_STATES.length, 1, 1));
+        region.put("BlockStatePalette", getPalette());
+        region.put("BlockStates", blockStates);
+        region.put("TileEntities", new ArrayList<>());
+        region.put("Entities", new ArrayList<>());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        regions.put("main", region);
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("Version", 5);
+        root.put("Regions", regions);
+
+        assertBlocks(Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("", root))));
+    }
+
+    @Test
+    public void readsStructure() throws IOException {
+        List<Object> blocks = new ArrayList<>();
+        for(int i = 0; i < BLOCK_STATES.length; i++){
+            Map<String, Object> block = new LinkedHashMap<>();
+            block.put("pos", Arrays.asList(i, 0, 0));
+            block.put("state", i);
+            blocks.add(block);
+        }
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("DataVersion", 1343);
+        root.put("size", Arrays.asList(BLOCK_STATES.length, 1, 1));
+        root.put("palette", getPalette());
+        root.put("blocks", blocks);
+        root.put("entities", new ArrayList<>());
+
+        assertBlocks(Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("", root))));
+    }
+
+    @Test
+    public void readsLegacyIntoPalette() throws IOException {
+        //Stone, orange wool, orange wool and a block with a Block ID above 255 from AddBlocks
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("Width", (short) 4);
+        root.put("Height", (short) 1);
+        root.put("Length", (short) 1);
+        root.put("Blocks", new byte[]{1, 35, 35, 2});
+        root.put("Data", new byte[]{0, 1, 1, 3});
+        root.put("AddBlocks", new byte[]{0x00, 0x01});
+        root.put("TileEntities", new ArrayList<>());
+        root.put("Entities", new ArrayList<>());
+
+        Schematic schematic = Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("Schematic", root)));
+        assertEquals(3, schematic.getPaletteSize());
+        assertEquals(schematic.getPaletteIndex(1), schematic.getPaletteIndex(2));
+        assertEquals(35, schematic.getBlock(2));
+        assertEquals(1, schematic.getData(2));
+        assertEquals(258, schematic.getBlock(3));
+        assertEquals(3, schematic.getData(3));
+    }
+
+    @Test
+    public void rejectsInvalidSizes() {
+        //A tiny Sponge schematic, that claims to have a billion blocks
+        assertThrows(IOException.class, () -> Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("Schematic", getSponge(1024, 1024, 1024)))));
+        //A width that doesn't fit into the short of the schematic
+        assertThrows(IOException.class, () -> Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("Schematic", getSponge(40000, 1, 1)))));
+
+        //A structure, whose size overflows an int
+        Map<String, Object> structure = new LinkedHashMap<>();
+        structure.put("size", Arrays.asList(Integer.MAX_VALUE, Integer.MAX_VALUE, 2));
+        structure.put("palette", getPalette());
+        structure.put("blocks", new ArrayList<>());
+        assertThrows(IOException.class, () -> Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("", structure))));
+    }
+
+    @Test
+    public void rejectsMissingBlockStates() {
+        //A Litematica region with more blocks, than fit into It's block states
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("Position", vector(0, 0, 0));
+        region.put("Size", vector(64, 1, 1));
+        region.put("BlockStatePalette", getPalette());
+        region.put("BlockStates", new long[1]);
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        regions.put("main", region);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("Regions", regions);
+
+        assertThrows(IOException.class, () -> Schematic.loadSchematic(new ByteArrayInputStream(writeNBT("", root))));
+    }
+
+    @Test
+    public void keepsUnknownBlocksAsAir(){
+        assertNull(Constants.NAMESPACE_MAPPING.getBlockStateID("minecraft:not_a_block", new HashMap<>()));
+    }
+
+    /**
+     * Get a Sponge schematic with the size, that only has a single block of block data
+     */
+    private static Map<String, Object> getSponge(int width, int height, int length){
+        Map<String, Object> palette = new LinkedHashMap<>();
+        palette.put("minecraft:air", 0);
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("Version", 2);
+        root.put("Width", (short) width);
+        root.put("Height", (short) height);
+        root.put("Length", (short) length);
+        root.put("Palette", palette);
+        root.put("BlockData", new byte[1]);
+        return root;
+    }
+
+    private static void assertBlocks(Schematic schematic){
+        assertEquals(BLOCK_STATES.length, schematic.getWidth());
+
+        for(int i = 0; i < BLOCK_STATES.length; i++){
+            assertEquals(EXPECTED[i][0], schematic.getBlock(i), BLOCK_STATES[i]);
+            assertEquals(EXPECTED[i][1], schematic.getData(i), BLOCK_STATES[i]);
+        }
+
+        EntityValues bed = schematic.getTileEntities().get(BED_POSITION);
+        assertNotNull(bed);
+        assertEquals(RED, (int) bed.getInteger("color"));
+    }
+
+    /**
+     * Get the palette of a Litematica schematic or a structure, with the name and the properties of each block state
+     */
+    private static List<Object> getPalette(){
+        List<Object> palette = new ArrayList<>();
+        for(String blockState : BLOCK_STATES){
+            Map<String, Object> entry = new LinkedHashMap<>();
+            if(blockState.contains("[")){
+                entry.put("Name", blockState.substring(0, blockState.indexOf("[")));
+
+                Map<String, Object> properties = new LinkedHashMap<>();
+                for(String property : blockState.substring(blockState.indexOf("[") + 1, blockState.length() - 1).split(","))
+                    properties.put(property.substring(0, property.indexOf("=")), property.substring(property.indexOf("=") + 1));
+                entry.put("Properties", properties);
+            }else
+                entry.put("Name", blockState);
+
+            palette.add(entry);
+        }
+
+        return palette;
+    }
+
+    private static Map<String, Object> vector(int x, int y, int z){
+        Map<String, Object> vector = new LinkedHashMap<>();
+        vector.put("x", x);
+        vector.put("y", y);
+        vector.put("z", z);
+        return vector;
+    }
+
+    /**
+     * Write a gzip compressed NBT file, with the types of the tags taken from the values
+     * (maps are compounds, lists are lists, and the arrays are byte or long arrays)
+     */
+    private static byte[] writeNBT(String rootName, Map<String, Object> root) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream os = new DataOutputStream(new GZIPOutputStream(bytes))){
+            os.writeByte(10);
+            os.writeUTF(rootName);
+            writePayload(os, root);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(DataOutputStream os, Object value) throws IOException {
+        if(value instanceof Short)
+            os.writeShort((Short) value);
+        else if(value instanceof Integer)
+            os.writeInt((Integer) value);
+        else if(value instanceof String)
+            os.writeUTF((String) value);
+        else if(value instanceof byte[]){
+            os.writeInt(((byte[]) value).length);
+            os.write((byte[]) value);
+        }else if(value instanceof long[]){
+            os.writeInt(((long[]) value).length);
+            for(long l : (long[]) value)
+                os.writeLong(l);
+        }else if(value instanceof List){
+            List<Object> list = (List<Object>) value;
+            os.writeByte(list.isEmpty() ? 10 : getType(list.get(0)));
+            os.writeInt(list.size());
+            for(Object item : list)
+                writePayload(os, item);
+        }else if(value instanceof Map){
+            for(Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()){
+                os.writeByte(getType(entry.getValue()));
+                os.writeUTF(entry.getKey());
+                writePayload(os, entry.getValue());
+            }
+            os.writeByte(0);
+        }
+    }
+
+    private static int getType(Object value){
+        if(value instanceof Short)
+            return 2;
+        else if(value instanceof Integer)
+            return 3;
+        else if(value instanceof byte[])
+            return 7;
+        else if(value instanceof String)
+            return 8;
+        else if(value instanceof List)
+            return 9;
+        else if(value instanceof Map)
+            return 10;
+        else if(value instanceof long[])
+            return 12;
+
+        throw new IllegalArgumentException("Unsupported value " + value);
+    }
+}
@@ -0,0 +1,118 @@
+package com.davixdevelop.schem2obj.server;
+
+import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.ConversionContext;
+import com.davixdevelop.schem2obj.SchemeToObj;
+import com.davixdevelop.schem2obj.TestResources;
+import com.davixdevelop.schem2obj.cubemodels.ICubeModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Converts schematics through the server, checks that the block cube models and materials are reused between the conversions,
+ * and that the uploads bigger than the max upload size are rejected
+ *
+ * @author DavixDevelop
+ */
+public class ConversionServerTest {
+    private static final int STONE = 1;
+
+    @TempDir
+    Path folder;
+
+    private ConversionServer server;
+    private int port;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        TestResources.registerResourcePack(folder.resolve("pack"));
+
+        try(ServerSocket socket = new ServerSocket(0)){
+            port = socket.getLocalPort();
+        }
+
+        server = new ConversionServer(new SchemeToObj(), new ConversionContext(false, false, false), 1, 4);
+        assertTrue(server.start(port));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        server.stop();
+    }
+
+    @Test
+    public void keepsBlockCacheBetweenConversions() throws IOException {
+        Path schematicFile = folder.resolve("stone.schematic");
+        TestResources.writeSchematic(schematicFile, 2, 1, 2, new int[]{STONE, STONE, STONE, STONE}, new int[4]);
+
+        Set<ICubeModel> firstCubeModels = null;
+        for(int c = 0; c < 2; c++){
+            HttpURLConnection connection = post(Files.readAllBytes(schematicFile));
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("application/zip", connection.getContentType());
+
+            //The block cube models and materials stay cached after the conversion
+            assertFalse(Constants.CUBE_MODEL_FACTORY.cubeModels.isEmpty());
+            assertTrue(Constants.BLOCK_MATERIALS.containsMaterial("blocks/stone"));
+
+            Set<ICubeModel> cubeModels = Collections.newSetFromMap(new IdentityHashMap<>());
+            cubeModels.addAll(Constants.CUBE_MODEL_FACTORY.cubeModels.values());
+            if(firstCubeModels == null)
+                firstCubeModels = cubeModels;
+            else
+                //The second conversion reused the singletons of the first one
+                assertEquals(firstCubeModels, cubeModels);
+        }
+    }
+
+    @Test
+    public void rejectsLargeUploads() throws IOException {
+        server.setMaxUploadSize(16);
+        byte[] body = new byte[64];
+
+        //The announced size is checked before the upload is read
+        assertEquals(413, post(body).getResponseCode());
+        //Without a Content-Length, the upload is read until it exceeds the max size
+        assertEquals(413, post(body, true).getResponseCode());
+    }
+
+    private HttpURLConnection post(byte[] body) throws IOException {
+        return post(body, false);
+    }
+
+    private HttpURLConnection post(byte[] body, boolean chunked) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(String.format("http://localhost:%d/convert?name=stone", port)).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if(chunked)
+            connection.setChunkedStreamingMode(16);
+        else
+            connection.setFixedLengthStreamingMode(body.length);
+        try(OutputStream outputStream = connection.getOutputStream()){
+            outputStream.write(body);
+        }
+
+        //Read the whole response, so that the request is finished
+        try(InputStream inputStream = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream()){
+            while(inputStream != null && inputStream.read() != -1);
+        }
+
+        return connection;
+    }
+}
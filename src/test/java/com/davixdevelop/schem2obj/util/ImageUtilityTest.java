@@ -0,0 +1,397 @@
+package com.davixdevelop.schem2obj.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the image operations on the pixel arrays give the same images as the old per-pixel getRGB/setRGB operations,
+ * and that the color match stays within 1 of the old color match
+ *
+ * @author DavixDevelop
+ */
+public class ImageUtilityTest {
+    private static final int[] TYPES = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_4BYTE_ABGR};
+    //The sizes of the second image (ex. the mask), smaller, equal and bigger than the 16x16 image
+    private static final int[] SIZES = {8, 16, 32};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void colorImageMatchesGetRGB(){
+        for(int type : TYPES){
+            BufferedImage image = randomImage(16, 16, type);
+            for(boolean masked : new boolean[]{false, true}){
+                int color = random.nextInt(0xFFFFFF);
+                assertSameImage(oldColorImage(image, color, masked), ImageUtility.colorImage(image, color, masked), "colorImage");
+            }
+        }
+    }
+
+    @Test
+    public void multiplyImageMatchesGetRGB(){
+        for(int type : TYPES){
+            for(int type2 : TYPES){
+                for(int size : SIZES){
+                    BufferedImage image = randomImage(16, 16, type);
+                    BufferedImage multiply = randomImage(size, size, type2);
+                    assertSameImage(oldMultiplyImage(image, multiply), ImageUtility.multiplyImage(image, multiply), "multiplyImage");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void overlayImageMatchesGetRGB(){
+        for(int type : TYPES){
+            for(int type2 : TYPES){
+                for(int size : SIZES){
+                    BufferedImage image = randomImage(16, 16, type);
+                    BufferedImage overlay = randomImage(size, size, type2);
+                    assertSameImage(oldOverlayImage(image, overlay), ImageUtility.overlayImage(image, overlay), "overlayImage");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void maskImageMatchesGetRGB(){
+        for(int type : TYPES){
+            for(int type2 : TYPES){
+                for(int size : SIZES){
+                    BufferedImage image = randomImage(16, 16, type);
+                    BufferedImage mask = randomImage(size, size, type2);
+                    assertSameImage(oldMaskImage(image, mask), ImageUtility.maskImage(image, mask), "maskImage");
+
+                    for(double mixFactor : new double[]{0.0, 0.3, 0.75})
+                        assertSameImage(oldMaskImage(image, mask, mixFactor), ImageUtility.maskImage(image, mask, mixFactor), "maskImage with mix factor");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void colorMatchWithinOne(){
+        for(int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR}){
+            BufferedImage target = randomImage(16, 16, type, 60, 196);
+            BufferedImage source = new BufferedImage(16, 16, type);
+
+            //Keep the source close to the target, so that the matched colors stay in gamut, where both color matches clip the same
+            for(int y = 0; y < 16; y++){
+                for(int x = 0; x < 16; x++){
+                    int c = target.getRGB(x, y);
+                    int r = ColorUtility.clipRGB((c >> 16 & 255) + 8 + random.nextInt(9));
+                    int g = ColorUtility.clipRGB((c >> 8 & 255) - 8 + random.nextInt(9));
+                    int b = ColorUtility.clipRGB((c & 255) + random.nextInt(9));
+                    source.setRGB(x, y, (c & 0xFF000000) | r << 16 | g << 8 | b);
+                }
+            }
+
+            BufferedImage expected = oldColorMatch(source, copy(target));
+            BufferedImage actual = ImageUtility.colorMatch(source, copy(target));
+
+            int maxDelta = 0;
+            for(int y = 0; y < 16; y++){
+                for(int x = 0; x < 16; x++){
+                    int e = expected.getRGB(x, y);
+                    int a = actual.getRGB(x, y);
+                    assertEquals(e >>> 24, a >>> 24, "alpha at " + x + "," + y);
+                    for(int shift = 0; shift < 24; shift += 8)
+                        maxDelta = Math.max(maxDelta, Math.abs((e >> shift & 255) - (a >> shift & 255)));
+                }
+            }
+
+            assertTrue(maxDelta <= 1, "max delta " + maxDelta);
+        }
+    }
+
+    private BufferedImage randomImage(int width, int height, int type){
+        return randomImage(width, height, type, 0, 256);
+    }
+
+    /**
+     * Get an image with random colors, where a quarter of the pixels are fully transparent and a quarter are opaque
+     */
+    private BufferedImage randomImage(int width, int height, int type, int min, int max){
+        BufferedImage image = new BufferedImage(width, height, type);
+        for(int y = 0; y < height; y++){
+            for(int x = 0; x < width; x++){
+                int alpha;
+                switch (random.nextInt(4)){
+                    case 0:
+                        alpha = 0;
+                        break;
+                    case 1:
+                        alpha = 255;
+                        break;
+                    default:
+                        alpha = random.nextInt(256);
+                }
+
+                //Keep some black pixels for the masked colorImage
+                int r = (random.nextInt(8) == 0) ? 0 : min + random.nextInt(max - min);
+                int g = min + random.nextInt(max - min);
+                int b = min + random.nextInt(max - min);
+
+                image.setRGB(x, y, alpha << 24 | r << 16 | g << 8 | b);
+            }
+        }
+
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage image){
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        copy.setData(image.getData());
+        return copy;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual, String operation){
+        assertNotNull(actual, operation);
+        assertEquals(expected.getType(), actual.getType(), operation + " type");
+        assertEquals(expected.getWidth(), actual.getWidth(), operation + " width");
+        assertEquals(expected.getHeight(), actual.getHeight(), operation + " height");
+
+        for(int y = 0; y < expected.getHeight(); y++){
+            for(int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), operation + " at " + x + "," + y);
+        }
+    }
+
+    //The old per-pixel operations, before they were moved to the pixel arrays
+
+    private static BufferedImage oldMaskImage(BufferedImage image, BufferedImage mask, double mixFactor){
+        BufferedImage maskedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+
+        int max_alpha = -1;
+        int min_alpha = -1;
+        int values = 0;
+        boolean transparent = true;
+        for(int y = 0; y < mask.getHeight(); y++){
+            for(int x = 0; x < mask.getWidth(); x++){
+                int red = new Color(mask.getRGB(x, y)).getRed();
+
+                if(max_alpha == -1){
+                    max_alpha = red;
+                    min_alpha = red;
+                    values = red;
+                }
+                if(red > max_alpha)
+                    max_alpha = red;
+                else if(red < min_alpha)
+                    min_alpha = red;
+
+                if(values != red)
+                    transparent = false;
+            }
+        }
+
+        for(int x = 0; x < image.getWidth(); x++){
+            for(int y = 0; y < image.getHeight(); y++){
+                Color color = new Color(image.getRGB(x, y));
+                Color maskColor = new Color(mask.getRGB((x * mask.getWidth()) / image.getWidth(), (y * mask.getHeight()) / image.getHeight()));
+
+                int alpha = maskColor.getRed();
+
+                if(mixFactor != 0.0)
+                {
+                    if(alpha != 0 || min_alpha == 0 && !transparent) {
+                        int a = (int) Math.round(255 * mixFactor);
+                        if (alpha < a) {
+                            alpha = a;
+                        } else {
+                            a = (int) Math.round((1 / mixFactor) * (alpha * mixFactor));
+                            alpha = ColorUtility.clipRGB(a + alpha);
+                        }
+                    }
+                }
+
+                maskedImage.setRGB(x, y, new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha).getRGB());
+            }
+        }
+
+        return maskedImage;
+    }
+
+    private static BufferedImage oldMaskImage(BufferedImage image, BufferedImage image2){
+        boolean hasOverlayAlpha = image2.getTransparency() == 3;
+        BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+
+        for(int x = 0; x < image.getWidth(); x++){
+            for(int y = 0; y < image.getHeight(); y++){
+                Color originalColor = new Color(image.getRGB(x, y));
+                Color maskColor = new Color(image2.getRGB((x * image2.getWidth()) / image.getWidth(), (y * image2.getHeight()) / image.getHeight()), hasOverlayAlpha);
+                if(maskColor.getAlpha() != 0)
+                    combinedImage.setRGB(x, y, originalColor.getRGB());
+                else
+                    combinedImage.setRGB(x, y, maskColor.getRGB());
+            }
+        }
+
+        return combinedImage;
+    }
+
+    private static BufferedImage oldColorImage(BufferedImage bufferedImage, int color, boolean masked){
+        float multiRed = (float)(color >> 16 & 255) / 255.0f;
+        float multiGreen = (float)(color >> 8 & 255) / 255.0f;
+        float multiBlue = (float) (color & 255) / 255.0f;
+
+        BufferedImage coloredImage = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), bufferedImage.getType());
+
+        boolean hasAlpha = bufferedImage.getTransparency() == 3;
+
+        for(int x = 0; x < bufferedImage.getWidth(); x++){
+            for(int y = 0; y < bufferedImage.getHeight(); y++){
+                int c = bufferedImage.getRGB(x, y);
+
+                float alpha = 0.0f;
+
+                float r = (float)(c >> 16 & 255);
+                float g = (float) (c >> 8 & 255);
+                float b = (float) (c & 255);
+
+                if(hasAlpha)
+                    alpha = (float)(c >> 24 & 255);
+
+                if(alpha != 0.0f){
+                    if(masked && r == 0.0f)
+                        alpha = 0.0f;
+                    else{
+                        r *= multiRed;
+                        g *= multiGreen;
+                        b *= multiBlue;
+                    }
+                }
+
+                coloredImage.setRGB(x, y, (int)r << 16 | (int)g << 8 | (int)b | (int)alpha << 24);
+            }
+        }
+
+        return coloredImage;
+    }
+
+    private static BufferedImage oldMultiplyImage(BufferedImage image, BufferedImage multiplyImage){
+        boolean hasMultiplyAlpha = multiplyImage.getTransparency() == 3;
+        BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+
+        for(int x = 0; x < image.getWidth(); x++){
+            for(int y = 0; y < image.getHeight(); y++){
+                Color originalColor = new Color(image.getRGB(x, y));
+                Color multiplyColor = new Color(multiplyImage.getRGB((x * multiplyImage.getWidth()) / image.getWidth(), (y * multiplyImage.getHeight()) / image.getHeight()), hasMultiplyAlpha);
+
+                if(originalColor.getAlpha() != 0 && multiplyColor.getAlpha() != 0) {
+                    int red = (originalColor.getRed() * multiplyColor.getRed()) / 255;
+                    int green = (originalColor.getGreen() * multiplyColor.getGreen()) / 255;
+                    int blue = (originalColor.getBlue() * multiplyColor.getBlue()) / 255;
+
+                    originalColor = new Color(ColorUtility.clipRGB(Math.abs(red)), ColorUtility.clipRGB(Math.abs(green)), ColorUtility.clipRGB(Math.abs(blue)), originalColor.getAlpha());
+                }
+                combinedImage.setRGB(x, y, originalColor.getRGB());
+            }
+        }
+
+        return combinedImage;
+    }
+
+    private static BufferedImage oldOverlayImage(BufferedImage image, BufferedImage overlay){
+        boolean hasOverlayAlpha = overlay.getTransparency() == 3;
+        boolean hasImageAlpha = image.getTransparency() == 3;
+        BufferedImage combinedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+
+        for(int x = 0; x < image.getWidth(); x++){
+            for(int y = 0; y < image.getHeight(); y++){
+                Color originalColor = new Color(image.getRGB(x, y), hasImageAlpha);
+                Color overlayColor = new Color(overlay.getRGB((x * overlay.getWidth()) / image.getWidth(), (y * overlay.getHeight()) / image.getHeight()), hasOverlayAlpha);
+                if(overlayColor.getAlpha() != 0)
+                    originalColor = overlayColor;
+
+                combinedImage.setRGB(x, y, originalColor.getRGB());
+            }
+        }
+
+        return combinedImage;
+    }
+
+    private static BufferedImage oldColorMatch(BufferedImage source, BufferedImage target){
+        double[][] lab_source = toLab(source);
+        double[][] lab_target = toLab(target);
+
+        double[] sourceStats = oldImageStatistic(lab_source);
+        double[] targetStats = oldImageStatistic(lab_target);
+
+        for(int y = 0; y < target.getHeight(); y++) {
+            for(int x = 0; x < target.getWidth(); x++){
+                double[] values = lab_target[(y * target.getWidth()) + x];
+
+                Color finalColor = new Color(255, 255, 255, 0);
+
+                if (values != null) {
+                    for(int c = 0; c < 3; c++){
+                        values[c] -= targetStats[c * 2];
+                        values[c] *= targetStats[c * 2 + 1] / sourceStats[c * 2 + 1];
+                        values[c] += sourceStats[c * 2];
+                    }
+
+                    int[] RGB = new int[3];
+                    ColorUtility.LAB2RGB(values, RGB);
+
+                    finalColor = new Color(RGB[0], RGB[1], RGB[2], (int)Math.round(values[3]));
+                }
+
+                target.setRGB(x, y, finalColor.getRGB());
+            }
+        }
+
+        return target;
+    }
+
+    private static double[][] toLab(BufferedImage image){
+        double[][] lab = new double[image.getWidth() * image.getHeight()][];
+        for(int y = 0; y < image.getHeight(); y++){
+            for(int x = 0; x < image.getWidth(); x++){
+                Color color = new Color(image.getRGB(x, y), true);
+
+                if(color.getAlpha() != 0){
+                    double[] values = new double[4];
+                    ColorUtility.RGB2LAB(new int[]{color.getRed(), color.getGreen(), color.getBlue()}, values);
+                    values[3] = color.getAlpha();
+                    lab[(y * image.getWidth()) + x] = values;
+                }
+            }
+        }
+
+        return lab;
+    }
+
+    private static double[] oldImageStatistic(double[][] data){
+        double[] stats = new double[6];
+        int total_size = 0;
+
+        for(double[] values : data){
+            if(values != null){
+                for(int c = 0; c < 3; c++)
+                    stats[c * 2] += values[c];
+                total_size += 1;
+            }
+        }
+
+        for(int c = 0; c < 3; c++)
+            stats[c * 2] /= total_size;
+
+        for(double[] values : data){
+            if(values != null){
+                for(int c = 0; c < 3; c++)
+                    stats[c * 2 + 1] += Math.pow(values[c] - stats[c * 2], 2);
+            }
+        }
+
+        for(int c = 0; c < 3; c++)
+            stats[c * 2 + 1] = stats[c * 2 + 1] / total_size - 1;
+
+        return stats;
+    }
+}
@@ -0,0 +1,144 @@
+package com.davixdevelop.schem2obj.wavefront;
+
+import com.davixdevelop.schem2obj.Constants;
+import com.davixdevelop.schem2obj.ConversionContext;
+import com.davixdevelop.schem2obj.SchemeToObj;
+import com.davixdevelop.schem2obj.TestResources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalExportTest {
+    //Block IDs of the 1.12 blocks in the test resource pack
+    private static final int STONE = 1;
+    private static final int WOOL = 35;
+
+    private static final String MARK = "# kept from the previous pass";
+    private static final FileTime MARK_TIME = FileTime.fromMillis(1000000000000L);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void keptTilesKeepTheirMaterials() throws Exception {
+        TestResources.registerResourcePack(folder.resolve("pack"));
+
+        //4x1x4 blocks, split into 4 tiles of 2x2 columns. Only the tile at 1,1 uses wool
+        int[] ids = new int[16];
+        int[] data = new int[16];
+        for(int x = 0; x < 4; x++){
+            for(int z = 0; z < 4; z++){
+                ids[x + z * 4] = (x >= 2 && z >= 2) ? WOOL : STONE;
+            }
+        }
+
+        Path schematicFile = folder.resolve("test.schematic");
+        TestResources.writeSchematic(schematicFile, 4, 1, 4, ids, data);
+        Path objFile = folder.resolve("out").resolve("test.obj");
+        Files.createDirectories(objFile.getParent());
+
+        //First pass writes all the tiles, the second pass only changes the tile at 0,0
+        assertTrue(export(schematicFile, objFile));
+
+        //Mark the tiles, so that the second pass shows which ones were kept and which were written again
+        Path keptTile = markTile(folder.resolve("out").resolve("test_1_1.obj"));
+        Path changedTile = markTile(folder.resolve("out").resolve("test_0_0.obj"));
+        byte[] keptBytes = Files.readAllBytes(keptTile);
+
+        //A new run starts without the materials of the previous run
+        Constants.CUBE_MODEL_FACTORY.clearData();
+        Constants.BLOCK_MATERIALS.clear();
+
+        ids[0] = WOOL;
+        data[0] = 1;
+        TestResources.writeSchematic(schematicFile, 4, 1, 4, ids, data);
+        assertTrue(export(schematicFile, objFile));
+
+        //The unchanged tile wasn't touched, while the changed tile was written again
+        assertArrayEquals(keptBytes, Files.readAllBytes(keptTile), "the unchanged tile was written again");
+        assertEquals(MARK_TIME, Files.getLastModifiedTime(keptTile));
+        String changed = new String(Files.readAllBytes(changedTile), StandardCharsets.UTF_8);
+        assertFalse(changed.contains(MARK), "the changed tile was kept");
+        assertTrue(changed.contains("usemtl wool_colored_orange"));
+
+        String mtl = new String(Files.readAllBytes(folder.resolve("out").resolve("test.mtl")), StandardCharsets.UTF_8);
+        assertTrue(mtl.contains("newmtl wool_colored_white"), "the material of the kept tile is missing from the MTL");
+        assertTrue(mtl.contains("newmtl wool_colored_orange"), "the material of the converted tile is missing from the MTL");
+        assertTrue(mtl.contains("newmtl stone"));
+
+        Path textureFolder = folder.resolve("out").resolve("test");
+        assertTrue(Files.exists(textureFolder.resolve("wool_colored_white.png")), "the texture of the kept tile is missing");
+        assertTrue(Files.exists(textureFolder.resolve("wool_colored_orange.png")));
+
+        String manifest = new String(Files.readAllBytes(folder.resolve("out").resolve("test_tiles.json")), StandardCharsets.UTF_8);
+        assertTrue(manifest.contains("blocks/wool_colored_white"));
+    }
+
+    /**
+     * Append a comment to the tile, and set It's last modified time back, as a tile that is kept stays unchanged
+     */
+    private static Path markTile(Path tileFile) throws IOException {
+        assertTrue(Files.exists(tileFile));
+        Files.write(tileFile, String.format("%s%n", MARK).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(tileFile, MARK_TIME);
+
+        return tileFile;
+    }
+
+    @Test
+    public void convertsAllTilesWithExteriorOnly() throws Exception {
+        //The exterior is filled across all the tiles, so none of them can be kept
+        assertNoTileKept(context -> context.setExteriorOnly(true));
+    }
+
+    @Test
+    public void convertsAllTilesWithCameras() throws Exception {
+        //The rays from the camera cross all the tiles, so none of them can be kept
+        assertNoTileKept(context -> context.setCameras(Collections.singletonList(new double[]{2, 4, 2})));
+    }
+
+    /**
+     * Export the same schematic twice, and check that the second pass wrote every tile again
+     * @param flags Sets the flags of the conversion, besides the tiles
+     */
+    private void assertNoTileKept(Consumer<ConversionContext> flags) throws Exception {
+        TestResources.registerResourcePack(folder.resolve("pack"));
+
+        int[] ids = new int[16];
+        Arrays.fill(ids, STONE);
+        Path schematicFile = folder.resolve("test.schematic");
+        TestResources.writeSchematic(schematicFile, 4, 1, 4, ids, new int[16]);
+        Path objFile = folder.resolve("out").resolve("test.obj");
+        Files.createDirectories(objFile.getParent());
+
+        assertTrue(export(schematicFile, objFile, flags));
+        Path tile = markTile(folder.resolve("out").resolve("test_1_1.obj"));
+
+        assertTrue(export(schematicFile, objFile, flags));
+        assertFalse(new String(Files.readAllBytes(tile), StandardCharsets.UTF_8).contains(MARK), "the tile was kept");
+    }
+
+    private static boolean export(Path schematicFile, Path objFile){
+        return export(schematicFile, objFile, context -> {});
+    }
+
+    private static boolean export(Path schematicFile, Path objFile, Consumer<ConversionContext> flags){
+        ConversionContext context = new ConversionContext(false, false, false);
+        context.setTileSize(2);
+        context.setIncremental(true);
+        flags.accept(context);
+
+        return new SchemeToObj().exportScheme(schematicFile.toString(), objFile.toString(), context);
+    }
+}